@@ -7,6 +7,7 @@ package com.longlinkislong.gloop.alspi;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -23,12 +24,97 @@ import org.slf4j.MarkerFactory;
  * @author zmichaels
  */
 public final class DriverManager {
-    
+
     private static final Logger LOGGER = LoggerFactory.getLogger(DriverManager.class);
     private static final Marker MARKER = MarkerFactory.getMarker("gloop-spi");
-    
+
     private final ServiceLoader<DriverProvider> driverLoader;
-    
+    private volatile List<ProbedDriver> probedDrivers;
+
+    /**
+     * The memoized results of probing a single DriverProvider.
+     */
+    private static final class ProbedDriver {
+
+        private final DriverProvider provider;
+        private volatile String name;
+        private final boolean supported;
+        private final double rating;
+        private final Set<String> description;
+
+        private ProbedDriver(final DriverProvider provider) {
+            this.provider = provider;
+            this.supported = provider.isSupported();
+            this.rating = this.supported ? provider.getSupportRating() : 0.0;
+            this.description = Collections.unmodifiableSet(new HashSet<String>(provider.getDriverDescription()));
+        }
+
+        /**
+         * Retrieves the driver name. The default getDriverName creates the
+         * driver, so names are resolved on the calling thread when needed
+         * instead of while probing.
+         */
+        private String name() {
+            String out = this.name;
+
+            if (out == null) {
+                out = this.provider.getDriverName();
+                this.name = out;
+            }
+
+            return out;
+        }
+    }
+
+    /**
+     * Retrieves the probed drivers. The ServiceLoader is iterated at most once
+     * per refresh; each DriverProvider is then probed in parallel.
+     *
+     * @return the immutable list of probed drivers.
+     */
+    private List<ProbedDriver> probe() {
+        List<ProbedDriver> out = this.probedDrivers;
+
+        if (out == null) {
+            synchronized (this.driverLoader) {
+                out = this.probedDrivers;
+
+                if (out == null) {
+                    final List<DriverProvider> providers = new ArrayList<>();
+
+                    for (DriverProvider testDriver : this.driverLoader) {
+                        providers.add(testDriver);
+                    }
+
+                    final long start = System.nanoTime();
+
+                    out = Collections.unmodifiableList(providers.parallelStream()
+                            .map(ProbedDriver::new)
+                            .collect(Collectors.toList()));
+
+                    LOGGER.debug(MARKER, "Probed {} driver(s) in {}ns", out.size(), System.nanoTime() - start);
+
+                    this.probedDrivers = out;
+                }
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Discards the probed driver snapshot. The next query will reload the
+     * DriverProviders and probe them again.
+     *
+     * @since 16.09.01
+     */
+    public void refresh() {
+        synchronized (this.driverLoader) {
+            this.driverLoader.reload();
+            this.probedDrivers = null;
+        }
+    }
+
     /**
      * Retrieves an unordered set of all supported drivers.
      *
@@ -36,9 +122,10 @@ public final class DriverManager {
      * @since 16.03.08
      */
     public Set<DriverProvider> getSupportedDrivers() {
-        return getAllDrivers().stream()
-                .filter(DriverProvider::isSupported)
-                .collect(Collectors.toSet());
+        return Collections.unmodifiableSet(probe().stream()
+                .filter(probed -> probed.supported)
+                .map(probed -> probed.provider)
+                .collect(Collectors.toSet()));
     }
 
     /**
@@ -48,13 +135,9 @@ public final class DriverManager {
      * @since 16.03.08
      */
     public Set<DriverProvider> getAllDrivers() {
-        final Set<DriverProvider> out = new HashSet<>();
-
-        for (DriverProvider testDriver : this.driverLoader) {
-            out.add(testDriver);
-        }
-
-        return out;
+        return Collections.unmodifiableSet(probe().stream()
+                .map(probed -> probed.provider)
+                .collect(Collectors.toSet()));
     }
 
     /**
@@ -65,18 +148,18 @@ public final class DriverManager {
      * @since 16.03.08
      */
     public Optional<Driver> selectBestDriver() {
-        DriverProvider bestDriver = null;
+        ProbedDriver bestDriver = null;
 
-        for (DriverProvider testDriver : driverLoader) {
-            if (testDriver.isSupported()) {
+        for (ProbedDriver testDriver : probe()) {
+            if (testDriver.supported) {
                 if (bestDriver == null) {
                     bestDriver = testDriver;
-                } else if (testDriver.getSupportRating() > bestDriver.getSupportRating()) {
+                } else if (testDriver.rating > bestDriver.rating) {
                     LOGGER.debug(
                             MARKER,
                             "Selecting [{}] over [{}] as best driver",
-                            testDriver.getDriverName(),
-                            bestDriver.getDriverName());
+                            testDriver.name(),
+                            bestDriver.name());
                     bestDriver = testDriver;
                 }
             }
@@ -85,8 +168,8 @@ public final class DriverManager {
         if (bestDriver == null) {
             return Optional.empty();
         } else {
-            LOGGER.info(MARKER, "Selected driver: [{}]", bestDriver.getDriverName());
-            return Optional.of(bestDriver.getDriverInstance());
+            LOGGER.info(MARKER, "Selected driver: [{}]", bestDriver.name());
+            return Optional.of(bestDriver.provider.getDriverInstance());
         }
     }
 
@@ -99,14 +182,13 @@ public final class DriverManager {
      * @since 16.03.08
      */
     public Optional<Driver> selectDriverByName(final String driverName) {
-        for (DriverProvider testDriver : driverLoader) {
-            if (testDriver.getDriverName().equalsIgnoreCase(driverName)) {
-                if (testDriver.isSupported()) {
-                    return Optional.of(testDriver.getDriverInstance());
-                } else {
+        for (ProbedDriver testDriver : probe()) {
+            if (testDriver.name().equalsIgnoreCase(driverName)) {
+                if (!testDriver.supported) {
                     LOGGER.warn(MARKER, "Selected driver [{}] is not supported!", driverName);
-                    return Optional.of(testDriver.getDriverInstance());
                 }
+
+                return Optional.of(testDriver.provider.getDriverInstance());
             }
         }
 
@@ -123,35 +205,24 @@ public final class DriverManager {
      * @since 16.03.10
      */
     public Optional<Driver> selectDriverByDescription(final String... descriptions) {
-        final List<DriverProvider> matches = new ArrayList<>();        
         final List<String> descList = Arrays.asList(descriptions);
+        ProbedDriver bestDriver = null;
 
-        for (DriverProvider testDriver : driverLoader) {
-            final Set<String> mustMatch = new HashSet<>();
-            
-            mustMatch.addAll(testDriver.getDriverDescription());
-            
-            if (testDriver.isSupported()) {
-                if (mustMatch.containsAll(descList)) {
-                    matches.add(testDriver);
+        for (ProbedDriver testDriver : probe()) {
+            if (testDriver.supported && testDriver.description.containsAll(descList)) {
+                if (bestDriver == null || testDriver.rating > bestDriver.rating) {
+                    bestDriver = testDriver;
                 }
             }
         }
 
-        DriverProvider bestDriver = null;
-        for (DriverProvider testDriver : matches) {
-            if (bestDriver == null || testDriver.getSupportRating() > bestDriver.getSupportRating()) {
-                bestDriver = testDriver;
-            }
-        }
-
         if (bestDriver != null) {
-            return Optional.of(bestDriver.getDriverInstance());
+            return Optional.of(bestDriver.provider.getDriverInstance());
         } else {
             return Optional.empty();
         }
     }
-    
+
     public DriverManager() {
         this.driverLoader = ServiceLoader.load(DriverProvider.class);
     } 
@@ -0,0 +1,413 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * An asynchronous facade over a Driver. Every method submits its work to a
+ * ContextExecutor and returns immediately with a CompletableFuture that is
+ * completed on the context thread. The calling thread never waits for the
+ * GPU, which makes the facade safe to use from request threads.
+ *
+ * Query results and fences are polled instead of waited on. Pending polls
+ * are checked after every task submitted through the facade and whenever
+ * poll is called; poll should be called once per frame so that results
+ * complete even when no other work is submitted.
+ *
+ * Dependent stages attached with the non-async CompletableFuture methods run
+ * on the context thread. Use the async variants to move work off of it.
+ *
+ * If the executor rejects a task, the returned future completes
+ * exceptionally with the RejectedExecutionException. If a pending poll
+ * throws, its future completes exceptionally with the exception.
+ *
+ * @author zmichaels
+ * @param <BufferT> the SPI buffer implementation.
+ * @param <FramebufferT> the SPI framebuffer implementation.
+ * @param <RenderbufferT> the SPI renderbuffer implementation.
+ * @param <TextureT> the SPI texture implementation.
+ * @param <ShaderT> the SPI shader implementation.
+ * @param <ProgramT> the SPI program implementation.
+ * @param <SamplerT> the SPI sampler implementation.
+ * @param <VertexArrayT> the SPI vertex array implementation.
+ * @since 16.09.01
+ */
+public final class AsyncDriver<
+        BufferT extends Buffer, FramebufferT extends Framebuffer, RenderbufferT extends Renderbuffer, TextureT extends Texture,
+        ShaderT extends Shader, ProgramT extends Program, SamplerT extends Sampler, VertexArrayT extends VertexArray> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncDriver.class);
+    private static final Marker MARKER = MarkerFactory.getMarker("gloop-spi");
+
+    private final ContextExecutor<? extends Driver<BufferT, FramebufferT, RenderbufferT, TextureT, ShaderT, ProgramT, SamplerT, VertexArrayT>> executor;
+    private final Driver<BufferT, FramebufferT, RenderbufferT, TextureT, ShaderT, ProgramT, SamplerT, VertexArrayT> driver;
+    private List<Pending> pending = new ArrayList<>();
+
+    /**
+     * Constructs a new AsyncDriver.
+     *
+     * @param executor the executor that owns the driver's context.
+     * @since 16.09.01
+     */
+    public AsyncDriver(final ContextExecutor<? extends Driver<BufferT, FramebufferT, RenderbufferT, TextureT, ShaderT, ProgramT, SamplerT, VertexArrayT>> executor) {
+        this.executor = Objects.requireNonNull(executor);
+        this.driver = executor.getDriver();
+    }
+
+    /**
+     * Runs a task that produces a value on the context thread.
+     *
+     * @param <T> the value type.
+     * @param task the task.
+     * @return a future that completes with the value.
+     * @since 16.09.01
+     */
+    public <T> CompletableFuture<T> call(final Function<? super Driver<BufferT, FramebufferT, RenderbufferT, TextureT, ShaderT, ProgramT, SamplerT, VertexArrayT>, ? extends T> task) {
+        Objects.requireNonNull(task);
+
+        final CompletableFuture<T> out = new CompletableFuture<>();
+
+        submit(out, () -> {
+            try {
+                out.complete(task.apply(this.driver));
+            } catch (RuntimeException | Error ex) {
+                out.completeExceptionally(ex);
+            }
+
+            drainPending();
+        });
+
+        return out;
+    }
+
+    private void submit(final CompletableFuture<?> out, final Runnable task) {
+        try {
+            this.executor.execute(new ContextExecutor.RejectableTask() {
+                @Override
+                public void run() {
+                    task.run();
+                }
+
+                @Override
+                public void reject(final RejectedExecutionException cause) {
+                    out.completeExceptionally(cause);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            out.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Runs a task on the context thread.
+     *
+     * @param task the task.
+     * @return a future that completes once the task has run.
+     * @since 16.09.01
+     */
+    public CompletableFuture<Void> run(final Consumer<? super Driver<BufferT, FramebufferT, RenderbufferT, TextureT, ShaderT, ProgramT, SamplerT, VertexArrayT>> task) {
+        Objects.requireNonNull(task);
+
+        return call(drv -> {
+            task.accept(drv);
+            return null;
+        });
+    }
+
+    private <T> CompletableFuture<T> await(final Function<CompletableFuture<T>, BooleanSupplier> poller) {
+        final CompletableFuture<T> out = new CompletableFuture<>();
+
+        submit(out, () -> {
+            try {
+                final BooleanSupplier check = poller.apply(out);
+
+                if (!check.getAsBoolean()) {
+                    this.pending.add(new Pending(check, out));
+                }
+            } catch (RuntimeException | Error ex) {
+                out.completeExceptionally(ex);
+            }
+
+            drainPending();
+        });
+
+        return out;
+    }
+
+    private void drainPending() {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+
+        // completing a future runs dependent stages inline, which may add to
+        // or drain the pending list; swap it out before polling.
+        final List<Pending> polling = this.pending;
+
+        this.pending = new ArrayList<>();
+
+        for (Pending entry : polling) {
+            try {
+                if (!entry.check.getAsBoolean()) {
+                    this.pending.add(entry);
+                }
+            } catch (RuntimeException | Error ex) {
+                LOGGER.error(MARKER, "Pending poll failed: {}", ex.getMessage());
+                LOGGER.debug(MARKER, ex.getMessage(), ex);
+                entry.future.completeExceptionally(ex);
+            }
+        }
+    }
+
+    private static final class Pending {
+
+        private final BooleanSupplier check;
+        private final CompletableFuture<?> future;
+
+        private Pending(final BooleanSupplier check, final CompletableFuture<?> future) {
+            this.check = check;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Checks every pending query and fence. This should be called once per
+     * frame.
+     *
+     * @since 16.09.01
+     */
+    public void poll() {
+        this.executor.execute(this::drainPending);
+    }
+
+    public CompletableFuture<BufferT> bufferCreate() {
+        return call(Driver::bufferCreate);
+    }
+
+    public CompletableFuture<FramebufferT> framebufferCreate() {
+        return call(Driver::framebufferCreate);
+    }
+
+    public CompletableFuture<RenderbufferT> renderbufferCreate(final int internalFormat, final int width, final int height) {
+        return call(drv -> drv.renderbufferCreate(internalFormat, width, height));
+    }
+
+    public CompletableFuture<TextureT> textureAllocate(final int mipmaps, final int internalFormat, final int width, final int height, final int depth, final int dataType) {
+        return call(drv -> drv.textureAllocate(mipmaps, internalFormat, width, height, depth, dataType));
+    }
+
+    public CompletableFuture<ShaderT> shaderCompile(final int type, final String source) {
+        return call(drv -> drv.shaderCompile(type, source));
+    }
+
+    public CompletableFuture<ProgramT> programCreate() {
+        return call(Driver::programCreate);
+    }
+
+    public CompletableFuture<SamplerT> samplerCreate() {
+        return call(Driver::samplerCreate);
+    }
+
+    public CompletableFuture<VertexArrayT> vertexArrayCreate() {
+        return call(Driver::vertexArrayCreate);
+    }
+
+    /**
+     * Reads data from a buffer into a ByteBuffer.
+     *
+     * @param buffer the buffer.
+     * @param offset the offset to read from in bytes.
+     * @param out the ByteBuffer to read into. It must not be accessed until
+     * the future completes.
+     * @return a future that completes with out.
+     * @since 16.09.01
+     */
+    public CompletableFuture<ByteBuffer> bufferGetData(final BufferT buffer, final long offset, final ByteBuffer out) {
+        return call(drv -> {
+            drv.bufferGetData(buffer, offset, out);
+            return out;
+        });
+    }
+
+    /**
+     * Reads data from a buffer into a ByteBuffer acquired from the default
+     * DirectBufferPool. If the read fails, the ByteBuffer is released.
+     *
+     * @param buffer the buffer.
+     * @param offset the offset to read from in bytes.
+     * @param size the number of bytes to read.
+     * @return a future that completes with the data. The ByteBuffer must be
+     * released to DirectBufferPool.getDefault().
+     * @since 16.09.01
+     */
+    public CompletableFuture<ByteBuffer> bufferGetData(final BufferT buffer, final long offset, final int size) {
+        return bufferGetData(buffer, offset, size, DirectBufferPool.getDefault());
+    }
+
+    /**
+     * Reads data from a buffer into a ByteBuffer acquired from a
+     * DirectBufferPool. If the read fails, the ByteBuffer is released.
+     *
+     * @param buffer the buffer.
+     * @param offset the offset to read from in bytes.
+     * @param size the number of bytes to read.
+     * @param pool the pool to acquire the ByteBuffer from.
+     * @return a future that completes with the data. The ByteBuffer must be
+     * released to the pool.
+     * @since 16.09.01
+     */
+    public CompletableFuture<ByteBuffer> bufferGetData(final BufferT buffer, final long offset, final int size, final DirectBufferPool pool) {
+        final ByteBuffer out = pool.acquire(size);
+
+        return bufferGetData(buffer, offset, out).whenComplete((data, err) -> {
+            if (err != null) {
+                pool.release(out);
+            }
+        });
+    }
+
+    /**
+     * Reads data from a texture into a ByteBuffer.
+     *
+     * @param texture the texture.
+     * @param level the mipmap level.
+     * @param format the pixel format.
+     * @param type the pixel pack type.
+     * @param out the ByteBuffer to read into. It must not be accessed until
+     * the future completes.
+     * @return a future that completes with out.
+     * @since 16.09.01
+     */
+    public CompletableFuture<ByteBuffer> textureGetData(final TextureT texture, final int level, final int format, final int type, final ByteBuffer out) {
+        return call(drv -> {
+            drv.textureGetData(texture, level, format, type, out);
+            return out;
+        });
+    }
+
+    /**
+     * Reads pixels from a framebuffer into a ByteBuffer.
+     *
+     * @param framebuffer the framebuffer.
+     * @param x the x pixel to begin read.
+     * @param y the y pixel to begin read.
+     * @param width the number of pixels across to read.
+     * @param height the number of pixels down to read.
+     * @param format the pixel format.
+     * @param type the pixel type.
+     * @param out the ByteBuffer to read into. It must not be accessed until
+     * the future completes.
+     * @return a future that completes with out.
+     * @since 16.09.01
+     */
+    public CompletableFuture<ByteBuffer> framebufferGetPixels(
+            final FramebufferT framebuffer, final int x, final int y, final int width, final int height,
+            final int format, final int type, final ByteBuffer out) {
+
+        return call(drv -> {
+            drv.framebufferGetPixels(framebuffer, x, y, width, height, format, type, out);
+            return out;
+        });
+    }
+
+    /**
+     * Retrieves the result of a query without stalling the context thread.
+     * The future completes once the result is available.
+     *
+     * @param query the query.
+     * @return a future that completes with the query result.
+     * @since 16.09.01
+     */
+    public CompletableFuture<Long> queryGetResult(final Query query) {
+        return this.<Long>await(out -> () -> {
+            if (!this.driver.queryIsResultAvailable(query)) {
+                return false;
+            }
+
+            out.complete(this.driver.queryGetResult(query));
+            return true;
+        });
+    }
+
+    /**
+     * Inserts a Fence after all previously submitted work. The future
+     * completes once the GPU has finished that work; the context thread does
+     * not stall.
+     *
+     * @return a future that completes when the GPU reaches the fence.
+     * @since 16.09.01
+     */
+    public CompletableFuture<Void> fence() {
+        return this.<Void>await(out -> {
+            final Fence fence = this.driver.fenceCreate();
+
+            this.driver.fenceFlush(fence);
+
+            return () -> {
+                final boolean signaled;
+
+                try {
+                    signaled = this.driver.fenceIsSignaled(fence);
+                } catch (RuntimeException | Error ex) {
+                    // the future fails with ex; the fence would never be polled again.
+                    this.driver.fenceDelete(fence);
+                    throw ex;
+                }
+
+                if (!signaled) {
+                    return false;
+                }
+
+                this.driver.fenceDelete(fence);
+                out.complete(null);
+                return true;
+            };
+        });
+    }
+
+    /**
+     * Retrieves the number of queries and fences that are still pending. This
+     * must be called on the context thread.
+     *
+     * @return the pending count.
+     * @since 16.09.01
+     */
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+}
@@ -0,0 +1,310 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads buffer data back without stalling. A read copies the requested range
+ * into a staging buffer with bufferCopyData and fences the copy. Once the
+ * Fence is signaled, poll reads the staging buffer into a direct ByteBuffer
+ * acquired from a DirectBufferPool and completes the read's future. The
+ * consumer must return the ByteBuffer to the pool with release when it is
+ * done with it. Staging buffers are pooled by power-of-two
+ * size class, so steady-state readbacks do not create buffer objects.
+ *
+ * Futures are completed on the thread that calls poll. The AsyncReadback is
+ * not thread-safe. It must be used from the thread that owns the driver's
+ * context.
+ *
+ * @author zmichaels
+ * @param <BufferT> the SPI buffer implementation.
+ * @since 16.09.01
+ */
+public final class AsyncReadback<BufferT extends Buffer> {
+
+    private static final int GL_STREAM_READ = 0x88E1;
+    private static final int MIN_SIZE_CLASS = 4096;
+    private static final long WAIT_TIMEOUT = 1_000_000L;
+
+    private final class Pending {
+
+        private final BufferT staging;
+        private final int sizeClass;
+        private final int size;
+        private final Fence fence;
+        private final CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+
+        private Pending(final BufferT staging, final int sizeClass, final int size, final Fence fence) {
+            this.staging = staging;
+            this.sizeClass = sizeClass;
+            this.size = size;
+            this.fence = fence;
+        }
+    }
+
+    private final Driver<BufferT, ?, ?, ?, ?, ?, ?, ?> driver;
+    private final DirectBufferPool bufferPool;
+    private final int maxPooledPerClass;
+    private final Map<Integer, Deque<BufferT>> pool = new HashMap<>();
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private long stagingCreated;
+    private long stagingReused;
+    private long completed;
+
+    /**
+     * Constructs a new AsyncReadback that pools up to 4 staging buffers per
+     * size class and reads into the default DirectBufferPool.
+     *
+     * @param driver the driver. The driver must support Fence objects.
+     * @since 16.09.01
+     */
+    public AsyncReadback(final Driver<BufferT, ?, ?, ?, ?, ?, ?, ?> driver) {
+        this(driver, DirectBufferPool.getDefault(), 4);
+    }
+
+    /**
+     * Constructs a new AsyncReadback.
+     *
+     * @param driver the driver. The driver must support Fence objects.
+     * @param bufferPool the pool that results are acquired from.
+     * @param maxPooledPerClass the most idle staging buffers kept per size
+     * class. Extra staging buffers are deleted when released.
+     * @since 16.09.01
+     */
+    public AsyncReadback(
+            final Driver<BufferT, ?, ?, ?, ?, ?, ?, ?> driver,
+            final DirectBufferPool bufferPool, final int maxPooledPerClass) {
+
+        if (maxPooledPerClass < 0) {
+            throw new IllegalArgumentException("Max pooled per class cannot be negative!");
+        }
+
+        this.driver = Objects.requireNonNull(driver);
+        this.bufferPool = Objects.requireNonNull(bufferPool);
+        this.maxPooledPerClass = maxPooledPerClass;
+    }
+
+    private static int sizeClass(final int size) {
+        return size <= MIN_SIZE_CLASS ? MIN_SIZE_CLASS : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private BufferT obtainStaging(final int sizeClass) {
+        final Deque<BufferT> free = this.pool.get(sizeClass);
+
+        if (free != null && !free.isEmpty()) {
+            this.stagingReused++;
+            return free.pop();
+        }
+
+        final BufferT staging = this.driver.bufferCreate();
+
+        this.driver.bufferAllocate(staging, sizeClass, GL_STREAM_READ);
+        this.stagingCreated++;
+
+        return staging;
+    }
+
+    private void releaseStaging(final BufferT staging, final int sizeClass) {
+        final Deque<BufferT> free = this.pool.computeIfAbsent(sizeClass, key -> new ArrayDeque<>());
+
+        if (free.size() < this.maxPooledPerClass) {
+            free.push(staging);
+        } else {
+            this.driver.bufferDelete(staging);
+        }
+    }
+
+    /**
+     * Begins reading a range of a buffer. The copy is queued behind all
+     * previously submitted commands, so it observes their writes.
+     *
+     * @param buffer the buffer to read.
+     * @param offset the offset to read from in bytes.
+     * @param size the number of bytes to read.
+     * @return a future that completes with a direct ByteBuffer holding the
+     * data. The position is 0, the limit is the size and the byte order is
+     * native. It must be released to getBufferPool.
+     * @since 16.09.01
+     */
+    public CompletableFuture<ByteBuffer> read(final BufferT buffer, final long offset, final int size) {
+        Objects.requireNonNull(buffer);
+
+        if (offset < 0L) {
+            throw new IllegalArgumentException("Offset cannot be negative!");
+        } else if (size < 1) {
+            throw new IllegalArgumentException("Size must be positive!");
+        } else if (size > (1 << 30)) {
+            throw new IllegalArgumentException("Size cannot exceed 1GB!");
+        }
+
+        final int sizeClass = sizeClass(size);
+        final BufferT staging = obtainStaging(sizeClass);
+
+        this.driver.bufferCopyData(buffer, offset, staging, 0L, size);
+
+        final Fence fence = this.driver.fenceCreate();
+
+        this.driver.fenceFlush(fence);
+
+        final Pending read = new Pending(staging, sizeClass, size, fence);
+
+        this.pending.offer(read);
+
+        return read.future;
+    }
+
+    /**
+     * Completes every read whose copy has finished, without blocking. Reads
+     * complete in the order they were issued.
+     *
+     * @return the number of reads completed.
+     * @since 16.09.01
+     */
+    public int poll() {
+        int count = 0;
+
+        while (!this.pending.isEmpty() && this.driver.fenceIsSignaled(this.pending.peek().fence)) {
+            complete(this.pending.poll());
+            count++;
+        }
+
+        return count;
+    }
+
+    private void complete(final Pending read) {
+        this.driver.fenceDelete(read.fence);
+
+        ByteBuffer out = null;
+
+        try {
+            out = this.bufferPool.acquire(read.size);
+            this.driver.bufferGetData(read.staging, 0L, out);
+            out.clear().limit(read.size);
+            read.future.complete(out);
+        } catch (RuntimeException ex) {
+            if (out != null) {
+                this.bufferPool.release(out);
+            }
+
+            read.future.completeExceptionally(ex);
+        } finally {
+            releaseStaging(read.staging, read.sizeClass);
+            this.completed++;
+        }
+    }
+
+    /**
+     * Blocks until every pending read is complete.
+     *
+     * @since 16.09.01
+     */
+    public void finish() {
+        while (!this.pending.isEmpty()) {
+            final Pending read = this.pending.poll();
+
+            while (!this.driver.fenceClientWait(read.fence, WAIT_TIMEOUT)) {
+                Thread.yield();
+            }
+
+            complete(read);
+        }
+    }
+
+    /**
+     * Retrieves the pool that results are acquired from.
+     *
+     * @return the buffer pool.
+     * @since 16.09.01
+     */
+    public DirectBufferPool getBufferPool() {
+        return this.bufferPool;
+    }
+
+    /**
+     * Retrieves the number of reads that have not completed.
+     *
+     * @return the pending count.
+     * @since 16.09.01
+     */
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+
+    /**
+     * Retrieves the number of reads completed.
+     *
+     * @return the completed count.
+     * @since 16.09.01
+     */
+    public long getCompletedCount() {
+        return this.completed;
+    }
+
+    /**
+     * Retrieves the number of staging buffers created.
+     *
+     * @return the created count.
+     * @since 16.09.01
+     */
+    public long getStagingCreatedCount() {
+        return this.stagingCreated;
+    }
+
+    /**
+     * Retrieves the number of reads that reused a pooled staging buffer.
+     *
+     * @return the reused count.
+     * @since 16.09.01
+     */
+    public long getStagingReusedCount() {
+        return this.stagingReused;
+    }
+
+    /**
+     * Completes all pending reads, blocking as needed, and deletes every
+     * pooled staging buffer.
+     *
+     * @since 16.09.01
+     */
+    public void delete() {
+        finish();
+
+        for (Deque<BufferT> free : this.pool.values()) {
+            while (!free.isEmpty()) {
+                this.driver.bufferDelete(free.pop());
+            }
+        }
+
+        this.pool.clear();
+    }
+}
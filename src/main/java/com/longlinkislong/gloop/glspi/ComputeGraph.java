@@ -0,0 +1,417 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A graph of compute dispatches. Each dispatch declares the resources it reads
+ * and writes. Compiling the graph produces a schedule that preserves every
+ * read-after-write, write-after-write and write-after-read dependency,
+ * groups independent dispatches of the same program together so the program
+ * is bound once per group, and inserts a memory barrier only when a dispatch
+ * accesses a resource written since the last barrier. Each barrier carries
+ * only the bits required by the accesses it protects.
+ *
+ * A compiled graph may be executed any number of times. The ComputeGraph is
+ * not thread-safe.
+ *
+ * @author zmichaels
+ * @param <BufferT> the SPI buffer implementation.
+ * @param <ProgramT> the SPI program implementation.
+ * @since 16.09.01
+ */
+public final class ComputeGraph<BufferT extends Buffer, ProgramT extends Program> {
+
+    private static final int GL_COMMAND_BARRIER_BIT = 0x00000040;
+
+    /**
+     * A declared access to a resource. The barrier bits describe how the
+     * resource is accessed; they are issued if the resource was written by an
+     * earlier dispatch since the last barrier. For example, a storage buffer
+     * read uses GL_SHADER_STORAGE_BARRIER_BIT and a texture fetch uses
+     * GL_TEXTURE_FETCH_BARRIER_BIT.
+     *
+     * @since 16.09.01
+     */
+    public static final class Access {
+
+        public final Object resource;
+        public final int barrierBits;
+
+        private Access(final Object resource, final int barrierBits) {
+            this.resource = Objects.requireNonNull(resource);
+            this.barrierBits = barrierBits;
+        }
+
+        /**
+         * Constructs a new Access.
+         *
+         * @param resource the accessed resource. Resources are compared by
+         * identity.
+         * @param barrierBits the barrier bits required before the access if
+         * the resource is dirty.
+         * @return the Access.
+         * @since 16.09.01
+         */
+        public static Access of(final Object resource, final int barrierBits) {
+            return new Access(resource, barrierBits);
+        }
+    }
+
+    private final class Job {
+
+        private final int index;
+        private final ProgramT program;
+        private final int numX;
+        private final int numY;
+        private final int numZ;
+        private final BufferT cmdBuffer;
+        private final long cmdOffset;
+        private final List<Access> reads;
+        private final List<Access> writes;
+        private final List<Job> dependents = new ArrayList<>();
+        private int unresolved;
+
+        private Job(
+                final ProgramT program, final int numX, final int numY, final int numZ,
+                final BufferT cmdBuffer, final long cmdOffset,
+                final Collection<Access> reads, final Collection<Access> writes) {
+
+            this.index = ComputeGraph.this.jobs.size();
+            this.program = Objects.requireNonNull(program);
+            this.numX = numX;
+            this.numY = numY;
+            this.numZ = numZ;
+            this.cmdBuffer = cmdBuffer;
+            this.cmdOffset = cmdOffset;
+            this.reads = new ArrayList<>(reads);
+            this.writes = new ArrayList<>(writes);
+        }
+
+        private boolean touchesAny(final Set<Object> resources) {
+            return this.reads.stream().anyMatch(access -> resources.contains(access.resource))
+                    || this.writes.stream().anyMatch(access -> resources.contains(access.resource));
+        }
+
+        private int barrierBitsFor(final Set<Object> resources) {
+            int bits = 0;
+
+            for (Access access : this.reads) {
+                if (resources.contains(access.resource)) {
+                    bits |= access.barrierBits;
+                }
+            }
+
+            for (Access access : this.writes) {
+                if (resources.contains(access.resource)) {
+                    bits |= access.barrierBits;
+                }
+            }
+
+            return bits;
+        }
+    }
+
+    private final List<Job> jobs = new ArrayList<>();
+    private final List<Object> schedule = new ArrayList<>();
+    private boolean compiled;
+    private int barrierCount;
+    private int programSwitchCount;
+
+    private static Set<Object> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Adds a compute dispatch to the graph.
+     *
+     * @param program the compute program.
+     * @param numX the number of compute groups along the x-axis.
+     * @param numY the number of compute groups along the y-axis.
+     * @param numZ the number of compute groups along the z-axis.
+     * @param reads the resources read by the dispatch.
+     * @param writes the resources written by the dispatch.
+     * @return self reference.
+     * @since 16.09.01
+     */
+    public ComputeGraph<BufferT, ProgramT> dispatch(
+            final ProgramT program, final int numX, final int numY, final int numZ,
+            final Collection<Access> reads, final Collection<Access> writes) {
+
+        this.jobs.add(new Job(program, numX, numY, numZ, null, 0L, reads, writes));
+        this.compiled = false;
+        return this;
+    }
+
+    /**
+     * Adds an indirect compute dispatch to the graph. A read of the command
+     * buffer is declared automatically.
+     *
+     * @param program the compute program.
+     * @param cmdBuffer the buffer holding the dispatch command.
+     * @param offset the offset of the dispatch command.
+     * @param reads the resources read by the dispatch.
+     * @param writes the resources written by the dispatch.
+     * @return self reference.
+     * @since 16.09.01
+     */
+    public ComputeGraph<BufferT, ProgramT> dispatchIndirect(
+            final ProgramT program, final BufferT cmdBuffer, final long offset,
+            final Collection<Access> reads, final Collection<Access> writes) {
+
+        final List<Access> allReads = new ArrayList<>(reads);
+
+        allReads.add(Access.of(Objects.requireNonNull(cmdBuffer), GL_COMMAND_BARRIER_BIT));
+        this.jobs.add(new Job(program, 0, 0, 0, cmdBuffer, offset, allReads, writes));
+        this.compiled = false;
+        return this;
+    }
+
+    /**
+     * Convenience method for declaring accesses.
+     *
+     * @param accesses the accesses.
+     * @return the list of accesses.
+     * @since 16.09.01
+     */
+    public static List<Access> accesses(final Access... accesses) {
+        return Arrays.asList(accesses);
+    }
+
+    /**
+     * Compiles the schedule. This is called implicitly by execute if the graph
+     * changed.
+     *
+     * @since 16.09.01
+     */
+    public void compile() {
+        this.schedule.clear();
+        this.barrierCount = 0;
+        this.programSwitchCount = 0;
+
+        final Map<Object, Job> lastWriter = new IdentityHashMap<>();
+        final Map<Object, List<Job>> readersSinceWrite = new IdentityHashMap<>();
+
+        for (Job job : this.jobs) {
+            job.dependents.clear();
+            job.unresolved = 0;
+
+            final Set<Job> deps = Collections.newSetFromMap(new IdentityHashMap<>());
+
+            for (Access read : job.reads) {
+                final Job writer = lastWriter.get(read.resource);
+
+                if (writer != null) {
+                    deps.add(writer);
+                }
+            }
+
+            for (Access write : job.writes) {
+                final Job writer = lastWriter.get(write.resource);
+
+                if (writer != null) {
+                    deps.add(writer);
+                }
+
+                deps.addAll(readersSinceWrite.getOrDefault(write.resource, Collections.emptyList()));
+            }
+
+            deps.remove(job);
+
+            for (Job dep : deps) {
+                dep.dependents.add(job);
+                job.unresolved++;
+            }
+
+            for (Access read : job.reads) {
+                readersSinceWrite.computeIfAbsent(read.resource, key -> new ArrayList<>()).add(job);
+            }
+
+            for (Access write : job.writes) {
+                lastWriter.put(write.resource, job);
+                readersSinceWrite.remove(write.resource);
+            }
+        }
+
+        final List<Job> ready = new ArrayList<>();
+        final List<Job> unscheduled = new ArrayList<>(this.jobs);
+        final Set<Object> dirty = identitySet();
+        ProgramT lastProgram = null;
+
+        for (Job job : this.jobs) {
+            if (job.unresolved == 0) {
+                ready.add(job);
+            }
+        }
+
+        while (!ready.isEmpty()) {
+            Job next = null;
+
+            for (Job candidate : ready) {
+                if (!candidate.touchesAny(dirty)) {
+                    if (candidate.program == lastProgram) {
+                        next = candidate;
+                        break;
+                    } else if (next == null) {
+                        next = candidate;
+                    }
+                }
+            }
+
+            if (next == null) {
+                int bits = 0;
+
+                for (Job job : unscheduled) {
+                    bits |= job.barrierBitsFor(dirty);
+                }
+
+                this.schedule.add(bits);
+                this.barrierCount++;
+                dirty.clear();
+                continue;
+            }
+
+            if (next.program != lastProgram) {
+                this.programSwitchCount++;
+                lastProgram = next.program;
+            }
+
+            this.schedule.add(next);
+            ready.remove(next);
+            unscheduled.remove(next);
+
+            for (Access write : next.writes) {
+                dirty.add(write.resource);
+            }
+
+            for (Job dependent : next.dependents) {
+                if (--dependent.unresolved == 0) {
+                    insertByIndex(ready, dependent);
+                }
+            }
+        }
+
+        this.compiled = true;
+    }
+
+    private void insertByIndex(final List<Job> ready, final Job job) {
+        int i = 0;
+
+        while (i < ready.size() && ready.get(i).index < job.index) {
+            i++;
+        }
+
+        ready.add(i, job);
+    }
+
+    /**
+     * Executes the compiled schedule. Writes made by the final dispatches are
+     * not followed by a barrier; the caller is responsible for issuing a
+     * barrier for any consumers outside of the graph.
+     *
+     * @param driver the driver. The driver must support compute shaders and
+     * memory barriers.
+     * @since 16.09.01
+     */
+    @SuppressWarnings("unchecked")
+    public void execute(final Driver<BufferT, ?, ?, ?, ?, ProgramT, ?, ?> driver) {
+        if (!this.compiled) {
+            compile();
+        }
+
+        for (Object step : this.schedule) {
+            if (step instanceof Integer) {
+                driver.memoryBarrier((Integer) step);
+            } else {
+                final Job job = (Job) step;
+
+                if (job.cmdBuffer != null) {
+                    driver.programDispatchComputeIndirect(job.program, job.cmdBuffer, job.cmdOffset);
+                } else {
+                    driver.programDispatchCompute(job.program, job.numX, job.numY, job.numZ);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all dispatches from the graph.
+     *
+     * @since 16.09.01
+     */
+    public void clear() {
+        this.jobs.clear();
+        this.schedule.clear();
+        this.compiled = false;
+    }
+
+    /**
+     * Retrieves the number of dispatches in the graph.
+     *
+     * @return the number of dispatches.
+     * @since 16.09.01
+     */
+    public int getDispatchCount() {
+        return this.jobs.size();
+    }
+
+    /**
+     * Retrieves the number of barriers in the compiled schedule.
+     *
+     * @return the number of barriers.
+     * @since 16.09.01
+     */
+    public int getBarrierCount() {
+        if (!this.compiled) {
+            compile();
+        }
+
+        return this.barrierCount;
+    }
+
+    /**
+     * Retrieves the number of times the compiled schedule changes program.
+     *
+     * @return the number of program switches.
+     * @since 16.09.01
+     */
+    public int getProgramSwitchCount() {
+        if (!this.compiled) {
+            compile();
+        }
+
+        return this.programSwitchCount;
+    }
+}
@@ -23,8 +23,27 @@ public interface ContextDriver<
 
     CommandQueueT windowGetCommandQueue(WindowT window);
 
+    /**
+     * Submits a command buffer for immediate execution. Command buffers
+     * submitted to the same queue execute in submission order, and the command
+     * buffer has been handed to the GPU when this method returns.
+     *
+     * @param queue the command queue.
+     * @param cmd the command buffer.
+     * @since 16.09.01
+     */
     void submitCommandBuffer(CommandQueueT queue, CommandBufferT cmd);
-    
+
+    /**
+     * Schedules a command buffer for deferred execution. The implementation
+     * may delay it and reorder it relative to other scheduled command buffers,
+     * but it must execute before the queue's window is next swapped. Use
+     * FrameScheduler for control over priorities and deadlines.
+     *
+     * @param queue the command queue.
+     * @param cmd the command buffer.
+     * @since 16.09.01
+     */
     void scheduleCommandBuffer(CommandQueueT queue, CommandBufferT cmd);
 
     void windowResetCreationHints();
@@ -58,4 +77,72 @@ public interface ContextDriver<
     int windowGetFrameRight(WindowT window);
     
     int windowGetFrameBottom(WindowT window);
+
+    /**
+     * Creates a hidden, offscreen context that shares objects with the
+     * context of the supplied window. The returned Window is never shown and
+     * must be closed with windowClose. This method has the same threading
+     * requirements as windowOpen.
+     *
+     * @param share the window whose objects are shared.
+     * @return the hidden shared context.
+     * @since 16.09.01
+     */
+    default WindowT contextCreateShared(WindowT share) {
+        throw new UnsupportedOperationException("Shared contexts are not supported by this implementation!");
+    }
+
+    /**
+     * Makes the context of the window current on the calling thread. A context
+     * may only be current on one thread at a time.
+     *
+     * @param context the context to make current.
+     * @since 16.09.01
+     */
+    default void contextMakeCurrent(WindowT context) {
+        throw new UnsupportedOperationException("Shared contexts are not supported by this implementation!");
+    }
+
+    /**
+     * Releases the context that is current on the calling thread.
+     *
+     * @since 16.09.01
+     */
+    default void contextReleaseCurrent() {
+        throw new UnsupportedOperationException("Shared contexts are not supported by this implementation!");
+    }
+
+    /**
+     * Sets the callback that receives key events for a window. Passing null
+     * removes the callback. The other windowSet*Callback methods behave the
+     * same way for their event types. Callbacks are invoked on the thread
+     * that polls window events.
+     *
+     * @param window the window.
+     * @param callback the callback.
+     * @since 16.09.01
+     */
+    default void windowSetKeyCallback(WindowT window, WindowCallbacks.KeyCallback callback) {
+        throw new UnsupportedOperationException("Window callbacks are not supported by this implementation!");
+    }
+
+    default void windowSetMouseButtonCallback(WindowT window, WindowCallbacks.MouseButtonCallback callback) {
+        throw new UnsupportedOperationException("Window callbacks are not supported by this implementation!");
+    }
+
+    default void windowSetCursorEnterCallback(WindowT window, WindowCallbacks.CursorEnterCallback callback) {
+        throw new UnsupportedOperationException("Window callbacks are not supported by this implementation!");
+    }
+
+    default void windowSetCursorPosCallback(WindowT window, WindowCallbacks.CursorPosCallback callback) {
+        throw new UnsupportedOperationException("Window callbacks are not supported by this implementation!");
+    }
+
+    default void windowSetScrollCallback(WindowT window, WindowCallbacks.ScrollCallback callback) {
+        throw new UnsupportedOperationException("Window callbacks are not supported by this implementation!");
+    }
+
+    default void windowSetCharCallback(WindowT window, WindowCallbacks.CharCallback callback) {
+        throw new UnsupportedOperationException("Window callbacks are not supported by this implementation!");
+    }
 }
@@ -0,0 +1,572 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * An executor that owns the thread of a context. All tasks run on a single
+ * dedicated thread created by the supplied ThreadFactoryFactory. Any thread
+ * may submit tasks without taking a lock: tasks are published into a bounded
+ * ring buffer with a compare-and-swap on the tail and drained by the context
+ * thread in batches.
+ *
+ * When the ring is full, submitting threads spin, then yield, then park
+ * until space is available. When the ring is empty, the context thread does
+ * the same and is unparked by the next submission. Submissions made from the
+ * context thread itself run immediately so that a task can never deadlock on
+ * a full ring.
+ *
+ * The time between submission and execution of each task is recorded. Java
+ * offers no way to pin a thread to a CPU; if pinning is required, it must be
+ * done by the ThreadFactory.
+ *
+ * If the context setup fails, or anything else escapes the context thread,
+ * the executor stops: the failure is logged and every later submission is
+ * rejected with the failure as its cause. Tasks that are still in the ring
+ * when the context thread exits, after a failure or a close, never run.
+ * Those that implement RejectableTask are rejected; others are dropped with
+ * a warning.
+ *
+ * @author zmichaels
+ * @param <DriverT> the driver type passed to tasks.
+ * @since 16.09.01
+ */
+public final class ContextExecutor<DriverT extends Driver<?, ?, ?, ?, ?, ?, ?, ?>> implements Executor, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContextExecutor.class);
+    private static final Marker MARKER = MarkerFactory.getMarker("gloop-spi");
+
+    /**
+     * The default ring capacity.
+     *
+     * @since 16.09.01
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * The default maximum number of tasks run per batch.
+     *
+     * @since 16.09.01
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final int SPIN_ITERATIONS = 1000;
+    private static final int YIELD_ITERATIONS = 100;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final DriverT driver;
+    private final int mask;
+    private final int batchSize;
+    private final Runnable[] tasks;
+    private final long[] submitTimes;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final Thread thread;
+    private volatile long head;
+    private volatile boolean consumerParked;
+    private volatile boolean running = true;
+    private volatile Throwable failure;
+    private volatile boolean terminated;
+
+    private final AtomicLong backPressureCount = new AtomicLong();
+    private volatile long executedCount;
+    private volatile long totalLatency;
+    private volatile long maxLatency;
+    private volatile long batchCount;
+    private volatile long parkCount;
+
+    /**
+     * Constructs a new ContextExecutor with the default capacity and batch
+     * size and no context setup.
+     *
+     * @param driver the driver passed to tasks.
+     * @param threads the source of the context thread.
+     * @since 16.09.01
+     */
+    public ContextExecutor(final DriverT driver, final ThreadFactoryFactory threads) {
+        this(driver, threads, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, null);
+    }
+
+    /**
+     * Constructs a new ContextExecutor and starts its thread.
+     *
+     * @param driver the driver passed to tasks.
+     * @param threads the source of the context thread.
+     * @param capacity the ring capacity. Rounded up to a power of two.
+     * @param batchSize the maximum number of tasks run per batch.
+     * @param contextSetup run once on the context thread before any task,
+     * usually to make a context current. May be null.
+     * @since 16.09.01
+     */
+    public ContextExecutor(
+            final DriverT driver, final ThreadFactoryFactory threads,
+            final int capacity, final int batchSize, final Runnable contextSetup) {
+
+        if (capacity < 2 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 2 and 2^30!");
+        } else if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1!");
+        }
+
+        final int size = Integer.highestOneBit(capacity - 1) << 1;
+
+        this.driver = Objects.requireNonNull(driver);
+        this.mask = size - 1;
+        this.batchSize = batchSize;
+        this.tasks = new Runnable[size];
+        this.submitTimes = new long[size];
+        this.sequences = new AtomicLongArray(size);
+
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+
+        this.thread = threads.getThreadFactory().newThread(() -> {
+            try {
+                if (contextSetup != null) {
+                    contextSetup.run();
+                }
+
+                this.drainLoop();
+            } catch (Throwable ex) {
+                this.failure = ex;
+                this.running = false;
+
+                LOGGER.error(MARKER, "Context thread [{}] failed: {}", Thread.currentThread().getName(), ex.getMessage());
+                LOGGER.debug(MARKER, ex.getMessage(), ex);
+            }
+
+            this.terminated = true;
+            this.rejectRemaining();
+        });
+
+        this.thread.start();
+    }
+
+    /**
+     * Retrieves the driver passed to tasks.
+     *
+     * @return the driver.
+     * @since 16.09.01
+     */
+    public DriverT getDriver() {
+        return this.driver;
+    }
+
+    /**
+     * Checks if the calling thread is the context thread.
+     *
+     * @return true if called from the context thread.
+     * @since 16.09.01
+     */
+    public boolean isContextThread() {
+        return Thread.currentThread() == this.thread;
+    }
+
+    private boolean offer(final Runnable task) {
+        long pos = this.tail.get();
+
+        while (true) {
+            final int idx = (int) (pos & this.mask);
+            final long diff = this.sequences.get(idx) - pos;
+
+            if (diff == 0L) {
+                if (this.tail.compareAndSet(pos, pos + 1)) {
+                    this.tasks[idx] = task;
+                    this.submitTimes[idx] = System.nanoTime();
+                    this.sequences.set(idx, pos + 1);
+
+                    if (this.consumerParked) {
+                        this.consumerParked = false;
+                        LockSupport.unpark(this.thread);
+                    }
+
+                    return true;
+                }
+
+                pos = this.tail.get();
+            } else if (diff < 0L) {
+                return false;
+            } else {
+                pos = this.tail.get();
+            }
+        }
+    }
+
+    /**
+     * Submits a task without waiting for space in the ring.
+     *
+     * @param task the task.
+     * @return false if the ring is full.
+     * @throws RejectedExecutionException if the executor was closed or its
+     * context thread failed.
+     * @since 16.09.01
+     */
+    public boolean trySubmit(final Runnable task) {
+        Objects.requireNonNull(task);
+
+        if (!this.running) {
+            throw rejected();
+        } else if (isContextThread()) {
+            runTask(task);
+            return true;
+        } else if (offer(task)) {
+            checkAccepted();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private void checkAccepted() {
+        // the executor may have stopped between the running check and the
+        // offer. Until the context thread terminates, it either runs the task
+        // or rejects it on exit; after that, nothing would see the task.
+        if (!this.running && this.terminated) {
+            rejectRemaining();
+            throw rejected();
+        }
+    }
+
+    private synchronized void rejectRemaining() {
+        final RejectedExecutionException cause = rejected();
+        int dropped = 0;
+        Runnable task;
+
+        while ((task = poll()) != null) {
+            if (task instanceof RejectableTask) {
+                try {
+                    ((RejectableTask) task).reject(cause);
+                } catch (RuntimeException | Error ex) {
+                    LOGGER.error(MARKER, "Task rejection failed: {}", ex.getMessage());
+                    LOGGER.debug(MARKER, ex.getMessage(), ex);
+                }
+            } else {
+                dropped++;
+            }
+        }
+
+        if (dropped > 0) {
+            LOGGER.warn(MARKER, "Dropped {} tasks submitted to a stopped ContextExecutor!", dropped);
+        }
+    }
+
+    private RejectedExecutionException rejected() {
+        final Throwable cause = this.failure;
+
+        return cause == null
+                ? new RejectedExecutionException("ContextExecutor is closed!")
+                : new RejectedExecutionException("ContextExecutor context thread failed!", cause);
+    }
+
+    /**
+     * Submits a task. If the ring is full, the calling thread waits until
+     * space is available.
+     *
+     * @param task the task.
+     * @throws RejectedExecutionException if the executor was closed or its
+     * context thread failed.
+     * @since 16.09.01
+     */
+    @Override
+    public void execute(final Runnable task) {
+        if (trySubmit(task)) {
+            return;
+        }
+
+        this.backPressureCount.incrementAndGet();
+
+        int idle = 0;
+        long parkNanos = 1000L;
+
+        while (!offer(task)) {
+            if (!this.running) {
+                throw rejected();
+            } else if (idle < SPIN_ITERATIONS) {
+                idle++;
+            } else if (idle < SPIN_ITERATIONS + YIELD_ITERATIONS) {
+                idle++;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        }
+
+        checkAccepted();
+    }
+
+    /**
+     * Submits a task that receives the driver.
+     *
+     * @param task the task.
+     * @since 16.09.01
+     */
+    public void submit(final Consumer<? super DriverT> task) {
+        Objects.requireNonNull(task);
+        execute(() -> task.accept(this.driver));
+    }
+
+    /**
+     * Submits a task that receives the driver and produces a value.
+     *
+     * @param <T> the value type.
+     * @param task the task.
+     * @return a future that completes on the context thread with the value.
+     * It completes exceptionally with a RejectedExecutionException if the
+     * task is rejected.
+     * @since 16.09.01
+     */
+    public <T> CompletableFuture<T> supply(final Function<? super DriverT, ? extends T> task) {
+        Objects.requireNonNull(task);
+
+        final CompletableFuture<T> out = new CompletableFuture<>();
+
+        try {
+            execute(new RejectableTask() {
+                @Override
+                public void run() {
+                    try {
+                        out.complete(task.apply(ContextExecutor.this.driver));
+                    } catch (RuntimeException | Error ex) {
+                        out.completeExceptionally(ex);
+                    }
+                }
+
+                @Override
+                public void reject(final RejectedExecutionException cause) {
+                    out.completeExceptionally(cause);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            out.completeExceptionally(ex);
+        }
+
+        return out;
+    }
+
+    private Runnable poll() {
+        final int idx = (int) (this.head & this.mask);
+
+        if (this.sequences.get(idx) != this.head + 1) {
+            return null;
+        }
+
+        final Runnable task = this.tasks[idx];
+        final long latency = System.nanoTime() - this.submitTimes[idx];
+
+        this.tasks[idx] = null;
+        this.sequences.lazySet(idx, this.head + this.tasks.length);
+        this.head++;
+
+        recordLatency(latency);
+        return task;
+    }
+
+    private void recordLatency(final long latency) {
+        // only the context thread writes the metrics.
+        this.totalLatency += latency;
+
+        if (latency > this.maxLatency) {
+            this.maxLatency = latency;
+        }
+    }
+
+    private void runTask(final Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException | Error ex) {
+            LOGGER.error(MARKER, "Context task failed: {}", ex.getMessage());
+            LOGGER.debug(MARKER, ex.getMessage(), ex);
+        }
+
+        this.executedCount++;
+    }
+
+    private void drainLoop() {
+        int idle = 0;
+
+        while (this.running || this.tail.get() != this.head) {
+            int executed = 0;
+            Runnable task;
+
+            while (executed < this.batchSize && (task = poll()) != null) {
+                runTask(task);
+                executed++;
+            }
+
+            if (executed > 0) {
+                this.batchCount++;
+                idle = 0;
+            } else if (idle < SPIN_ITERATIONS) {
+                idle++;
+            } else if (idle < SPIN_ITERATIONS + YIELD_ITERATIONS) {
+                idle++;
+                Thread.yield();
+            } else {
+                this.consumerParked = true;
+
+                if (this.tail.get() == this.head && this.running) {
+                    this.parkCount++;
+                    LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                }
+
+                this.consumerParked = false;
+            }
+        }
+
+        LOGGER.debug(MARKER, "Context thread [{}] stopped after {} tasks.", Thread.currentThread().getName(), this.executedCount);
+    }
+
+    /**
+     * Retrieves the number of tasks that have run.
+     *
+     * @return the executed count.
+     * @since 16.09.01
+     */
+    public long getExecutedCount() {
+        return this.executedCount;
+    }
+
+    /**
+     * Retrieves the number of submissions that had to wait for space in the
+     * ring.
+     *
+     * @return the back-pressure count.
+     * @since 16.09.01
+     */
+    public long getBackPressureCount() {
+        return this.backPressureCount.get();
+    }
+
+    /**
+     * Retrieves the number of batches drained by the context thread.
+     *
+     * @return the batch count.
+     * @since 16.09.01
+     */
+    public long getBatchCount() {
+        return this.batchCount;
+    }
+
+    /**
+     * Retrieves the number of times the context thread parked while idle.
+     *
+     * @return the park count.
+     * @since 16.09.01
+     */
+    public long getParkCount() {
+        return this.parkCount;
+    }
+
+    /**
+     * Retrieves the average time between submission and execution of queued
+     * tasks.
+     *
+     * @return the average latency in nanoseconds.
+     * @since 16.09.01
+     */
+    public double getAverageLatency() {
+        final long queued = this.head;
+
+        return queued == 0L ? 0.0 : (double) this.totalLatency / queued;
+    }
+
+    /**
+     * Retrieves the longest time between submission and execution of a
+     * queued task.
+     *
+     * @return the maximum latency in nanoseconds.
+     * @since 16.09.01
+     */
+    public long getMaxLatency() {
+        return this.maxLatency;
+    }
+
+    /**
+     * Retrieves the number of tasks waiting in the ring.
+     *
+     * @return the pending task count.
+     * @since 16.09.01
+     */
+    public int getPendingCount() {
+        return (int) Math.max(0L, this.tail.get() - this.head);
+    }
+
+    /**
+     * Stops accepting tasks, runs every task already in the ring and waits
+     * for the context thread to exit. Tasks submitted concurrently with close
+     * may be rejected instead of run. Calling close from the context thread
+     * does not wait.
+     *
+     * @since 16.09.01
+     */
+    @Override
+    public void close() {
+        this.running = false;
+        LockSupport.unpark(this.thread);
+
+        if (!isContextThread()) {
+            try {
+                this.thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * A task that is notified when it will never run. Tasks still in the ring
+     * when the context thread exits are rejected with the reason the executor
+     * stopped.
+     *
+     * @since 16.09.01
+     */
+    public interface RejectableTask extends Runnable {
+
+        /**
+         * Called instead of run when the task will never run.
+         *
+         * @param cause why the task was rejected.
+         * @since 16.09.01
+         */
+        void reject(RejectedExecutionException cause);
+    }
+}
@@ -0,0 +1,613 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * A size-classed slab allocator for direct ByteBuffers. Requests are rounded
+ * up to a power-of-two size class. Small classes are carved out of 1MB direct
+ * slabs; larger classes up to the maximum pooled size get one allocation
+ * each. Released buffers are first kept in a small per-thread cache and then
+ * in a shared free list per class, so steady-state acquire and release do not
+ * allocate direct memory. Only classes up to 64KB use the per-thread cache.
+ * Requests above the maximum pooled size are
+ * allocated directly and dropped on release. Before a new slab is carved, the
+ * caches of threads that have died are drained back into the free lists, so
+ * short-lived threads do not strand memory.
+ *
+ * Buffers must be returned with release. A buffer that becomes unreachable
+ * without being released is detected as a leak and a warning is logged; if
+ * allocation sites are tracked, the warning includes where the buffer was
+ * acquired. Leaked memory is never reused, since views of the buffer may
+ * still be writing to it. Memory that owns a whole allocation is freed by the
+ * garbage collector once those views are gone; memory carved from a shared
+ * slab stays reserved. The pool refuses to reserve more than its direct
+ * memory limit and throws instead, which keeps a leak or a burst from
+ * exhausting the process's direct memory.
+ *
+ * The DirectBufferPool is thread-safe. A buffer may be released from a
+ * different thread than the one that acquired it.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class DirectBufferPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectBufferPool.class);
+    private static final Marker MARKER = MarkerFactory.getMarker("gloop-spi");
+
+    private static final int MIN_SHIFT = 8;
+    private static final int SLAB_SHIFT = 20;
+    private static final int DEFAULT_MAX_POOLED_SHIFT = 24;
+    private static final int THREAD_CACHE_SIZE = 8;
+    private static final int THREAD_CACHE_MAX_CLASS = 16 - MIN_SHIFT;
+    private static final long DEFAULT_MAX_RESERVED = 512L * 1024L * 1024L;
+
+    private static final class Holder {
+
+        private static final DirectBufferPool DEFAULT = new DirectBufferPool(
+                Long.getLong("gloop.directBufferPool.maxBytes", DEFAULT_MAX_RESERVED),
+                Boolean.getBoolean("gloop.directBufferPool.trackSites"));
+    }
+
+    private static final class Tracker extends WeakReference<ByteBuffer> {
+
+        private final int hash;
+        private final int sizeClass;
+        private final int capacity;
+        private final Throwable site;
+        private Tracker next;
+
+        private Tracker(
+                final ByteBuffer buffer, final ReferenceQueue<ByteBuffer> queue,
+                final int sizeClass, final Throwable site) {
+
+            super(buffer, queue);
+
+            this.hash = System.identityHashCode(buffer);
+            this.sizeClass = sizeClass;
+            this.capacity = buffer.capacity();
+            this.site = site;
+        }
+    }
+
+    private final class ThreadCache {
+
+        private final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+        private final ByteBuffer[][] stacks = new ByteBuffer[THREAD_CACHE_MAX_CLASS + 1][THREAD_CACHE_SIZE];
+        private final int[] sizes = new int[THREAD_CACHE_MAX_CLASS + 1];
+
+        private ThreadCache() {
+            threadCaches.add(this);
+        }
+
+        private boolean isOwnerDead() {
+            final Thread thread = this.owner.get();
+
+            return thread == null || !thread.isAlive();
+        }
+    }
+
+    private final long maxReserved;
+    private final boolean trackSites;
+    private final int maxPooledShift;
+    private final List<ArrayDeque<ByteBuffer>> freeLists;
+    private final Set<ThreadCache> threadCaches = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<ThreadCache> caches = ThreadLocal.withInitial(ThreadCache::new);
+    private final ConcurrentHashMap<Integer, Tracker> outstanding = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ByteBuffer> leaks = new ReferenceQueue<>();
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicLong inUse = new AtomicLong();
+    private final AtomicLong peakInUse = new AtomicLong();
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder releaseCount = new LongAdder();
+    private final LongAdder threadCacheHits = new LongAdder();
+    private final LongAdder freeListHits = new LongAdder();
+    private final LongAdder slabCount = new LongAdder();
+    private final LongAdder unpooledCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder leakedBytes = new LongAdder();
+    private final LongAdder reclaimedCacheCount = new LongAdder();
+
+    /**
+     * Retrieves the shared DirectBufferPool. Its direct memory limit is read
+     * from the system property gloop.directBufferPool.maxBytes (default
+     * 512MB), and allocation sites are tracked if the system property
+     * gloop.directBufferPool.trackSites is true.
+     *
+     * @return the shared pool.
+     * @since 16.09.01
+     */
+    public static DirectBufferPool getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    /**
+     * Constructs a new DirectBufferPool that pools buffers up to 16MB.
+     *
+     * @param maxReserved the most direct memory the pool may reserve in
+     * bytes.
+     * @param trackSites if true, the acquiring stack trace is recorded for
+     * every buffer and reported if it leaks. This is expensive.
+     * @since 16.09.01
+     */
+    public DirectBufferPool(final long maxReserved, final boolean trackSites) {
+        this(maxReserved, trackSites, 1 << DEFAULT_MAX_POOLED_SHIFT);
+    }
+
+    /**
+     * Constructs a new DirectBufferPool.
+     *
+     * @param maxReserved the most direct memory the pool may reserve in
+     * bytes.
+     * @param trackSites if true, the acquiring stack trace is recorded for
+     * every buffer and reported if it leaks. This is expensive.
+     * @param maxPooledSize the largest size class that is pooled. Rounded up
+     * to a power of two.
+     * @since 16.09.01
+     */
+    public DirectBufferPool(final long maxReserved, final boolean trackSites, final int maxPooledSize) {
+        if (maxReserved < 1L) {
+            throw new IllegalArgumentException("Max reserved bytes must be positive!");
+        } else if (maxPooledSize < (1 << MIN_SHIFT) || maxPooledSize > (1 << 30)) {
+            throw new IllegalArgumentException("Max pooled size must be between 256B and 1GB!");
+        }
+
+        this.maxReserved = maxReserved;
+        this.trackSites = trackSites;
+        this.maxPooledShift = shift(maxPooledSize);
+        this.freeLists = new ArrayList<>(this.maxPooledShift - MIN_SHIFT + 1);
+
+        for (int shift = MIN_SHIFT; shift <= this.maxPooledShift; shift++) {
+            this.freeLists.add(new ArrayDeque<>());
+        }
+    }
+
+    private static int shift(final int size) {
+        return size <= (1 << MIN_SHIFT) ? MIN_SHIFT : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * Acquires a direct ByteBuffer with at least the requested capacity. The
+     * position is 0, the limit is the size and the byte order is native.
+     *
+     * @param size the number of bytes needed.
+     * @return the buffer. It must be returned with release.
+     * @throws IllegalStateException if serving the request would exceed the
+     * pool's direct memory limit.
+     * @since 16.09.01
+     */
+    public ByteBuffer acquire(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative!");
+        }
+
+        expungeLeaks();
+
+        final int shift = shift(size);
+        final ByteBuffer out;
+        final int sizeClass;
+
+        if (shift > this.maxPooledShift) {
+            reserve(size);
+            out = ByteBuffer.allocateDirect(size);
+            sizeClass = -1;
+            this.unpooledCount.increment();
+        } else {
+            sizeClass = shift - MIN_SHIFT;
+            out = obtain(sizeClass);
+        }
+
+        final Tracker tracker = new Tracker(
+                out, this.leaks, sizeClass,
+                this.trackSites ? new Throwable("Direct buffer acquired here") : null);
+
+        this.outstanding.compute(tracker.hash, (key, head) -> {
+            tracker.next = head;
+            return tracker;
+        });
+
+        final long used = this.inUse.addAndGet(out.capacity());
+
+        this.peakInUse.accumulateAndGet(used, Math::max);
+        this.acquireCount.increment();
+
+        out.clear();
+        out.limit(size);
+
+        return out.order(ByteOrder.nativeOrder());
+    }
+
+    private ByteBuffer obtain(final int sizeClass) {
+        final ThreadCache cache = sizeClass <= THREAD_CACHE_MAX_CLASS ? this.caches.get() : null;
+
+        if (cache != null && cache.sizes[sizeClass] > 0) {
+            final int top = --cache.sizes[sizeClass];
+            final ByteBuffer buffer = cache.stacks[sizeClass][top];
+
+            cache.stacks[sizeClass][top] = null;
+            this.threadCacheHits.increment();
+
+            return buffer;
+        }
+
+        final ArrayDeque<ByteBuffer> free = this.freeLists.get(sizeClass);
+
+        synchronized (free) {
+            if (!free.isEmpty()) {
+                this.freeListHits.increment();
+                return free.pop();
+            }
+        }
+
+        // reclaim before growing; this takes the other free list locks.
+        reclaimThreadCaches();
+
+        synchronized (free) {
+            if (free.isEmpty()) {
+                carve(sizeClass, free);
+            } else {
+                this.freeListHits.increment();
+            }
+
+            return free.pop();
+        }
+    }
+
+    private void carve(final int sizeClass, final ArrayDeque<ByteBuffer> free) {
+        final int size = 1 << (sizeClass + MIN_SHIFT);
+        final int slabSize = Math.max(size, 1 << SLAB_SHIFT);
+
+        reserve(slabSize);
+
+        final ByteBuffer slab = ByteBuffer.allocateDirect(slabSize);
+
+        for (int offset = 0; offset < slabSize; offset += size) {
+            final ByteBuffer view = slab.duplicate();
+
+            view.position(offset).limit(offset + size);
+            free.push(view.slice());
+        }
+
+        this.slabCount.increment();
+    }
+
+    /**
+     * Returns the buffers cached by threads that have died to the shared free
+     * lists. This is also done before every new slab is carved.
+     *
+     * @return the number of thread caches reclaimed.
+     * @since 16.09.01
+     */
+    public int reclaimThreadCaches() {
+        int count = 0;
+
+        for (ThreadCache cache : this.threadCaches) {
+            // removal claims the cache, so only one thread drains it.
+            if (!cache.isOwnerDead() || !this.threadCaches.remove(cache)) {
+                continue;
+            }
+
+            for (int sizeClass = 0; sizeClass < cache.sizes.length; sizeClass++) {
+                final ArrayDeque<ByteBuffer> free = this.freeLists.get(sizeClass);
+
+                synchronized (free) {
+                    while (cache.sizes[sizeClass] > 0) {
+                        final int top = --cache.sizes[sizeClass];
+
+                        free.push(cache.stacks[sizeClass][top]);
+                        cache.stacks[sizeClass][top] = null;
+                    }
+                }
+            }
+
+            this.reclaimedCacheCount.increment();
+            count++;
+        }
+
+        return count;
+    }
+
+    private void reserve(final long bytes) {
+        long current;
+
+        do {
+            current = this.reserved.get();
+
+            if (current + bytes > this.maxReserved) {
+                throw new IllegalStateException(String.format(
+                        "Direct buffer pool exhausted! Requested %d bytes with %d of %d reserved and %d in use.",
+                        bytes, current, this.maxReserved, this.inUse.get()));
+            }
+        } while (!this.reserved.compareAndSet(current, current + bytes));
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer must not be used afterwards.
+     *
+     * @param buffer a buffer returned by acquire.
+     * @throws IllegalArgumentException if the buffer was not acquired from
+     * this pool or was already released.
+     * @since 16.09.01
+     */
+    public void release(final ByteBuffer buffer) {
+        final Tracker tracker = untrack(System.identityHashCode(buffer), buffer, null);
+
+        if (tracker == null) {
+            throw new IllegalArgumentException("Buffer was not acquired from this pool or was already released!");
+        }
+
+        tracker.clear();
+        this.releaseCount.increment();
+        this.inUse.addAndGet(-tracker.capacity);
+
+        if (tracker.sizeClass < 0) {
+            // unpooled; the memory is reclaimed by the garbage collector
+            this.reserved.addAndGet(-tracker.capacity);
+            return;
+        }
+
+        final int sizeClass = tracker.sizeClass;
+        final ThreadCache cache = sizeClass <= THREAD_CACHE_MAX_CLASS ? this.caches.get() : null;
+
+        if (cache != null && cache.sizes[sizeClass] < THREAD_CACHE_SIZE) {
+            cache.stacks[sizeClass][cache.sizes[sizeClass]++] = buffer;
+        } else {
+            final ArrayDeque<ByteBuffer> free = this.freeLists.get(sizeClass);
+
+            synchronized (free) {
+                free.push(buffer);
+            }
+        }
+    }
+
+    private Tracker untrack(final int hash, final ByteBuffer buffer, final Tracker match) {
+        final Tracker[] found = new Tracker[1];
+
+        this.outstanding.computeIfPresent(hash, (key, head) -> {
+            Tracker prev = null;
+
+            for (Tracker t = head; t != null; prev = t, t = t.next) {
+                if (t == match || (buffer != null && t.get() == buffer)) {
+                    found[0] = t;
+
+                    if (prev == null) {
+                        return t.next;
+                    }
+
+                    prev.next = t.next;
+                    return head;
+                }
+            }
+
+            return head;
+        });
+
+        return found[0];
+    }
+
+    /**
+     * Reports every buffer that was garbage collected without being released.
+     * This is also done on every acquire. Leaked memory is not reused.
+     *
+     * @return the number of leaks found.
+     * @since 16.09.01
+     */
+    public int expungeLeaks() {
+        int count = 0;
+        Reference<? extends ByteBuffer> ref;
+
+        while ((ref = this.leaks.poll()) != null) {
+            final Tracker tracker = (Tracker) ref;
+
+            if (untrack(tracker.hash, null, tracker) == null) {
+                continue;
+            }
+
+            this.leakCount.increment();
+            count++;
+
+            if (tracker.site != null) {
+                LOGGER.warn(MARKER, "Direct buffer of {} bytes was not released!", tracker.capacity, tracker.site);
+            } else {
+                LOGGER.warn(MARKER, "Direct buffer of {} bytes was not released! Set gloop.directBufferPool.trackSites=true to find where it was acquired.", tracker.capacity);
+            }
+
+            this.inUse.addAndGet(-tracker.capacity);
+
+            if (tracker.sizeClass < 0 || tracker.sizeClass + MIN_SHIFT >= SLAB_SHIFT) {
+                // the buffer owned its allocation; the garbage collector frees it
+                this.reserved.addAndGet(-tracker.capacity);
+            } else {
+                this.leakedBytes.add(tracker.capacity);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Retrieves the direct memory reserved by the pool, including free
+     * buffers.
+     *
+     * @return the reserved bytes.
+     * @since 16.09.01
+     */
+    public long getReservedBytes() {
+        return this.reserved.get();
+    }
+
+    /**
+     * Retrieves the capacity of every buffer that has been acquired but not
+     * released.
+     *
+     * @return the bytes in use.
+     * @since 16.09.01
+     */
+    public long getInUseBytes() {
+        return this.inUse.get();
+    }
+
+    /**
+     * Retrieves the highest value of getInUseBytes.
+     *
+     * @return the peak bytes in use.
+     * @since 16.09.01
+     */
+    public long getPeakInUseBytes() {
+        return this.peakInUse.get();
+    }
+
+    /**
+     * Retrieves the direct memory limit.
+     *
+     * @return the maximum reserved bytes.
+     * @since 16.09.01
+     */
+    public long getMaxReservedBytes() {
+        return this.maxReserved;
+    }
+
+    /**
+     * Retrieves the number of buffers acquired.
+     *
+     * @return the acquire count.
+     * @since 16.09.01
+     */
+    public long getAcquireCount() {
+        return this.acquireCount.sum();
+    }
+
+    /**
+     * Retrieves the number of buffers released.
+     *
+     * @return the release count.
+     * @since 16.09.01
+     */
+    public long getReleaseCount() {
+        return this.releaseCount.sum();
+    }
+
+    /**
+     * Retrieves the number of acquires served from the calling thread's
+     * cache.
+     *
+     * @return the thread cache hit count.
+     * @since 16.09.01
+     */
+    public long getThreadCacheHitCount() {
+        return this.threadCacheHits.sum();
+    }
+
+    /**
+     * Retrieves the number of acquires served from a shared free list.
+     *
+     * @return the free list hit count.
+     * @since 16.09.01
+     */
+    public long getFreeListHitCount() {
+        return this.freeListHits.sum();
+    }
+
+    /**
+     * Retrieves the number of slabs allocated.
+     *
+     * @return the slab count.
+     * @since 16.09.01
+     */
+    public long getSlabCount() {
+        return this.slabCount.sum();
+    }
+
+    /**
+     * Retrieves the number of acquires that were too large to pool.
+     *
+     * @return the unpooled count.
+     * @since 16.09.01
+     */
+    public long getUnpooledCount() {
+        return this.unpooledCount.sum();
+    }
+
+    /**
+     * Retrieves the number of buffers that were garbage collected without
+     * being released.
+     *
+     * @return the leak count.
+     * @since 16.09.01
+     */
+    public long getLeakCount() {
+        return this.leakCount.sum();
+    }
+
+    /**
+     * Retrieves the leaked memory that is still reserved because it was
+     * carved from a shared slab.
+     *
+     * @return the leaked bytes.
+     * @since 16.09.01
+     */
+    public long getLeakedBytes() {
+        return this.leakedBytes.sum();
+    }
+
+    /**
+     * Retrieves the number of dead threads' caches returned to the free
+     * lists.
+     *
+     * @return the reclaimed cache count.
+     * @since 16.09.01
+     */
+    public long getReclaimedThreadCacheCount() {
+        return this.reclaimedCacheCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "DirectBufferPool: reserved=%d/%d inUse=%d peak=%d acquires=%d releases=%d threadHits=%d freeListHits=%d slabs=%d unpooled=%d leaks=%d leaked=%d reclaimedCaches=%d",
+                getReservedBytes(), this.maxReserved, getInUseBytes(), getPeakInUseBytes(),
+                getAcquireCount(), getReleaseCount(), getThreadCacheHitCount(), getFreeListHitCount(),
+                getSlabCount(), getUnpooledCount(), getLeakCount(), getLeakedBytes(),
+                getReclaimedThreadCacheCount());
+    }
+}
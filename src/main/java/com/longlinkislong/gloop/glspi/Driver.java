@@ -86,6 +86,162 @@ public interface Driver<BufferT extends Buffer, FramebufferT extends Framebuffer
         LoggerFactory.getLogger(this.getClass()).warn("This driver does not support tweaks!");
     }
 
+    /**
+     * Creates a new Query object. This is not required to allocate the query
+     * handle until the query is first used.
+     *
+     * @return the Query object.
+     * @since 16.09.01
+     */
+    default Query queryCreate() {
+        throw new UnsupportedOperationException("Query objects are not supported by this implementation!");
+    }
+
+    /**
+     * Deletes the Query object. This should invalidate the Query object. This
+     * method is allowed to silently ignore when passed an invalid Query
+     * object.
+     *
+     * @param query the Query object.
+     * @since 16.09.01
+     */
+    default void queryDelete(Query query) {
+        throw new UnsupportedOperationException("Query objects are not supported by this implementation!");
+    }
+
+    /**
+     * Begins recording a query. Only one query may be active per target.
+     *
+     * @param query the Query object.
+     * @param target the query target (Uses OpenGL enum; eg GL_TIME_ELAPSED,
+     * GL_SAMPLES_PASSED, GL_ANY_SAMPLES_PASSED, GL_PRIMITIVES_GENERATED).
+     * @since 16.09.01
+     */
+    default void queryBegin(Query query, int target) {
+        throw new UnsupportedOperationException("Query objects are not supported by this implementation!");
+    }
+
+    /**
+     * Ends recording the active query for the target.
+     *
+     * @param target the query target (Uses OpenGL enum).
+     * @since 16.09.01
+     */
+    default void queryEnd(int target) {
+        throw new UnsupportedOperationException("Query objects are not supported by this implementation!");
+    }
+
+    /**
+     * Records the GPU timestamp into the Query object once all previously
+     * submitted commands have completed.
+     *
+     * @param query the Query object.
+     * @since 16.09.01
+     */
+    default void queryTimestamp(Query query) {
+        throw new UnsupportedOperationException("Query objects are not supported by this implementation!");
+    }
+
+    /**
+     * Checks if the result of the query is available. This method must not
+     * block.
+     *
+     * @param query the Query object.
+     * @return true if the result may be retrieved without stalling.
+     * @since 16.09.01
+     */
+    default boolean queryIsResultAvailable(Query query) {
+        throw new UnsupportedOperationException("Query objects are not supported by this implementation!");
+    }
+
+    /**
+     * Retrieves the result of the query. This will block until the result is
+     * available. Elapsed time and timestamp results are in nanoseconds.
+     *
+     * @param query the Query object.
+     * @return the query result.
+     * @since 16.09.01
+     */
+    default long queryGetResult(Query query) {
+        throw new UnsupportedOperationException("Query objects are not supported by this implementation!");
+    }
+
+    /**
+     * Inserts a new Fence into the command stream. The Fence is signaled once
+     * all previously submitted commands have completed. The Fence is not
+     * flushed; a Fence that is only polled with fenceIsSignaled must be
+     * flushed with fenceFlush or it may never signal.
+     *
+     * @return the Fence object.
+     * @since 16.09.01
+     */
+    default Fence fenceCreate() {
+        throw new UnsupportedOperationException("Fence objects are not supported by this implementation!");
+    }
+
+    /**
+     * Flushes pending commands so that the Fence is guaranteed to eventually
+     * signal. This does not block. It is also required before a Fence is
+     * waited on from a shared context. The default implementation polls the
+     * Fence with a zero timeout, which flushes.
+     *
+     * @param fence the Fence object.
+     * @since 16.09.01
+     */
+    default void fenceFlush(Fence fence) {
+        fenceClientWait(fence, 0L);
+    }
+
+    /**
+     * Deletes the Fence object. This should invalidate the Fence object. This
+     * method is allowed to silently ignore when passed an invalid Fence.
+     *
+     * @param fence the Fence object.
+     * @since 16.09.01
+     */
+    default void fenceDelete(Fence fence) {
+        throw new UnsupportedOperationException("Fence objects are not supported by this implementation!");
+    }
+
+    /**
+     * Blocks the calling thread until the Fence is signaled or the timeout
+     * expires. Pending commands are flushed so that the Fence is guaranteed to
+     * eventually signal.
+     *
+     * @param fence the Fence object.
+     * @param timeout the maximum time to wait in nanoseconds. 0 polls the
+     * Fence.
+     * @return true if the Fence was signaled before the timeout expired.
+     * @since 16.09.01
+     */
+    default boolean fenceClientWait(Fence fence, long timeout) {
+        throw new UnsupportedOperationException("Fence objects are not supported by this implementation!");
+    }
+
+    /**
+     * Instructs the GPU to wait for the Fence before executing any further
+     * commands. This does not block the calling thread. This is intended for
+     * synchronizing with a Fence created on a shared context.
+     *
+     * @param fence the Fence object.
+     * @since 16.09.01
+     */
+    default void fenceServerWait(Fence fence) {
+        throw new UnsupportedOperationException("Fence objects are not supported by this implementation!");
+    }
+
+    /**
+     * Checks if the Fence is signaled. This method must not block or flush;
+     * a Fence that was not flushed with fenceFlush may never signal.
+     *
+     * @param fence the Fence object.
+     * @return true if the Fence is signaled.
+     * @since 16.09.01
+     */
+    default boolean fenceIsSignaled(Fence fence) {
+        throw new UnsupportedOperationException("Fence objects are not supported by this implementation!");
+    }
+
     /**
      * Creates a new renderbuffer object.
      *
@@ -97,6 +253,25 @@ public interface Driver<BufferT extends Buffer, FramebufferT extends Framebuffer
      */
     RenderbufferT renderbufferCreate(int internalFormat, int width, int height);
 
+    /**
+     * Creates a new multisampled renderbuffer object. The default
+     * implementation only supports single sampled renderbuffers.
+     *
+     * @param internalFormat the format for the renderbuffer object.
+     * @param width the width of the renderbuffer.
+     * @param height the height of the renderbuffer.
+     * @param samples the number of samples. 0 or 1 is single sampled.
+     * @return the new renderbuffer object.
+     * @since 16.09.01
+     */
+    default RenderbufferT renderbufferCreate(int internalFormat, int width, int height, int samples) {
+        if (samples > 1) {
+            throw new UnsupportedOperationException("Multisampled renderbuffers are not supported by this implementation!");
+        } else {
+            return renderbufferCreate(internalFormat, width, height);
+        }
+    }
+
     /**
      * Deletes the renderbuffer object.
      *
@@ -703,6 +878,34 @@ public interface Driver<BufferT extends Buffer, FramebufferT extends Framebuffer
      */
     void programDispatchCompute(ProgramT program, int numX, int numY, int numZ);
 
+    /**
+     * Executes the program object as a compute shader. The number of compute
+     * groups is read from the command buffer as three consecutive 32bit
+     * unsigned integers.
+     *
+     * @param program the program object to execute.
+     * @param cmdBuffer the buffer holding the dispatch command.
+     * @param offset the offset (in bytes) of the dispatch command. Must be a
+     * multiple of 4.
+     * @since 16.09.01
+     */
+    default void programDispatchComputeIndirect(ProgramT program, BufferT cmdBuffer, long offset) {
+        throw new UnsupportedOperationException("Indirect compute dispatch is not supported by this implementation!");
+    }
+
+    /**
+     * Defines a barrier ordering memory transactions. Writes performed by
+     * shaders before the barrier are made visible to the operations specified
+     * by the barrier bitfield after the barrier.
+     *
+     * @param barriers the barrier bitfield (OpenGL bitfield; eg
+     * GL_SHADER_STORAGE_BARRIER_BIT).
+     * @since 16.09.01
+     */
+    default void memoryBarrier(int barriers) {
+        throw new UnsupportedOperationException("Memory barriers are not supported by this implementation!");
+    }
+
     /**
      * Retrieves the index id for a uniform by name.
      *
@@ -1215,6 +1418,35 @@ public interface Driver<BufferT extends Buffer, FramebufferT extends Framebuffer
             BufferT buffer, int size, int type,
             int stride, long offset, int divisor);
 
+    /**
+     * Attaches a buffer as a vertex attribute with optional normalization of
+     * integer data. Normalized signed integers are mapped to [-1.0, 1.0] and
+     * normalized unsigned integers are mapped to [0.0, 1.0]. The default
+     * implementation only supports unnormalized attributes.
+     *
+     * @param vao the vertex array object.
+     * @param index the attribute index.
+     * @param buffer the buffer holding the attribute data.
+     * @param size the number of components per attribute.
+     * @param type the component type (Uses OpenGL enum).
+     * @param normalized if integer data should be normalized.
+     * @param stride the number of bytes between attributes.
+     * @param offset the offset of the first attribute.
+     * @param divisor the instance divisor.
+     * @since 16.09.01
+     */
+    default void vertexArrayAttachBuffer(
+            VertexArrayT vao, int index,
+            BufferT buffer, int size, int type, boolean normalized,
+            int stride, long offset, int divisor) {
+
+        if (normalized) {
+            throw new UnsupportedOperationException("Normalized vertex attributes are not supported by this implementation!");
+        } else {
+            vertexArrayAttachBuffer(vao, index, buffer, size, type, stride, offset, divisor);
+        }
+    }
+
     void vertexArrayAttachIndexBuffer(VertexArrayT vao, BufferT buffer);
 
     // vertexArray
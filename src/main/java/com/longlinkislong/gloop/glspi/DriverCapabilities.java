@@ -0,0 +1,359 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * An immutable record of the capabilities reported by a DriverProvider. The
+ * feature flags, support rating, and description are captured by probing the
+ * DriverProvider. Driver limits (maximum texture size, maximum uniform block
+ * size, etc) require a live driver and are only present if captured with
+ * [code]withLimits[/code]. The driver name is only recorded for supported
+ * providers, since the default getDriverName creates the driver.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class DriverCapabilities {
+
+    /**
+     * Name of the system property that is appended to the machine
+     * fingerprint. Deployments may use this to key the capability snapshot by
+     * GPU or graphics driver version.
+     *
+     * @since 16.09.01
+     */
+    public static final String FINGERPRINT_PROPERTY = "gloop.spi.fingerprint";
+
+    public final String providerClass;
+    /**
+     * The driver name. Null if the provider was not supported.
+     *
+     * @since 16.09.01
+     */
+    public final String driverName;
+    public final List<String> description;
+    public final boolean supported;
+    public final double supportRating;
+    public final Map<String, Boolean> features;
+    public final Map<String, Number> limits;
+
+    private DriverCapabilities(
+            final String providerClass, final String driverName,
+            final List<String> description,
+            final boolean supported, final double supportRating,
+            final Map<String, Boolean> features,
+            final Map<String, Number> limits) {
+
+        this.providerClass = providerClass;
+        this.driverName = driverName;
+        this.description = Collections.unmodifiableList(new ArrayList<>(description));
+        this.supported = supported;
+        this.supportRating = supportRating;
+        this.features = Collections.unmodifiableMap(new LinkedHashMap<>(features));
+        this.limits = Collections.unmodifiableMap(new LinkedHashMap<>(limits));
+    }
+
+    /**
+     * Probes the DriverProvider for all of its capabilities. Each feature flag
+     * is queried exactly once. If the provider uses the default
+     * getSupportRating, the rating is computed from the recorded flags;
+     * getSupportRating is only called if the provider overrides it. The
+     * driver name is only queried if the provider is supported.
+     *
+     * @param provider the DriverProvider.
+     * @return the capabilities.
+     * @since 16.09.01
+     */
+    public static DriverCapabilities probe(final DriverProvider provider) {
+        final boolean supported = provider.isSupported();
+        final String name = supported ? provider.getDriverName() : null;
+        final Map<String, Boolean> features = new LinkedHashMap<>();
+
+        if (supported) {
+            features.put("bufferObject", provider.isBufferObjectSupported());
+            features.put("immutableBufferStorage", provider.isImmutableBufferStorageSupported());
+            features.put("drawQuery", provider.isDrawQuerySupported());
+            features.put("framebufferObject", provider.isFramebufferObjectSupported());
+            features.put("program", provider.isProgramSupported());
+            features.put("sampler", provider.isSamplerSupported());
+            features.put("computeShader", provider.isComputeShaderSupported());
+            features.put("sparseTexture", provider.isSparseTextureSupported());
+            features.put("drawIndirect", provider.isDrawIndirectSupported());
+            features.put("drawInstanced", provider.isDrawInstancedSupported());
+            features.put("invalidateSubdata", provider.isInvalidateSubdataSupported());
+            features.put("separateShaderObjects", provider.isSeparateShaderObjectsSupported());
+            features.put("64bitUniforms", provider.is64bitUniformsSupported());
+            features.put("vertexArrayObject", provider.isVertexArrayObjectSupported());
+        }
+
+        final double rating;
+
+        if (!supported) {
+            rating = 0.0;
+        } else if (overridesSupportRating(provider)) {
+            rating = provider.getSupportRating();
+        } else {
+            // matches DriverProvider.getSupportRating without re-querying
+            rating = features.values().stream().filter(Boolean::booleanValue).count() / (double) features.size();
+        }
+
+        return new DriverCapabilities(
+                provider.getClass().getName(), name,
+                provider.getDriverDescription(),
+                supported, rating,
+                features, Collections.emptyMap());
+    }
+
+    private static boolean overridesSupportRating(final DriverProvider provider) {
+        try {
+            return provider.getClass().getMethod("getSupportRating").getDeclaringClass() != DriverProvider.class;
+        } catch (NoSuchMethodException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Constructs a new DriverCapabilities object that also records the limits
+     * of the supplied driver. This must be called on the thread that owns the
+     * driver's context.
+     *
+     * @param driver the live driver.
+     * @return the new DriverCapabilities object.
+     * @since 16.09.01
+     */
+    public DriverCapabilities withLimits(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver) {
+        final Map<String, Number> newLimits = new LinkedHashMap<>();
+
+        newLimits.put("shaderVersion", driver.shaderGetVersion());
+        newLimits.put("textureMaxSize", driver.textureGetMaxSize());
+        newLimits.put("textureMaxBoundTextures", driver.textureGetMaxBoundTextures());
+        newLimits.put("textureMaxAnisotropy", driver.textureGetMaxAnisotropy());
+        newLimits.put("bufferMaxUniformBlockSize", driver.bufferGetMaxUniformBlockSize());
+        newLimits.put("bufferMaxUniformBindings", driver.bufferGetMaxUniformBindings());
+
+        return new DriverCapabilities(
+                this.providerClass, this.driverName,
+                this.description,
+                this.supported, this.supportRating,
+                this.features, newLimits);
+    }
+
+    DriverCapabilities withLimits(final Map<String, Number> newLimits) {
+        return new DriverCapabilities(
+                this.providerClass, this.driverName,
+                this.description,
+                this.supported, this.supportRating,
+                this.features, newLimits);
+    }
+
+    /**
+     * Checks if the feature is supported. Features not recorded are reported
+     * as unsupported.
+     *
+     * @param feature the feature name.
+     * @return true if the feature was recorded as supported.
+     * @since 16.09.01
+     */
+    public boolean isFeatureSupported(final String feature) {
+        return this.features.getOrDefault(feature, false);
+    }
+
+    /**
+     * Retrieves a recorded driver limit.
+     *
+     * @param limit the limit name.
+     * @return the limit. May be empty if limits were not captured.
+     * @since 16.09.01
+     */
+    public Optional<Number> getLimit(final String limit) {
+        return Optional.ofNullable(this.limits.get(limit));
+    }
+
+    /**
+     * Checks if the probed capabilities match. Limits are not compared.
+     *
+     * @param other the other DriverCapabilities.
+     * @return true if the provider, name, description, support, rating and
+     * features match.
+     * @since 16.09.01
+     */
+    public boolean isSameProbe(final DriverCapabilities other) {
+        return this.providerClass.equals(other.providerClass)
+                && Objects.equals(this.driverName, other.driverName)
+                && this.description.equals(other.description)
+                && this.supported == other.supported
+                && Double.compare(this.supportRating, other.supportRating) == 0
+                && this.features.equals(other.features);
+    }
+
+    void store(final Properties props, final String prefix) {
+        props.setProperty(prefix + "provider", this.providerClass);
+
+        if (this.driverName != null) {
+            props.setProperty(prefix + "name", this.driverName);
+        }
+
+        props.setProperty(prefix + "supported", Boolean.toString(this.supported));
+        props.setProperty(prefix + "rating", Double.toString(this.supportRating));
+        props.setProperty(prefix + "description.count", Integer.toString(this.description.size()));
+
+        for (int i = 0; i < this.description.size(); i++) {
+            props.setProperty(prefix + "description." + i, this.description.get(i));
+        }
+
+        this.features.forEach((key, value) -> props.setProperty(prefix + "feature." + key, value.toString()));
+        this.limits.forEach((key, value) -> props.setProperty(prefix + "limit." + key, value.toString()));
+    }
+
+    static DriverCapabilities load(final Properties props, final String prefix) {
+        final String providerClass = required(props, prefix + "provider");
+        final boolean supported = Boolean.parseBoolean(required(props, prefix + "supported"));
+        final String name = supported ? required(props, prefix + "name") : props.getProperty(prefix + "name");
+        final double rating = Double.parseDouble(required(props, prefix + "rating"));
+        final int descCount = Integer.parseInt(required(props, prefix + "description.count"));
+        final List<String> description = new ArrayList<>(descCount);
+
+        for (int i = 0; i < descCount; i++) {
+            description.add(required(props, prefix + "description." + i));
+        }
+
+        final Map<String, Boolean> features = new LinkedHashMap<>();
+        final Map<String, Number> limits = new LinkedHashMap<>();
+        final String featurePrefix = prefix + "feature.";
+        final String limitPrefix = prefix + "limit.";
+
+        for (String key : new TreeSet<>(props.stringPropertyNames())) {
+            if (key.startsWith(featurePrefix)) {
+                features.put(key.substring(featurePrefix.length()), Boolean.parseBoolean(props.getProperty(key)));
+            } else if (key.startsWith(limitPrefix)) {
+                final String value = props.getProperty(key);
+
+                limits.put(
+                        key.substring(limitPrefix.length()),
+                        value.indexOf('.') >= 0 ? (Number) Double.valueOf(value) : (Number) Long.valueOf(value));
+            }
+        }
+
+        return new DriverCapabilities(providerClass, name, description, supported, rating, features, limits);
+    }
+
+    private static String required(final Properties props, final String key) {
+        final String value = props.getProperty(key);
+
+        if (value == null) {
+            throw new IllegalArgumentException("Missing capability entry: " + key);
+        }
+
+        return value;
+    }
+
+    /**
+     * Calculates a fingerprint for the current machine and set of available
+     * DriverProviders. The fingerprint is derived from the operating system,
+     * the DriverProvider classes and the location/version of their code
+     * sources, and the value of the [code]gloop.spi.fingerprint[/code] system
+     * property. None of the DriverProviders are probed.
+     *
+     * @param providers the available DriverProviders.
+     * @return the fingerprint as a hexadecimal string.
+     * @since 16.09.01
+     */
+    public static String fingerprint(final Collection<? extends DriverProvider> providers) {
+        final StringBuilder key = new StringBuilder();
+
+        key.append(System.getProperty("os.name")).append('|')
+                .append(System.getProperty("os.arch")).append('|')
+                .append(System.getProperty("os.version")).append('|')
+                .append(System.getProperty(FINGERPRINT_PROPERTY, "")).append('|');
+
+        final TreeSet<String> providerKeys = new TreeSet<>();
+
+        for (DriverProvider provider : providers) {
+            final Class<?> cls = provider.getClass();
+            final Package pkg = cls.getPackage();
+            final CodeSource src = cls.getProtectionDomain().getCodeSource();
+            final StringBuilder providerKey = new StringBuilder(cls.getName());
+
+            if (pkg != null && pkg.getImplementationVersion() != null) {
+                providerKey.append('@').append(pkg.getImplementationVersion());
+            }
+
+            if (src != null && src.getLocation() != null) {
+                final URL location = src.getLocation();
+
+                providerKey.append('@').append(location);
+
+                if ("file".equals(location.getProtocol())) {
+                    providerKey.append('@').append(new File(location.getPath()).lastModified());
+                }
+            }
+
+            providerKeys.add(providerKey.toString());
+        }
+
+        providerKeys.forEach(providerKey -> key.append(providerKey).append('|'));
+
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            return Integer.toHexString(key.toString().hashCode());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DriverCapabilities{"
+                + "driverName=" + driverName
+                + ", supported=" + supported
+                + ", supportRating=" + supportRating
+                + ", features=" + features
+                + ", limits=" + limits + '}';
+    }
+}
@@ -25,11 +25,19 @@
  */
 package com.longlinkislong.gloop.glspi;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -39,7 +47,11 @@ import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
 /**
- * A Manager object that supplies driver instances as requested.
+ * A Manager object that supplies driver instances as requested. Driver
+ * providers are probed once, in parallel, on first use. The results are held
+ * in an immutable snapshot so that the DriverManager may be queried from any
+ * thread. The snapshot may also be persisted to disk and used to select a
+ * driver on later launches without probing.
  *
  * @author zmichaels
  * @since 16.03.08
@@ -49,7 +61,130 @@ public final class DriverManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(DriverManager.class);
     private static final Marker MARKER = MarkerFactory.getMarker("gloop-spi");
 
+    private static final String SNAPSHOT_FINGERPRINT = "fingerprint";
+    private static final String SNAPSHOT_COUNT = "drivers";
+
     private final ServiceLoader<DriverProvider> driverLoader;
+    private volatile List<DriverProvider> loadedProviders;
+    private volatile List<ProbedDriver> probedDrivers;
+    private volatile String selectedProvider;
+
+    /**
+     * The memoized results of probing a single DriverProvider.
+     */
+    private static final class ProbedDriver {
+
+        private final DriverProvider provider;
+        private final DriverCapabilities capabilities;
+        private volatile String name;
+        private final boolean supported;
+        private final double rating;
+        private final Set<String> description;
+
+        private ProbedDriver(final DriverProvider provider) {
+            this.provider = provider;
+            this.capabilities = DriverCapabilities.probe(provider);
+            this.name = this.capabilities.driverName;
+            this.supported = this.capabilities.supported;
+            this.rating = this.capabilities.supportRating;
+            this.description = Collections.unmodifiableSet(new HashSet<>(this.capabilities.description));
+        }
+
+        /**
+         * Retrieves the driver name. Names of unsupported providers are not
+         * probed and are resolved here, on the calling thread.
+         */
+        private String name() {
+            String out = this.name;
+
+            if (out == null) {
+                out = this.provider.getDriverName();
+                this.name = out;
+            }
+
+            return out;
+        }
+    }
+
+    /**
+     * Retrieves the loaded DriverProviders without probing them. The
+     * ServiceLoader is iterated at most once per refresh.
+     *
+     * @return the immutable list of DriverProviders.
+     */
+    private List<DriverProvider> providers() {
+        List<DriverProvider> out = this.loadedProviders;
+
+        if (out == null) {
+            synchronized (this.driverLoader) {
+                out = this.loadedProviders;
+
+                if (out == null) {
+                    final List<DriverProvider> providers = new ArrayList<>();
+
+                    for (DriverProvider testDriver : this.driverLoader) {
+                        providers.add(testDriver);
+                    }
+
+                    out = Collections.unmodifiableList(providers);
+                    this.loadedProviders = out;
+                }
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Retrieves the probed drivers. Each DriverProvider is probed in parallel
+     * at most once per refresh.
+     *
+     * @return the immutable list of probed drivers.
+     */
+    private List<ProbedDriver> probe() {
+        return probe(true);
+    }
+
+    private List<ProbedDriver> probe(final boolean parallel) {
+        List<ProbedDriver> out = this.probedDrivers;
+
+        if (out == null) {
+            final List<DriverProvider> providers = providers();
+
+            synchronized (this.driverLoader) {
+                out = this.probedDrivers;
+
+                if (out == null) {
+                    final long start = System.nanoTime();
+
+                    out = Collections.unmodifiableList((parallel ? providers.parallelStream() : providers.stream())
+                            .map(ProbedDriver::new)
+                            .collect(Collectors.toList()));
+
+                    LOGGER.debug(MARKER, "Probed {} driver(s) in {}ns", out.size(), System.nanoTime() - start);
+
+                    this.probedDrivers = out;
+                }
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Discards the probed driver snapshot. The next query will reload the
+     * DriverProviders and probe them again.
+     *
+     * @since 16.09.01
+     */
+    public void refresh() {
+        synchronized (this.driverLoader) {
+            this.driverLoader.reload();
+            this.loadedProviders = null;
+            this.probedDrivers = null;
+            this.selectedProvider = null;
+        }
+    }
 
     /**
      * Retrieves an unordered set of all supported drivers.
@@ -58,9 +193,10 @@ public final class DriverManager {
      * @since 16.03.08
      */
     public Set<DriverProvider> getSupportedDrivers() {
-        return getAllDrivers().stream()
-                .filter(DriverProvider::isSupported)
-                .collect(Collectors.toSet());
+        return Collections.unmodifiableSet(probe().stream()
+                .filter(probed -> probed.supported)
+                .map(probed -> probed.provider)
+                .collect(Collectors.toSet()));
     }
 
     /**
@@ -70,13 +206,9 @@ public final class DriverManager {
      * @since 16.03.08
      */
     public Set<DriverProvider> getAllDrivers() {
-        final Set<DriverProvider> out = new HashSet<>();
-
-        for (DriverProvider testDriver : this.driverLoader) {
-            out.add(testDriver);
-        }
-
-        return out;
+        return Collections.unmodifiableSet(probe().stream()
+                .map(probed -> probed.provider)
+                .collect(Collectors.toSet()));
     }
 
     /**
@@ -87,18 +219,18 @@ public final class DriverManager {
      * @since 16.03.08
      */
     public Optional<Driver> selectBestDriver() {
-        DriverProvider bestDriver = null;
+        ProbedDriver bestDriver = null;
 
-        for (DriverProvider testDriver : driverLoader) {
-            if (testDriver.isSupported()) {
+        for (ProbedDriver testDriver : probe()) {
+            if (testDriver.supported) {
                 if (bestDriver == null) {
                     bestDriver = testDriver;
-                } else if (testDriver.getSupportRating() > bestDriver.getSupportRating()) {
+                } else if (testDriver.rating > bestDriver.rating) {
                     LOGGER.debug(
                             MARKER,
                             "Selecting [{}] over [{}] as best driver",
-                            testDriver.getDriverName(),
-                            bestDriver.getDriverName());
+                            testDriver.name(),
+                            bestDriver.name());
                     bestDriver = testDriver;
                 }
             }
@@ -107,8 +239,9 @@ public final class DriverManager {
         if (bestDriver == null) {
             return Optional.empty();
         } else {
-            LOGGER.info(MARKER, "Selected driver: [{}]", bestDriver.getDriverName());
-            return Optional.of(bestDriver.getDriverInstance());
+            LOGGER.info(MARKER, "Selected driver: [{}]", bestDriver.name());
+            this.selectedProvider = bestDriver.capabilities.providerClass;
+            return Optional.of(bestDriver.provider.getDriverInstance());
         }
     }
 
@@ -121,14 +254,14 @@ public final class DriverManager {
      * @since 16.03.08
      */
     public Optional<Driver> selectDriverByName(final String driverName) {
-        for (DriverProvider testDriver : driverLoader) {
-            if (testDriver.getDriverName().equalsIgnoreCase(driverName)) {
-                if (testDriver.isSupported()) {
-                    return Optional.of(testDriver.getDriverInstance());
-                } else {
+        for (ProbedDriver testDriver : probe()) {
+            if (testDriver.name().equalsIgnoreCase(driverName)) {
+                if (!testDriver.supported) {
                     LOGGER.warn(MARKER, "Selected driver [{}] is not supported!", driverName);
-                    return Optional.of(testDriver.getDriverInstance());
                 }
+
+                this.selectedProvider = testDriver.capabilities.providerClass;
+                return Optional.of(testDriver.provider.getDriverInstance());
             }
         }
 
@@ -145,32 +278,232 @@ public final class DriverManager {
      * @since 16.03.10
      */
     public Optional<Driver> selectDriverByDescription(final String... descriptions) {
-        final List<DriverProvider> matches = new ArrayList<>();        
         final List<String> descList = Arrays.asList(descriptions);
+        ProbedDriver bestDriver = null;
 
-        for (DriverProvider testDriver : driverLoader) {
-            final Set<String> mustMatch = new HashSet<>();
-            
-            mustMatch.addAll(testDriver.getDriverDescription());
-            
-            if (testDriver.isSupported()) {
-                if (mustMatch.containsAll(descList)) {
-                    matches.add(testDriver);
+        for (ProbedDriver testDriver : probe()) {
+            if (testDriver.supported && testDriver.description.containsAll(descList)) {
+                if (bestDriver == null || testDriver.rating > bestDriver.rating) {
+                    bestDriver = testDriver;
                 }
             }
         }
 
-        DriverProvider bestDriver = null;
-        for (DriverProvider testDriver : matches) {
-            if (bestDriver == null || testDriver.getSupportRating() > bestDriver.getSupportRating()) {
-                bestDriver = testDriver;
+        if (bestDriver != null) {
+            this.selectedProvider = bestDriver.capabilities.providerClass;
+            return Optional.of(bestDriver.provider.getDriverInstance());
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Selects the best supported driver using a capability snapshot. If the
+     * snapshot exists and was written on a machine with the same fingerprint,
+     * the driver is selected from the snapshot without probing any
+     * DriverProvider. The snapshot is not revalidated; once the selected driver
+     * is initialized, call [code]revalidate(snapshot)[/code] from a thread that
+     * may probe the DriverProviders. Otherwise this falls back to
+     * [code]selectBestDriver()[/code] and writes a new snapshot. Driver limits already stored in the snapshot are kept when
+     * it is rewritten. To record the selected driver's limits, call
+     * [code]writeCapabilities(snapshot, driver)[/code] once its context is
+     * current.
+     *
+     * @param snapshot the path to the capability snapshot.
+     * @return the best supported driver wrapped in an Optional. May be empty if
+     * no drivers are supported.
+     * @since 16.09.01
+     */
+    public Optional<Driver<?, ?, ?, ?, ?, ?, ?, ?>> selectBestDriver(final Path snapshot) {
+        List<DriverCapabilities> cached;
+
+        try {
+            cached = readCapabilities(snapshot);
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.warn(MARKER, "Unable to read driver capability snapshot [{}]: {}", snapshot, ex.getMessage());
+            cached = Collections.emptyList();
+        }
+
+        DriverCapabilities best = null;
+
+        for (DriverCapabilities test : cached) {
+            if (test.supported && (best == null || test.supportRating > best.supportRating)) {
+                best = test;
+            }
+        }
+
+        if (best != null) {
+            final String providerClass = best.providerClass;
+            final Optional<DriverProvider> provider = providers().stream()
+                    .filter(test -> test.getClass().getName().equals(providerClass))
+                    .findFirst();
+
+            if (provider.isPresent()) {
+                LOGGER.info(MARKER, "Selected driver: [{}] (from capability snapshot)", best.driverName);
+                this.selectedProvider = providerClass;
+
+                final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver = provider.get().getDriverInstance();
+
+                return Optional.of(driver);
             }
         }
 
-        if (bestDriver != null) {
-            return Optional.of(bestDriver.getDriverInstance());
+        final Optional<Driver<?, ?, ?, ?, ?, ?, ?, ?>> out = selectBestDriver().map(driver -> driver);
+
+        try {
+            writeCapabilities(snapshot, null);
+        } catch (IOException ex) {
+            LOGGER.warn(MARKER, "Unable to write driver capability snapshot [{}]: {}", snapshot, ex.getMessage());
+        }
+
+        return out;
+    }
+
+    /**
+     * Probes every DriverProvider on the calling thread, one at a time, and
+     * rewrites the capability snapshot if it no longer matches. This should be
+     * called after [code]selectBestDriver(snapshot)[/code] once the selected
+     * driver is initialized, from a thread that may probe the
+     * DriverProviders. Driver limits stored in the snapshot are kept.
+     *
+     * @param snapshot the path to the capability snapshot.
+     * @return true if the snapshot was valid.
+     * @since 16.09.01
+     */
+    public boolean revalidate(final Path snapshot) {
+        List<DriverCapabilities> expected;
+
+        try {
+            expected = readCapabilities(snapshot);
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.warn(MARKER, "Unable to read driver capability snapshot [{}]: {}", snapshot, ex.getMessage());
+            expected = Collections.emptyList();
+        }
+
+        final List<ProbedDriver> actual = probe(false);
+        boolean valid = !expected.isEmpty() && actual.size() == expected.size();
+
+        for (int i = 0; valid && i < actual.size(); i++) {
+            final DriverCapabilities test = actual.get(i).capabilities;
+
+            valid = expected.stream().anyMatch(test::isSameProbe);
+        }
+
+        if (valid) {
+            LOGGER.debug(MARKER, "Driver capability snapshot [{}] is valid.", snapshot);
         } else {
-            return Optional.empty();
+            LOGGER.warn(MARKER, "Driver capability snapshot [{}] is stale; rewriting.", snapshot);
+
+            try {
+                writeCapabilities(snapshot, null);
+            } catch (IOException ex) {
+                LOGGER.warn(MARKER, "Unable to write driver capability snapshot [{}]: {}", snapshot, ex.getMessage());
+            }
+        }
+
+        return valid;
+    }
+
+    /**
+     * Reads a capability snapshot. The snapshot is ignored if it does not
+     * exist or if it was written for a different machine fingerprint.
+     *
+     * @param snapshot the path to the capability snapshot.
+     * @return the list of capabilities. May be empty if the snapshot was
+     * ignored.
+     * @throws IOException if the snapshot could not be read.
+     * @since 16.09.01
+     */
+    public List<DriverCapabilities> readCapabilities(final Path snapshot) throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            return Collections.emptyList();
+        }
+
+        final Properties props = new Properties();
+
+        try (InputStream in = Files.newInputStream(snapshot)) {
+            props.load(in);
+        }
+
+        final String expectedFingerprint = DriverCapabilities.fingerprint(providers());
+
+        if (!expectedFingerprint.equals(props.getProperty(SNAPSHOT_FINGERPRINT))) {
+            LOGGER.debug(MARKER, "Driver capability snapshot [{}] does not match fingerprint [{}]", snapshot, expectedFingerprint);
+            return Collections.emptyList();
+        }
+
+        final int count = Integer.parseInt(props.getProperty(SNAPSHOT_COUNT, "0"));
+        final List<DriverCapabilities> out = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            out.add(DriverCapabilities.load(props, "driver." + i + "."));
+        }
+
+        return Collections.unmodifiableList(out);
+    }
+
+    /**
+     * Writes the probed capabilities of all drivers to a snapshot file. The
+     * snapshot is keyed by the machine fingerprint. If the active driver is
+     * supplied, its limits are recorded against the driver last selected by
+     * this DriverManager; this must be called on the thread that owns the
+     * active driver's context. Limits previously stored in the snapshot are
+     * kept for every driver whose probe has not changed.
+     *
+     * @param snapshot the path to write the snapshot to.
+     * @param activeDriver the driver selected by this DriverManager. May be
+     * null.
+     * @throws IOException if the snapshot could not be written.
+     * @since 16.09.01
+     */
+    public void writeCapabilities(final Path snapshot, final Driver<?, ?, ?, ?, ?, ?, ?, ?> activeDriver) throws IOException {
+        final List<ProbedDriver> probed = probe();
+        final String selected = this.selectedProvider;
+        final Properties props = new Properties();
+        List<DriverCapabilities> previous;
+
+        try {
+            previous = readCapabilities(snapshot);
+        } catch (IOException | RuntimeException ex) {
+            previous = Collections.emptyList();
+        }
+
+        props.setProperty(SNAPSHOT_FINGERPRINT, DriverCapabilities.fingerprint(providers()));
+        props.setProperty(SNAPSHOT_COUNT, Integer.toString(probed.size()));
+
+        for (int i = 0; i < probed.size(); i++) {
+            final ProbedDriver test = probed.get(i);
+            final DriverCapabilities caps;
+
+            if (activeDriver != null && test.capabilities.providerClass.equals(selected)) {
+                caps = test.capabilities.withLimits(activeDriver);
+            } else {
+                caps = previous.stream()
+                        .filter(test.capabilities::isSameProbe)
+                        .findFirst()
+                        .map(old -> test.capabilities.withLimits(old.limits))
+                        .orElse(test.capabilities);
+            }
+
+            caps.store(props, "driver." + i + ".");
+        }
+
+        final Path dir = snapshot.toAbsolutePath().getParent();
+
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+
+        final Path tmp = Files.createTempFile(dir, "gloop-spi", ".tmp");
+
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                props.store(out, "gloop-spi driver capabilities");
+            }
+
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
         }
     }
 
@@ -0,0 +1,315 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Streams transform feedback output back to host memory. Feedback is captured
+ * into a ring of buffers; each capture is fenced and counted with a
+ * primitives-written query. Completed captures are mapped and delivered to the
+ * consumer in submission order once the GPU has finished writing them, so that
+ * reading the results never stalls the pipeline. The capture only blocks if
+ * every buffer in the ring is still in flight.
+ *
+ * Captured vertices are expected to be interleaved into a single buffer
+ * (binding point 0). The FeedbackCapture is not thread-safe. It must be used
+ * from the thread that owns the driver's context.
+ *
+ * @author zmichaels
+ * @param <BufferT> the SPI buffer implementation.
+ * @since 16.09.01
+ */
+public final class FeedbackCapture<BufferT extends Buffer> {
+
+    private static final int GL_POINTS = 0x0000;
+    private static final int GL_LINES = 0x0001;
+    private static final int GL_TRIANGLES = 0x0004;
+    private static final int GL_STREAM_READ = 0x88E1;
+    private static final int GL_MAP_READ_BIT = 0x0001;
+    private static final int GL_TRANSFORM_FEEDBACK_PRIMITIVES_WRITTEN = 0x8C88;
+    private static final long WAIT_TIMEOUT = 1_000_000L;
+    // a zero capacity buffer has no state a consumer could change
+    private static final ByteBuffer EMPTY = ByteBuffer.allocateDirect(0);
+
+    /**
+     * Receives captured transform feedback data.
+     *
+     * @since 16.09.01
+     */
+    @FunctionalInterface
+    public interface Consumer {
+
+        /**
+         * Accepts a completed capture. The data is only valid for the
+         * duration of the call.
+         *
+         * @param data the captured vertices. The position is 0 and the limit
+         * is the number of bytes written.
+         * @param primitives the number of primitives written.
+         * @param captureId the sequence number of the capture.
+         * @since 16.09.01
+         */
+        void accept(ByteBuffer data, long primitives, long captureId);
+    }
+
+    private final class Slot {
+
+        private final BufferT buffer;
+        private final Query query;
+        private Fence fence;
+        private long captureId;
+
+        private Slot() {
+            this.buffer = FeedbackCapture.this.driver.bufferCreate();
+            FeedbackCapture.this.driver.bufferAllocate(this.buffer, FeedbackCapture.this.capacity, GL_STREAM_READ);
+            this.query = FeedbackCapture.this.driver.queryCreate();
+        }
+    }
+
+    private final Driver<BufferT, ?, ?, ?, ?, ?, ?, ?> driver;
+    private final Consumer consumer;
+    private final long capacity;
+    private final int primitiveMode;
+    private final int verticesPerPrimitive;
+    private final int vertexStride;
+    private final List<Slot> slots;
+    private int nextSlot;
+    private int oldestPending;
+    private int pendingCount;
+    private long nextCaptureId;
+    private Slot active;
+    private long stalls;
+
+    /**
+     * Constructs a new FeedbackCapture.
+     *
+     * @param driver the driver. The driver must support Query and Fence
+     * objects.
+     * @param primitiveMode the transform feedback primitive mode (GL_POINTS,
+     * GL_LINES or GL_TRIANGLES).
+     * @param vertexStride the number of bytes captured per vertex.
+     * @param capacity the size of each capture buffer in bytes.
+     * @param ringSize the number of capture buffers. 3 allows results to be
+     * read two frames late without stalling.
+     * @param consumer the consumer of captured data.
+     * @since 16.09.01
+     */
+    public FeedbackCapture(
+            final Driver<BufferT, ?, ?, ?, ?, ?, ?, ?> driver,
+            final int primitiveMode, final int vertexStride,
+            final long capacity, final int ringSize,
+            final Consumer consumer) {
+
+        switch (primitiveMode) {
+            case GL_POINTS:
+                this.verticesPerPrimitive = 1;
+                break;
+            case GL_LINES:
+                this.verticesPerPrimitive = 2;
+                break;
+            case GL_TRIANGLES:
+                this.verticesPerPrimitive = 3;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported transform feedback primitive mode: 0x" + Integer.toHexString(primitiveMode));
+        }
+
+        if (vertexStride < 1) {
+            throw new IllegalArgumentException("Vertex stride must be positive!");
+        } else if (capacity < vertexStride) {
+            throw new IllegalArgumentException("Capacity must hold at least one vertex!");
+        } else if (ringSize < 1) {
+            throw new IllegalArgumentException("Ring size must be at least 1!");
+        }
+
+        this.driver = Objects.requireNonNull(driver);
+        this.consumer = Objects.requireNonNull(consumer);
+        this.primitiveMode = primitiveMode;
+        this.vertexStride = vertexStride;
+        this.capacity = capacity;
+
+        this.slots = new ArrayList<>(ringSize);
+
+        for (int i = 0; i < ringSize; i++) {
+            this.slots.add(new Slot());
+        }
+    }
+
+    /**
+     * Begins capturing transform feedback into the next buffer in the ring.
+     * Completed captures are delivered first. This blocks only if every buffer
+     * in the ring is still in flight.
+     *
+     * @return the sequence number of the capture.
+     * @since 16.09.01
+     */
+    public long begin() {
+        if (this.active != null) {
+            throw new IllegalStateException("Capture " + this.active.captureId + " was not ended!");
+        }
+
+        poll();
+
+        if (this.pendingCount == this.slots.size()) {
+            final Slot oldest = this.slots.get(this.oldestPending);
+
+            this.stalls++;
+
+            while (!this.driver.fenceClientWait(oldest.fence, WAIT_TIMEOUT)) {
+                Thread.yield();
+            }
+
+            // the query result may still be pending after the fence; deliver
+            // blocks on queryGetResult so that the slot is always freed
+            deliver(oldest);
+            poll();
+        }
+
+        final Slot slot = this.slots.get(this.nextSlot);
+
+        this.nextSlot = (this.nextSlot + 1) % this.slots.size();
+        slot.captureId = this.nextCaptureId++;
+        this.active = slot;
+
+        this.driver.bufferBindFeedback(slot.buffer, 0, 0, this.capacity);
+        this.driver.queryBegin(slot.query, GL_TRANSFORM_FEEDBACK_PRIMITIVES_WRITTEN);
+        this.driver.transformFeedbackBegin(this.primitiveMode);
+
+        return slot.captureId;
+    }
+
+    /**
+     * Ends the active capture and fences it.
+     *
+     * @since 16.09.01
+     */
+    public void end() {
+        if (this.active == null) {
+            throw new IllegalStateException("No capture was begun!");
+        }
+
+        this.driver.transformFeedbackEnd();
+        this.driver.queryEnd(GL_TRANSFORM_FEEDBACK_PRIMITIVES_WRITTEN);
+        this.active.fence = this.driver.fenceCreate();
+        this.driver.fenceFlush(this.active.fence);
+        this.active = null;
+        this.pendingCount++;
+    }
+
+    /**
+     * Delivers every completed capture to the consumer without blocking.
+     *
+     * @return the number of captures delivered.
+     * @since 16.09.01
+     */
+    public int poll() {
+        int delivered = 0;
+
+        while (this.pendingCount > 0) {
+            final Slot slot = this.slots.get(this.oldestPending);
+
+            if (!this.driver.fenceIsSignaled(slot.fence) || !this.driver.queryIsResultAvailable(slot.query)) {
+                break;
+            }
+
+            deliver(slot);
+            delivered++;
+        }
+
+        return delivered;
+    }
+
+    private void deliver(final Slot slot) {
+        final long primitives = this.driver.queryGetResult(slot.query);
+        final long bytes = Math.min(this.capacity, primitives * this.verticesPerPrimitive * this.vertexStride);
+
+        this.driver.fenceDelete(slot.fence);
+        slot.fence = null;
+        this.oldestPending = (this.oldestPending + 1) % this.slots.size();
+        this.pendingCount--;
+
+        if (bytes > 0) {
+            final ByteBuffer data = this.driver.bufferMapData(slot.buffer, 0, bytes, GL_MAP_READ_BIT);
+
+            try {
+                this.consumer.accept(data, primitives, slot.captureId);
+            } finally {
+                this.driver.bufferUnmapData(slot.buffer);
+            }
+        } else {
+            this.consumer.accept(EMPTY, 0L, slot.captureId);
+        }
+    }
+
+    /**
+     * Retrieves the number of captures that have been ended but not yet
+     * delivered.
+     *
+     * @return the number of pending captures.
+     * @since 16.09.01
+     */
+    public int getPendingCount() {
+        return this.pendingCount;
+    }
+
+    /**
+     * Retrieves the number of times begin blocked because every buffer in the
+     * ring was in flight.
+     *
+     * @return the number of stalls.
+     * @since 16.09.01
+     */
+    public long getStallCount() {
+        return this.stalls;
+    }
+
+    /**
+     * Delivers all pending captures, blocking as needed, and deletes the
+     * capture buffers, queries and fences.
+     *
+     * @since 16.09.01
+     */
+    public void delete() {
+        while (this.pendingCount > 0) {
+            final Slot slot = this.slots.get(this.oldestPending);
+
+            while (!this.driver.fenceClientWait(slot.fence, WAIT_TIMEOUT)) {
+                Thread.yield();
+            }
+
+            deliver(slot);
+        }
+
+        for (Slot slot : this.slots) {
+            this.driver.bufferDelete(slot.buffer);
+            this.driver.queryDelete(slot.query);
+        }
+    }
+}
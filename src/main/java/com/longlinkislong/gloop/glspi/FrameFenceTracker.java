@@ -0,0 +1,243 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.util.Objects;
+
+/**
+ * Tracks frames in flight using Fence objects. A Fence is inserted at the end
+ * of every frame; before a frame slot is reused, the Fence from the frame that
+ * last used it is waited on. This bounds the CPU to at most N frames ahead of
+ * the GPU and identifies which frames the GPU has finished so that resources
+ * written by those frames may be safely reused.
+ *
+ * The FrameFenceTracker is not thread-safe. It must be used from the thread
+ * that owns the driver's context.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class FrameFenceTracker {
+
+    private static final long WAIT_TIMEOUT = 1_000_000L;
+
+    private final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver;
+    private final Fence[] fences;
+    private final long[] fenceFrames;
+    private long currentFrame = -1L;
+    private long completedFrame = -1L;
+    private boolean inFrame;
+    private long stallTime;
+    private long stalls;
+
+    /**
+     * Constructs a new FrameFenceTracker.
+     *
+     * @param driver the driver. The driver must support Fence objects.
+     * @param framesInFlight the maximum number of frames the CPU may be ahead
+     * of the GPU. Must be at least 1.
+     * @since 16.09.01
+     */
+    public FrameFenceTracker(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver, final int framesInFlight) {
+        if (framesInFlight < 1) {
+            throw new IllegalArgumentException("Frames in flight must be at least 1!");
+        }
+
+        this.driver = Objects.requireNonNull(driver);
+        this.fences = new Fence[framesInFlight];
+        this.fenceFrames = new long[framesInFlight];
+    }
+
+    /**
+     * Retrieves the maximum number of frames in flight.
+     *
+     * @return the number of frames in flight.
+     * @since 16.09.01
+     */
+    public int getFramesInFlight() {
+        return this.fences.length;
+    }
+
+    /**
+     * Begins a new frame. This blocks only if the GPU has not yet finished the
+     * frame that last used the slot being reused.
+     *
+     * @return the slot index for the new frame. Slot indices are in the range
+     * [0, framesInFlight).
+     * @since 16.09.01
+     */
+    public int beginFrame() {
+        if (this.inFrame) {
+            throw new IllegalStateException("Frame " + this.currentFrame + " was not ended!");
+        }
+
+        this.currentFrame++;
+        this.inFrame = true;
+
+        final int slot = getCurrentSlot();
+        final Fence fence = this.fences[slot];
+
+        if (fence != null) {
+            if (!this.driver.fenceIsSignaled(fence)) {
+                final long start = System.nanoTime();
+
+                while (!this.driver.fenceClientWait(fence, WAIT_TIMEOUT)) {
+                    Thread.yield();
+                }
+
+                this.stallTime += System.nanoTime() - start;
+                this.stalls++;
+            }
+
+            signaled(slot);
+        }
+
+        poll();
+
+        return slot;
+    }
+
+    /**
+     * Ends the current frame by inserting a Fence.
+     *
+     * @since 16.09.01
+     */
+    public void endFrame() {
+        if (!this.inFrame) {
+            throw new IllegalStateException("No frame was begun!");
+        }
+
+        final int slot = getCurrentSlot();
+
+        this.fences[slot] = this.driver.fenceCreate();
+        this.driver.fenceFlush(this.fences[slot]);
+        this.fenceFrames[slot] = this.currentFrame;
+        this.inFrame = false;
+    }
+
+    /**
+     * Polls all outstanding Fences without blocking and updates the completed
+     * frame.
+     *
+     * @return the most recent frame known to be complete, or -1 if no frames
+     * have completed.
+     * @since 16.09.01
+     */
+    public long poll() {
+        for (int i = 0; i < this.fences.length; i++) {
+            if (this.fences[i] != null && this.driver.fenceIsSignaled(this.fences[i])) {
+                signaled(i);
+            }
+        }
+
+        return this.completedFrame;
+    }
+
+    private void signaled(final int slot) {
+        this.completedFrame = Math.max(this.completedFrame, this.fenceFrames[slot]);
+        this.driver.fenceDelete(this.fences[slot]);
+        this.fences[slot] = null;
+    }
+
+    /**
+     * Checks if the GPU has finished all commands submitted during the frame.
+     * This does not poll the Fences.
+     *
+     * @param frame the frame number.
+     * @return true if the frame is known to be complete.
+     * @since 16.09.01
+     */
+    public boolean isFrameComplete(final long frame) {
+        return frame <= this.completedFrame;
+    }
+
+    /**
+     * Retrieves the current frame number. Frame numbers start at 0.
+     *
+     * @return the current frame number or -1 if no frame has begun.
+     * @since 16.09.01
+     */
+    public long getCurrentFrame() {
+        return this.currentFrame;
+    }
+
+    /**
+     * Retrieves the slot index for the current frame.
+     *
+     * @return the slot index.
+     * @since 16.09.01
+     */
+    public int getCurrentSlot() {
+        return (int) (Math.max(0L, this.currentFrame) % this.fences.length);
+    }
+
+    /**
+     * Retrieves the most recent frame known to be complete.
+     *
+     * @return the completed frame number or -1.
+     * @since 16.09.01
+     */
+    public long getCompletedFrame() {
+        return this.completedFrame;
+    }
+
+    /**
+     * Retrieves the number of times beginFrame blocked on the GPU.
+     *
+     * @return the number of stalls.
+     * @since 16.09.01
+     */
+    public long getStallCount() {
+        return this.stalls;
+    }
+
+    /**
+     * Retrieves the total time spent blocked in beginFrame.
+     *
+     * @return the stall time in nanoseconds.
+     * @since 16.09.01
+     */
+    public long getStallTime() {
+        return this.stallTime;
+    }
+
+    /**
+     * Waits for all frames to complete and deletes all Fences.
+     *
+     * @since 16.09.01
+     */
+    public void finish() {
+        for (int i = 0; i < this.fences.length; i++) {
+            if (this.fences[i] != null) {
+                while (!this.driver.fenceClientWait(this.fences[i], WAIT_TIMEOUT)) {
+                    Thread.yield();
+                }
+
+                signaled(i);
+            }
+        }
+    }
+}
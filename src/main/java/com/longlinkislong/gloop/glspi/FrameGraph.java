@@ -0,0 +1,582 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A frame graph of render passes. Each pass declares the attachments it reads
+ * (samples as textures) and writes (renders into). Compiling the graph culls
+ * passes whose output is never consumed and computes the lifetime of every
+ * transient attachment. It then assigns physical Textures and Renderbuffers
+ * from a RenderTargetPool. Transient attachments with equal format and size
+ * share a physical object when their lifetimes do not overlap. Transient
+ * attachments that are never sampled are backed by Renderbuffers.
+ *
+ * A pass that writes no attachments renders to the default framebuffer and is
+ * never culled. Imported textures and attachments marked as outputs are never
+ * culled either. The FrameGraph is not thread-safe. It must be used from the
+ * thread that owns the driver's context.
+ *
+ * @author zmichaels
+ * @param <FramebufferT> the SPI framebuffer implementation.
+ * @param <RenderbufferT> the SPI renderbuffer implementation.
+ * @param <TextureT> the SPI texture implementation.
+ * @since 16.09.01
+ */
+public final class FrameGraph<FramebufferT extends Framebuffer, RenderbufferT extends Renderbuffer, TextureT extends Texture> {
+
+    private static final int GL_BACK = 0x0405;
+    private static final int GL_COLOR_ATTACHMENT0 = 0x8CE0;
+    private static final int GL_DEPTH_ATTACHMENT = 0x8D00;
+    private static final int GL_DEPTH_STENCIL_ATTACHMENT = 0x821A;
+    private static final int GL_DEPTH_COMPONENT = 0x1902;
+    private static final int GL_DEPTH_STENCIL = 0x84F9;
+
+    /**
+     * A virtual attachment. Attachments are compared by identity.
+     *
+     * @since 16.09.01
+     */
+    public static final class Attachment {
+
+        public final String name;
+        public final int internalFormat;
+        public final int width;
+        public final int height;
+        private final Object imported;
+
+        private Attachment(final String name, final int internalFormat, final int width, final int height, final Object imported) {
+            this.name = Objects.requireNonNull(name);
+            this.internalFormat = internalFormat;
+            this.width = width;
+            this.height = height;
+            this.imported = imported;
+        }
+
+        public boolean isTransient() {
+            return this.imported == null;
+        }
+
+        @Override
+        public String toString() {
+            return this.name;
+        }
+    }
+
+    /**
+     * Executes a pass. The pass's framebuffer is bound before execution.
+     *
+     * @param <TextureT> the SPI texture implementation.
+     * @since 16.09.01
+     */
+    @FunctionalInterface
+    public interface PassExecutor<TextureT extends Texture> {
+
+        void execute(Resources<TextureT> resources);
+    }
+
+    /**
+     * Resolves attachments to physical textures during pass execution.
+     *
+     * @param <TextureT> the SPI texture implementation.
+     * @since 16.09.01
+     */
+    public interface Resources<TextureT extends Texture> {
+
+        /**
+         * Retrieves the texture backing an attachment read by the pass.
+         *
+         * @param attachment the attachment.
+         * @return the texture.
+         * @since 16.09.01
+         */
+        TextureT getTexture(Attachment attachment);
+    }
+
+    private final class Pass {
+
+        private final String name;
+        private final List<Attachment> reads;
+        private final List<Attachment> writes;
+        private final PassExecutor<TextureT> executor;
+        private boolean culled;
+        private FramebufferT framebuffer;
+        private IntBuffer drawBuffers;
+
+        private Pass(final String name, final Collection<Attachment> reads, final Collection<Attachment> writes, final PassExecutor<TextureT> executor) {
+            this.name = name;
+            this.reads = new ArrayList<>(reads);
+            this.writes = new ArrayList<>(writes);
+            this.executor = executor;
+        }
+    }
+
+    private static final class Descriptor {
+
+        private final int internalFormat;
+        private final int width;
+        private final int height;
+        private final boolean sampled;
+
+        private Descriptor(final Attachment attachment, final boolean sampled) {
+            this.internalFormat = attachment.internalFormat;
+            this.width = attachment.width;
+            this.height = attachment.height;
+            this.sampled = sampled;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((this.internalFormat * 31 + this.width) * 31 + this.height) * 2 + (this.sampled ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Descriptor)) {
+                return false;
+            }
+
+            final Descriptor other = (Descriptor) obj;
+
+            return this.internalFormat == other.internalFormat
+                    && this.width == other.width
+                    && this.height == other.height
+                    && this.sampled == other.sampled;
+        }
+    }
+
+    private final class Physical {
+
+        private final Descriptor descriptor;
+        private TextureT texture;
+        private RenderbufferT renderbuffer;
+        private int lastUse;
+
+        private Physical(final Descriptor descriptor) {
+            this.descriptor = descriptor;
+        }
+
+        private SPIObject object() {
+            return this.descriptor.sampled ? this.texture : this.renderbuffer;
+        }
+    }
+
+    private final Driver<?, FramebufferT, RenderbufferT, TextureT, ?, ?, ?, ?> driver;
+    private final RenderTargetPool<FramebufferT, RenderbufferT, TextureT> targetPool;
+    private final boolean ownsPool;
+    private final List<Pass> passes = new ArrayList<>();
+    private final Set<Attachment> outputs = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Descriptor, List<Physical>> physicals = new HashMap<>();
+    private final Map<Attachment, Physical> assignment = new IdentityHashMap<>();
+    private final Resources<TextureT> resources = this::resolveTexture;
+    private boolean compiled;
+
+    /**
+     * Constructs a new FrameGraph that owns its RenderTargetPool.
+     *
+     * @param driver the driver.
+     * @since 16.09.01
+     */
+    public FrameGraph(final Driver<?, FramebufferT, RenderbufferT, TextureT, ?, ?, ?, ?> driver) {
+        this(driver, new RenderTargetPool<>(driver), true);
+    }
+
+    /**
+     * Constructs a new FrameGraph that allocates from a shared
+     * RenderTargetPool. The caller is responsible for calling endFrame on the
+     * pool.
+     *
+     * @param driver the driver.
+     * @param pool the render target pool.
+     * @since 16.09.01
+     */
+    public FrameGraph(
+            final Driver<?, FramebufferT, RenderbufferT, TextureT, ?, ?, ?, ?> driver,
+            final RenderTargetPool<FramebufferT, RenderbufferT, TextureT> pool) {
+
+        this(driver, pool, false);
+    }
+
+    private FrameGraph(
+            final Driver<?, FramebufferT, RenderbufferT, TextureT, ?, ?, ?, ?> driver,
+            final RenderTargetPool<FramebufferT, RenderbufferT, TextureT> pool,
+            final boolean ownsPool) {
+
+        this.driver = Objects.requireNonNull(driver);
+        this.targetPool = Objects.requireNonNull(pool);
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * Declares a transient attachment. The backing object is allocated by the
+     * graph and only lives for the passes that use it.
+     *
+     * @param name the attachment name.
+     * @param internalFormat the internal format (Uses OpenGL enum).
+     * @param width the width in pixels.
+     * @param height the height in pixels.
+     * @return the attachment.
+     * @since 16.09.01
+     */
+    public Attachment createAttachment(final String name, final int internalFormat, final int width, final int height) {
+        this.compiled = false;
+        return new Attachment(name, internalFormat, width, height, null);
+    }
+
+    /**
+     * Imports an externally owned texture. Passes writing imported attachments
+     * are never culled.
+     *
+     * @param name the attachment name.
+     * @param texture the texture.
+     * @param internalFormat the internal format of the texture.
+     * @param width the width of the texture.
+     * @param height the height of the texture.
+     * @return the attachment.
+     * @since 16.09.01
+     */
+    public Attachment importTexture(final String name, final TextureT texture, final int internalFormat, final int width, final int height) {
+        this.compiled = false;
+        return new Attachment(name, internalFormat, width, height, Objects.requireNonNull(texture));
+    }
+
+    /**
+     * Marks an attachment as an output of the graph. Passes that contribute to
+     * an output are never culled.
+     *
+     * @param attachment the attachment.
+     * @since 16.09.01
+     */
+    public void markOutput(final Attachment attachment) {
+        this.outputs.add(attachment);
+        this.compiled = false;
+    }
+
+    /**
+     * Adds a pass. Passes are executed in the order they are added.
+     *
+     * @param name the pass name.
+     * @param reads the attachments sampled by the pass.
+     * @param writes the attachments rendered to by the pass. If empty, the
+     * pass renders to the default framebuffer.
+     * @param executor the pass executor.
+     * @since 16.09.01
+     */
+    public void addPass(
+            final String name,
+            final Collection<Attachment> reads, final Collection<Attachment> writes,
+            final PassExecutor<TextureT> executor) {
+
+        this.passes.add(new Pass(name, reads, writes, Objects.requireNonNull(executor)));
+        this.compiled = false;
+    }
+
+    /**
+     * Convenience method for declaring attachment lists.
+     *
+     * @param attachments the attachments.
+     * @return the list of attachments.
+     * @since 16.09.01
+     */
+    public static List<Attachment> attachments(final Attachment... attachments) {
+        return Arrays.asList(attachments);
+    }
+
+    /**
+     * Compiles the graph. This is called implicitly by execute if the graph
+     * changed.
+     *
+     * @since 16.09.01
+     */
+    public void compile() {
+        final Set<Attachment> needed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        needed.addAll(this.outputs);
+
+        for (int i = this.passes.size() - 1; i >= 0; i--) {
+            final Pass pass = this.passes.get(i);
+
+            pass.culled = !pass.writes.isEmpty()
+                    && pass.writes.stream().noneMatch(attachment -> !attachment.isTransient() || needed.contains(attachment));
+
+            if (!pass.culled) {
+                needed.addAll(pass.reads);
+            }
+        }
+
+        final Map<Attachment, int[]> lifetimes = new IdentityHashMap<>();
+        final Set<Attachment> sampled = Collections.newSetFromMap(new IdentityHashMap<>());
+        final List<Attachment> order = new ArrayList<>();
+
+        for (int i = 0; i < this.passes.size(); i++) {
+            final Pass pass = this.passes.get(i);
+
+            if (pass.culled) {
+                continue;
+            }
+
+            sampled.addAll(pass.reads);
+
+            final int passIndex = i;
+
+            for (List<Attachment> list : Arrays.asList(pass.reads, pass.writes)) {
+                for (Attachment attachment : list) {
+                    if (attachment.isTransient()) {
+                        final int[] lifetime = lifetimes.computeIfAbsent(attachment, key -> {
+                            order.add(key);
+                            return new int[]{passIndex, passIndex};
+                        });
+
+                        lifetime[1] = passIndex;
+                    }
+                }
+            }
+        }
+
+        for (Attachment output : this.outputs) {
+            final int[] lifetime = lifetimes.get(output);
+
+            if (lifetime != null) {
+                lifetime[1] = Integer.MAX_VALUE;
+            }
+        }
+
+        this.passes.forEach(this::releaseFramebuffer);
+        releasePhysicals();
+
+        for (Attachment attachment : order) {
+            final int[] lifetime = lifetimes.get(attachment);
+            final Descriptor descriptor = new Descriptor(attachment, sampled.contains(attachment) || this.outputs.contains(attachment));
+            final List<Physical> candidates = this.physicals.computeIfAbsent(descriptor, key -> new ArrayList<>());
+            Physical physical = null;
+
+            for (Physical candidate : candidates) {
+                if (candidate.lastUse < lifetime[0]) {
+                    physical = candidate;
+                    break;
+                }
+            }
+
+            if (physical == null) {
+                physical = new Physical(descriptor);
+                candidates.add(physical);
+            }
+
+            physical.lastUse = lifetime[1];
+            this.assignment.put(attachment, physical);
+        }
+
+        this.compiled = true;
+    }
+
+    /**
+     * Executes every pass that was not culled.
+     *
+     * @since 16.09.01
+     */
+    public void execute() {
+        if (!this.compiled) {
+            compile();
+        }
+
+        for (Pass pass : this.passes) {
+            if (pass.culled) {
+                continue;
+            }
+
+            if (pass.writes.isEmpty()) {
+                if (pass.drawBuffers == null) {
+                    pass.drawBuffers = intBuffer(GL_BACK);
+                }
+
+                this.driver.framebufferBind(this.driver.framebufferGetDefault(), pass.drawBuffers);
+            } else {
+                if (pass.framebuffer == null) {
+                    buildFramebuffer(pass);
+                }
+
+                this.driver.framebufferBind(pass.framebuffer, pass.drawBuffers);
+            }
+
+            pass.executor.execute(this.resources);
+        }
+
+        if (this.ownsPool) {
+            this.targetPool.endFrame();
+        }
+    }
+
+    private void buildFramebuffer(final Pass pass) {
+        final int[] attachmentIds = new int[pass.writes.size()];
+        final SPIObject[] targets = new SPIObject[pass.writes.size()];
+        final List<Integer> colorAttachments = new ArrayList<>();
+
+        for (int i = 0; i < attachmentIds.length; i++) {
+            final Attachment attachment = pass.writes.get(i);
+            final int format = this.driver.guessFormat(attachment.internalFormat);
+
+            if (format == GL_DEPTH_COMPONENT) {
+                attachmentIds[i] = GL_DEPTH_ATTACHMENT;
+            } else if (format == GL_DEPTH_STENCIL) {
+                attachmentIds[i] = GL_DEPTH_STENCIL_ATTACHMENT;
+            } else {
+                attachmentIds[i] = GL_COLOR_ATTACHMENT0 + colorAttachments.size();
+                colorAttachments.add(attachmentIds[i]);
+            }
+
+            targets[i] = attachment.isTransient()
+                    ? allocate(this.assignment.get(attachment)).object()
+                    : (SPIObject) attachment.imported;
+        }
+
+        pass.framebuffer = this.targetPool.acquireFramebuffer(attachmentIds, targets);
+        pass.drawBuffers = intBuffer(colorAttachments.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private Physical allocate(final Physical physical) {
+        if (physical.object() == null) {
+            final Descriptor desc = physical.descriptor;
+
+            if (desc.sampled) {
+                physical.texture = this.targetPool.acquireTexture(desc.internalFormat, desc.width, desc.height);
+            } else {
+                physical.renderbuffer = this.targetPool.acquireRenderbuffer(desc.internalFormat, desc.width, desc.height, 0);
+            }
+        }
+
+        return physical;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TextureT resolveTexture(final Attachment attachment) {
+        if (!attachment.isTransient()) {
+            return (TextureT) attachment.imported;
+        }
+
+        final Physical physical = this.assignment.get(attachment);
+
+        if (physical == null) {
+            throw new IllegalArgumentException("Attachment [" + attachment + "] is not used by any pass!");
+        } else if (!physical.descriptor.sampled) {
+            throw new IllegalArgumentException("Attachment [" + attachment + "] was not declared as read by any pass!");
+        }
+
+        return allocate(physical).texture;
+    }
+
+    private static IntBuffer intBuffer(final int... values) {
+        final IntBuffer out = ByteBuffer.allocateDirect(Math.max(1, values.length) * Integer.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asIntBuffer();
+
+        out.put(values).flip();
+        return out;
+    }
+
+    private void releaseFramebuffer(final Pass pass) {
+        if (pass.framebuffer != null) {
+            this.targetPool.releaseFramebuffer(pass.framebuffer);
+            pass.framebuffer = null;
+            pass.drawBuffers = null;
+        }
+    }
+
+    private void releasePhysicals() {
+        for (List<Physical> list : this.physicals.values()) {
+            for (Physical physical : list) {
+                if (physical.object() != null) {
+                    this.targetPool.releaseTarget(physical.object());
+                }
+            }
+        }
+
+        this.physicals.clear();
+        this.assignment.clear();
+    }
+
+    /**
+     * Retrieves the number of passes that were culled by the last compile.
+     *
+     * @return the number of culled passes.
+     * @since 16.09.01
+     */
+    public int getCulledPassCount() {
+        return (int) this.passes.stream().filter(pass -> pass.culled).count();
+    }
+
+    /**
+     * Retrieves the number of physical attachments backing the transient
+     * attachments.
+     *
+     * @return the number of physical attachments.
+     * @since 16.09.01
+     */
+    public int getPhysicalAttachmentCount() {
+        return this.physicals.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * Removes all passes, attachments and outputs. Physical attachments and
+     * framebuffers are returned to the RenderTargetPool so that they may be
+     * reused by the next compile.
+     *
+     * @since 16.09.01
+     */
+    public void reset() {
+        this.passes.forEach(this::releaseFramebuffer);
+        this.passes.clear();
+        this.outputs.clear();
+        releasePhysicals();
+        this.compiled = false;
+    }
+
+    /**
+     * Resets the graph. If the graph owns its RenderTargetPool, every pooled
+     * object is deleted.
+     *
+     * @since 16.09.01
+     */
+    public void delete() {
+        reset();
+
+        if (this.ownsPool) {
+            this.targetPool.clear();
+        }
+    }
+}
@@ -0,0 +1,380 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A scoped GPU profiler. Named regions are bracketed with timestamp queries;
+ * the results are read back once they become available (usually a few frames
+ * later) so that the profiler never stalls the pipeline. The CPU time spent
+ * submitting each region is recorded alongside the GPU time so that CPU-bound
+ * and GPU-bound regions can be told apart. Regions may be nested.
+ *
+ * The FrameProfiler is not thread-safe. It must be used from the thread that
+ * owns the driver's context.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class FrameProfiler {
+
+    /**
+     * The recorded history of a single named region.
+     *
+     * @since 16.09.01
+     */
+    public static final class Region {
+
+        public final String name;
+        private final long[] gpuHistory;
+        private final long[] cpuHistory;
+        private int next;
+        private int count;
+
+        private Region(final String name, final int historySize) {
+            this.name = name;
+            this.gpuHistory = new long[historySize];
+            this.cpuHistory = new long[historySize];
+        }
+
+        private void record(final long gpuNanos, final long cpuNanos) {
+            this.gpuHistory[this.next] = gpuNanos;
+            this.cpuHistory[this.next] = cpuNanos;
+            this.next = (this.next + 1) % this.gpuHistory.length;
+            this.count = Math.min(this.count + 1, this.gpuHistory.length);
+        }
+
+        /**
+         * Retrieves the number of samples held in the history.
+         *
+         * @return the number of samples.
+         * @since 16.09.01
+         */
+        public int getSampleCount() {
+            return this.count;
+        }
+
+        /**
+         * Retrieves the most recent GPU time.
+         *
+         * @return the GPU time in nanoseconds or 0 if no samples exist.
+         * @since 16.09.01
+         */
+        public long getLastGpuTime() {
+            return this.count == 0 ? 0L : this.gpuHistory[(this.next + this.gpuHistory.length - 1) % this.gpuHistory.length];
+        }
+
+        /**
+         * Retrieves the most recent CPU time.
+         *
+         * @return the CPU time in nanoseconds or 0 if no samples exist.
+         * @since 16.09.01
+         */
+        public long getLastCpuTime() {
+            return this.count == 0 ? 0L : this.cpuHistory[(this.next + this.cpuHistory.length - 1) % this.cpuHistory.length];
+        }
+
+        /**
+         * Retrieves the average GPU time over the history.
+         *
+         * @return the average GPU time in nanoseconds.
+         * @since 16.09.01
+         */
+        public double getAverageGpuTime() {
+            return average(this.gpuHistory, this.count);
+        }
+
+        /**
+         * Retrieves the average CPU time over the history.
+         *
+         * @return the average CPU time in nanoseconds.
+         * @since 16.09.01
+         */
+        public double getAverageCpuTime() {
+            return average(this.cpuHistory, this.count);
+        }
+
+        /**
+         * Retrieves the maximum GPU time over the history.
+         *
+         * @return the maximum GPU time in nanoseconds.
+         * @since 16.09.01
+         */
+        public long getMaxGpuTime() {
+            long max = 0L;
+
+            for (int i = 0; i < this.count; i++) {
+                max = Math.max(max, this.gpuHistory[i]);
+            }
+
+            return max;
+        }
+
+        /**
+         * Copies the GPU time history, oldest first, into the array.
+         *
+         * @param out the array to write to.
+         * @return the number of samples written.
+         * @since 16.09.01
+         */
+        public int getGpuHistory(final long[] out) {
+            final int len = Math.min(out.length, this.count);
+            final int start = (this.next + this.gpuHistory.length - this.count) % this.gpuHistory.length;
+
+            for (int i = 0; i < len; i++) {
+                out[i] = this.gpuHistory[(start + i) % this.gpuHistory.length];
+            }
+
+            return len;
+        }
+
+        private static double average(final long[] history, final int count) {
+            if (count == 0) {
+                return 0.0;
+            }
+
+            long sum = 0L;
+
+            for (int i = 0; i < count; i++) {
+                sum += history[i];
+            }
+
+            return (double) sum / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: gpu=%.3fms cpu=%.3fms", this.name, getAverageGpuTime() / 1e6, getAverageCpuTime() / 1e6);
+        }
+    }
+
+    private static final class Sample {
+
+        private Region region;
+        private Query start;
+        private Query end;
+        private long cpuStart;
+        private long cpuTime;
+    }
+
+    private final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver;
+    private final int historySize;
+    private final int maxPendingFrames;
+    private final Map<String, Region> regions = new LinkedHashMap<>();
+    private final Deque<Query> freeQueries = new ArrayDeque<>();
+    private final Deque<Sample> freeSamples = new ArrayDeque<>();
+    private final Deque<Sample> open = new ArrayDeque<>();
+    private final Deque<Sample> pending = new ArrayDeque<>();
+    private final Deque<Integer> pendingFrameSizes = new ArrayDeque<>();
+    private int currentFrameSize;
+    private long droppedSamples;
+
+    /**
+     * Constructs a new FrameProfiler that keeps 120 samples per region and
+     * allows results to be up to 4 frames late.
+     *
+     * @param driver the driver. The driver must support Query objects.
+     * @since 16.09.01
+     */
+    public FrameProfiler(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver) {
+        this(driver, 120, 4);
+    }
+
+    /**
+     * Constructs a new FrameProfiler.
+     *
+     * @param driver the driver. The driver must support Query objects.
+     * @param historySize the number of samples to keep per region.
+     * @param maxPendingFrames the number of frames a result may be late before
+     * it is discarded.
+     * @since 16.09.01
+     */
+    public FrameProfiler(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver, final int historySize, final int maxPendingFrames) {
+        if (historySize < 1) {
+            throw new IllegalArgumentException("History size must be at least 1!");
+        } else if (maxPendingFrames < 1) {
+            throw new IllegalArgumentException("Max pending frames must be at least 1!");
+        }
+
+        this.driver = Objects.requireNonNull(driver);
+        this.historySize = historySize;
+        this.maxPendingFrames = maxPendingFrames;
+    }
+
+    private Query obtainQuery() {
+        final Query query = this.freeQueries.poll();
+
+        return query == null ? this.driver.queryCreate() : query;
+    }
+
+    /**
+     * Begins a named region. Regions must be ended in the reverse order that
+     * they were begun.
+     *
+     * @param name the region name.
+     * @since 16.09.01
+     */
+    public void begin(final String name) {
+        final Sample sample = this.freeSamples.isEmpty() ? new Sample() : this.freeSamples.pop();
+
+        sample.region = this.regions.computeIfAbsent(name, key -> new Region(key, this.historySize));
+        sample.start = obtainQuery();
+        sample.end = obtainQuery();
+        sample.cpuStart = System.nanoTime();
+
+        this.driver.queryTimestamp(sample.start);
+        this.open.push(sample);
+    }
+
+    /**
+     * Ends the most recently begun region.
+     *
+     * @since 16.09.01
+     */
+    public void end() {
+        final Sample sample = this.open.pop();
+
+        this.driver.queryTimestamp(sample.end);
+        sample.cpuTime = System.nanoTime() - sample.cpuStart;
+        this.pending.add(sample);
+        this.currentFrameSize++;
+    }
+
+    /**
+     * Marks the end of a frame. Any results that have become available are
+     * read back without blocking. Results that are more than the maximum
+     * number of pending frames late are discarded.
+     *
+     * @since 16.09.01
+     */
+    public void endFrame() {
+        if (!this.open.isEmpty()) {
+            throw new IllegalStateException("Frame ended with " + this.open.size() + " open region(s)!");
+        }
+
+        this.pendingFrameSizes.add(this.currentFrameSize);
+        this.currentFrameSize = 0;
+
+        while (!this.pendingFrameSizes.isEmpty()) {
+            final int frameSize = this.pendingFrameSizes.peek();
+            final boolean late = this.pendingFrameSizes.size() > this.maxPendingFrames;
+            boolean complete = true;
+            int checked = 0;
+
+            for (Sample sample : this.pending) {
+                if (checked++ == frameSize) {
+                    break;
+                } else if (!this.driver.queryIsResultAvailable(sample.end)) {
+                    complete = false;
+                    break;
+                }
+            }
+
+            if (!complete && !late) {
+                break;
+            }
+
+            for (int i = 0; i < frameSize; i++) {
+                final Sample sample = this.pending.poll();
+
+                if (complete) {
+                    final long gpuTime = this.driver.queryGetResult(sample.end) - this.driver.queryGetResult(sample.start);
+
+                    sample.region.record(gpuTime, sample.cpuTime);
+                } else {
+                    this.droppedSamples++;
+                }
+
+                recycle(sample);
+            }
+
+            this.pendingFrameSizes.poll();
+        }
+    }
+
+    private void recycle(final Sample sample) {
+        this.freeQueries.push(sample.start);
+        this.freeQueries.push(sample.end);
+        sample.region = null;
+        sample.start = null;
+        sample.end = null;
+        this.freeSamples.push(sample);
+    }
+
+    /**
+     * Retrieves a region by name.
+     *
+     * @param name the region name.
+     * @return the region or null if no region by that name was recorded.
+     * @since 16.09.01
+     */
+    public Region getRegion(final String name) {
+        return this.regions.get(name);
+    }
+
+    /**
+     * Retrieves all regions in the order they were first recorded.
+     *
+     * @return the unmodifiable map of regions.
+     * @since 16.09.01
+     */
+    public Map<String, Region> getRegions() {
+        return Collections.unmodifiableMap(this.regions);
+    }
+
+    /**
+     * Retrieves the number of samples that were discarded because their
+     * results were not available in time.
+     *
+     * @return the number of discarded samples.
+     * @since 16.09.01
+     */
+    public long getDroppedSampleCount() {
+        return this.droppedSamples;
+    }
+
+    /**
+     * Deletes all Query objects owned by the FrameProfiler.
+     *
+     * @since 16.09.01
+     */
+    public void delete() {
+        this.open.forEach(this::recycle);
+        this.open.clear();
+        this.pending.forEach(this::recycle);
+        this.pending.clear();
+        this.pendingFrameSizes.clear();
+        this.currentFrameSize = 0;
+        this.freeQueries.forEach(this.driver::queryDelete);
+        this.freeQueries.clear();
+    }
+}
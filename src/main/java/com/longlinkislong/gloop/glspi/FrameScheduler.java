@@ -0,0 +1,439 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Packs scheduled command buffers into frames. Each scheduled command buffer
+ * carries a priority, an estimated cost and a deadline expressed as a number
+ * of vsyncs from now. Every frame, work whose deadline is the current frame
+ * is always submitted; the remaining budget is then filled in priority order
+ * and whatever does not fit is deferred to a later frame. Background work such
+ * as uploads and readbacks is only allowed to use what is left of the budget
+ * after normal work, and never more than the background budget.
+ *
+ * A deadline is missed when a command buffer due in the current frame is
+ * submitted after the frame's end time, which is the vsync time passed to
+ * runFrame, or the frame budget if no vsync time is given. Missed deadlines are
+ * counted and reported to the listener.
+ *
+ * Command buffers are submitted with ContextDriver.submitCommandBuffer. The
+ * FrameScheduler is not thread-safe. It must be used from the thread that
+ * owns the driver's context.
+ *
+ * @author zmichaels
+ * @param <CommandQueueT> the command queue type.
+ * @param <CommandBufferT> the command buffer type.
+ * @since 16.09.01
+ */
+public final class FrameScheduler<CommandQueueT extends CommandQueue, CommandBufferT extends Command> {
+
+    /**
+     * Scheduling priorities, from most to least important.
+     *
+     * @since 16.09.01
+     */
+    public enum Priority {
+        /**
+         * Submitted every frame regardless of budget.
+         */
+        CRITICAL,
+        /**
+         * Submitted while it fits in the frame budget.
+         */
+        NORMAL,
+        /**
+         * Submitted only from the budget left over by normal work, up to the
+         * background budget. Intended for uploads and readbacks.
+         */
+        BACKGROUND
+    }
+
+    /**
+     * Receives missed deadline notifications.
+     *
+     * @param <CommandBufferT> the command buffer type.
+     * @since 16.09.01
+     */
+    @FunctionalInterface
+    public interface DeadlineListener<CommandBufferT> {
+
+        /**
+         * Called after a command buffer is submitted past its deadline.
+         *
+         * @param cmd the command buffer.
+         * @param priority the priority it was scheduled with.
+         * @param lateNanos how late the submission was in nanoseconds.
+         * @since 16.09.01
+         */
+        void deadlineMissed(CommandBufferT cmd, Priority priority, long lateNanos);
+    }
+
+    /**
+     * The deadline value for work that may be deferred indefinitely.
+     *
+     * @since 16.09.01
+     */
+    public static final int NO_DEADLINE = Integer.MAX_VALUE;
+
+    private static final class Entry<CommandBufferT> {
+
+        private CommandBufferT cmd;
+        private Priority priority;
+        private long deadlineFrame;
+        private long cost;
+        private long sequence;
+    }
+
+    private static final Comparator<Entry<?>> ORDER = (a, b) -> {
+        final int cmp = Long.compare(a.deadlineFrame, b.deadlineFrame);
+
+        return cmp != 0 ? cmp : Long.compare(a.sequence, b.sequence);
+    };
+
+    private final ContextDriver<?, ?, CommandQueueT, CommandBufferT> driver;
+    private final CommandQueueT queue;
+    private final List<PriorityQueue<Entry<CommandBufferT>>> queues;
+    private final Deque<Entry<CommandBufferT>> freeEntries = new ArrayDeque<>();
+    private long frameBudget;
+    private long backgroundBudget;
+    private DeadlineListener<? super CommandBufferT> listener;
+    private long frame;
+    private long sequence;
+    private long submittedCount;
+    private long deferredCount;
+    private long missedCount;
+    private long overrunFrames;
+    private long lastFrameCost;
+
+    /**
+     * Constructs a new FrameScheduler. Background work may use the whole
+     * frame budget.
+     *
+     * @param driver the context driver.
+     * @param queue the command queue to submit to.
+     * @param frameBudget the frame budget in nanoseconds.
+     * @since 16.09.01
+     */
+    public FrameScheduler(
+            final ContextDriver<?, ?, CommandQueueT, CommandBufferT> driver,
+            final CommandQueueT queue,
+            final long frameBudget) {
+
+        this(driver, queue, frameBudget, frameBudget);
+    }
+
+    /**
+     * Constructs a new FrameScheduler.
+     *
+     * @param driver the context driver.
+     * @param queue the command queue to submit to.
+     * @param frameBudget the frame budget in nanoseconds.
+     * @param backgroundBudget the most background work allowed per frame in
+     * nanoseconds.
+     * @since 16.09.01
+     */
+    public FrameScheduler(
+            final ContextDriver<?, ?, CommandQueueT, CommandBufferT> driver,
+            final CommandQueueT queue,
+            final long frameBudget, final long backgroundBudget) {
+
+        this.driver = Objects.requireNonNull(driver);
+        this.queue = Objects.requireNonNull(queue);
+        this.queues = new ArrayList<>(Priority.values().length);
+
+        for (Priority priority : Priority.values()) {
+            this.queues.add(new PriorityQueue<>(ORDER));
+        }
+
+        setFrameBudget(frameBudget, backgroundBudget);
+    }
+
+    /**
+     * Sets the frame budgets.
+     *
+     * @param frameBudget the frame budget in nanoseconds.
+     * @param backgroundBudget the most background work allowed per frame in
+     * nanoseconds.
+     * @since 16.09.01
+     */
+    public void setFrameBudget(final long frameBudget, final long backgroundBudget) {
+        if (frameBudget <= 0L) {
+            throw new IllegalArgumentException("Frame budget must be positive!");
+        } else if (backgroundBudget < 0L) {
+            throw new IllegalArgumentException("Background budget cannot be negative!");
+        }
+
+        this.frameBudget = frameBudget;
+        this.backgroundBudget = backgroundBudget;
+    }
+
+    /**
+     * Sets the listener that receives missed deadline notifications.
+     *
+     * @param listener the listener. May be null.
+     * @since 16.09.01
+     */
+    public void setDeadlineListener(final DeadlineListener<? super CommandBufferT> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Schedules a command buffer.
+     *
+     * @param cmd the command buffer.
+     * @param priority the priority.
+     * @param deadline the number of vsyncs the command buffer may be deferred
+     * by. 0 requires it to be submitted in the next frame. NO_DEADLINE allows
+     * it to be deferred indefinitely.
+     * @param estimatedCost the estimated cost in nanoseconds. The measured
+     * submission time is used if it is larger.
+     * @since 16.09.01
+     */
+    public void schedule(final CommandBufferT cmd, final Priority priority, final int deadline, final long estimatedCost) {
+        if (deadline < 0) {
+            throw new IllegalArgumentException("Deadline cannot be negative!");
+        } else if (estimatedCost < 0L) {
+            throw new IllegalArgumentException("Estimated cost cannot be negative!");
+        }
+
+        final Entry<CommandBufferT> entry = this.freeEntries.isEmpty() ? new Entry<>() : this.freeEntries.pop();
+
+        entry.cmd = Objects.requireNonNull(cmd);
+        entry.priority = Objects.requireNonNull(priority);
+        entry.deadlineFrame = deadline == NO_DEADLINE ? Long.MAX_VALUE : this.frame + deadline;
+        entry.cost = estimatedCost;
+        entry.sequence = this.sequence++;
+
+        this.queues.get(priority.ordinal()).offer(entry);
+    }
+
+    /**
+     * Runs a frame using only the frame budget as its end time.
+     *
+     * @return the number of command buffers submitted.
+     * @since 16.09.01
+     */
+    public int runFrame() {
+        return runFrame(Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs a frame. Work is packed until either the frame budget is spent or
+     * the vsync time is reached, whichever comes first.
+     *
+     * @param vsyncTime the System.nanoTime of the vsync the frame must be
+     * ready for.
+     * @return the number of command buffers submitted.
+     * @since 16.09.01
+     */
+    public int runFrame(final long vsyncTime) {
+        final long start = System.nanoTime();
+        final long end = Math.min(vsyncTime, start + this.frameBudget);
+        final long submittedBefore = this.submittedCount;
+        long used = 0L;
+
+        // work due this frame is never deferred
+        for (PriorityQueue<Entry<CommandBufferT>> q : this.queues) {
+            while (!q.isEmpty() && q.peek().deadlineFrame <= this.frame) {
+                final Entry<CommandBufferT> entry = q.poll();
+
+                used += submit(entry);
+
+                final long late = System.nanoTime() - end;
+
+                if (late > 0L) {
+                    this.missedCount++;
+
+                    if (this.listener != null) {
+                        this.listener.deadlineMissed(entry.cmd, entry.priority, late);
+                    }
+                }
+
+                recycle(entry);
+            }
+        }
+
+        used += fill(Priority.CRITICAL, used, Long.MAX_VALUE, Long.MAX_VALUE);
+        used += fill(Priority.NORMAL, used, this.frameBudget, end);
+        used += fill(Priority.BACKGROUND, used, Math.min(this.frameBudget, used + this.backgroundBudget), end);
+
+        this.deferredCount += getPendingCount();
+        this.lastFrameCost = used;
+
+        if (used > this.frameBudget || System.nanoTime() > end) {
+            this.overrunFrames++;
+        }
+
+        this.frame++;
+
+        return (int) (this.submittedCount - submittedBefore);
+    }
+
+    private long fill(final Priority priority, final long used, final long limit, final long end) {
+        final PriorityQueue<Entry<CommandBufferT>> q = this.queues.get(priority.ordinal());
+        long cost = 0L;
+
+        while (!q.isEmpty()) {
+            final Entry<CommandBufferT> entry = q.peek();
+
+            if (used + cost + entry.cost > limit || System.nanoTime() + entry.cost > end) {
+                break;
+            }
+
+            q.poll();
+            cost += submit(entry);
+            recycle(entry);
+        }
+
+        return cost;
+    }
+
+    private long submit(final Entry<CommandBufferT> entry) {
+        final long start = System.nanoTime();
+
+        this.driver.submitCommandBuffer(this.queue, entry.cmd);
+        this.submittedCount++;
+
+        return Math.max(entry.cost, System.nanoTime() - start);
+    }
+
+    private void recycle(final Entry<CommandBufferT> entry) {
+        entry.cmd = null;
+        entry.priority = null;
+        this.freeEntries.push(entry);
+    }
+
+    /**
+     * Discards all scheduled work without submitting it.
+     *
+     * @since 16.09.01
+     */
+    public void clear() {
+        for (PriorityQueue<Entry<CommandBufferT>> q : this.queues) {
+            while (!q.isEmpty()) {
+                recycle(q.poll());
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of frames run.
+     *
+     * @return the frame count.
+     * @since 16.09.01
+     */
+    public long getFrameCount() {
+        return this.frame;
+    }
+
+    /**
+     * Retrieves the number of command buffers waiting to be submitted.
+     *
+     * @return the pending count.
+     * @since 16.09.01
+     */
+    public int getPendingCount() {
+        int count = 0;
+
+        for (PriorityQueue<Entry<CommandBufferT>> q : this.queues) {
+            count += q.size();
+        }
+
+        return count;
+    }
+
+    /**
+     * Retrieves the number of command buffers waiting to be submitted at a
+     * priority.
+     *
+     * @param priority the priority.
+     * @return the pending count.
+     * @since 16.09.01
+     */
+    public int getPendingCount(final Priority priority) {
+        return this.queues.get(priority.ordinal()).size();
+    }
+
+    /**
+     * Retrieves the total number of command buffers submitted.
+     *
+     * @return the submitted count.
+     * @since 16.09.01
+     */
+    public long getSubmittedCount() {
+        return this.submittedCount;
+    }
+
+    /**
+     * Retrieves the total number of times a command buffer was deferred to a
+     * later frame. A command buffer deferred over several frames is counted
+     * once per frame.
+     *
+     * @return the deferred count.
+     * @since 16.09.01
+     */
+    public long getDeferredCount() {
+        return this.deferredCount;
+    }
+
+    /**
+     * Retrieves the number of missed deadlines.
+     *
+     * @return the missed deadline count.
+     * @since 16.09.01
+     */
+    public long getMissedDeadlineCount() {
+        return this.missedCount;
+    }
+
+    /**
+     * Retrieves the number of frames that exceeded their budget or end time.
+     *
+     * @return the overrun frame count.
+     * @since 16.09.01
+     */
+    public long getOverrunFrameCount() {
+        return this.overrunFrames;
+    }
+
+    /**
+     * Retrieves the cost of the most recent frame.
+     *
+     * @return the cost in nanoseconds.
+     * @since 16.09.01
+     */
+    public long getLastFrameCost() {
+        return this.lastFrameCost;
+    }
+}
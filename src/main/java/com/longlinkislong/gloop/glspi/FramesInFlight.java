@@ -0,0 +1,330 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Controls N frames in flight, where N is usually 2 or 3. Each frame slot owns
+ * a region of a single persistently mapped buffer for streaming and uniform
+ * data, plus a deletion list. The slot's resources are reused once the
+ * FrameFenceTracker reports that the GPU has finished the frame that last used
+ * them. The CPU therefore only blocks when it is more than N frames ahead of
+ * the GPU. Writes to the current frame's region never touch memory that the
+ * GPU may still be reading, so they never force an implicit synchronization.
+ *
+ * Typical use is beginFrame, then allocate and write into getMappedData, then
+ * bind with getBuffer and the returned offset, then endFrame after the
+ * frame's commands have been submitted.
+ *
+ * The FramesInFlight is not thread-safe. It must be used from the thread that
+ * owns the driver's context.
+ *
+ * @author zmichaels
+ * @param <BufferT> the SPI buffer implementation.
+ * @since 16.09.01
+ */
+public final class FramesInFlight<BufferT extends Buffer> {
+
+    private static final int GL_MAP_WRITE_BIT = 0x0002;
+    private static final int GL_MAP_PERSISTENT_BIT = 0x0040;
+    private static final int GL_MAP_COHERENT_BIT = 0x0080;
+    private static final int STORAGE_FLAGS = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+
+    private final Driver<BufferT, ?, ?, ?, ?, ?, ?, ?> driver;
+    private final FrameFenceTracker tracker;
+    private final BufferT buffer;
+    private final ByteBuffer mapping;
+    private final long regionSize;
+    private final int alignment;
+    private final List<List<Runnable>> deletions;
+    private long regionStart;
+    private long cursor;
+    private boolean inFrame;
+    private long highWaterMark;
+    private long deletedCount;
+
+    /**
+     * Constructs a new FramesInFlight.
+     *
+     * @param driver the driver. The driver must support Fence objects and
+     * persistently mapped immutable buffers.
+     * @param framesInFlight the number of frames the CPU may be ahead of the
+     * GPU. Usually 2 or 3.
+     * @param regionSize the number of bytes of streaming memory per frame.
+     * @param alignment the alignment of each allocation in bytes. This should
+     * be at least the uniform buffer offset alignment. Must be a power of two.
+     * @since 16.09.01
+     */
+    public FramesInFlight(
+            final Driver<BufferT, ?, ?, ?, ?, ?, ?, ?> driver,
+            final int framesInFlight, final int regionSize, final int alignment) {
+
+        if (regionSize < 1) {
+            throw new IllegalArgumentException("Region size must be positive!");
+        } else if (alignment < 1 || Integer.bitCount(alignment) != 1) {
+            throw new IllegalArgumentException("Alignment must be a power of two!");
+        } else if ((long) regionSize * framesInFlight > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Total streaming memory cannot exceed 2GB!");
+        }
+
+        this.driver = Objects.requireNonNull(driver);
+        this.tracker = new FrameFenceTracker(driver, framesInFlight);
+        // keep every region aligned so that offsets are aligned in every slot
+        this.regionSize = (regionSize + alignment - 1) & -alignment;
+        this.alignment = alignment;
+        this.deletions = new ArrayList<>(framesInFlight);
+
+        for (int i = 0; i < framesInFlight; i++) {
+            this.deletions.add(new ArrayList<>());
+        }
+
+        final long total = this.regionSize * framesInFlight;
+
+        this.buffer = driver.bufferCreate();
+        driver.bufferAllocateImmutable(this.buffer, total, STORAGE_FLAGS);
+        this.mapping = driver.bufferMapData(this.buffer, 0L, total, STORAGE_FLAGS);
+    }
+
+    /**
+     * Begins a new frame. This blocks only if the GPU has not yet finished the
+     * frame that last used the slot being reused. The slot's deletion list is
+     * then run and its streaming region is reset.
+     *
+     * @return the slot index for the new frame.
+     * @since 16.09.01
+     */
+    public int beginFrame() {
+        final int slot = this.tracker.beginFrame();
+        final List<Runnable> pending = this.deletions.get(slot);
+
+        for (Runnable deletion : pending) {
+            deletion.run();
+        }
+
+        this.deletedCount += pending.size();
+        pending.clear();
+
+        this.regionStart = slot * this.regionSize;
+        this.cursor = this.regionStart;
+        this.inFrame = true;
+
+        return slot;
+    }
+
+    /**
+     * Ends the current frame by fencing it. This should be called after all
+     * commands that read the frame's region have been submitted.
+     *
+     * @since 16.09.01
+     */
+    public void endFrame() {
+        this.tracker.endFrame();
+        this.highWaterMark = Math.max(this.highWaterMark, this.cursor - this.regionStart);
+        this.inFrame = false;
+    }
+
+    /**
+     * Allocates memory from the current frame's streaming region. The memory
+     * stays valid until the same slot is reused N frames later.
+     *
+     * @param size the number of bytes to allocate.
+     * @return the byte offset of the allocation in the streaming buffer.
+     * @throws IllegalStateException if no frame has begun or the region is
+     * exhausted.
+     * @since 16.09.01
+     */
+    public long allocate(final int size) {
+        if (!this.inFrame) {
+            throw new IllegalStateException("No frame was begun!");
+        } else if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative!");
+        }
+
+        final long offset = this.cursor;
+        final long next = (offset + size + this.alignment - 1) & -this.alignment;
+
+        if (offset + size > this.regionStart + this.regionSize) {
+            throw new IllegalStateException("Frame region exhausted! Requested " + size + " bytes with " + getRemaining() + " remaining.");
+        }
+
+        this.cursor = Math.min(next, this.regionStart + this.regionSize);
+
+        return offset;
+    }
+
+    /**
+     * Allocates memory from the current frame's streaming region and copies
+     * the data into it. The data is read from its position to its limit; the
+     * position is not changed.
+     *
+     * @param data the data to write.
+     * @return the byte offset of the allocation in the streaming buffer.
+     * @since 16.09.01
+     */
+    public long write(final ByteBuffer data) {
+        final int size = data.remaining();
+        final long offset = allocate(size);
+        final ByteBuffer dst = this.mapping.duplicate();
+
+        dst.position((int) offset);
+        dst.put(data.duplicate());
+
+        return offset;
+    }
+
+    /**
+     * Binds a range of the streaming buffer to a uniform buffer binding point.
+     *
+     * @param bindingPoint the uniform buffer binding point.
+     * @param offset the offset returned by allocate or write.
+     * @param size the size of the range in bytes.
+     * @since 16.09.01
+     */
+    public void bindUniform(final int bindingPoint, final long offset, final long size) {
+        this.driver.bufferBindUniform(this.buffer, bindingPoint, offset, size);
+    }
+
+    /**
+     * Defers a deletion until the GPU has finished the current frame.
+     * Deletions queued outside of a frame run after the previous frame.
+     *
+     * @param deletion the deletion to run.
+     * @since 16.09.01
+     */
+    public void deleteLater(final Runnable deletion) {
+        this.deletions.get(this.tracker.getCurrentSlot()).add(Objects.requireNonNull(deletion));
+    }
+
+    /**
+     * Defers deleting a buffer until the GPU has finished the current frame.
+     *
+     * @param buffer the buffer to delete.
+     * @since 16.09.01
+     */
+    public void deleteLater(final BufferT buffer) {
+        Objects.requireNonNull(buffer);
+        deleteLater(() -> this.driver.bufferDelete(buffer));
+    }
+
+    /**
+     * Retrieves the persistently mapped streaming buffer. Only the current
+     * frame's region may be written to.
+     *
+     * @return the streaming buffer.
+     * @since 16.09.01
+     */
+    public BufferT getBuffer() {
+        return this.buffer;
+    }
+
+    /**
+     * Retrieves the persistent mapping of the whole streaming buffer. Writes
+     * should use absolute puts at offsets returned by allocate.
+     *
+     * @return the mapping.
+     * @since 16.09.01
+     */
+    public ByteBuffer getMappedData() {
+        return this.mapping;
+    }
+
+    /**
+     * Retrieves the number of bytes left in the current frame's region.
+     *
+     * @return the remaining bytes.
+     * @since 16.09.01
+     */
+    public long getRemaining() {
+        return this.regionStart + this.regionSize - this.cursor;
+    }
+
+    /**
+     * Retrieves the size of each frame's region after alignment.
+     *
+     * @return the region size in bytes.
+     * @since 16.09.01
+     */
+    public long getRegionSize() {
+        return this.regionSize;
+    }
+
+    /**
+     * Retrieves the most bytes used by any single frame.
+     *
+     * @return the high water mark in bytes.
+     * @since 16.09.01
+     */
+    public long getHighWaterMark() {
+        return this.highWaterMark;
+    }
+
+    /**
+     * Retrieves the number of deferred deletions that have run.
+     *
+     * @return the deleted count.
+     * @since 16.09.01
+     */
+    public long getDeletedCount() {
+        return this.deletedCount;
+    }
+
+    /**
+     * Retrieves the FrameFenceTracker that paces the frames. It reports the
+     * frame numbers, stall count and stall time.
+     *
+     * @return the frame fence tracker.
+     * @since 16.09.01
+     */
+    public FrameFenceTracker getTracker() {
+        return this.tracker;
+    }
+
+    /**
+     * Waits for all frames to complete, runs every pending deletion and
+     * deletes the streaming buffer.
+     *
+     * @since 16.09.01
+     */
+    public void delete() {
+        this.tracker.finish();
+
+        for (List<Runnable> pending : this.deletions) {
+            for (Runnable deletion : pending) {
+                deletion.run();
+            }
+
+            this.deletedCount += pending.size();
+            pending.clear();
+        }
+
+        this.driver.bufferUnmapData(this.buffer);
+        this.driver.bufferDelete(this.buffer);
+    }
+}
@@ -0,0 +1,624 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Load-time optimizer for indexed triangle lists. Triangles are reordered for
+ * post-transform vertex cache hit rate using the Tipsify algorithm (Sander,
+ * Nehab and Barczak 2007), vertices are then renumbered in first-use order for
+ * fetch locality, and indices are narrowed to 16bit when every vertex fits.
+ * The average cache miss ratio (ACMR) is reported before and after.
+ *
+ * If vertex positions are supplied, the Tipsify overdraw pass is also run:
+ * the cache optimized order is split into clusters wherever the cache was
+ * already cold or where splitting costs less than the threshold in ACMR, and
+ * the clusters are sorted so that those facing away from the mesh centroid,
+ * which are most likely to occlude the rest, are drawn first.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class IndexOptimizer {
+
+    private static final int GL_UNSIGNED_SHORT = 0x1403;
+    private static final int GL_UNSIGNED_INT = 0x1405;
+
+    /**
+     * The default simulated post-transform cache size.
+     *
+     * @since 16.09.01
+     */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    /**
+     * The default ACMR threshold of the overdraw pass. Clusters may be split
+     * as long as the ACMR rises by at most 5%.
+     *
+     * @since 16.09.01
+     */
+    public static final double DEFAULT_OVERDRAW_THRESHOLD = 1.05;
+
+    private IndexOptimizer() {
+    }
+
+    /**
+     * An indexed triangle list.
+     *
+     * @since 16.09.01
+     */
+    public static final class Mesh {
+
+        public final int[] indices;
+        public final int vertexCount;
+
+        public Mesh(final int[] indices, final int vertexCount) {
+            if (indices.length % 3 != 0) {
+                throw new IllegalArgumentException("Index count must be a multiple of 3!");
+            } else if (vertexCount < 0) {
+                throw new IllegalArgumentException("Vertex count cannot be negative!");
+            }
+
+            for (int index : indices) {
+                if (index < 0 || index >= vertexCount) {
+                    throw new IllegalArgumentException("Index " + index + " is out of range [0, " + vertexCount + ")!");
+                }
+            }
+
+            this.indices = indices;
+            this.vertexCount = vertexCount;
+        }
+    }
+
+    /**
+     * The result of optimizing a Mesh.
+     *
+     * @since 16.09.01
+     */
+    public static final class Result {
+
+        /**
+         * The optimized indices. These reference the remapped vertices.
+         */
+        public final int[] indices;
+        /**
+         * Maps each original vertex index to its new index.
+         */
+        public final int[] vertexRemap;
+        /**
+         * The index type to use when drawing (GL_UNSIGNED_SHORT or
+         * GL_UNSIGNED_INT).
+         */
+        public final int indexType;
+        public final double acmrBefore;
+        public final double acmrAfter;
+
+        private Result(final int[] indices, final int[] vertexRemap, final int indexType, final double acmrBefore, final double acmrAfter) {
+            this.indices = indices;
+            this.vertexRemap = vertexRemap;
+            this.indexType = indexType;
+            this.acmrBefore = acmrBefore;
+            this.acmrAfter = acmrAfter;
+        }
+
+        /**
+         * Writes the indices into a new direct ByteBuffer using the narrowed
+         * index type. The ByteBuffer is ready for bufferSetData.
+         *
+         * @return the index data.
+         * @since 16.09.01
+         */
+        public ByteBuffer toIndexData() {
+            final ByteBuffer out = ByteBuffer.allocateDirect(this.indices.length * indexWidth()).order(ByteOrder.nativeOrder());
+
+            writeIndices(out);
+            return out;
+        }
+
+        /**
+         * Writes the indices into a ByteBuffer acquired from a
+         * DirectBufferPool using the narrowed index type.
+         *
+         * @param pool the pool to acquire the ByteBuffer from.
+         * @return the index data ready for bufferSetData. It must be released
+         * to the pool once uploaded.
+         * @since 16.09.01
+         */
+        public ByteBuffer toIndexData(final DirectBufferPool pool) {
+            final ByteBuffer out = pool.acquire(this.indices.length * indexWidth());
+
+            writeIndices(out);
+            return out;
+        }
+
+        private int indexWidth() {
+            return this.indexType == GL_UNSIGNED_SHORT ? 2 : 4;
+        }
+
+        private void writeIndices(final ByteBuffer out) {
+            if (indexWidth() == 2) {
+                for (int i = 0; i < this.indices.length; i++) {
+                    out.putShort(i * 2, (short) this.indices[i]);
+                }
+            } else {
+                for (int i = 0; i < this.indices.length; i++) {
+                    out.putInt(i * 4, this.indices[i]);
+                }
+            }
+        }
+
+        /**
+         * Reorders vertex attribute data to match the optimized indices.
+         *
+         * @param src the original vertex data.
+         * @param components the number of floats per vertex.
+         * @return the reordered vertex data.
+         * @since 16.09.01
+         */
+        public float[] remapVertexData(final float[] src, final int components) {
+            final float[] out = new float[src.length];
+
+            for (int v = 0; v < this.vertexRemap.length; v++) {
+                System.arraycopy(src, v * components, out, this.vertexRemap[v] * components, components);
+            }
+
+            return out;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ACMR %.3f -> %.3f (%s indices)", this.acmrBefore, this.acmrAfter, this.indexType == GL_UNSIGNED_SHORT ? "16bit" : "32bit");
+        }
+    }
+
+    /**
+     * Optimizes a mesh using the default cache size.
+     *
+     * @param mesh the mesh.
+     * @return the optimized mesh.
+     * @since 16.09.01
+     */
+    public static Result optimize(final Mesh mesh) {
+        return optimize(mesh, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Optimizes a mesh.
+     *
+     * @param mesh the mesh.
+     * @param cacheSize the simulated post-transform cache size.
+     * @return the optimized mesh.
+     * @since 16.09.01
+     */
+    public static Result optimize(final Mesh mesh, final int cacheSize) {
+        return remap(mesh, cacheSize, tipsify(mesh.indices, mesh.vertexCount, cacheSize, null));
+    }
+
+    /**
+     * Optimizes a mesh for both vertex cache hit rate and overdraw.
+     *
+     * @param mesh the mesh.
+     * @param cacheSize the simulated post-transform cache size.
+     * @param positions the x, y and z coordinates of each vertex.
+     * @param threshold how much the ACMR may rise to allow finer clusters.
+     * Must be at least 1.0; 1.0 only splits where the cache was already cold.
+     * @return the optimized mesh.
+     * @since 16.09.01
+     */
+    public static Result optimize(final Mesh mesh, final int cacheSize, final float[] positions, final double threshold) {
+        if (positions.length < mesh.vertexCount * 3L) {
+            throw new IllegalArgumentException("Expected a position for each of the " + mesh.vertexCount + " vertices!");
+        } else if (!(threshold >= 1.0)) {
+            throw new IllegalArgumentException("Overdraw threshold must be at least 1.0!");
+        }
+
+        final Clusters clusters = new Clusters(mesh.indices.length / 3);
+
+        clusters.add(0);
+
+        final int[] ordered = tipsify(mesh.indices, mesh.vertexCount, cacheSize, clusters);
+
+        splitClusters(ordered, mesh.vertexCount, cacheSize, threshold, clusters);
+
+        return remap(mesh, cacheSize, sortClusters(ordered, positions, clusters));
+    }
+
+    private static Result remap(final Mesh mesh, final int cacheSize, final int[] ordered) {
+        final double before = acmr(mesh.indices, cacheSize);
+        final int[] remap = new int[mesh.vertexCount];
+
+        Arrays.fill(remap, -1);
+
+        int next = 0;
+
+        for (int i = 0; i < ordered.length; i++) {
+            final int v = ordered[i];
+
+            if (remap[v] < 0) {
+                remap[v] = next++;
+            }
+
+            ordered[i] = remap[v];
+        }
+
+        for (int v = 0; v < remap.length; v++) {
+            if (remap[v] < 0) {
+                remap[v] = next++;
+            }
+        }
+
+        final double after = acmr(ordered, cacheSize);
+        // 0xFFFF is reserved as the primitive restart index
+        final int indexType = mesh.vertexCount < 0xFFFF ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT;
+
+        return new Result(ordered, remap, indexType, before, after);
+    }
+
+    /**
+     * Optimizes many meshes in parallel.
+     *
+     * @param meshes the meshes.
+     * @param cacheSize the simulated post-transform cache size.
+     * @return the results in the same order as the meshes.
+     * @since 16.09.01
+     */
+    public static List<Result> optimizeAll(final List<Mesh> meshes, final int cacheSize) {
+        return meshes.parallelStream()
+                .map(mesh -> optimize(mesh, cacheSize))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Calculates the average cache miss ratio using a FIFO cache. This is the
+     * number of vertex shader invocations per triangle; 0.5 is ideal for large
+     * regular meshes and 3.0 is the worst case.
+     *
+     * @param indices the triangle list indices.
+     * @param cacheSize the simulated cache size.
+     * @return the ACMR.
+     * @since 16.09.01
+     */
+    public static double acmr(final int[] indices, final int cacheSize) {
+        if (indices.length == 0) {
+            return 0.0;
+        }
+
+        int maxIndex = 0;
+
+        for (int index : indices) {
+            maxIndex = Math.max(maxIndex, index);
+        }
+
+        final int[] insertedAt = new int[maxIndex + 1];
+        int time = cacheSize + 1;
+        int misses = 0;
+
+        Arrays.fill(insertedAt, Integer.MIN_VALUE / 2);
+
+        for (int index : indices) {
+            if (time - insertedAt[index] > cacheSize) {
+                insertedAt[index] = time++;
+                misses++;
+            }
+        }
+
+        return (double) misses / (indices.length / 3);
+    }
+
+    /**
+     * Triangle offsets at which the draw order may be split.
+     */
+    private static final class Clusters {
+
+        private final int[] starts;
+        private int count;
+
+        private Clusters(final int triCount) {
+            this.starts = new int[triCount + 1];
+        }
+
+        private void add(final int tri) {
+            if (this.count == 0 || this.starts[this.count - 1] < tri) {
+                this.starts[this.count++] = tri;
+            }
+        }
+
+        private int end(final int cluster, final int triCount) {
+            return cluster + 1 < this.count ? this.starts[cluster + 1] : triCount;
+        }
+    }
+
+    private static int[] tipsify(final int[] indices, final int vertexCount, final int cacheSize, final Clusters clusters) {
+        final int triCount = indices.length / 3;
+        final int[] live = new int[vertexCount];
+
+        for (int index : indices) {
+            live[index]++;
+        }
+
+        final int[] adjOffset = new int[vertexCount + 1];
+
+        for (int v = 0; v < vertexCount; v++) {
+            adjOffset[v + 1] = adjOffset[v] + live[v];
+        }
+
+        final int[] adjacency = new int[indices.length];
+        final int[] fill = Arrays.copyOf(adjOffset, vertexCount);
+
+        for (int i = 0; i < indices.length; i++) {
+            adjacency[fill[indices[i]]++] = i / 3;
+        }
+
+        final int[] cacheTime = new int[vertexCount];
+        final boolean[] emitted = new boolean[triCount];
+        final int[] deadEnd = new int[indices.length];
+        final int[] candidates = new int[indices.length];
+        final int[] out = new int[indices.length];
+        int deadEndTop = 0;
+        int outPos = 0;
+        int time = cacheSize + 1;
+        int cursor = 0;
+        int fanning = vertexCount > 0 ? 0 : -1;
+
+        while (fanning >= 0) {
+            int candidateCount = 0;
+
+            for (int a = adjOffset[fanning]; a < adjOffset[fanning + 1]; a++) {
+                final int tri = adjacency[a];
+
+                if (emitted[tri]) {
+                    continue;
+                }
+
+                for (int k = 0; k < 3; k++) {
+                    final int v = indices[tri * 3 + k];
+
+                    out[outPos++] = v;
+                    deadEnd[deadEndTop++] = v;
+                    candidates[candidateCount++] = v;
+                    live[v]--;
+
+                    if (time - cacheTime[v] > cacheSize) {
+                        cacheTime[v] = time++;
+                    }
+                }
+
+                emitted[tri] = true;
+            }
+
+            int best = -1;
+            int bestPriority = -1;
+
+            for (int c = 0; c < candidateCount; c++) {
+                final int v = candidates[c];
+
+                if (live[v] > 0) {
+                    int priority = 0;
+
+                    if (time - cacheTime[v] + 2 * live[v] <= cacheSize) {
+                        priority = time - cacheTime[v];
+                    }
+
+                    if (priority > bestPriority) {
+                        best = v;
+                        bestPriority = priority;
+                    }
+                }
+            }
+
+            if (best < 0 && clusters != null && outPos < out.length) {
+                // the next fan does not continue from the cache; a hard boundary
+                clusters.add(outPos / 3);
+            }
+
+            if (best < 0) {
+                while (deadEndTop > 0) {
+                    final int v = deadEnd[--deadEndTop];
+
+                    if (live[v] > 0) {
+                        best = v;
+                        break;
+                    }
+                }
+            }
+
+            if (best < 0) {
+                while (cursor < vertexCount) {
+                    if (live[cursor] > 0) {
+                        best = cursor;
+                        break;
+                    }
+
+                    cursor++;
+                }
+            }
+
+            fanning = best;
+        }
+
+        return out;
+    }
+
+    private static void splitClusters(final int[] ordered, final int vertexCount, final int cacheSize, final double threshold, final Clusters clusters) {
+        final int triCount = ordered.length / 3;
+        final int[] cacheTime = new int[vertexCount];
+        final int[] hard = Arrays.copyOf(clusters.starts, clusters.count);
+        int time = cacheSize + 1;
+
+        clusters.count = 0;
+
+        for (int c = 0; c < hard.length; c++) {
+            final int start = hard[c];
+            final int end = c + 1 < hard.length ? hard[c + 1] : triCount;
+
+            // the ACMR of the whole hard cluster, from a cold cache
+            time += cacheSize + 1;
+
+            int misses = 0;
+
+            for (int i = start * 3; i < end * 3; i++) {
+                if (time - cacheTime[ordered[i]] > cacheSize) {
+                    cacheTime[ordered[i]] = time++;
+                    misses++;
+                }
+            }
+
+            final double limit = threshold * misses / (end - start);
+
+            // split wherever the triangles since the last split already reach
+            // the ACMR that the whole cluster would have
+            time += cacheSize + 1;
+            clusters.add(start);
+            misses = 0;
+
+            int subStart = start;
+
+            for (int tri = start; tri < end; tri++) {
+                for (int k = 0; k < 3; k++) {
+                    final int v = ordered[tri * 3 + k];
+
+                    if (time - cacheTime[v] > cacheSize) {
+                        cacheTime[v] = time++;
+                        misses++;
+                    }
+                }
+
+                if (tri + 1 < end && (double) misses / (tri + 1 - subStart) <= limit) {
+                    subStart = tri + 1;
+                    clusters.add(subStart);
+                    time += cacheSize + 1;
+                    misses = 0;
+                }
+            }
+        }
+    }
+
+    private static int[] sortClusters(final int[] ordered, final float[] positions, final Clusters clusters) {
+        final int triCount = ordered.length / 3;
+        final double[] centroid = new double[3];
+        double totalArea = 0.0;
+
+        for (int tri = 0; tri < triCount; tri++) {
+            final double area = triangleArea(ordered, tri, positions);
+
+            totalArea += area;
+
+            for (int axis = 0; axis < 3; axis++) {
+                centroid[axis] += area * triangleCenter(ordered, tri, positions, axis);
+            }
+        }
+
+        if (totalArea > 0.0) {
+            for (int axis = 0; axis < 3; axis++) {
+                centroid[axis] /= totalArea;
+            }
+        }
+
+        final double[] potential = new double[clusters.count];
+        final Integer[] order = new Integer[clusters.count];
+
+        for (int c = 0; c < clusters.count; c++) {
+            final int end = clusters.end(c, triCount);
+            final double[] center = new double[3];
+            final double[] normal = new double[3];
+            double area = 0.0;
+
+            for (int tri = clusters.starts[c]; tri < end; tri++) {
+                final double triArea = triangleArea(ordered, tri, positions);
+
+                area += triArea;
+                addNormal(ordered, tri, positions, normal);
+
+                for (int axis = 0; axis < 3; axis++) {
+                    center[axis] += triArea * triangleCenter(ordered, tri, positions, axis);
+                }
+            }
+
+            double dot = 0.0;
+
+            for (int axis = 0; axis < 3; axis++) {
+                final double offset = area > 0.0 ? center[axis] / area - centroid[axis] : 0.0;
+
+                dot += offset * normal[axis];
+            }
+
+            potential[c] = dot;
+            order[c] = c;
+        }
+
+        // stable, so clusters of equal potential keep their cache order
+        Arrays.sort(order, (a, b) -> Double.compare(potential[b], potential[a]));
+
+        final int[] out = new int[ordered.length];
+        int outPos = 0;
+
+        for (int c : order) {
+            final int start = clusters.starts[c] * 3;
+            final int length = clusters.end(c, triCount) * 3 - start;
+
+            System.arraycopy(ordered, start, out, outPos, length);
+            outPos += length;
+        }
+
+        return out;
+    }
+
+    private static double triangleCenter(final int[] indices, final int tri, final float[] positions, final int axis) {
+        return (positions[indices[tri * 3] * 3 + axis]
+                + positions[indices[tri * 3 + 1] * 3 + axis]
+                + positions[indices[tri * 3 + 2] * 3 + axis]) / 3.0;
+    }
+
+    private static double triangleArea(final int[] indices, final int tri, final float[] positions) {
+        final double[] normal = new double[3];
+
+        addNormal(indices, tri, positions, normal);
+
+        return 0.5 * Math.sqrt(normal[0] * normal[0] + normal[1] * normal[1] + normal[2] * normal[2]);
+    }
+
+    private static void addNormal(final int[] indices, final int tri, final float[] positions, final double[] normal) {
+        final int a = indices[tri * 3] * 3;
+        final int b = indices[tri * 3 + 1] * 3;
+        final int c = indices[tri * 3 + 2] * 3;
+        final double abx = positions[b] - positions[a];
+        final double aby = positions[b + 1] - positions[a + 1];
+        final double abz = positions[b + 2] - positions[a + 2];
+        final double acx = positions[c] - positions[a];
+        final double acy = positions[c + 1] - positions[a + 1];
+        final double acz = positions[c + 2] - positions[a + 2];
+
+        // the cross product has the length of twice the triangle area
+        normal[0] += aby * acz - abz * acy;
+        normal[1] += abz * acx - abx * acz;
+        normal[2] += abx * acy - aby * acx;
+    }
+}
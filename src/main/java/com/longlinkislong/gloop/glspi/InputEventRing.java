@@ -0,0 +1,293 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A preallocated single-producer, single-consumer ring of input events. The
+ * ring implements every WindowCallbacks interface, so it can be installed
+ * directly as a window's callbacks. Each event is packed into four longs;
+ * recording and draining events never allocates.
+ *
+ * The thread that polls window events is the only producer. The game thread
+ * is the only consumer and calls drain once per tick to dispatch every
+ * queued event to a Handler. If the ring is full, new events are dropped and
+ * counted.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class InputEventRing implements
+        WindowCallbacks.KeyCallback, WindowCallbacks.MouseButtonCallback,
+        WindowCallbacks.CursorEnterCallback, WindowCallbacks.CursorPosCallback,
+        WindowCallbacks.ScrollCallback, WindowCallbacks.CharCallback {
+
+    /**
+     * Receives drained events. Every method defaults to ignoring the event.
+     *
+     * @since 16.09.01
+     */
+    public interface Handler extends
+            WindowCallbacks.KeyCallback, WindowCallbacks.MouseButtonCallback,
+            WindowCallbacks.CursorEnterCallback, WindowCallbacks.CursorPosCallback,
+            WindowCallbacks.ScrollCallback, WindowCallbacks.CharCallback {
+
+        @Override
+        default void keyEvent(Window window, int key, int scancode, int action, int mods) {
+        }
+
+        @Override
+        default void mouseButtonEvent(Window window, int button, int action, int mods) {
+        }
+
+        @Override
+        default void cursorEnterEvent(Window window, boolean entered) {
+        }
+
+        @Override
+        default void cursorPosEvent(Window window, double x, double y) {
+        }
+
+        @Override
+        default void scrollEvent(Window window, double xOffset, double yOffset) {
+        }
+
+        @Override
+        default void charEvent(Window window, int codepoint) {
+        }
+    }
+
+    /**
+     * The default ring capacity in events.
+     *
+     * @since 16.09.01
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final int TYPE_KEY = 1;
+    private static final int TYPE_MOUSE_BUTTON = 2;
+    private static final int TYPE_CURSOR_ENTER = 3;
+    private static final int TYPE_CURSOR_POS = 4;
+    private static final int TYPE_SCROLL = 5;
+    private static final int TYPE_CHAR = 6;
+    private static final int WORDS = 4;
+
+    private final long[] events;
+    private final Window[] windows;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private long cachedHead;
+    private long eventTime;
+
+    /**
+     * Constructs a new InputEventRing with the default capacity.
+     *
+     * @since 16.09.01
+     */
+    public InputEventRing() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new InputEventRing.
+     *
+     * @param capacity the number of events the ring can hold. Rounded up to a
+     * power of two.
+     * @since 16.09.01
+     */
+    public InputEventRing(final int capacity) {
+        if (capacity < 2 || capacity > (1 << 26)) {
+            throw new IllegalArgumentException("Capacity must be between 2 and 2^26!");
+        }
+
+        final int size = Integer.highestOneBit(capacity - 1) << 1;
+
+        this.events = new long[size * WORDS];
+        this.windows = new Window[size];
+        this.mask = size - 1;
+    }
+
+    private boolean push(final Window window, final int type, final int a, final int b, final int c, final long x, final long y) {
+        final long t = this.tail.get();
+
+        if (t - this.cachedHead > this.mask) {
+            this.cachedHead = this.head.get();
+
+            if (t - this.cachedHead > this.mask) {
+                this.droppedCount.incrementAndGet();
+                return false;
+            }
+        }
+
+        final int slot = (int) (t & this.mask);
+        final int idx = slot * WORDS;
+
+        // word 0: type (8 bits), a (8 bits), b (16 bits), c (32 bits)
+        this.events[idx] = (type & 0xFF) | ((a & 0xFFL) << 8) | ((b & 0xFFFFL) << 16) | ((long) c << 32);
+        this.events[idx + 1] = x;
+        this.events[idx + 2] = y;
+        this.events[idx + 3] = System.nanoTime();
+        this.windows[slot] = window;
+        this.tail.lazySet(t + 1);
+
+        return true;
+    }
+
+    /**
+     * Installs this ring as every input callback of a window.
+     *
+     * @param <WindowT> the window type.
+     * @param driver the context driver that owns the window.
+     * @param window the window.
+     * @since 16.09.01
+     */
+    public <WindowT extends Window> void install(final ContextDriver<WindowT, ?, ?, ?> driver, final WindowT window) {
+        driver.windowSetKeyCallback(window, this);
+        driver.windowSetMouseButtonCallback(window, this);
+        driver.windowSetCursorEnterCallback(window, this);
+        driver.windowSetCursorPosCallback(window, this);
+        driver.windowSetScrollCallback(window, this);
+        driver.windowSetCharCallback(window, this);
+    }
+
+    @Override
+    public void keyEvent(final Window window, final int key, final int scancode, final int action, final int mods) {
+        push(window, TYPE_KEY, action, mods, key, scancode, 0L);
+    }
+
+    @Override
+    public void mouseButtonEvent(final Window window, final int button, final int action, final int mods) {
+        push(window, TYPE_MOUSE_BUTTON, action, mods, button, 0L, 0L);
+    }
+
+    @Override
+    public void cursorEnterEvent(final Window window, final boolean entered) {
+        push(window, TYPE_CURSOR_ENTER, 0, 0, entered ? 1 : 0, 0L, 0L);
+    }
+
+    @Override
+    public void cursorPosEvent(final Window window, final double x, final double y) {
+        push(window, TYPE_CURSOR_POS, 0, 0, 0, Double.doubleToRawLongBits(x), Double.doubleToRawLongBits(y));
+    }
+
+    @Override
+    public void scrollEvent(final Window window, final double xOffset, final double yOffset) {
+        push(window, TYPE_SCROLL, 0, 0, 0, Double.doubleToRawLongBits(xOffset), Double.doubleToRawLongBits(yOffset));
+    }
+
+    @Override
+    public void charEvent(final Window window, final int codepoint) {
+        push(window, TYPE_CHAR, 0, 0, codepoint, 0L, 0L);
+    }
+
+    /**
+     * Dispatches every queued event to the handler in the order they were
+     * received. This must only be called by the consumer thread.
+     *
+     * @param handler the event handler.
+     * @return the number of events dispatched.
+     * @since 16.09.01
+     */
+    public int drain(final Handler handler) {
+        final long h = this.head.get();
+        final long t = this.tail.get();
+
+        for (long i = h; i < t; i++) {
+            final int slot = (int) (i & this.mask);
+            final int idx = slot * WORDS;
+            final long word = this.events[idx];
+            final int type = (int) (word & 0xFF);
+            final int a = (int) ((word >>> 8) & 0xFF);
+            final int b = (int) ((word >>> 16) & 0xFFFF);
+            final int c = (int) (word >>> 32);
+            final Window window = this.windows[slot];
+
+            this.windows[slot] = null;
+            this.eventTime = this.events[idx + 3];
+
+            switch (type) {
+                case TYPE_KEY:
+                    handler.keyEvent(window, c, (int) this.events[idx + 1], a, b);
+                    break;
+                case TYPE_MOUSE_BUTTON:
+                    handler.mouseButtonEvent(window, c, a, b);
+                    break;
+                case TYPE_CURSOR_ENTER:
+                    handler.cursorEnterEvent(window, c != 0);
+                    break;
+                case TYPE_CURSOR_POS:
+                    handler.cursorPosEvent(window, Double.longBitsToDouble(this.events[idx + 1]), Double.longBitsToDouble(this.events[idx + 2]));
+                    break;
+                case TYPE_SCROLL:
+                    handler.scrollEvent(window, Double.longBitsToDouble(this.events[idx + 1]), Double.longBitsToDouble(this.events[idx + 2]));
+                    break;
+                case TYPE_CHAR:
+                    handler.charEvent(window, c);
+                    break;
+                default:
+                    throw new IllegalStateException("Corrupt input event type: " + type);
+            }
+        }
+
+        this.head.lazySet(t);
+
+        return (int) (t - h);
+    }
+
+    /**
+     * Retrieves the System.nanoTime at which the event currently being
+     * dispatched by drain was received.
+     *
+     * @return the event timestamp.
+     * @since 16.09.01
+     */
+    public long getEventTime() {
+        return this.eventTime;
+    }
+
+    /**
+     * Retrieves the number of events waiting to be drained.
+     *
+     * @return the pending event count.
+     * @since 16.09.01
+     */
+    public int getPendingCount() {
+        return (int) (this.tail.get() - this.head.get());
+    }
+
+    /**
+     * Retrieves the number of events dropped because the ring was full.
+     *
+     * @return the dropped event count.
+     * @since 16.09.01
+     */
+    public long getDroppedCount() {
+        return this.droppedCount.get();
+    }
+}
@@ -0,0 +1,596 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An interleaved vertex format with packed attribute encodings. Float vertex
+ * data (positions, normals, texture coordinates, colors) is converted into
+ * half floats, octahedral-encoded normals, 10_10_10_2 and normalized 8/16bit
+ * integers. The format also supplies the matching vertexArrayAttachBuffer
+ * parameters. Every attribute is padded to a multiple of 4 bytes.
+ *
+ * Conversion loops run attribute-major over flat float arrays, so each loop
+ * body handles a single encoding.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class PackedVertexFormat {
+
+    private static final int GL_BYTE = 0x1400;
+    private static final int GL_UNSIGNED_BYTE = 0x1401;
+    private static final int GL_SHORT = 0x1402;
+    private static final int GL_UNSIGNED_SHORT = 0x1403;
+    private static final int GL_FLOAT = 0x1406;
+    private static final int GL_HALF_FLOAT = 0x140B;
+    private static final int GL_UNSIGNED_INT_2_10_10_10_REV = 0x8368;
+    private static final int GL_INT_2_10_10_10_REV = 0x8D9F;
+
+    /**
+     * Supported attribute encodings.
+     *
+     * @since 16.09.01
+     */
+    public enum Encoding {
+        /**
+         * 32bit float per component.
+         */
+        FLOAT(GL_FLOAT, false),
+        /**
+         * 16bit half float per component.
+         */
+        HALF_FLOAT(GL_HALF_FLOAT, false),
+        /**
+         * Unit vector (3 components) encoded as 2 signed normalized 16bit
+         * octahedral coordinates.
+         */
+        OCTAHEDRAL_SNORM16(GL_SHORT, true),
+        /**
+         * Unit vector (3 components) encoded as 2 signed normalized 8bit
+         * octahedral coordinates.
+         */
+        OCTAHEDRAL_SNORM8(GL_BYTE, true),
+        /**
+         * Up to 4 components packed as signed normalized 10_10_10_2.
+         */
+        SNORM_10_10_10_2(GL_INT_2_10_10_10_REV, true),
+        /**
+         * Up to 4 components packed as unsigned normalized 10_10_10_2.
+         */
+        UNORM_10_10_10_2(GL_UNSIGNED_INT_2_10_10_10_REV, true),
+        /**
+         * Unsigned normalized 8bit per component.
+         */
+        UNORM8(GL_UNSIGNED_BYTE, true),
+        /**
+         * Signed normalized 8bit per component.
+         */
+        SNORM8(GL_BYTE, true),
+        /**
+         * Unsigned normalized 16bit per component.
+         */
+        UNORM16(GL_UNSIGNED_SHORT, true),
+        /**
+         * Signed normalized 16bit per component.
+         */
+        SNORM16(GL_SHORT, true);
+
+        public final int glType;
+        public final boolean normalized;
+
+        Encoding(final int glType, final boolean normalized) {
+            this.glType = glType;
+            this.normalized = normalized;
+        }
+    }
+
+    /**
+     * A single attribute of the vertex format.
+     *
+     * @since 16.09.01
+     */
+    public static final class Attribute {
+
+        public final int index;
+        public final int components;
+        public final Encoding encoding;
+        /**
+         * The number of components passed to vertexArrayAttachBuffer.
+         */
+        public final int size;
+        public final int offset;
+        public final int byteSize;
+
+        private Attribute(final int index, final int components, final Encoding encoding, final int offset) {
+            this.index = index;
+            this.components = components;
+            this.encoding = encoding;
+            this.offset = offset;
+
+            switch (encoding) {
+                case FLOAT:
+                    this.size = components;
+                    this.byteSize = 4 * components;
+                    break;
+                case HALF_FLOAT:
+                case UNORM16:
+                case SNORM16:
+                    this.size = components;
+                    this.byteSize = align4(2 * components);
+                    break;
+                case UNORM8:
+                case SNORM8:
+                    this.size = components;
+                    this.byteSize = align4(components);
+                    break;
+                case OCTAHEDRAL_SNORM16:
+                    this.size = 2;
+                    this.byteSize = 4;
+                    break;
+                case OCTAHEDRAL_SNORM8:
+                    this.size = 2;
+                    this.byteSize = 4;
+                    break;
+                case SNORM_10_10_10_2:
+                case UNORM_10_10_10_2:
+                    this.size = 4;
+                    this.byteSize = 4;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+            }
+        }
+    }
+
+    private final List<Attribute> attributes;
+    public final int stride;
+
+    /**
+     * Constructs a new empty PackedVertexFormat.
+     *
+     * @since 16.09.01
+     */
+    public PackedVertexFormat() {
+        this(Collections.emptyList());
+    }
+
+    private PackedVertexFormat(final List<Attribute> attributes) {
+        this.attributes = Collections.unmodifiableList(new ArrayList<>(attributes));
+        this.stride = attributes.stream().mapToInt(attrib -> attrib.byteSize).sum();
+    }
+
+    /**
+     * Constructs a new PackedVertexFormat with an additional attribute
+     * appended.
+     *
+     * @param index the attribute index.
+     * @param components the number of float components supplied per vertex.
+     * Octahedral encodings require 3. 10_10_10_2 encodings accept 3 or 4; the
+     * fourth component defaults to 1.0.
+     * @param encoding the packed encoding.
+     * @return the new PackedVertexFormat.
+     * @since 16.09.01
+     */
+    public PackedVertexFormat withAttribute(final int index, final int components, final Encoding encoding) {
+        if (components < 1 || components > 4) {
+            throw new IllegalArgumentException("Attributes must have 1-4 components!");
+        }
+
+        switch (encoding) {
+            case OCTAHEDRAL_SNORM16:
+            case OCTAHEDRAL_SNORM8:
+                if (components != 3) {
+                    throw new IllegalArgumentException("Octahedral encoding requires 3 components!");
+                }
+                break;
+            case SNORM_10_10_10_2:
+            case UNORM_10_10_10_2:
+                if (components < 3) {
+                    throw new IllegalArgumentException("10_10_10_2 encoding requires 3 or 4 components!");
+                }
+                break;
+            default:
+                break;
+        }
+
+        final List<Attribute> newAttribs = new ArrayList<>(this.attributes);
+
+        newAttribs.add(new Attribute(index, components, encoding, this.stride));
+
+        return new PackedVertexFormat(newAttribs);
+    }
+
+    /**
+     * Retrieves the attributes in the order they are interleaved.
+     *
+     * @return the unmodifiable list of attributes.
+     * @since 16.09.01
+     */
+    public List<Attribute> getAttributes() {
+        return this.attributes;
+    }
+
+    /**
+     * Packs the vertex data into a new direct ByteBuffer.
+     *
+     * @param vertexCount the number of vertices.
+     * @param sources the float data for each attribute, in attribute order.
+     * Each array holds [code]components * vertexCount[/code] floats.
+     * @return the packed vertex data ready for bufferSetData.
+     * @since 16.09.01
+     */
+    public ByteBuffer pack(final int vertexCount, final float[]... sources) {
+        final ByteBuffer out = ByteBuffer.allocateDirect(packedSize(vertexCount)).order(ByteOrder.nativeOrder());
+
+        pack(out, vertexCount, sources);
+        return out;
+    }
+
+    /**
+     * Packs the vertex data into a ByteBuffer acquired from a
+     * DirectBufferPool.
+     *
+     * @param pool the pool to acquire the ByteBuffer from.
+     * @param vertexCount the number of vertices.
+     * @param sources the float data for each attribute, in attribute order.
+     * @return the packed vertex data ready for bufferSetData. It must be
+     * released to the pool once uploaded.
+     * @since 16.09.01
+     */
+    public ByteBuffer pack(final DirectBufferPool pool, final int vertexCount, final float[]... sources) {
+        final ByteBuffer out = pool.acquire(packedSize(vertexCount));
+
+        try {
+            pack(out, vertexCount, sources);
+        } catch (RuntimeException ex) {
+            pool.release(out);
+            throw ex;
+        }
+
+        return out;
+    }
+
+    /**
+     * Packs the vertex data into the ByteBuffer. Data is written starting at
+     * the ByteBuffer's position; the position is not changed.
+     *
+     * @param out the ByteBuffer to write to. Must use native byte order.
+     * @param vertexCount the number of vertices.
+     * @param sources the float data for each attribute, in attribute order.
+     * @since 16.09.01
+     */
+    public void pack(final ByteBuffer out, final int vertexCount, final float[]... sources) {
+        if (sources.length != this.attributes.size()) {
+            throw new IllegalArgumentException("Expected " + this.attributes.size() + " sources but got " + sources.length);
+        } else if (out.remaining() < packedSize(vertexCount)) {
+            throw new IllegalArgumentException("Output buffer is too small!");
+        } else if (out.order() != ByteOrder.nativeOrder()) {
+            throw new IllegalArgumentException("Output buffer must use native byte order!");
+        }
+
+        final int base = out.position();
+
+        for (int i = 0; i < sources.length; i++) {
+            final Attribute attrib = this.attributes.get(i);
+            final float[] src = sources[i];
+
+            if (src.length < (long) attrib.components * vertexCount) {
+                throw new IllegalArgumentException("Source " + i + " is too small!");
+            }
+
+            packAttribute(out, base + attrib.offset, this.stride, attrib, src, vertexCount);
+        }
+    }
+
+    private int packedSize(final int vertexCount) {
+        final long size = (long) vertexCount * this.stride;
+
+        if (vertexCount < 0) {
+            throw new IllegalArgumentException("Vertex count cannot be negative!");
+        } else if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Packed size of " + size + " bytes exceeds the maximum buffer size!");
+        }
+
+        return (int) size;
+    }
+
+    private static void packAttribute(
+            final ByteBuffer out, final int start, final int stride,
+            final Attribute attrib, final float[] src, final int vertexCount) {
+
+        final int n = attrib.components;
+
+        switch (attrib.encoding) {
+            case FLOAT:
+                for (int v = 0, pos = start, s = 0; v < vertexCount; v++, pos += stride) {
+                    for (int c = 0; c < n; c++) {
+                        out.putFloat(pos + 4 * c, src[s++]);
+                    }
+                }
+                break;
+            case HALF_FLOAT:
+                for (int v = 0, pos = start, s = 0; v < vertexCount; v++, pos += stride) {
+                    for (int c = 0; c < n; c++) {
+                        out.putShort(pos + 2 * c, floatToHalf(src[s++]));
+                    }
+                }
+                break;
+            case UNORM16:
+                for (int v = 0, pos = start, s = 0; v < vertexCount; v++, pos += stride) {
+                    for (int c = 0; c < n; c++) {
+                        out.putShort(pos + 2 * c, (short) unorm(src[s++], 65535));
+                    }
+                }
+                break;
+            case SNORM16:
+                for (int v = 0, pos = start, s = 0; v < vertexCount; v++, pos += stride) {
+                    for (int c = 0; c < n; c++) {
+                        out.putShort(pos + 2 * c, (short) snorm(src[s++], 32767));
+                    }
+                }
+                break;
+            case UNORM8:
+                for (int v = 0, pos = start, s = 0; v < vertexCount; v++, pos += stride) {
+                    for (int c = 0; c < n; c++) {
+                        out.put(pos + c, (byte) unorm(src[s++], 255));
+                    }
+                }
+                break;
+            case SNORM8:
+                for (int v = 0, pos = start, s = 0; v < vertexCount; v++, pos += stride) {
+                    for (int c = 0; c < n; c++) {
+                        out.put(pos + c, (byte) snorm(src[s++], 127));
+                    }
+                }
+                break;
+            case OCTAHEDRAL_SNORM16:
+                for (int v = 0, pos = start, s = 0; v < vertexCount; v++, pos += stride, s += 3) {
+                    final long oct = encodeOctahedral(src[s], src[s + 1], src[s + 2]);
+
+                    out.putShort(pos, (short) snorm(Float.intBitsToFloat((int) (oct >>> 32)), 32767));
+                    out.putShort(pos + 2, (short) snorm(Float.intBitsToFloat((int) oct), 32767));
+                }
+                break;
+            case OCTAHEDRAL_SNORM8:
+                for (int v = 0, pos = start, s = 0; v < vertexCount; v++, pos += stride, s += 3) {
+                    final long oct = encodeOctahedral(src[s], src[s + 1], src[s + 2]);
+
+                    out.put(pos, (byte) snorm(Float.intBitsToFloat((int) (oct >>> 32)), 127));
+                    out.put(pos + 1, (byte) snorm(Float.intBitsToFloat((int) oct), 127));
+                    out.putShort(pos + 2, (short) 0);
+                }
+                break;
+            case SNORM_10_10_10_2:
+                for (int v = 0, pos = start, s = 0; v < vertexCount; v++, pos += stride, s += n) {
+                    out.putInt(pos, packSnorm1010102(src[s], src[s + 1], src[s + 2], n == 4 ? src[s + 3] : 1F));
+                }
+                break;
+            case UNORM_10_10_10_2:
+                for (int v = 0, pos = start, s = 0; v < vertexCount; v++, pos += stride, s += n) {
+                    out.putInt(pos, packUnorm1010102(src[s], src[s + 1], src[s + 2], n == 4 ? src[s + 3] : 1F));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported encoding: " + attrib.encoding);
+        }
+    }
+
+    /**
+     * Attaches every attribute of the format to the vertex array object.
+     *
+     * @param <BufferT> the SPI buffer implementation.
+     * @param <VertexArrayT> the SPI vertex array implementation.
+     * @param driver the driver.
+     * @param vao the vertex array object.
+     * @param buffer the buffer holding the packed vertex data.
+     * @param offset the offset of the first vertex within the buffer.
+     * @param divisor the instance divisor.
+     * @since 16.09.01
+     */
+    public <BufferT extends Buffer, VertexArrayT extends VertexArray> void attach(
+            final Driver<BufferT, ?, ?, ?, ?, ?, ?, VertexArrayT> driver,
+            final VertexArrayT vao, final BufferT buffer,
+            final long offset, final int divisor) {
+
+        for (Attribute attrib : this.attributes) {
+            if (attrib.encoding.normalized) {
+                driver.vertexArrayAttachBuffer(
+                        vao, attrib.index,
+                        buffer, attrib.size, attrib.encoding.glType, true,
+                        this.stride, offset + attrib.offset, divisor);
+            } else {
+                driver.vertexArrayAttachBuffer(
+                        vao, attrib.index,
+                        buffer, attrib.size, attrib.encoding.glType,
+                        this.stride, offset + attrib.offset, divisor);
+            }
+        }
+    }
+
+    private static int align4(final int size) {
+        return (size + 3) & ~3;
+    }
+
+    private static int unorm(final float value, final int max) {
+        final float clamped = value < 0F ? 0F : (value > 1F ? 1F : value);
+
+        return (int) (clamped * max + 0.5F);
+    }
+
+    private static int snorm(final float value, final int max) {
+        final float clamped = value < -1F ? -1F : (value > 1F ? 1F : value);
+
+        return Math.round(clamped * max);
+    }
+
+    /**
+     * Converts a 32bit float to a 16bit half float. Rounds to nearest even.
+     * Values too large for a half float become infinity.
+     *
+     * @param value the float value.
+     * @return the half float bits.
+     * @since 16.09.01
+     */
+    public static short floatToHalf(final float value) {
+        final int bits = Float.floatToRawIntBits(value);
+        final int sign = (bits >>> 16) & 0x8000;
+        final int exp = (bits >>> 23) & 0xFF;
+        int mant = bits & 0x7FFFFF;
+
+        if (exp == 0xFF) {
+            return (short) (sign | 0x7C00 | (mant != 0 ? 0x200 : 0));
+        }
+
+        final int e = exp - 127 + 15;
+
+        if (e >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        } else if (e <= 0) {
+            if (e < -10) {
+                return (short) sign;
+            }
+
+            mant |= 0x800000;
+
+            final int shift = 14 - e;
+            final int halfway = 1 << (shift - 1);
+            final int rem = mant & ((1 << shift) - 1);
+            int half = mant >> shift;
+
+            if (rem > halfway || (rem == halfway && (half & 1) != 0)) {
+                half++;
+            }
+
+            return (short) (sign | half);
+        }
+
+        final int rem = mant & 0x1FFF;
+        int half = (e << 10) | (mant >> 13);
+
+        if (rem > 0x1000 || (rem == 0x1000 && (half & 1) != 0)) {
+            half++;
+        }
+
+        return (short) (sign | half);
+    }
+
+    /**
+     * Converts a 16bit half float to a 32bit float.
+     *
+     * @param half the half float bits.
+     * @return the float value.
+     * @since 16.09.01
+     */
+    public static float halfToFloat(final short half) {
+        final int bits = half & 0xFFFF;
+        final int sign = (bits & 0x8000) << 16;
+        final int exp = (bits >>> 10) & 0x1F;
+        final int mant = bits & 0x3FF;
+
+        if (exp == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mant << 13));
+        } else if (exp == 0) {
+            final float sub = mant * 5.9604645E-8F;
+
+            return sign == 0 ? sub : -sub;
+        } else {
+            return Float.intBitsToFloat(sign | ((exp + 112) << 23) | (mant << 13));
+        }
+    }
+
+    /**
+     * Encodes a unit vector using the octahedral mapping. The two resulting
+     * coordinates are in the range [-1.0, 1.0].
+     *
+     * @param x the x component.
+     * @param y the y component.
+     * @param z the z component.
+     * @return the float bits of the u coordinate in the high 32 bits and the
+     * float bits of the v coordinate in the low 32 bits.
+     * @since 16.09.01
+     */
+    public static long encodeOctahedral(final float x, final float y, final float z) {
+        final float l1 = Math.abs(x) + Math.abs(y) + Math.abs(z);
+
+        if (l1 == 0F) {
+            return 0L;
+        }
+
+        float u = x / l1;
+        float v = y / l1;
+
+        if (z < 0F) {
+            final float fu = (1F - Math.abs(v)) * (u >= 0F ? 1F : -1F);
+            final float fv = (1F - Math.abs(u)) * (v >= 0F ? 1F : -1F);
+
+            u = fu;
+            v = fv;
+        }
+
+        return ((long) Float.floatToRawIntBits(u) << 32) | (Float.floatToRawIntBits(v) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Packs 4 components as GL_INT_2_10_10_10_REV signed normalized data.
+     *
+     * @param x the x component in [-1.0, 1.0].
+     * @param y the y component in [-1.0, 1.0].
+     * @param z the z component in [-1.0, 1.0].
+     * @param w the w component in [-1.0, 1.0].
+     * @return the packed value.
+     * @since 16.09.01
+     */
+    public static int packSnorm1010102(final float x, final float y, final float z, final float w) {
+        return (snorm(x, 511) & 0x3FF)
+                | ((snorm(y, 511) & 0x3FF) << 10)
+                | ((snorm(z, 511) & 0x3FF) << 20)
+                | ((snorm(w, 1) & 0x3) << 30);
+    }
+
+    /**
+     * Packs 4 components as GL_UNSIGNED_INT_2_10_10_10_REV unsigned
+     * normalized data.
+     *
+     * @param x the x component in [0.0, 1.0].
+     * @param y the y component in [0.0, 1.0].
+     * @param z the z component in [0.0, 1.0].
+     * @param w the w component in [0.0, 1.0].
+     * @return the packed value.
+     * @since 16.09.01
+     */
+    public static int packUnorm1010102(final float x, final float y, final float z, final float w) {
+        return unorm(x, 1023)
+                | (unorm(y, 1023) << 10)
+                | (unorm(z, 1023) << 20)
+                | (unorm(w, 3) << 30);
+    }
+}
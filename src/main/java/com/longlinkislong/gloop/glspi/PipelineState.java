@@ -0,0 +1,652 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable, interned set of fixed-function pipeline state. A
+ * PipelineState is composed of state blocks (Blend, Depth, Scissor, Mask,
+ * Polygon and Viewport). The Blend, Depth, Mask and Polygon blocks are
+ * interned on construction: equal values are always the same instance, so
+ * they can be compared by identity. Enabled Scissor and Viewport blocks are
+ * not interned, because they usually carry dynamic rectangles (clip rects,
+ * window sizes); they are compared by value. A PipelineState is interned only
+ * if its scissor is null or disabled and its viewport is null. Hash codes are
+ * computed once on construction.
+ *
+ * A null block means that the state is left unchanged when the PipelineState
+ * is applied. PipelineStateApplier applies a PipelineState by issuing only the
+ * driver calls of the blocks that differ from the current state.
+ *
+ * Interned instances are never released; the set of distinct interned states
+ * is expected to be small.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class PipelineState {
+
+    private static final int GL_CCW = 0x0901;
+    private static final int GL_FILL = 0x1B02;
+
+    // kept outside of PipelineState so that interning a block does not
+    // initialize PipelineState.DEFAULT before the blocks it references.
+    private static final class Interner {
+
+        private static final ConcurrentMap<Object, Object> VALUES = new ConcurrentHashMap<>();
+
+        @SuppressWarnings("unchecked")
+        private static <T> T intern(final T value) {
+            final Object existing = VALUES.putIfAbsent(value, value);
+
+            return existing == null ? value : (T) existing;
+        }
+    }
+
+    /**
+     * Blending state. Corresponds to blendingEnable and blendingDisable.
+     *
+     * @since 16.09.01
+     */
+    public static final class Blend {
+
+        public static final Blend DISABLED = Interner.intern(new Blend(false, 0, 0, 0, 0, 0, 0));
+
+        public final boolean enabled;
+        public final int rgbEq;
+        public final int aEq;
+        public final int rgbFuncSrc;
+        public final int rgbFuncDst;
+        public final int aFuncSrc;
+        public final int aFuncDst;
+        private final int hash;
+
+        private Blend(
+                final boolean enabled,
+                final int rgbEq, final int aEq,
+                final int rgbFuncSrc, final int rgbFuncDst,
+                final int aFuncSrc, final int aFuncDst) {
+
+            this.enabled = enabled;
+            this.rgbEq = rgbEq;
+            this.aEq = aEq;
+            this.rgbFuncSrc = rgbFuncSrc;
+            this.rgbFuncDst = rgbFuncDst;
+            this.aFuncSrc = aFuncSrc;
+            this.aFuncDst = aFuncDst;
+
+            int h = enabled ? 1 : 0;
+
+            h = 31 * h + rgbEq;
+            h = 31 * h + aEq;
+            h = 31 * h + rgbFuncSrc;
+            h = 31 * h + rgbFuncDst;
+            h = 31 * h + aFuncSrc;
+            h = 31 * h + aFuncDst;
+
+            this.hash = h;
+        }
+
+        /**
+         * Retrieves the interned Blend block for enabled blending.
+         *
+         * @param rgbEq the blend equation to use on RGB components.
+         * @param aEq the blend equation to use on the ALPHA component.
+         * @param rgbFuncSrc the blend function to use on RGB component source.
+         * @param rgbFuncDst the blend function to use on RGB component
+         * destination.
+         * @param aFuncSrc the blend function to use on the ALPHA component
+         * source.
+         * @param aFuncDst the blend function to use on the ALPHA component
+         * destination.
+         * @return the Blend block.
+         * @since 16.09.01
+         */
+        public static Blend of(
+                final int rgbEq, final int aEq,
+                final int rgbFuncSrc, final int rgbFuncDst,
+                final int aFuncSrc, final int aFuncDst) {
+
+            return Interner.intern(new Blend(true, rgbEq, aEq, rgbFuncSrc, rgbFuncDst, aFuncSrc, aFuncDst));
+        }
+
+        void apply(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver) {
+            if (this.enabled) {
+                driver.blendingEnable(this.rgbEq, this.aEq, this.rgbFuncSrc, this.rgbFuncDst, this.aFuncSrc, this.aFuncDst);
+            } else {
+                driver.blendingDisable();
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Blend)) {
+                return false;
+            }
+
+            final Blend other = (Blend) obj;
+
+            return this.hash == other.hash
+                    && this.enabled == other.enabled
+                    && this.rgbEq == other.rgbEq
+                    && this.aEq == other.aEq
+                    && this.rgbFuncSrc == other.rgbFuncSrc
+                    && this.rgbFuncDst == other.rgbFuncDst
+                    && this.aFuncSrc == other.aFuncSrc
+                    && this.aFuncDst == other.aFuncDst;
+        }
+    }
+
+    /**
+     * Depth test state. Corresponds to depthTestEnable and depthTestDisable.
+     *
+     * @since 16.09.01
+     */
+    public static final class Depth {
+
+        public static final Depth DISABLED = Interner.intern(new Depth(false, 0));
+
+        public final boolean enabled;
+        public final int depthTest;
+        private final int hash;
+
+        private Depth(final boolean enabled, final int depthTest) {
+            this.enabled = enabled;
+            this.depthTest = depthTest;
+            this.hash = 31 * (enabled ? 1 : 0) + depthTest;
+        }
+
+        /**
+         * Retrieves the interned Depth block for enabled depth testing.
+         *
+         * @param depthTest the depth test function. Uses OpenGL enum.
+         * @return the Depth block.
+         * @since 16.09.01
+         */
+        public static Depth of(final int depthTest) {
+            return Interner.intern(new Depth(true, depthTest));
+        }
+
+        void apply(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver) {
+            if (this.enabled) {
+                driver.depthTestEnable(this.depthTest);
+            } else {
+                driver.depthTestDisable();
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Depth)) {
+                return false;
+            }
+
+            final Depth other = (Depth) obj;
+
+            return this.enabled == other.enabled && this.depthTest == other.depthTest;
+        }
+    }
+
+    /**
+     * Scissor test state. Corresponds to scissorTestEnable and
+     * scissorTestDisable.
+     *
+     * @since 16.09.01
+     */
+    public static final class Scissor {
+
+        public static final Scissor DISABLED = Interner.intern(new Scissor(false, 0, 0, 0, 0));
+
+        public final boolean enabled;
+        public final int left;
+        public final int bottom;
+        public final int width;
+        public final int height;
+        private final int hash;
+
+        private Scissor(final boolean enabled, final int left, final int bottom, final int width, final int height) {
+            this.enabled = enabled;
+            this.left = left;
+            this.bottom = bottom;
+            this.width = width;
+            this.height = height;
+
+            int h = enabled ? 1 : 0;
+
+            h = 31 * h + left;
+            h = 31 * h + bottom;
+            h = 31 * h + width;
+            h = 31 * h + height;
+
+            this.hash = h;
+        }
+
+        /**
+         * Creates a Scissor block for an enabled scissor test. The block is not
+         * interned.
+         *
+         * @param left the leftmost pixel of the scissor test rectangle.
+         * @param bottom the bottommost pixel of the scissor test rectangle.
+         * @param width the number of pixels wide.
+         * @param height the number of pixels tall.
+         * @return the Scissor block.
+         * @since 16.09.01
+         */
+        public static Scissor of(final int left, final int bottom, final int width, final int height) {
+            return new Scissor(true, left, bottom, width, height);
+        }
+
+        void apply(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver) {
+            if (this.enabled) {
+                driver.scissorTestEnable(this.left, this.bottom, this.width, this.height);
+            } else {
+                driver.scissorTestDisable();
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Scissor)) {
+                return false;
+            }
+
+            final Scissor other = (Scissor) obj;
+
+            return this.enabled == other.enabled
+                    && this.left == other.left
+                    && this.bottom == other.bottom
+                    && this.width == other.width
+                    && this.height == other.height;
+        }
+    }
+
+    /**
+     * Write mask state. Corresponds to maskApply.
+     *
+     * @since 16.09.01
+     */
+    public static final class Mask {
+
+        public static final Mask ALL = Interner.intern(new Mask(true, true, true, true, true, -1));
+
+        public final boolean red;
+        public final boolean green;
+        public final boolean blue;
+        public final boolean alpha;
+        public final boolean depth;
+        public final int stencil;
+        private final int hash;
+
+        private Mask(final boolean red, final boolean green, final boolean blue, final boolean alpha, final boolean depth, final int stencil) {
+            this.red = red;
+            this.green = green;
+            this.blue = blue;
+            this.alpha = alpha;
+            this.depth = depth;
+            this.stencil = stencil;
+            this.hash = 31 * ((red ? 1 : 0) | (green ? 2 : 0) | (blue ? 4 : 0) | (alpha ? 8 : 0) | (depth ? 16 : 0)) + stencil;
+        }
+
+        /**
+         * Retrieves the interned Mask block.
+         *
+         * @param red should the red channel be drawn.
+         * @param green should the green channel be drawn.
+         * @param blue should the blue channel be drawn.
+         * @param alpha should the alpha channel be drawn.
+         * @param depth should the depth channel be drawn.
+         * @param stencil the stencil bitmask.
+         * @return the Mask block.
+         * @since 16.09.01
+         */
+        public static Mask of(final boolean red, final boolean green, final boolean blue, final boolean alpha, final boolean depth, final int stencil) {
+            return Interner.intern(new Mask(red, green, blue, alpha, depth, stencil));
+        }
+
+        void apply(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver) {
+            driver.maskApply(this.red, this.green, this.blue, this.alpha, this.depth, this.stencil);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Mask)) {
+                return false;
+            }
+
+            final Mask other = (Mask) obj;
+
+            return this.red == other.red
+                    && this.green == other.green
+                    && this.blue == other.blue
+                    && this.alpha == other.alpha
+                    && this.depth == other.depth
+                    && this.stencil == other.stencil;
+        }
+    }
+
+    /**
+     * Polygon rasterization state. Corresponds to polygonSetParameters.
+     *
+     * @since 16.09.01
+     */
+    public static final class Polygon {
+
+        public static final Polygon DEFAULT = Interner.intern(new Polygon(1F, 1F, GL_CCW, 0, GL_FILL, 0F, 0F));
+
+        public final float pointSize;
+        public final float lineWidth;
+        public final int frontFace;
+        public final int cullFace;
+        public final int polygonMode;
+        public final float offsetFactor;
+        public final float offsetUnits;
+        private final int hash;
+
+        private Polygon(
+                final float pointSize, final float lineWidth,
+                final int frontFace, final int cullFace, final int polygonMode,
+                final float offsetFactor, final float offsetUnits) {
+
+            this.pointSize = pointSize;
+            this.lineWidth = lineWidth;
+            this.frontFace = frontFace;
+            this.cullFace = cullFace;
+            this.polygonMode = polygonMode;
+            this.offsetFactor = offsetFactor;
+            this.offsetUnits = offsetUnits;
+
+            int h = Float.floatToIntBits(pointSize);
+
+            h = 31 * h + Float.floatToIntBits(lineWidth);
+            h = 31 * h + frontFace;
+            h = 31 * h + cullFace;
+            h = 31 * h + polygonMode;
+            h = 31 * h + Float.floatToIntBits(offsetFactor);
+            h = 31 * h + Float.floatToIntBits(offsetUnits);
+
+            this.hash = h;
+        }
+
+        /**
+         * Retrieves the interned Polygon block.
+         *
+         * @param pointSize the size of a point.
+         * @param lineWidth the thickness of a line.
+         * @param frontFace the front face. Uses OpenGL enum.
+         * @param cullFace the face to cull. Uses OpenGL enum; 0 culls nothing.
+         * @param polygonMode the polygon mode. Uses OpenGL enum.
+         * @param offsetFactor the offset factor.
+         * @param offsetUnits the offset units.
+         * @return the Polygon block.
+         * @since 16.09.01
+         */
+        public static Polygon of(
+                final float pointSize, final float lineWidth,
+                final int frontFace, final int cullFace, final int polygonMode,
+                final float offsetFactor, final float offsetUnits) {
+
+            return Interner.intern(new Polygon(pointSize, lineWidth, frontFace, cullFace, polygonMode, offsetFactor, offsetUnits));
+        }
+
+        void apply(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver) {
+            driver.polygonSetParameters(
+                    this.pointSize, this.lineWidth,
+                    this.frontFace, this.cullFace, this.polygonMode,
+                    this.offsetFactor, this.offsetUnits);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Polygon)) {
+                return false;
+            }
+
+            final Polygon other = (Polygon) obj;
+
+            return this.hash == other.hash
+                    && Float.floatToIntBits(this.pointSize) == Float.floatToIntBits(other.pointSize)
+                    && Float.floatToIntBits(this.lineWidth) == Float.floatToIntBits(other.lineWidth)
+                    && this.frontFace == other.frontFace
+                    && this.cullFace == other.cullFace
+                    && this.polygonMode == other.polygonMode
+                    && Float.floatToIntBits(this.offsetFactor) == Float.floatToIntBits(other.offsetFactor)
+                    && Float.floatToIntBits(this.offsetUnits) == Float.floatToIntBits(other.offsetUnits);
+        }
+    }
+
+    /**
+     * Viewport state. Corresponds to viewportApply.
+     *
+     * @since 16.09.01
+     */
+    public static final class Viewport {
+
+        public final int x;
+        public final int y;
+        public final int width;
+        public final int height;
+        private final int hash;
+
+        private Viewport(final int x, final int y, final int width, final int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.hash = ((x * 31 + y) * 31 + width) * 31 + height;
+        }
+
+        /**
+         * Creates a Viewport block. The block is not interned.
+         *
+         * @param x the left edge of the viewport.
+         * @param y the bottom edge of the viewport.
+         * @param width the viewport width.
+         * @param height the viewport height.
+         * @return the Viewport block.
+         * @since 16.09.01
+         */
+        public static Viewport of(final int x, final int y, final int width, final int height) {
+            return new Viewport(x, y, width, height);
+        }
+
+        void apply(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver) {
+            driver.viewportApply(this.x, this.y, this.width, this.height);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Viewport)) {
+                return false;
+            }
+
+            final Viewport other = (Viewport) obj;
+
+            return this.x == other.x
+                    && this.y == other.y
+                    && this.width == other.width
+                    && this.height == other.height;
+        }
+    }
+
+    /**
+     * The PipelineState that matches the initial OpenGL state. The viewport
+     * is left unchanged.
+     *
+     * @since 16.09.01
+     */
+    public static final PipelineState DEFAULT = of(Blend.DISABLED, Depth.DISABLED, Scissor.DISABLED, Mask.ALL, Polygon.DEFAULT, null);
+
+    public final Blend blend;
+    public final Depth depth;
+    public final Scissor scissor;
+    public final Mask mask;
+    public final Polygon polygon;
+    public final Viewport viewport;
+    private final int hash;
+
+    private PipelineState(
+            final Blend blend, final Depth depth, final Scissor scissor,
+            final Mask mask, final Polygon polygon, final Viewport viewport) {
+
+        this.blend = blend;
+        this.depth = depth;
+        this.scissor = scissor;
+        this.mask = mask;
+        this.polygon = polygon;
+        this.viewport = viewport;
+
+        int h = Objects.hashCode(blend);
+
+        h = 31 * h + Objects.hashCode(depth);
+        h = 31 * h + Objects.hashCode(scissor);
+        h = 31 * h + Objects.hashCode(mask);
+        h = 31 * h + Objects.hashCode(polygon);
+        h = 31 * h + Objects.hashCode(viewport);
+
+        this.hash = h;
+    }
+
+    /**
+     * Retrieves the PipelineState. Any block may be null to leave that state
+     * unchanged. The PipelineState is interned unless it has an enabled
+     * scissor or a viewport.
+     *
+     * @param blend the blend block.
+     * @param depth the depth block.
+     * @param scissor the scissor block.
+     * @param mask the mask block.
+     * @param polygon the polygon block.
+     * @param viewport the viewport block.
+     * @return the PipelineState.
+     * @since 16.09.01
+     */
+    public static PipelineState of(
+            final Blend blend, final Depth depth, final Scissor scissor,
+            final Mask mask, final Polygon polygon, final Viewport viewport) {
+
+        final PipelineState state = new PipelineState(blend, depth, scissor, mask, polygon, viewport);
+
+        if ((scissor == null || scissor == Scissor.DISABLED) && viewport == null) {
+            return Interner.intern(state);
+        } else {
+            return state;
+        }
+    }
+
+    public PipelineState withBlend(final Blend blend) {
+        return of(blend, this.depth, this.scissor, this.mask, this.polygon, this.viewport);
+    }
+
+    public PipelineState withDepth(final Depth depth) {
+        return of(this.blend, depth, this.scissor, this.mask, this.polygon, this.viewport);
+    }
+
+    public PipelineState withScissor(final Scissor scissor) {
+        return of(this.blend, this.depth, scissor, this.mask, this.polygon, this.viewport);
+    }
+
+    public PipelineState withMask(final Mask mask) {
+        return of(this.blend, this.depth, this.scissor, mask, this.polygon, this.viewport);
+    }
+
+    public PipelineState withPolygon(final Polygon polygon) {
+        return of(this.blend, this.depth, this.scissor, this.mask, polygon, this.viewport);
+    }
+
+    public PipelineState withViewport(final Viewport viewport) {
+        return of(this.blend, this.depth, this.scissor, this.mask, this.polygon, viewport);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof PipelineState)) {
+            return false;
+        }
+
+        // scissor and viewport are not interned and must be compared by value
+        final PipelineState other = (PipelineState) obj;
+
+        return this.hash == other.hash
+                && this.blend == other.blend
+                && this.depth == other.depth
+                && Objects.equals(this.scissor, other.scissor)
+                && this.mask == other.mask
+                && this.polygon == other.polygon
+                && Objects.equals(this.viewport, other.viewport);
+    }
+}
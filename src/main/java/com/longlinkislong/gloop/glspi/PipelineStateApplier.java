@@ -0,0 +1,181 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.util.Objects;
+
+/**
+ * Applies PipelineStates to a driver. The applier remembers the last applied
+ * state block of each kind. Applying the same PipelineState twice is a single
+ * identity comparison; otherwise only the blocks that differ from the current
+ * blocks are sent to the driver. Interned blocks are compared by identity and
+ * Scissor and Viewport blocks by value.
+ *
+ * The applier assumes it is the only writer of the fixed-function state. If
+ * the state is changed directly through the driver, invalidate must be
+ * called.
+ *
+ * The PipelineStateApplier is not thread-safe. It must be used from the
+ * thread that owns the driver's context.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class PipelineStateApplier {
+
+    private final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver;
+    private PipelineState current;
+    private PipelineState.Blend blend;
+    private PipelineState.Depth depth;
+    private PipelineState.Scissor scissor;
+    private PipelineState.Mask mask;
+    private PipelineState.Polygon polygon;
+    private PipelineState.Viewport viewport;
+    private long applyCount;
+    private long skippedCount;
+    private long blockChangeCount;
+
+    /**
+     * Constructs a new PipelineStateApplier. The current state is unknown, so
+     * the first apply issues every non-null block.
+     *
+     * @param driver the driver.
+     * @since 16.09.01
+     */
+    public PipelineStateApplier(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver) {
+        this.driver = Objects.requireNonNull(driver);
+    }
+
+    /**
+     * Applies the PipelineState. Only the blocks that differ from the current
+     * state are issued. Null blocks are left unchanged.
+     *
+     * @param state the pipeline state.
+     * @since 16.09.01
+     */
+    public void apply(final PipelineState state) {
+        this.applyCount++;
+
+        if (state == this.current) {
+            this.skippedCount++;
+            return;
+        }
+
+        if (state.blend != null && state.blend != this.blend) {
+            state.blend.apply(this.driver);
+            this.blend = state.blend;
+            this.blockChangeCount++;
+        }
+
+        if (state.depth != null && state.depth != this.depth) {
+            state.depth.apply(this.driver);
+            this.depth = state.depth;
+            this.blockChangeCount++;
+        }
+
+        if (state.scissor != null && !state.scissor.equals(this.scissor)) {
+            state.scissor.apply(this.driver);
+            this.scissor = state.scissor;
+            this.blockChangeCount++;
+        }
+
+        if (state.mask != null && state.mask != this.mask) {
+            state.mask.apply(this.driver);
+            this.mask = state.mask;
+            this.blockChangeCount++;
+        }
+
+        if (state.polygon != null && state.polygon != this.polygon) {
+            state.polygon.apply(this.driver);
+            this.polygon = state.polygon;
+            this.blockChangeCount++;
+        }
+
+        if (state.viewport != null && !state.viewport.equals(this.viewport)) {
+            state.viewport.apply(this.driver);
+            this.viewport = state.viewport;
+            this.blockChangeCount++;
+        }
+
+        this.current = state;
+    }
+
+    /**
+     * Retrieves the last applied PipelineState.
+     *
+     * @return the current state or null if no state was applied since the
+     * last invalidate.
+     * @since 16.09.01
+     */
+    public PipelineState getCurrent() {
+        return this.current;
+    }
+
+    /**
+     * Forgets the current state. The next apply issues every non-null block.
+     *
+     * @since 16.09.01
+     */
+    public void invalidate() {
+        this.current = null;
+        this.blend = null;
+        this.depth = null;
+        this.scissor = null;
+        this.mask = null;
+        this.polygon = null;
+        this.viewport = null;
+    }
+
+    /**
+     * Retrieves the number of calls to apply.
+     *
+     * @return the apply count.
+     * @since 16.09.01
+     */
+    public long getApplyCount() {
+        return this.applyCount;
+    }
+
+    /**
+     * Retrieves the number of calls to apply that matched the current state.
+     *
+     * @return the skipped count.
+     * @since 16.09.01
+     */
+    public long getSkippedCount() {
+        return this.skippedCount;
+    }
+
+    /**
+     * Retrieves the number of state blocks sent to the driver.
+     *
+     * @return the block change count.
+     * @since 16.09.01
+     */
+    public long getBlockChangeCount() {
+        return this.blockChangeCount;
+    }
+}
@@ -0,0 +1,543 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * A pool of render targets. Textures and Renderbuffers are reused by
+ * (internal format, width, height, samples); Framebuffers are reused by their
+ * exact set of attachments. The completeness of each attachment configuration
+ * (attachment points, formats, sizes and samples) is checked once and cached.
+ * Released objects that are not reacquired within the maximum age (in frames)
+ * are deleted by endFrame.
+ *
+ * Free textures and renderbuffers whose size has been superseded are deleted
+ * sooner. This happens when another size with the same format and samples was
+ * requested more recently, and the old size was not requested in the current
+ * or previous frame. During a continuous resize only the current size is kept,
+ * instead of every intermediate size staying alive for the maximum age.
+ * Targets that are used intermittently at a fixed size are not affected.
+ *
+ * The RenderTargetPool is not thread-safe. It must be used from the thread
+ * that owns the driver's context.
+ *
+ * @author zmichaels
+ * @param <FramebufferT> the SPI framebuffer implementation.
+ * @param <RenderbufferT> the SPI renderbuffer implementation.
+ * @param <TextureT> the SPI texture implementation.
+ * @since 16.09.01
+ */
+public final class RenderTargetPool<FramebufferT extends Framebuffer, RenderbufferT extends Renderbuffer, TextureT extends Texture> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RenderTargetPool.class);
+    private static final Marker MARKER = MarkerFactory.getMarker("gloop-spi");
+
+    private static final int GL_UNSIGNED_BYTE = 0x1401;
+    private static final int GL_FLOAT = 0x1406;
+    private static final int GL_UNSIGNED_INT_24_8 = 0x84FA;
+    private static final int GL_DEPTH_COMPONENT = 0x1902;
+    private static final int GL_DEPTH_STENCIL = 0x84F9;
+
+    private static final class TargetKey {
+
+        private final boolean texture;
+        private final int internalFormat;
+        private final int width;
+        private final int height;
+        private final int samples;
+
+        private TargetKey(final boolean texture, final int internalFormat, final int width, final int height, final int samples) {
+            this.texture = texture;
+            this.internalFormat = internalFormat;
+            this.width = width;
+            this.height = height;
+            this.samples = samples;
+        }
+
+        @Override
+        public int hashCode() {
+            return (((this.internalFormat * 31 + this.width) * 31 + this.height) * 31 + this.samples) * 2 + (this.texture ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof TargetKey)) {
+                return false;
+            }
+
+            final TargetKey other = (TargetKey) obj;
+
+            return this.texture == other.texture
+                    && this.internalFormat == other.internalFormat
+                    && this.width == other.width
+                    && this.height == other.height
+                    && this.samples == other.samples;
+        }
+    }
+
+    private static final class FramebufferKey {
+
+        private final int[] attachmentIds;
+        private final Object[] attachments;
+        private final int hash;
+
+        private FramebufferKey(final int[] attachmentIds, final Object[] attachments) {
+            this.attachmentIds = attachmentIds.clone();
+            this.attachments = attachments.clone();
+
+            int h = Arrays.hashCode(this.attachmentIds);
+
+            for (Object attachment : this.attachments) {
+                h = h * 31 + System.identityHashCode(attachment);
+            }
+
+            this.hash = h;
+        }
+
+        private boolean references(final Object obj) {
+            for (Object attachment : this.attachments) {
+                if (attachment == obj) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof FramebufferKey)) {
+                return false;
+            }
+
+            final FramebufferKey other = (FramebufferKey) obj;
+
+            if (this.hash != other.hash || !Arrays.equals(this.attachmentIds, other.attachmentIds) || this.attachments.length != other.attachments.length) {
+                return false;
+            }
+
+            for (int i = 0; i < this.attachments.length; i++) {
+                if (this.attachments[i] != other.attachments[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static final class Entry<T> {
+
+        private final T object;
+        private final Object key;
+        private long lastUsed;
+
+        private Entry(final T object, final Object key) {
+            this.object = object;
+            this.key = key;
+        }
+    }
+
+    private final Driver<?, FramebufferT, RenderbufferT, TextureT, ?, ?, ?, ?> driver;
+    private final int maxAge;
+    private final Map<TargetKey, Deque<Entry<SPIObject>>> freeTargets = new HashMap<>();
+    private final Map<Object, Entry<SPIObject>> usedTargets = new IdentityHashMap<>();
+    private final Map<Object, TargetKey> targetKeys = new IdentityHashMap<>();
+    private final Map<FramebufferKey, Entry<FramebufferT>> freeFramebuffers = new HashMap<>();
+    private final Map<Object, Entry<FramebufferT>> usedFramebuffers = new IdentityHashMap<>();
+    private final Map<List<Object>, Boolean> completeness = new HashMap<>();
+    private final Map<TargetKey, Long> lastRequested = new HashMap<>();
+    private final Map<TargetKey, Long> groupLastRequested = new HashMap<>();
+    private long frame;
+    private long allocations;
+    private long reuses;
+    private long superseded;
+
+    /**
+     * Constructs a new RenderTargetPool that deletes objects unused for 60
+     * frames.
+     *
+     * @param driver the driver.
+     * @since 16.09.01
+     */
+    public RenderTargetPool(final Driver<?, FramebufferT, RenderbufferT, TextureT, ?, ?, ?, ?> driver) {
+        this(driver, 60);
+    }
+
+    /**
+     * Constructs a new RenderTargetPool.
+     *
+     * @param driver the driver.
+     * @param maxAge the number of frames a released object is kept before it
+     * is deleted.
+     * @since 16.09.01
+     */
+    public RenderTargetPool(final Driver<?, FramebufferT, RenderbufferT, TextureT, ?, ?, ?, ?> driver, final int maxAge) {
+        if (maxAge < 0) {
+            throw new IllegalArgumentException("Max age cannot be negative!");
+        }
+
+        this.driver = Objects.requireNonNull(driver);
+        this.maxAge = maxAge;
+    }
+
+    private static TargetKey group(final TargetKey key) {
+        return new TargetKey(key.texture, key.internalFormat, 0, 0, key.samples);
+    }
+
+    private boolean isSuperseded(final TargetKey key) {
+        final long last = this.lastRequested.getOrDefault(key, Long.MIN_VALUE);
+
+        return last < this.frame - 2 && this.groupLastRequested.getOrDefault(group(key), Long.MIN_VALUE) > last;
+    }
+
+    private SPIObject acquire(final TargetKey key) {
+        this.lastRequested.put(key, this.frame);
+        this.groupLastRequested.put(group(key), this.frame);
+
+        final Deque<Entry<SPIObject>> free = this.freeTargets.get(key);
+        Entry<SPIObject> entry = free == null ? null : free.pollFirst();
+
+        if (entry == null) {
+            final SPIObject obj;
+
+            if (key.texture) {
+                obj = this.driver.textureAllocate(1, key.internalFormat, key.width, key.height, 1, dataType(key.internalFormat));
+            } else {
+                obj = this.driver.renderbufferCreate(key.internalFormat, key.width, key.height, key.samples);
+            }
+
+            entry = new Entry<>(obj, key);
+            this.targetKeys.put(obj, key);
+            this.allocations++;
+        } else {
+            this.reuses++;
+        }
+
+        entry.lastUsed = this.frame;
+        entry.object.updateTime();
+        this.usedTargets.put(entry.object, entry);
+
+        return entry.object;
+    }
+
+    private int dataType(final int internalFormat) {
+        switch (this.driver.guessFormat(internalFormat)) {
+            case GL_DEPTH_COMPONENT:
+                return GL_FLOAT;
+            case GL_DEPTH_STENCIL:
+                return GL_UNSIGNED_INT_24_8;
+            default:
+                return GL_UNSIGNED_BYTE;
+        }
+    }
+
+    /**
+     * Acquires a single level 2D texture.
+     *
+     * @param internalFormat the internal format (Uses OpenGL enum).
+     * @param width the width in pixels.
+     * @param height the height in pixels.
+     * @return the texture.
+     * @since 16.09.01
+     */
+    @SuppressWarnings("unchecked")
+    public TextureT acquireTexture(final int internalFormat, final int width, final int height) {
+        return (TextureT) acquire(new TargetKey(true, internalFormat, width, height, 0));
+    }
+
+    /**
+     * Acquires a renderbuffer.
+     *
+     * @param internalFormat the internal format (Uses OpenGL enum).
+     * @param width the width in pixels.
+     * @param height the height in pixels.
+     * @param samples the number of samples. 0 or 1 is single sampled.
+     * @return the renderbuffer.
+     * @since 16.09.01
+     */
+    @SuppressWarnings("unchecked")
+    public RenderbufferT acquireRenderbuffer(final int internalFormat, final int width, final int height, final int samples) {
+        return (RenderbufferT) acquire(new TargetKey(false, internalFormat, width, height, Math.max(0, samples)));
+    }
+
+    /**
+     * Returns a texture or renderbuffer to the pool.
+     *
+     * @param target the texture or renderbuffer acquired from this pool.
+     * @since 16.09.01
+     */
+    public void releaseTarget(final SPIObject target) {
+        final Entry<SPIObject> entry = this.usedTargets.remove(target);
+
+        if (entry == null) {
+            throw new IllegalArgumentException("Target was not acquired from this pool!");
+        }
+
+        entry.lastUsed = this.frame;
+        this.freeTargets.computeIfAbsent((TargetKey) entry.key, key -> new ArrayDeque<>()).addFirst(entry);
+    }
+
+    /**
+     * Acquires a framebuffer with the specified attachments. A framebuffer
+     * previously built with the exact same attachments is reused. The
+     * completeness of the attachment configuration is only checked once.
+     *
+     * @param attachmentIds the attachment points (Uses OpenGL enum).
+     * @param attachments the textures or renderbuffers to attach. Textures
+     * are attached at mipmap level 0.
+     * @return the framebuffer.
+     * @throws IllegalStateException if the framebuffer is incomplete.
+     * @since 16.09.01
+     */
+    @SuppressWarnings("unchecked")
+    public FramebufferT acquireFramebuffer(final int[] attachmentIds, final SPIObject[] attachments) {
+        if (attachmentIds.length != attachments.length) {
+            throw new IllegalArgumentException("Attachment ids and attachments must have the same length!");
+        }
+
+        final FramebufferKey key = new FramebufferKey(attachmentIds, attachments);
+        Entry<FramebufferT> entry = this.freeFramebuffers.remove(key);
+
+        if (entry == null) {
+            final FramebufferT fb = this.driver.framebufferCreate();
+
+            for (int i = 0; i < attachments.length; i++) {
+                if (attachments[i] instanceof Texture) {
+                    this.driver.framebufferAddAttachment(fb, attachmentIds[i], (TextureT) attachments[i], 0);
+                } else {
+                    this.driver.framebufferAddRenderbuffer(fb, attachmentIds[i], (RenderbufferT) attachments[i]);
+                }
+            }
+
+            checkComplete(fb, attachmentIds, attachments);
+            entry = new Entry<>(fb, key);
+            this.allocations++;
+        } else {
+            this.reuses++;
+        }
+
+        entry.lastUsed = this.frame;
+        entry.object.updateTime();
+        this.usedFramebuffers.put(entry.object, entry);
+
+        return entry.object;
+    }
+
+    private void checkComplete(final FramebufferT fb, final int[] attachmentIds, final SPIObject[] attachments) {
+        List<Object> config = new ArrayList<>();
+
+        for (int i = 0; i < attachments.length; i++) {
+            final TargetKey targetKey = this.targetKeys.get(attachments[i]);
+
+            if (targetKey == null) {
+                config = null;
+                break;
+            }
+
+            config.add(attachmentIds[i]);
+            config.add(targetKey);
+        }
+
+        final Boolean cached = config == null ? null : this.completeness.get(config);
+        final boolean complete;
+
+        if (cached != null) {
+            complete = cached;
+        } else {
+            complete = this.driver.framebufferIsComplete(fb);
+
+            if (config != null) {
+                this.completeness.put(config, complete);
+            }
+        }
+
+        if (!complete) {
+            this.driver.framebufferDelete(fb);
+            throw new IllegalStateException("Framebuffer is incomplete!");
+        }
+    }
+
+    /**
+     * Returns a framebuffer to the pool.
+     *
+     * @param framebuffer the framebuffer acquired from this pool.
+     * @since 16.09.01
+     */
+    @SuppressWarnings("unchecked")
+    public void releaseFramebuffer(final FramebufferT framebuffer) {
+        final Entry<FramebufferT> entry = this.usedFramebuffers.remove(framebuffer);
+
+        if (entry == null) {
+            throw new IllegalArgumentException("Framebuffer was not acquired from this pool!");
+        }
+
+        entry.lastUsed = this.frame;
+
+        final Entry<FramebufferT> displaced = this.freeFramebuffers.put((FramebufferKey) entry.key, entry);
+
+        if (displaced != null) {
+            this.driver.framebufferDelete(displaced.object);
+        }
+    }
+
+    /**
+     * Marks the end of a frame. Released objects that have not been
+     * reacquired within the maximum age are deleted, and so are free targets
+     * whose size has been superseded.
+     *
+     * @since 16.09.01
+     */
+    public void endFrame() {
+        this.frame++;
+
+        final long cutoff = this.frame - this.maxAge;
+        int deleted = 0;
+
+        for (Iterator<Deque<Entry<SPIObject>>> it = this.freeTargets.values().iterator(); it.hasNext();) {
+            final Deque<Entry<SPIObject>> free = it.next();
+
+            for (Iterator<Entry<SPIObject>> entries = free.iterator(); entries.hasNext();) {
+                final Entry<SPIObject> entry = entries.next();
+                final boolean stale = isSuperseded((TargetKey) entry.key);
+
+                if (stale || entry.lastUsed < cutoff) {
+                    entries.remove();
+                    deleteTarget(entry.object);
+                    deleted++;
+
+                    if (stale) {
+                        this.superseded++;
+                    }
+                }
+            }
+
+            if (free.isEmpty()) {
+                it.remove();
+            }
+        }
+
+        for (Iterator<Entry<FramebufferT>> it = this.freeFramebuffers.values().iterator(); it.hasNext();) {
+            final Entry<FramebufferT> entry = it.next();
+
+            if (entry.lastUsed < cutoff) {
+                it.remove();
+                this.driver.framebufferDelete(entry.object);
+                deleted++;
+            }
+        }
+
+        this.lastRequested.values().removeIf(last -> last < cutoff);
+        this.groupLastRequested.values().removeIf(last -> last < cutoff);
+
+        if (deleted > 0) {
+            LOGGER.trace(MARKER, "Deleted {} stale render target(s)", deleted);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deleteTarget(final SPIObject target) {
+        for (Iterator<Map.Entry<FramebufferKey, Entry<FramebufferT>>> it = this.freeFramebuffers.entrySet().iterator(); it.hasNext();) {
+            final Map.Entry<FramebufferKey, Entry<FramebufferT>> entry = it.next();
+
+            if (entry.getKey().references(target)) {
+                it.remove();
+                this.driver.framebufferDelete(entry.getValue().object);
+            }
+        }
+
+        this.targetKeys.remove(target);
+
+        if (target instanceof Texture) {
+            this.driver.textureDelete((TextureT) target);
+        } else {
+            this.driver.renderbufferDelete((RenderbufferT) target);
+        }
+    }
+
+    /**
+     * Retrieves the number of objects allocated by the pool.
+     *
+     * @return the number of allocations.
+     * @since 16.09.01
+     */
+    public long getAllocationCount() {
+        return this.allocations;
+    }
+
+    /**
+     * Retrieves the number of acquisitions satisfied by a pooled object.
+     *
+     * @return the number of reuses.
+     * @since 16.09.01
+     */
+    public long getReuseCount() {
+        return this.reuses;
+    }
+
+    /**
+     * Retrieves the number of free targets deleted early because their size
+     * was superseded.
+     *
+     * @return the number of superseded targets.
+     * @since 16.09.01
+     */
+    public long getSupersededCount() {
+        return this.superseded;
+    }
+
+    /**
+     * Deletes every free object in the pool. Objects that are still acquired
+     * are not deleted.
+     *
+     * @since 16.09.01
+     */
+    public void clear() {
+        this.freeFramebuffers.values().forEach(entry -> this.driver.framebufferDelete(entry.object));
+        this.freeFramebuffers.clear();
+        this.freeTargets.values().forEach(free -> free.forEach(entry -> deleteTarget(entry.object)));
+        this.freeTargets.clear();
+    }
+}
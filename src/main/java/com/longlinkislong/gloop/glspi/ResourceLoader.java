@@ -0,0 +1,326 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Creates resources off of the render thread. Each loader thread owns a
+ * hidden context that shares objects with the render context, so buffers,
+ * textures, shaders and programs created by a task are visible to the render
+ * context. When a task finishes, the loader inserts a Fence and flushes it.
+ * The render thread calls Handoff.acquire, which makes the GPU wait for the
+ * Fence before any later command uses the resource. The render thread itself
+ * never blocks.
+ *
+ * Loader threads are created by the supplied ThreadFactoryFactory. The shared
+ * contexts are created on the thread that constructs the ResourceLoader and
+ * closed by close, so both must be called from the thread that is allowed to
+ * open windows.
+ *
+ * A headless ResourceLoader runs tasks on loader threads without any
+ * context and without fences. It is intended for tests and for drivers that
+ * do not need a current context.
+ *
+ * @author zmichaels
+ * @param <DriverT> the driver type passed to tasks.
+ * @since 16.09.01
+ */
+public final class ResourceLoader<DriverT extends Driver<?, ?, ?, ?, ?, ?, ?, ?>> implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceLoader.class);
+    private static final Marker MARKER = MarkerFactory.getMarker("gloop-spi");
+
+    /**
+     * A resource created by a loader thread and the Fence that guards it.
+     *
+     * @param <T> the resource type.
+     * @since 16.09.01
+     */
+    public static final class Handoff<T> {
+
+        private final T resource;
+        private Fence fence;
+
+        private Handoff(final T resource, final Fence fence) {
+            this.resource = resource;
+            this.fence = fence;
+        }
+
+        /**
+         * Makes the render context wait for the loader's commands and returns
+         * the resource. The wait happens on the GPU; the calling thread does
+         * not block. This must be called on the render thread before the
+         * resource is used. Subsequent calls return the resource immediately.
+         *
+         * @param driver the render thread's driver.
+         * @return the resource.
+         * @since 16.09.01
+         */
+        public T acquire(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver) {
+            if (this.fence != null) {
+                driver.fenceServerWait(this.fence);
+                driver.fenceDelete(this.fence);
+                this.fence = null;
+            }
+
+            return this.resource;
+        }
+
+        /**
+         * Retrieves the resource without synchronizing with the loader's
+         * commands.
+         *
+         * @return the resource.
+         * @since 16.09.01
+         */
+        public T getResource() {
+            return this.resource;
+        }
+    }
+
+    private interface SharedContext {
+
+        void makeCurrent();
+
+        void release();
+
+        void close();
+    }
+
+    private final DriverT driver;
+    private final boolean headless;
+    private final List<SharedContext> contexts;
+    private final Queue<SharedContext> freeContexts;
+    private final ThreadPoolExecutor executor;
+    private volatile boolean fencesSupported = true;
+
+    /**
+     * Constructs a new ResourceLoader with one hidden shared context per
+     * loader thread.
+     *
+     * @param <WindowT> the SPI window implementation.
+     * @param contextDriver the context driver.
+     * @param share the window whose context the loader contexts share with.
+     * @param driver the driver passed to tasks.
+     * @param threads the source of loader threads.
+     * @param loaderCount the number of loader threads.
+     * @since 16.09.01
+     */
+    public <WindowT extends Window> ResourceLoader(
+            final ContextDriver<WindowT, ?, ?, ?> contextDriver, final WindowT share,
+            final DriverT driver, final ThreadFactoryFactory threads, final int loaderCount) {
+
+        this(driver, threads, loaderCount, createContexts(contextDriver, share, loaderCount));
+    }
+
+    private ResourceLoader(final DriverT driver, final ThreadFactoryFactory threads, final int loaderCount, final List<SharedContext> contexts) {
+        this.driver = Objects.requireNonNull(driver);
+        this.headless = contexts.isEmpty();
+        this.contexts = Collections.unmodifiableList(contexts);
+        this.freeContexts = new ConcurrentLinkedQueue<>(contexts);
+
+        final ThreadFactory factory = threads.getThreadFactory();
+
+        this.executor = new ThreadPoolExecutor(
+                loaderCount, loaderCount,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                task -> factory.newThread(() -> runWithContext(task)));
+
+        this.executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * Constructs a headless ResourceLoader. Tasks run on loader threads
+     * without a context and their Handoffs carry no Fence.
+     *
+     * @param <DriverT> the driver type passed to tasks.
+     * @param driver the driver passed to tasks.
+     * @param threads the source of loader threads.
+     * @param loaderCount the number of loader threads.
+     * @return the headless ResourceLoader.
+     * @since 16.09.01
+     */
+    public static <DriverT extends Driver<?, ?, ?, ?, ?, ?, ?, ?>> ResourceLoader<DriverT> headless(
+            final DriverT driver, final ThreadFactoryFactory threads, final int loaderCount) {
+
+        if (loaderCount < 1) {
+            throw new IllegalArgumentException("Loader count must be at least 1!");
+        }
+
+        return new ResourceLoader<>(driver, threads, loaderCount, Collections.emptyList());
+    }
+
+    private static <WindowT extends Window> List<SharedContext> createContexts(
+            final ContextDriver<WindowT, ?, ?, ?> contextDriver, final WindowT share, final int count) {
+
+        if (count < 1) {
+            throw new IllegalArgumentException("Loader count must be at least 1!");
+        }
+
+        final List<SharedContext> out = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            final WindowT context = contextDriver.contextCreateShared(share);
+
+            out.add(new SharedContext() {
+                @Override
+                public void makeCurrent() {
+                    contextDriver.contextMakeCurrent(context);
+                }
+
+                @Override
+                public void release() {
+                    contextDriver.contextReleaseCurrent();
+                }
+
+                @Override
+                public void close() {
+                    contextDriver.windowClose(context);
+                }
+            });
+        }
+
+        return out;
+    }
+
+    private void runWithContext(final Runnable task) {
+        final SharedContext context = this.freeContexts.poll();
+
+        if (context != null) {
+            context.makeCurrent();
+            LOGGER.trace(MARKER, "Bound shared context to loader thread [{}]", Thread.currentThread().getName());
+        }
+
+        try {
+            task.run();
+        } finally {
+            if (context != null) {
+                context.release();
+                this.freeContexts.offer(context);
+            }
+        }
+    }
+
+    /**
+     * Runs a task on a loader thread. The task may create and fill any
+     * shareable object. The returned future completes with a Handoff once the
+     * task's commands are flushed.
+     *
+     * @param <T> the resource type.
+     * @param task the task.
+     * @return the future Handoff. It completes exceptionally if the task
+     * throws.
+     * @since 16.09.01
+     */
+    public <T> CompletableFuture<Handoff<T>> submit(final Function<? super DriverT, ? extends T> task) {
+        Objects.requireNonNull(task);
+
+        return CompletableFuture.supplyAsync(() -> {
+            final T resource = task.apply(this.driver);
+
+            return new Handoff<>(resource, this.headless ? null : insertFence());
+        }, this.executor);
+    }
+
+    private Fence insertFence() {
+        if (!this.fencesSupported) {
+            return null;
+        }
+
+        try {
+            final Fence fence = this.driver.fenceCreate();
+
+            this.driver.fenceFlush(fence);
+            return fence;
+        } catch (UnsupportedOperationException ex) {
+            this.fencesSupported = false;
+            LOGGER.warn(MARKER, "Fence objects are not supported; resources are handed off without synchronization!");
+            return null;
+        }
+    }
+
+    /**
+     * Checks if the ResourceLoader runs without contexts.
+     *
+     * @return true if the ResourceLoader is headless.
+     * @since 16.09.01
+     */
+    public boolean isHeadless() {
+        return this.headless;
+    }
+
+    /**
+     * Retrieves the number of tasks waiting for a loader thread.
+     *
+     * @return the pending task count.
+     * @since 16.09.01
+     */
+    public int getPendingCount() {
+        return this.executor.getQueue().size();
+    }
+
+    /**
+     * Finishes every submitted task, stops the loader threads and closes the
+     * shared contexts. If the calling thread is interrupted, pending tasks are
+     * cancelled and the shared contexts are left open.
+     *
+     * @since 16.09.01
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+
+        try {
+            while (!this.executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                LOGGER.debug(MARKER, "Waiting for {} resource loader tasks to finish...", getPendingCount());
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.warn(MARKER, "Interrupted while closing ResourceLoader; shared contexts were not closed.");
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        this.contexts.forEach(SharedContext::close);
+    }
+}
@@ -0,0 +1,181 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * A cache of Sampler objects keyed by SamplerState. Equal SamplerStates share
+ * a single Sampler object, so the number of Sampler objects is bounded by the
+ * number of distinct sampler configurations rather than the number of
+ * materials.
+ *
+ * The SamplerCache also tracks which Sampler is bound to each texture unit.
+ * samplerBind is skipped if the unit already holds the Sampler for the
+ * requested SamplerState. If Samplers are bound outside of the SamplerCache,
+ * invalidateBindings must be called before the next bind.
+ *
+ * The SamplerCache is not thread-safe. It must be used from the thread that
+ * owns the driver's context.
+ *
+ * @author zmichaels
+ * @param <SamplerT> the SPI sampler implementation.
+ * @since 16.09.01
+ */
+public final class SamplerCache<SamplerT extends Sampler> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SamplerCache.class);
+    private static final Marker MARKER = MarkerFactory.getMarker("gloop-spi");
+
+    private final Driver<?, ?, ?, ?, ?, ?, SamplerT, ?> driver;
+    private final Map<SamplerState, SamplerT> samplers = new HashMap<>();
+    private Object[] boundSamplers = new Object[16];
+    private long bindCount;
+    private long skippedBindCount;
+
+    /**
+     * Constructs a new SamplerCache.
+     *
+     * @param driver the driver.
+     * @since 16.09.01
+     */
+    public SamplerCache(final Driver<?, ?, ?, ?, ?, ?, SamplerT, ?> driver) {
+        this.driver = Objects.requireNonNull(driver);
+    }
+
+    /**
+     * Retrieves the shared Sampler for the SamplerState. The Sampler is
+     * created on first use.
+     *
+     * @param state the sampler state.
+     * @return the shared sampler. The sampler is owned by the cache and must
+     * not be deleted or modified by the caller.
+     * @since 16.09.01
+     */
+    public SamplerT get(final SamplerState state) {
+        final SamplerT cached = this.samplers.get(Objects.requireNonNull(state));
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final SamplerT sampler = this.driver.samplerCreate();
+
+        state.apply(this.driver, sampler);
+        this.samplers.put(state, sampler);
+
+        LOGGER.trace(MARKER, "Created sampler #{}: {}", this.samplers.size(), state);
+
+        return sampler;
+    }
+
+    /**
+     * Binds the shared Sampler for the SamplerState to the texture unit.
+     * samplerBind is only called if the unit does not already hold the
+     * Sampler.
+     *
+     * @param unit the texture unit.
+     * @param state the sampler state.
+     * @return the bound sampler.
+     * @since 16.09.01
+     */
+    public SamplerT bind(final int unit, final SamplerState state) {
+        final SamplerT sampler = get(state);
+
+        if (unit >= this.boundSamplers.length) {
+            this.boundSamplers = Arrays.copyOf(this.boundSamplers, Math.max(unit + 1, this.boundSamplers.length * 2));
+        }
+
+        if (this.boundSamplers[unit] == sampler) {
+            this.skippedBindCount++;
+        } else {
+            this.driver.samplerBind(unit, sampler);
+            this.boundSamplers[unit] = sampler;
+            this.bindCount++;
+        }
+
+        return sampler;
+    }
+
+    /**
+     * Forgets which Sampler is bound to each texture unit. This should be
+     * called if Samplers were bound outside of the SamplerCache.
+     *
+     * @since 16.09.01
+     */
+    public void invalidateBindings() {
+        Arrays.fill(this.boundSamplers, null);
+    }
+
+    /**
+     * Retrieves the number of distinct Sampler objects held by the cache.
+     *
+     * @return the number of samplers.
+     * @since 16.09.01
+     */
+    public int size() {
+        return this.samplers.size();
+    }
+
+    /**
+     * Retrieves the number of times samplerBind was called.
+     *
+     * @return the bind count.
+     * @since 16.09.01
+     */
+    public long getBindCount() {
+        return this.bindCount;
+    }
+
+    /**
+     * Retrieves the number of times samplerBind was skipped because the unit
+     * already held the requested Sampler.
+     *
+     * @return the skipped bind count.
+     * @since 16.09.01
+     */
+    public long getSkippedBindCount() {
+        return this.skippedBindCount;
+    }
+
+    /**
+     * Deletes every Sampler held by the cache.
+     *
+     * @since 16.09.01
+     */
+    public void clear() {
+        this.samplers.values().forEach(this.driver::samplerDelete);
+        this.samplers.clear();
+        invalidateBindings();
+    }
+}
@@ -0,0 +1,284 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+/**
+ * An immutable description of the parameters of a Sampler object. Two
+ * SamplerStates are equal if every parameter is equal, which allows a
+ * SamplerCache to share a single Sampler object between every material that
+ * uses the same parameters. The hash code is computed once on construction.
+ *
+ * Parameters are stored as the raw GL enums that are passed to
+ * samplerSetParameter. The default SamplerState matches the initial state of
+ * a newly created Sampler object.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class SamplerState {
+
+    private static final int GL_TEXTURE_MAG_FILTER = 0x2800;
+    private static final int GL_TEXTURE_MIN_FILTER = 0x2801;
+    private static final int GL_TEXTURE_WRAP_S = 0x2802;
+    private static final int GL_TEXTURE_WRAP_T = 0x2803;
+    private static final int GL_TEXTURE_WRAP_R = 0x8072;
+    private static final int GL_TEXTURE_MIN_LOD = 0x813A;
+    private static final int GL_TEXTURE_MAX_LOD = 0x813B;
+    private static final int GL_TEXTURE_LOD_BIAS = 0x8501;
+    private static final int GL_TEXTURE_MAX_ANISOTROPY_EXT = 0x84FE;
+    private static final int GL_TEXTURE_COMPARE_MODE = 0x884C;
+    private static final int GL_TEXTURE_COMPARE_FUNC = 0x884D;
+
+    private static final int GL_NONE = 0;
+    private static final int GL_LEQUAL = 0x0203;
+    private static final int GL_LINEAR = 0x2601;
+    private static final int GL_NEAREST_MIPMAP_LINEAR = 0x2702;
+    private static final int GL_REPEAT = 0x2901;
+
+    /**
+     * The SamplerState that matches a newly created Sampler object.
+     *
+     * @since 16.09.01
+     */
+    public static final SamplerState DEFAULT = new SamplerState();
+
+    public final int minFilter;
+    public final int magFilter;
+    public final int wrapS;
+    public final int wrapT;
+    public final int wrapR;
+    public final float minLod;
+    public final float maxLod;
+    public final float lodBias;
+    public final float maxAnisotropy;
+    public final int compareMode;
+    public final int compareFunc;
+    private final int hash;
+
+    /**
+     * Constructs a SamplerState with the initial parameters of a Sampler
+     * object.
+     *
+     * @since 16.09.01
+     */
+    public SamplerState() {
+        this(GL_NEAREST_MIPMAP_LINEAR, GL_LINEAR, GL_REPEAT, GL_REPEAT, GL_REPEAT, -1000F, 1000F, 0F, 1F, GL_NONE, GL_LEQUAL);
+    }
+
+    /**
+     * Constructs a new SamplerState.
+     *
+     * @param minFilter the minification filter.
+     * @param magFilter the magnification filter.
+     * @param wrapS the wrap mode for the s coordinate.
+     * @param wrapT the wrap mode for the t coordinate.
+     * @param wrapR the wrap mode for the r coordinate.
+     * @param minLod the minimum level of detail.
+     * @param maxLod the maximum level of detail.
+     * @param lodBias the level of detail bias.
+     * @param maxAnisotropy the maximum anisotropy. 1.0 disables anisotropic
+     * filtering.
+     * @param compareMode the depth compare mode.
+     * @param compareFunc the depth compare function.
+     * @since 16.09.01
+     */
+    public SamplerState(
+            final int minFilter, final int magFilter,
+            final int wrapS, final int wrapT, final int wrapR,
+            final float minLod, final float maxLod, final float lodBias,
+            final float maxAnisotropy,
+            final int compareMode, final int compareFunc) {
+
+        this.minFilter = minFilter;
+        this.magFilter = magFilter;
+        this.wrapS = wrapS;
+        this.wrapT = wrapT;
+        this.wrapR = wrapR;
+        this.minLod = minLod;
+        this.maxLod = maxLod;
+        this.lodBias = lodBias;
+        this.maxAnisotropy = maxAnisotropy;
+        this.compareMode = compareMode;
+        this.compareFunc = compareFunc;
+
+        int h = minFilter;
+
+        h = 31 * h + magFilter;
+        h = 31 * h + wrapS;
+        h = 31 * h + wrapT;
+        h = 31 * h + wrapR;
+        h = 31 * h + Float.floatToIntBits(minLod);
+        h = 31 * h + Float.floatToIntBits(maxLod);
+        h = 31 * h + Float.floatToIntBits(lodBias);
+        h = 31 * h + Float.floatToIntBits(maxAnisotropy);
+        h = 31 * h + compareMode;
+        h = 31 * h + compareFunc;
+
+        this.hash = h;
+    }
+
+    public SamplerState withFilter(final int minFilter, final int magFilter) {
+        return new SamplerState(
+                minFilter, magFilter,
+                this.wrapS, this.wrapT, this.wrapR,
+                this.minLod, this.maxLod, this.lodBias,
+                this.maxAnisotropy,
+                this.compareMode, this.compareFunc);
+    }
+
+    public SamplerState withWrap(final int wrapS, final int wrapT, final int wrapR) {
+        return new SamplerState(
+                this.minFilter, this.magFilter,
+                wrapS, wrapT, wrapR,
+                this.minLod, this.maxLod, this.lodBias,
+                this.maxAnisotropy,
+                this.compareMode, this.compareFunc);
+    }
+
+    public SamplerState withLod(final float minLod, final float maxLod, final float lodBias) {
+        return new SamplerState(
+                this.minFilter, this.magFilter,
+                this.wrapS, this.wrapT, this.wrapR,
+                minLod, maxLod, lodBias,
+                this.maxAnisotropy,
+                this.compareMode, this.compareFunc);
+    }
+
+    public SamplerState withMaxAnisotropy(final float maxAnisotropy) {
+        return new SamplerState(
+                this.minFilter, this.magFilter,
+                this.wrapS, this.wrapT, this.wrapR,
+                this.minLod, this.maxLod, this.lodBias,
+                maxAnisotropy,
+                this.compareMode, this.compareFunc);
+    }
+
+    public SamplerState withCompare(final int compareMode, final int compareFunc) {
+        return new SamplerState(
+                this.minFilter, this.magFilter,
+                this.wrapS, this.wrapT, this.wrapR,
+                this.minLod, this.maxLod, this.lodBias,
+                this.maxAnisotropy,
+                compareMode, compareFunc);
+    }
+
+    /**
+     * Writes every parameter that differs from the initial Sampler state to
+     * the sampler.
+     *
+     * @param <SamplerT> the SPI sampler implementation.
+     * @param driver the driver.
+     * @param sampler a newly created sampler.
+     * @since 16.09.01
+     */
+    public <SamplerT extends Sampler> void apply(final Driver<?, ?, ?, ?, ?, ?, SamplerT, ?> driver, final SamplerT sampler) {
+        final SamplerState def = DEFAULT;
+
+        if (this.minFilter != def.minFilter) {
+            driver.samplerSetParameter(sampler, GL_TEXTURE_MIN_FILTER, this.minFilter);
+        }
+
+        if (this.magFilter != def.magFilter) {
+            driver.samplerSetParameter(sampler, GL_TEXTURE_MAG_FILTER, this.magFilter);
+        }
+
+        if (this.wrapS != def.wrapS) {
+            driver.samplerSetParameter(sampler, GL_TEXTURE_WRAP_S, this.wrapS);
+        }
+
+        if (this.wrapT != def.wrapT) {
+            driver.samplerSetParameter(sampler, GL_TEXTURE_WRAP_T, this.wrapT);
+        }
+
+        if (this.wrapR != def.wrapR) {
+            driver.samplerSetParameter(sampler, GL_TEXTURE_WRAP_R, this.wrapR);
+        }
+
+        if (this.minLod != def.minLod) {
+            driver.samplerSetParameter(sampler, GL_TEXTURE_MIN_LOD, this.minLod);
+        }
+
+        if (this.maxLod != def.maxLod) {
+            driver.samplerSetParameter(sampler, GL_TEXTURE_MAX_LOD, this.maxLod);
+        }
+
+        if (this.lodBias != def.lodBias) {
+            driver.samplerSetParameter(sampler, GL_TEXTURE_LOD_BIAS, this.lodBias);
+        }
+
+        if (this.maxAnisotropy != def.maxAnisotropy) {
+            driver.samplerSetParameter(sampler, GL_TEXTURE_MAX_ANISOTROPY_EXT, this.maxAnisotropy);
+        }
+
+        if (this.compareMode != def.compareMode) {
+            driver.samplerSetParameter(sampler, GL_TEXTURE_COMPARE_MODE, this.compareMode);
+        }
+
+        if (this.compareFunc != def.compareFunc) {
+            driver.samplerSetParameter(sampler, GL_TEXTURE_COMPARE_FUNC, this.compareFunc);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof SamplerState)) {
+            return false;
+        }
+
+        final SamplerState other = (SamplerState) obj;
+
+        return this.hash == other.hash
+                && this.minFilter == other.minFilter
+                && this.magFilter == other.magFilter
+                && this.wrapS == other.wrapS
+                && this.wrapT == other.wrapT
+                && this.wrapR == other.wrapR
+                && Float.floatToIntBits(this.minLod) == Float.floatToIntBits(other.minLod)
+                && Float.floatToIntBits(this.maxLod) == Float.floatToIntBits(other.maxLod)
+                && Float.floatToIntBits(this.lodBias) == Float.floatToIntBits(other.lodBias)
+                && Float.floatToIntBits(this.maxAnisotropy) == Float.floatToIntBits(other.maxAnisotropy)
+                && this.compareMode == other.compareMode
+                && this.compareFunc == other.compareFunc;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "SamplerState: [minFilter=0x%04X magFilter=0x%04X wrap=0x%04X/0x%04X/0x%04X lod=%f..%f bias=%f anisotropy=%f compare=0x%04X/0x%04X]",
+                this.minFilter, this.magFilter,
+                this.wrapS, this.wrapT, this.wrapR,
+                this.minLod, this.maxLod, this.lodBias,
+                this.maxAnisotropy,
+                this.compareMode, this.compareFunc);
+    }
+}
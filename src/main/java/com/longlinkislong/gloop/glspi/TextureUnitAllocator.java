@@ -0,0 +1,227 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Assigns textures to texture units. The TextureUnitAllocator keeps a
+ * residency map of which texture is bound to each unit. A texture that is
+ * already resident keeps its unit and is not rebound; a texture that is not
+ * resident replaces the least recently used texture. The returned unit is the
+ * value that must be written to the sampler uniform of the program.
+ *
+ * Textures that are bound for the same draw must not evict each other.
+ * beginDraw marks the start of a new draw; every unit bound since the last
+ * beginDraw is protected from eviction.
+ *
+ * The TextureUnitAllocator is not thread-safe. It must be used from the
+ * thread that owns the driver's context.
+ *
+ * @author zmichaels
+ * @param <TextureT> the SPI texture implementation.
+ * @since 16.09.01
+ */
+public final class TextureUnitAllocator<TextureT extends Texture> {
+
+    private final Driver<?, ?, ?, TextureT, ?, ?, ?, ?> driver;
+    private final int firstUnit;
+    private final Object[] residents;
+    private final long[] lastUse;
+    private final long[] drawIds;
+    private final Map<TextureT, Integer> residency = new IdentityHashMap<>();
+    private long clock;
+    private long drawId = 1L;
+    private long bindCount;
+    private long hitCount;
+
+    /**
+     * Constructs a new TextureUnitAllocator that manages every texture unit
+     * reported by textureGetMaxBoundTextures.
+     *
+     * @param driver the driver.
+     * @since 16.09.01
+     */
+    public TextureUnitAllocator(final Driver<?, ?, ?, TextureT, ?, ?, ?, ?> driver) {
+        this(driver, 0, driver.textureGetMaxBoundTextures());
+    }
+
+    /**
+     * Constructs a new TextureUnitAllocator that manages a range of texture
+     * units. Units outside of the range may be bound by hand.
+     *
+     * @param driver the driver.
+     * @param firstUnit the first managed texture unit.
+     * @param unitCount the number of managed texture units.
+     * @since 16.09.01
+     */
+    public TextureUnitAllocator(final Driver<?, ?, ?, TextureT, ?, ?, ?, ?> driver, final int firstUnit, final int unitCount) {
+        if (firstUnit < 0) {
+            throw new IllegalArgumentException("First unit cannot be negative!");
+        } else if (unitCount < 1) {
+            throw new IllegalArgumentException("Unit count must be at least 1!");
+        }
+
+        this.driver = Objects.requireNonNull(driver);
+        this.firstUnit = firstUnit;
+        this.residents = new Object[unitCount];
+        this.lastUse = new long[unitCount];
+        this.drawIds = new long[unitCount];
+    }
+
+    /**
+     * Marks the start of a new draw. Units bound for the previous draw may be
+     * evicted again.
+     *
+     * @since 16.09.01
+     */
+    public void beginDraw() {
+        this.drawId++;
+    }
+
+    /**
+     * Ensures the texture is bound to a texture unit.
+     *
+     * @param texture the texture.
+     * @return the texture unit the texture is bound to.
+     * @throws IllegalStateException if every managed unit is already in use
+     * by the current draw.
+     * @since 16.09.01
+     */
+    public int bind(final TextureT texture) {
+        final Integer resident = this.residency.get(Objects.requireNonNull(texture));
+        final int slot;
+
+        if (resident != null) {
+            slot = resident;
+            this.hitCount++;
+        } else {
+            slot = selectVictim();
+
+            @SuppressWarnings("unchecked")
+            final TextureT evicted = (TextureT) this.residents[slot];
+
+            if (evicted != null) {
+                this.residency.remove(evicted);
+            }
+
+            this.driver.textureBind(texture, this.firstUnit + slot);
+            this.residents[slot] = texture;
+            this.residency.put(texture, slot);
+            this.bindCount++;
+        }
+
+        this.lastUse[slot] = ++this.clock;
+        this.drawIds[slot] = this.drawId;
+
+        return this.firstUnit + slot;
+    }
+
+    private int selectVictim() {
+        int victim = -1;
+        long oldest = Long.MAX_VALUE;
+
+        for (int i = 0; i < this.residents.length; i++) {
+            if (this.residents[i] == null) {
+                return i;
+            } else if (this.drawIds[i] != this.drawId && this.lastUse[i] < oldest) {
+                oldest = this.lastUse[i];
+                victim = i;
+            }
+        }
+
+        if (victim < 0) {
+            throw new IllegalStateException("All " + this.residents.length + " texture units are in use by the current draw!");
+        }
+
+        return victim;
+    }
+
+    /**
+     * Retrieves the unit the texture is currently bound to.
+     *
+     * @param texture the texture.
+     * @return the texture unit or -1 if the texture is not resident.
+     * @since 16.09.01
+     */
+    public int getUnit(final TextureT texture) {
+        final Integer resident = this.residency.get(texture);
+
+        return resident == null ? -1 : this.firstUnit + resident;
+    }
+
+    /**
+     * Removes the texture from the residency map. This should be called
+     * before the texture is deleted.
+     *
+     * @param texture the texture.
+     * @since 16.09.01
+     */
+    public void forget(final TextureT texture) {
+        final Integer resident = this.residency.remove(texture);
+
+        if (resident != null) {
+            this.residents[resident] = null;
+            this.lastUse[resident] = 0L;
+        }
+    }
+
+    /**
+     * Clears the residency map. This should be called if textures were bound
+     * to managed units outside of the TextureUnitAllocator.
+     *
+     * @since 16.09.01
+     */
+    public void invalidate() {
+        this.residency.clear();
+        Arrays.fill(this.residents, null);
+        Arrays.fill(this.lastUse, 0L);
+    }
+
+    /**
+     * Retrieves the number of times textureBind was called.
+     *
+     * @return the bind count.
+     * @since 16.09.01
+     */
+    public long getBindCount() {
+        return this.bindCount;
+    }
+
+    /**
+     * Retrieves the number of binds that were satisfied by an already
+     * resident texture.
+     *
+     * @return the hit count.
+     * @since 16.09.01
+     */
+    public long getHitCount() {
+        return this.hitCount;
+    }
+}
@@ -0,0 +1,358 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Selects the fastest combination of performance Tweaks for the live driver.
+ * A short synthetic workload is replayed with each allowed tweak toggled; the
+ * CPU submit time and the frame time (submit plus a synchronous 1x1 pixel
+ * read from the default framebuffer) are measured. A tweak is kept only if it
+ * improves the frame time by more than the noise threshold, or leaves the
+ * frame time unchanged while improving the submit time. Calibration must be
+ * run on the thread that owns the driver's context.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class TweaksCalibrator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TweaksCalibrator.class);
+    private static final Marker MARKER = MarkerFactory.getMarker("gloop-spi");
+
+    private static final int GL_RGBA = 0x1908;
+    private static final int GL_UNSIGNED_BYTE = 0x1401;
+
+    /**
+     * A synthetic workload. Each call should submit a single representative
+     * frame of work to the driver.
+     *
+     * @since 16.09.01
+     */
+    @FunctionalInterface
+    public interface Workload {
+
+        void submitFrame(Driver<?, ?, ?, ?, ?, ?, ?, ?> driver);
+    }
+
+    private static final class Toggle {
+
+        private final String name;
+        private final Predicate<Tweaks> getter;
+        private final BiFunction<Tweaks, Boolean, Tweaks> setter;
+
+        private Toggle(final String name, final Predicate<Tweaks> getter, final BiFunction<Tweaks, Boolean, Tweaks> setter) {
+            this.name = name;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    private static final Map<String, Toggle> TOGGLES;
+
+    static {
+        final Map<String, Toggle> toggles = new LinkedHashMap<>();
+
+        for (Toggle toggle : Arrays.asList(
+                new Toggle("ignoreVaoStateReset", t -> t.ignoreVaoStateReset, Tweaks::withIgnoreVaoStateReset),
+                new Toggle("memorizeProgram", t -> t.memorizeProgram, Tweaks::withMemorizeProgram),
+                new Toggle("memorizeVao", t -> t.memorizeVao, Tweaks::withMemorizeVao),
+                new Toggle("ignoreBufferStateReset", t -> t.ignoreBufferStateReset, Tweaks::withIgnoreBufferStateReset),
+                new Toggle("ignoreTextureStateReset", t -> t.ignoreTextureStateReset, Tweaks::withIgnoreTextureStateReset),
+                new Toggle("ignoreFramebufferStateReset", t -> t.ignoreFramebufferStateReset, Tweaks::withIgnoreFramebufferStateReset),
+                new Toggle("memorizeFramebuffer", t -> t.memorizeFramebuffer, Tweaks::withMemorizeFramebuffer),
+                new Toggle("ignoreProgramStateReset", t -> t.ignoreProgramStateReset, Tweaks::withIgnoreProgramStateReset),
+                new Toggle("memorizeBuffer", t -> t.memorizeBuffer, Tweaks::withMemorizeBuffer),
+                new Toggle("ignoreFramebufferCheck", t -> t.ignoreFramebufferCheck, Tweaks::withIgnoreFramebufferCheck))) {
+
+            toggles.put(toggle.name, toggle);
+        }
+
+        TOGGLES = Collections.unmodifiableMap(toggles);
+    }
+
+    /**
+     * The names of all tweaks that the calibrator may toggle.
+     *
+     * @since 16.09.01
+     */
+    public static final Set<String> ALL_TWEAKS = TOGGLES.keySet();
+
+    /**
+     * The tweaks that are toggled by default. This excludes
+     * [code]ignoreFramebufferCheck[/code] since it hides incomplete
+     * framebuffer errors.
+     *
+     * @since 16.09.01
+     */
+    public static final Set<String> SAFE_TWEAKS;
+
+    static {
+        final Set<String> safe = new HashSet<>(ALL_TWEAKS);
+
+        safe.remove("ignoreFramebufferCheck");
+        SAFE_TWEAKS = Collections.unmodifiableSet(safe);
+    }
+
+    private static final class Measurement {
+
+        private final long submitNanos;
+        private final long frameNanos;
+
+        private Measurement(final long submitNanos, final long frameNanos) {
+            this.submitNanos = submitNanos;
+            this.frameNanos = frameNanos;
+        }
+
+        private boolean isBetterThan(final Measurement other, final double threshold) {
+            if (this.frameNanos < other.frameNanos * (1.0 - threshold)) {
+                return true;
+            } else if (this.frameNanos <= other.frameNanos * (1.0 + threshold)) {
+                return this.submitNanos < other.submitNanos * (1.0 - threshold);
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "submit=" + this.submitNanos + "ns frame=" + this.frameNanos + "ns";
+        }
+    }
+
+    public final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver;
+    public final Workload workload;
+    public final Tweaks baseTweaks;
+    public final Set<String> allowedTweaks;
+    public final int warmupFrames;
+    public final int measuredFrames;
+    public final double noiseThreshold;
+    private final int[] finishPixel = new int[1];
+
+    /**
+     * Constructs a new TweaksCalibrator with the default settings: all safe
+     * tweaks allowed, 10 warmup frames, 30 measured frames, and a 3% noise
+     * threshold.
+     *
+     * @param driver the live driver.
+     * @param workload the synthetic workload.
+     * @since 16.09.01
+     */
+    public TweaksCalibrator(final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver, final Workload workload) {
+        this(driver, workload, new Tweaks(), SAFE_TWEAKS, 10, 30, 0.03);
+    }
+
+    public TweaksCalibrator(
+            final Driver<?, ?, ?, ?, ?, ?, ?, ?> driver, final Workload workload,
+            final Tweaks baseTweaks, final Set<String> allowedTweaks,
+            final int warmupFrames, final int measuredFrames,
+            final double noiseThreshold) {
+
+        this.driver = Objects.requireNonNull(driver);
+        this.workload = Objects.requireNonNull(workload);
+        this.baseTweaks = Objects.requireNonNull(baseTweaks);
+
+        if (!ALL_TWEAKS.containsAll(allowedTweaks)) {
+            throw new IllegalArgumentException("Unknown tweaks: " + allowedTweaks);
+        } else if (measuredFrames < 1) {
+            throw new IllegalArgumentException("At least one frame must be measured!");
+        }
+
+        this.allowedTweaks = Collections.unmodifiableSet(new HashSet<>(allowedTweaks));
+        this.warmupFrames = Math.max(0, warmupFrames);
+        this.measuredFrames = measuredFrames;
+        this.noiseThreshold = noiseThreshold;
+    }
+
+    public TweaksCalibrator withBaseTweaks(final Tweaks base) {
+        return new TweaksCalibrator(this.driver, this.workload, base, this.allowedTweaks, this.warmupFrames, this.measuredFrames, this.noiseThreshold);
+    }
+
+    public TweaksCalibrator withAllowedTweaks(final Set<String> allowed) {
+        return new TweaksCalibrator(this.driver, this.workload, this.baseTweaks, allowed, this.warmupFrames, this.measuredFrames, this.noiseThreshold);
+    }
+
+    public TweaksCalibrator withFrames(final int warmup, final int measured) {
+        return new TweaksCalibrator(this.driver, this.workload, this.baseTweaks, this.allowedTweaks, warmup, measured, this.noiseThreshold);
+    }
+
+    public TweaksCalibrator withNoiseThreshold(final double threshold) {
+        return new TweaksCalibrator(this.driver, this.workload, this.baseTweaks, this.allowedTweaks, this.warmupFrames, this.measuredFrames, threshold);
+    }
+
+    /**
+     * Runs the calibration. The tweaks are toggled one at a time, keeping each
+     * tweak that improves on the best measurement so far. The selected tweaks
+     * are applied to the driver on return.
+     *
+     * @return the fastest tweaks found.
+     * @since 16.09.01
+     */
+    public Tweaks calibrate() {
+        Tweaks best = this.baseTweaks;
+        Measurement bestTime = measure(best);
+
+        LOGGER.debug(MARKER, "Baseline tweaks: {}", bestTime);
+
+        for (Toggle toggle : TOGGLES.values()) {
+            if (!this.allowedTweaks.contains(toggle.name)) {
+                continue;
+            }
+
+            final Tweaks candidate = toggle.setter.apply(best, !toggle.getter.test(best));
+            final Measurement candidateTime = measure(candidate);
+
+            if (candidateTime.isBetterThan(bestTime, this.noiseThreshold)) {
+                LOGGER.debug(MARKER, "Keeping {}={}: {}", toggle.name, toggle.getter.test(candidate), candidateTime);
+                best = candidate;
+                bestTime = candidateTime;
+            } else {
+                LOGGER.debug(MARKER, "Rejecting {}={}: {}", toggle.name, toggle.getter.test(candidate), candidateTime);
+            }
+        }
+
+        this.driver.applyTweaks(best);
+        LOGGER.info(MARKER, "Calibrated tweaks: {}", bestTime);
+
+        return best;
+    }
+
+    /**
+     * Retrieves the calibrated tweaks from a cache file, running the
+     * calibration only if the cache has no entry for the fingerprint. The
+     * fingerprint should identify both the machine and the driver; for
+     * example, [code]DriverCapabilities.fingerprint[/code] combined with the
+     * driver name. The selected tweaks are applied to the driver on return.
+     *
+     * @param cache the cache file.
+     * @param fingerprint the machine and driver fingerprint.
+     * @return the calibrated tweaks.
+     * @throws IOException if the cache could not be read or written.
+     * @since 16.09.01
+     */
+    public Tweaks calibrate(final Path cache, final String fingerprint) throws IOException {
+        final Properties props = new Properties();
+
+        if (Files.isRegularFile(cache)) {
+            try (InputStream in = Files.newInputStream(cache)) {
+                props.load(in);
+            }
+        }
+
+        final String prefix = fingerprint + ".";
+
+        if (props.containsKey(prefix + "calibrated")) {
+            Tweaks cached = this.baseTweaks;
+
+            for (Toggle toggle : TOGGLES.values()) {
+                final String value = props.getProperty(prefix + toggle.name);
+
+                if (value != null) {
+                    cached = toggle.setter.apply(cached, Boolean.parseBoolean(value));
+                }
+            }
+
+            LOGGER.debug(MARKER, "Using cached tweaks for [{}]", fingerprint);
+            this.driver.applyTweaks(cached);
+            return cached;
+        }
+
+        final Tweaks out = calibrate();
+
+        for (Toggle toggle : TOGGLES.values()) {
+            props.setProperty(prefix + toggle.name, Boolean.toString(toggle.getter.test(out)));
+        }
+
+        props.setProperty(prefix + "calibrated", Long.toString(System.currentTimeMillis()));
+
+        final Path dir = cache.toAbsolutePath().getParent();
+
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+
+        try (OutputStream os = Files.newOutputStream(cache)) {
+            props.store(os, "gloop-spi calibrated tweaks");
+        }
+
+        return out;
+    }
+
+    private Measurement measure(final Tweaks tweaks) {
+        this.driver.applyTweaks(tweaks);
+
+        for (int i = 0; i < this.warmupFrames; i++) {
+            this.workload.submitFrame(this.driver);
+            finish(this.driver);
+        }
+
+        final long[] submitTimes = new long[this.measuredFrames];
+        final long[] frameTimes = new long[this.measuredFrames];
+
+        for (int i = 0; i < this.measuredFrames; i++) {
+            final long start = System.nanoTime();
+
+            this.workload.submitFrame(this.driver);
+
+            final long submitted = System.nanoTime();
+
+            finish(this.driver);
+
+            final long finished = System.nanoTime();
+
+            submitTimes[i] = submitted - start;
+            frameTimes[i] = finished - start;
+        }
+
+        Arrays.sort(submitTimes);
+        Arrays.sort(frameTimes);
+
+        return new Measurement(submitTimes[this.measuredFrames / 2], frameTimes[this.measuredFrames / 2]);
+    }
+
+    private <FramebufferT extends Framebuffer> void finish(final Driver<?, FramebufferT, ?, ?, ?, ?, ?, ?> driver) {
+        driver.framebufferGetPixels(driver.framebufferGetDefault(), 0, 0, 1, 1, GL_RGBA, GL_UNSIGNED_BYTE, this.finishPixel);
+    }
+}
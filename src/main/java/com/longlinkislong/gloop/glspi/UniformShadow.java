@@ -0,0 +1,526 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.glspi;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A shadow copy of the uniform values of a single program. Values are staged
+ * with the set methods and compared against the last uploaded value without
+ * allocating; only uniforms whose value changed are forwarded to the driver
+ * when flush is called. flush should be called once before each draw that
+ * uses the program.
+ *
+ * The shadow assumes it is the only writer of the program's uniforms. If the
+ * program is relinked or its uniforms are written directly, invalidate must
+ * be called.
+ *
+ * The UniformShadow is not thread-safe. It must be used from the thread that
+ * owns the driver's context.
+ *
+ * @author zmichaels
+ * @param <ProgramT> the SPI program implementation.
+ * @since 16.09.01
+ */
+public final class UniformShadow<ProgramT extends Program> {
+
+    private static final int KIND_F = 0;
+    private static final int KIND_I = 1;
+    private static final int KIND_D = 2;
+    private static final int KIND_MAT_F = 3;
+    private static final int KIND_MAT_D = 4;
+
+    private static final class Slot {
+
+        private final int kind;
+        private final float[] stagedF;
+        private final float[] uploadedF;
+        private final int[] stagedI;
+        private final int[] uploadedI;
+        private final double[] stagedD;
+        private final double[] uploadedD;
+        private boolean valid;
+        private boolean dirty;
+
+        private Slot(final int kind, final int length) {
+            this.kind = kind;
+
+            switch (kind) {
+                case KIND_F:
+                case KIND_MAT_F:
+                    this.stagedF = new float[length];
+                    this.uploadedF = new float[length];
+                    this.stagedI = this.uploadedI = null;
+                    this.stagedD = this.uploadedD = null;
+                    break;
+                case KIND_I:
+                    this.stagedI = new int[length];
+                    this.uploadedI = new int[length];
+                    this.stagedF = this.uploadedF = null;
+                    this.stagedD = this.uploadedD = null;
+                    break;
+                default:
+                    this.stagedD = new double[length];
+                    this.uploadedD = new double[length];
+                    this.stagedF = this.uploadedF = null;
+                    this.stagedI = this.uploadedI = null;
+            }
+        }
+
+        private int length() {
+            switch (this.kind) {
+                case KIND_F:
+                case KIND_MAT_F:
+                    return this.stagedF.length;
+                case KIND_I:
+                    return this.stagedI.length;
+                default:
+                    return this.stagedD.length;
+            }
+        }
+
+        private boolean isChanged() {
+            if (!this.valid) {
+                return true;
+            }
+
+            switch (this.kind) {
+                case KIND_F:
+                case KIND_MAT_F:
+                    return !Arrays.equals(this.stagedF, this.uploadedF);
+                case KIND_I:
+                    return !Arrays.equals(this.stagedI, this.uploadedI);
+                default:
+                    return !Arrays.equals(this.stagedD, this.uploadedD);
+            }
+        }
+
+        private void commit() {
+            switch (this.kind) {
+                case KIND_F:
+                case KIND_MAT_F:
+                    System.arraycopy(this.stagedF, 0, this.uploadedF, 0, this.stagedF.length);
+                    break;
+                case KIND_I:
+                    System.arraycopy(this.stagedI, 0, this.uploadedI, 0, this.stagedI.length);
+                    break;
+                default:
+                    System.arraycopy(this.stagedD, 0, this.uploadedD, 0, this.stagedD.length);
+            }
+
+            this.valid = true;
+        }
+    }
+
+    private final Driver<?, ?, ?, ?, ?, ProgramT, ?, ?> driver;
+    private final ProgramT program;
+    private Slot[] slots = new Slot[16];
+    private int[] dirtyLocations = new int[16];
+    private int dirtyCount;
+    private long uploadCount;
+    private long skippedCount;
+
+    /**
+     * Constructs a new UniformShadow.
+     *
+     * @param driver the driver.
+     * @param program the program whose uniforms are shadowed.
+     * @since 16.09.01
+     */
+    public UniformShadow(final Driver<?, ?, ?, ?, ?, ProgramT, ?, ?> driver, final ProgramT program) {
+        this.driver = Objects.requireNonNull(driver);
+        this.program = Objects.requireNonNull(program);
+    }
+
+    /**
+     * Retrieves the program whose uniforms are shadowed.
+     *
+     * @return the program.
+     * @since 16.09.01
+     */
+    public ProgramT getProgram() {
+        return this.program;
+    }
+
+    private Slot slot(final int uLoc, final int kind, final int length) {
+        if (uLoc >= this.slots.length) {
+            this.slots = Arrays.copyOf(this.slots, Math.max(uLoc + 1, this.slots.length * 2));
+        }
+
+        Slot slot = this.slots[uLoc];
+
+        if (slot == null || slot.kind != kind || slot.length() != length) {
+            if (slot != null && slot.dirty) {
+                slot.dirty = false;
+                removeDirty(uLoc);
+            }
+
+            slot = new Slot(kind, length);
+            this.slots[uLoc] = slot;
+        }
+
+        return slot;
+    }
+
+    private void removeDirty(final int uLoc) {
+        for (int i = 0; i < this.dirtyCount; i++) {
+            if (this.dirtyLocations[i] == uLoc) {
+                this.dirtyLocations[i] = this.dirtyLocations[--this.dirtyCount];
+                return;
+            }
+        }
+    }
+
+    private void stage(final int uLoc, final Slot slot) {
+        if (slot.dirty) {
+            return;
+        } else if (!slot.isChanged()) {
+            this.skippedCount++;
+            return;
+        }
+
+        if (this.dirtyCount == this.dirtyLocations.length) {
+            this.dirtyLocations = Arrays.copyOf(this.dirtyLocations, this.dirtyCount * 2);
+        }
+
+        this.dirtyLocations[this.dirtyCount++] = uLoc;
+        slot.dirty = true;
+    }
+
+    /**
+     * Stages a 32bit float uniform.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param x the value.
+     * @since 16.09.01
+     */
+    public void setF(final int uLoc, final float x) {
+        if (uLoc >= 0) {
+            final Slot slot = slot(uLoc, KIND_F, 1);
+
+            slot.stagedF[0] = x;
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Stages a 32bit float vec2 uniform.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param x the x value.
+     * @param y the y value.
+     * @since 16.09.01
+     */
+    public void setF(final int uLoc, final float x, final float y) {
+        if (uLoc >= 0) {
+            final Slot slot = slot(uLoc, KIND_F, 2);
+
+            slot.stagedF[0] = x;
+            slot.stagedF[1] = y;
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Stages a 32bit float vec3 uniform.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param x the x value.
+     * @param y the y value.
+     * @param z the z value.
+     * @since 16.09.01
+     */
+    public void setF(final int uLoc, final float x, final float y, final float z) {
+        if (uLoc >= 0) {
+            final Slot slot = slot(uLoc, KIND_F, 3);
+
+            slot.stagedF[0] = x;
+            slot.stagedF[1] = y;
+            slot.stagedF[2] = z;
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Stages a 32bit float vec4 uniform.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param x the x value.
+     * @param y the y value.
+     * @param z the z value.
+     * @param w the w value.
+     * @since 16.09.01
+     */
+    public void setF(final int uLoc, final float x, final float y, final float z, final float w) {
+        if (uLoc >= 0) {
+            final Slot slot = slot(uLoc, KIND_F, 4);
+
+            slot.stagedF[0] = x;
+            slot.stagedF[1] = y;
+            slot.stagedF[2] = z;
+            slot.stagedF[3] = w;
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Stages a 32bit float vector uniform.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param value the values. The array is copied.
+     * @since 16.09.01
+     */
+    public void setF(final int uLoc, final float[] value) {
+        if (uLoc >= 0) {
+            final Slot slot = slot(uLoc, KIND_F, value.length);
+
+            System.arraycopy(value, 0, slot.stagedF, 0, value.length);
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Stages a 32bit integer uniform.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param x the value.
+     * @since 16.09.01
+     */
+    public void setI(final int uLoc, final int x) {
+        if (uLoc >= 0) {
+            final Slot slot = slot(uLoc, KIND_I, 1);
+
+            slot.stagedI[0] = x;
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Stages a 32bit integer vector uniform.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param value the values. The array is copied.
+     * @since 16.09.01
+     */
+    public void setI(final int uLoc, final int[] value) {
+        if (uLoc >= 0) {
+            final Slot slot = slot(uLoc, KIND_I, value.length);
+
+            System.arraycopy(value, 0, slot.stagedI, 0, value.length);
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Stages a 64bit double uniform.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param x the value.
+     * @since 16.09.01
+     */
+    public void setD(final int uLoc, final double x) {
+        if (uLoc >= 0) {
+            final Slot slot = slot(uLoc, KIND_D, 1);
+
+            slot.stagedD[0] = x;
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Stages a 64bit double vector uniform.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param value the values. The array is copied.
+     * @since 16.09.01
+     */
+    public void setD(final int uLoc, final double[] value) {
+        if (uLoc >= 0) {
+            final Slot slot = slot(uLoc, KIND_D, value.length);
+
+            System.arraycopy(value, 0, slot.stagedD, 0, value.length);
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Stages a 32bit float matrix uniform.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param mat the matrix data. The array is copied.
+     * @since 16.09.01
+     */
+    public void setMatF(final int uLoc, final float[] mat) {
+        if (uLoc >= 0) {
+            final Slot slot = slot(uLoc, KIND_MAT_F, mat.length);
+
+            System.arraycopy(mat, 0, slot.stagedF, 0, mat.length);
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Stages a 32bit float matrix uniform. The remaining elements of the
+     * buffer are copied; the buffer's position is not changed.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param mat the matrix data.
+     * @since 16.09.01
+     */
+    public void setMatF(final int uLoc, final FloatBuffer mat) {
+        if (uLoc >= 0) {
+            final int pos = mat.position();
+            final Slot slot = slot(uLoc, KIND_MAT_F, mat.remaining());
+
+            for (int i = 0; i < slot.stagedF.length; i++) {
+                slot.stagedF[i] = mat.get(pos + i);
+            }
+
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Stages a 64bit double matrix uniform.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param mat the matrix data. The array is copied.
+     * @since 16.09.01
+     */
+    public void setMatD(final int uLoc, final double[] mat) {
+        if (uLoc >= 0) {
+            final Slot slot = slot(uLoc, KIND_MAT_D, mat.length);
+
+            System.arraycopy(mat, 0, slot.stagedD, 0, mat.length);
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Stages a 64bit double matrix uniform. The remaining elements of the
+     * buffer are copied; the buffer's position is not changed.
+     *
+     * @param uLoc the uniform location. Negative locations are ignored.
+     * @param mat the matrix data.
+     * @since 16.09.01
+     */
+    public void setMatD(final int uLoc, final DoubleBuffer mat) {
+        if (uLoc >= 0) {
+            final int pos = mat.position();
+            final Slot slot = slot(uLoc, KIND_MAT_D, mat.remaining());
+
+            for (int i = 0; i < slot.stagedD.length; i++) {
+                slot.stagedD[i] = mat.get(pos + i);
+            }
+
+            stage(uLoc, slot);
+        }
+    }
+
+    /**
+     * Uploads every staged uniform whose value differs from the last uploaded
+     * value.
+     *
+     * @return the number of uniforms uploaded.
+     * @since 16.09.01
+     */
+    public int flush() {
+        int uploaded = 0;
+
+        for (int i = 0; i < this.dirtyCount; i++) {
+            final int uLoc = this.dirtyLocations[i];
+            final Slot slot = this.slots[uLoc];
+
+            slot.dirty = false;
+
+            if (!slot.isChanged()) {
+                this.skippedCount++;
+                continue;
+            }
+
+            switch (slot.kind) {
+                case KIND_F:
+                    this.driver.programSetUniformF(this.program, uLoc, slot.stagedF);
+                    break;
+                case KIND_I:
+                    this.driver.programSetUniformI(this.program, uLoc, slot.stagedI);
+                    break;
+                case KIND_D:
+                    this.driver.programSetUniformD(this.program, uLoc, slot.stagedD);
+                    break;
+                case KIND_MAT_F:
+                    this.driver.programSetUniformMatF(this.program, uLoc, slot.stagedF);
+                    break;
+                default:
+                    this.driver.programSetUniformMatD(this.program, uLoc, slot.stagedD);
+            }
+
+            slot.commit();
+            uploaded++;
+        }
+
+        this.dirtyCount = 0;
+        this.uploadCount += uploaded;
+
+        return uploaded;
+    }
+
+    /**
+     * Forgets every uploaded value. Every uniform is uploaded again on the
+     * next set and flush. This should be called after the program is relinked
+     * or if its uniforms were written outside of the shadow.
+     *
+     * @since 16.09.01
+     */
+    public void invalidate() {
+        Arrays.fill(this.slots, null);
+        this.dirtyCount = 0;
+    }
+
+    /**
+     * Retrieves the number of uniform uploads forwarded to the driver.
+     *
+     * @return the upload count.
+     * @since 16.09.01
+     */
+    public long getUploadCount() {
+        return this.uploadCount;
+    }
+
+    /**
+     * Retrieves the number of uniform writes that were dropped because the
+     * value did not change.
+     *
+     * @return the skipped count.
+     * @since 16.09.01
+     */
+    public long getSkippedCount() {
+        return this.skippedCount;
+    }
+}
@@ -6,21 +6,97 @@
 package com.longlinkislong.gloop.glspi;
 
 /**
+ * Callback interfaces for window input events. Every callback receives only
+ * primitive arguments so that events can be forwarded without allocating.
+ * Callbacks are invoked on the thread that polls window events.
  *
  * @author zmichaels
  */
 public final class WindowCallbacks {
     private WindowCallbacks() {}
     
-    public static interface KeyCallback {}
+    @FunctionalInterface
+    public static interface KeyCallback {
+
+        /**
+         * Invoked when a key is pressed, repeated or released.
+         *
+         * @param window the window that received the event.
+         * @param key the key code.
+         * @param scancode the platform-specific scancode.
+         * @param action the key action.
+         * @param mods the modifier key bitfield.
+         * @since 16.09.01
+         */
+        void keyEvent(Window window, int key, int scancode, int action, int mods);
+    }
     
-    public static interface MouseButtonCallback {}
+    @FunctionalInterface
+    public static interface MouseButtonCallback {
+
+        /**
+         * Invoked when a mouse button is pressed or released.
+         *
+         * @param window the window that received the event.
+         * @param button the mouse button.
+         * @param action the button action.
+         * @param mods the modifier key bitfield.
+         * @since 16.09.01
+         */
+        void mouseButtonEvent(Window window, int button, int action, int mods);
+    }
     
-    public static interface CursorEnterCallback {}
+    @FunctionalInterface
+    public static interface CursorEnterCallback {
+
+        /**
+         * Invoked when the cursor enters or leaves the window.
+         *
+         * @param window the window that received the event.
+         * @param entered true if the cursor entered the window.
+         * @since 16.09.01
+         */
+        void cursorEnterEvent(Window window, boolean entered);
+    }
     
-    public static interface CursorPosCallback {}
+    @FunctionalInterface
+    public static interface CursorPosCallback {
+
+        /**
+         * Invoked when the cursor moves.
+         *
+         * @param window the window that received the event.
+         * @param x the cursor x position in screen coordinates.
+         * @param y the cursor y position in screen coordinates.
+         * @since 16.09.01
+         */
+        void cursorPosEvent(Window window, double x, double y);
+    }
     
-    public static interface ScrollCallback {}
+    @FunctionalInterface
+    public static interface ScrollCallback {
+
+        /**
+         * Invoked when the scroll wheel or touchpad is scrolled.
+         *
+         * @param window the window that received the event.
+         * @param xOffset the horizontal scroll offset.
+         * @param yOffset the vertical scroll offset.
+         * @since 16.09.01
+         */
+        void scrollEvent(Window window, double xOffset, double yOffset);
+    }
     
-    public static interface CharCallback {}
+    @FunctionalInterface
+    public static interface CharCallback {
+
+        /**
+         * Invoked when a unicode character is input.
+         *
+         * @param window the window that received the event.
+         * @param codepoint the unicode codepoint.
+         * @since 16.09.01
+         */
+        void charEvent(Window window, int codepoint);
+    }
 }
@@ -0,0 +1,284 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.trace;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Scans a glspi trace for avoidable work. The analyzer reports:
+ * <ul>
+ * <li>state sets that do not change the state (blending, depth test, scissor
+ * test, masks, polygon parameters, viewport, program, framebuffer and
+ * texture or sampler bindings per unit)</li>
+ * <li>uniform writes that repeat the last value written to the same program
+ * and location</li>
+ * <li>small bufferSetData calls that continue the previous write to the same
+ * buffer and could be merged into one upload</li>
+ * <li>runs of identical draws separated only by uniform writes, which could
+ * be drawn instanced</li>
+ * </ul>
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class TraceAnalyzer {
+
+    /**
+     * The default size in bytes below which a bufferSetData call is
+     * considered small.
+     *
+     * @since 16.09.01
+     */
+    public static final int DEFAULT_SMALL_WRITE_SIZE = 4096;
+
+    private static final Map<String, String> STATE_GROUPS;
+
+    static {
+        final Map<String, String> groups = new HashMap<>();
+
+        groups.put("blendingEnable", "blend");
+        groups.put("blendingDisable", "blend");
+        groups.put("depthTestEnable", "depth");
+        groups.put("depthTestDisable", "depth");
+        groups.put("scissorTestEnable", "scissor");
+        groups.put("scissorTestDisable", "scissor");
+        groups.put("maskApply", "mask");
+        groups.put("polygonSetParameters", "polygon");
+        groups.put("viewportApply", "viewport");
+        groups.put("programUse", "program");
+        groups.put("framebufferBind", "framebuffer");
+
+        STATE_GROUPS = Collections.unmodifiableMap(groups);
+    }
+
+    /**
+     * The outcome of an analysis.
+     *
+     * @since 16.09.01
+     */
+    public static final class Report {
+
+        public final long calls;
+        public final Map<String, Long> callCounts;
+        public final long redundantStateSets;
+        public final Map<String, Long> redundantStateSetsByGroup;
+        public final long repeatedUniformValues;
+        public final long mergeableBufferWrites;
+        public final long instancingRuns;
+        public final long instancingCandidateDraws;
+
+        private Report(
+                final long calls, final Map<String, Long> callCounts,
+                final Map<String, Long> redundantStateSetsByGroup,
+                final long repeatedUniformValues, final long mergeableBufferWrites,
+                final long instancingRuns, final long instancingCandidateDraws) {
+
+            this.calls = calls;
+            this.callCounts = Collections.unmodifiableMap(callCounts);
+            this.redundantStateSetsByGroup = Collections.unmodifiableMap(redundantStateSetsByGroup);
+            this.redundantStateSets = redundantStateSetsByGroup.values().stream().mapToLong(Long::longValue).sum();
+            this.repeatedUniformValues = repeatedUniformValues;
+            this.mergeableBufferWrites = mergeableBufferWrites;
+            this.instancingRuns = instancingRuns;
+            this.instancingCandidateDraws = instancingCandidateDraws;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder out = new StringBuilder();
+
+            out.append("Trace analysis: ").append(this.calls).append(" calls\n");
+            out.append("  redundant state sets:     ").append(this.redundantStateSets).append(' ').append(this.redundantStateSetsByGroup).append('\n');
+            out.append("  repeated uniform values:  ").append(this.repeatedUniformValues).append('\n');
+            out.append("  mergeable buffer writes:  ").append(this.mergeableBufferWrites).append('\n');
+            out.append("  instancing candidates:    ").append(this.instancingRuns).append(" runs covering ").append(this.instancingCandidateDraws).append(" draws\n");
+            out.append("  most frequent calls:\n");
+
+            this.callCounts.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
+                    .limit(10)
+                    .forEach(entry -> out.append("    ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n'));
+
+            return out.toString();
+        }
+    }
+
+    private final int smallWriteSize;
+
+    /**
+     * Constructs a new TraceAnalyzer with the default small write size.
+     *
+     * @since 16.09.01
+     */
+    public TraceAnalyzer() {
+        this(DEFAULT_SMALL_WRITE_SIZE);
+    }
+
+    /**
+     * Constructs a new TraceAnalyzer.
+     *
+     * @param smallWriteSize the size in bytes below which a bufferSetData
+     * call is considered for merging.
+     * @since 16.09.01
+     */
+    public TraceAnalyzer(final int smallWriteSize) {
+        this.smallWriteSize = smallWriteSize;
+    }
+
+    /**
+     * Analyzes a trace.
+     *
+     * @param records the trace records, in call order.
+     * @return the analysis report.
+     * @since 16.09.01
+     */
+    public Report analyze(final Iterable<TraceRecord> records) {
+        final Map<String, Long> callCounts = new TreeMap<>();
+        final Map<String, Long> redundant = new LinkedHashMap<>();
+        final Map<String, Object[]> currentState = new HashMap<>();
+        final Map<List<Object>, Object> uniforms = new HashMap<>();
+        final Map<TraceHandle, long[]> lastWrites = new HashMap<>();
+        long calls = 0L;
+        long repeatedUniforms = 0L;
+        long mergeableWrites = 0L;
+        long instancingRuns = 0L;
+        long instancingDraws = 0L;
+        Object[] lastDraw = null;
+        int runLength = 0;
+
+        for (TraceRecord record : records) {
+            calls++;
+            callCounts.merge(record.name, 1L, Long::sum);
+
+            final String group = stateGroup(record);
+
+            if (group != null) {
+                final Object[] value = stateValue(record);
+
+                if (Arrays.deepEquals(value, currentState.put(group, value))) {
+                    redundant.merge(group.indexOf(':') < 0 ? group : group.substring(0, group.indexOf(':')), 1L, Long::sum);
+                }
+            } else if (record.name.startsWith("programSetUniform") && !record.name.startsWith("programSetUniformBlock") && record.args.length == 3) {
+                final List<Object> key = Arrays.asList(record.name, record.args[0], record.args[1]);
+                final Object previous = uniforms.put(key, record.args[2]);
+
+                if (Objects.deepEquals(previous, record.args[2])) {
+                    repeatedUniforms++;
+                }
+
+                continue;
+            } else if (record.name.equals("bufferSetData") && record.args.length == 3 && record.args[0] instanceof TraceHandle) {
+                final long offset = (Long) record.args[1];
+                final long size = byteLength(record.args[2]);
+                final long[] last = lastWrites.put((TraceHandle) record.args[0], new long[]{offset + size, size});
+
+                if (last != null && last[0] == offset && last[1] < this.smallWriteSize && size < this.smallWriteSize) {
+                    mergeableWrites++;
+                }
+            } else if (record.name.equals("vertexArrayDrawArrays") || record.name.equals("vertexArrayDrawElements")) {
+                final Object[] draw = {record.name, currentState.get("program"), record.args};
+
+                lastWrites.clear();
+
+                if (Arrays.deepEquals(draw, lastDraw)) {
+                    runLength++;
+                } else {
+                    if (runLength > 1) {
+                        instancingRuns++;
+                        instancingDraws += runLength;
+                    }
+
+                    runLength = 1;
+                    lastDraw = draw;
+                }
+
+                continue;
+            } else if (record.name.startsWith("vertexArrayDraw")) {
+                lastWrites.clear();
+            }
+
+            // anything other than a uniform write or a matching draw ends the run.
+            if (runLength > 1) {
+                instancingRuns++;
+                instancingDraws += runLength;
+            }
+
+            runLength = 0;
+            lastDraw = null;
+        }
+
+        if (runLength > 1) {
+            instancingRuns++;
+            instancingDraws += runLength;
+        }
+
+        return new Report(calls, callCounts, redundant, repeatedUniforms, mergeableWrites, instancingRuns, instancingDraws);
+    }
+
+    private static String stateGroup(final TraceRecord record) {
+        final String group = STATE_GROUPS.get(record.name);
+
+        if (group != null) {
+            return group;
+        } else if (record.name.equals("textureBind") && record.args.length == 2) {
+            return "texture:" + record.args[1];
+        } else if (record.name.equals("samplerBind") && record.args.length == 2) {
+            return "sampler:" + record.args[0];
+        } else {
+            return null;
+        }
+    }
+
+    private static Object[] stateValue(final TraceRecord record) {
+        final List<Object> value = new ArrayList<>(record.args.length + 1);
+
+        value.add(record.name);
+        value.addAll(Arrays.asList(record.args));
+
+        return value.toArray();
+    }
+
+    private static long byteLength(final Object payload) {
+        // bufferSetData accepts a ByteBuffer, a float[] or an int[].
+        if (payload instanceof ByteBuffer) {
+            return ((ByteBuffer) payload).remaining();
+        } else if (payload instanceof float[] || payload instanceof int[]) {
+            return Array.getLength(payload) * 4L;
+        } else {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.trace;
+
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.regex.Pattern;
+
+/**
+ * Constants and helpers shared by the trace writer and reader.
+ *
+ * A trace file starts with a header:
+ * <pre>
+ *  0: 8 bytes  magic "GLOOPTRC"
+ *  8: int      version
+ * 12: int      segment size
+ * 16: long     end of the last record (written on close)
+ * 24: long     record count (written on close)
+ * 32: string   fully qualified name of the traced interface
+ *     int      method count
+ *     string[] method signatures, indexed by method id
+ * </pre>
+ * The header is padded to a multiple of 8 bytes and followed by the records.
+ * Records never span a segment boundary; the unused tail of a segment is
+ * filled with a padding record.
+ * <pre>
+ *  0: int      record length in bytes, including the record header
+ *  4: int      method id or -1 for padding
+ *  8: long     System.nanoTime of the call
+ * 16: value[]  one tagged value per parameter
+ *     value    the tagged return value
+ * </pre>
+ * A tagged value is a one byte tag followed by the primitive value, an int
+ * length and UTF-8 bytes for strings, an int id for handles, or a one byte
+ * element kind, an int element count and the elements for arrays and
+ * buffers. The size-only tags omit the elements. Null, opaque and thrown
+ * values have no body. All values are little endian.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+final class TraceFormat {
+
+    static final byte[] MAGIC = "GLOOPTRC".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int END_POSITION_OFFSET = 16;
+    static final int RECORD_COUNT_OFFSET = 24;
+    static final int API_NAME_OFFSET = 32;
+    static final int RECORD_HEADER_SIZE = 16;
+    static final int PADDING_ID = -1;
+    static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    static final byte TAG_NULL = 0;
+    static final byte TAG_BOOLEAN = 1;
+    static final byte TAG_BYTE = 2;
+    static final byte TAG_SHORT = 3;
+    static final byte TAG_CHAR = 4;
+    static final byte TAG_INT = 5;
+    static final byte TAG_LONG = 6;
+    static final byte TAG_FLOAT = 7;
+    static final byte TAG_DOUBLE = 8;
+    static final byte TAG_STRING = 9;
+    static final byte TAG_HANDLE = 10;
+    static final byte TAG_ARRAY = 11;
+    static final byte TAG_BUFFER = 12;
+    static final byte TAG_ARRAY_SIZE = 13;
+    static final byte TAG_BUFFER_SIZE = 14;
+    static final byte TAG_OPAQUE = 15;
+    static final byte TAG_THROWN = 16;
+
+    static final byte KIND_BYTE = 0;
+    static final byte KIND_SHORT = 1;
+    static final byte KIND_CHAR = 2;
+    static final byte KIND_INT = 3;
+    static final byte KIND_LONG = 4;
+    static final byte KIND_FLOAT = 5;
+    static final byte KIND_DOUBLE = 6;
+
+    static final int[] KIND_SIZE = {1, 2, 2, 4, 8, 4, 8};
+
+    // encoded sizes of tagged values, including the tag
+    static final int NULL_SIZE = 1;
+    static final int OPAQUE_SIZE = 1;
+    static final int BOOLEAN_SIZE = 2;
+    static final int INT_SIZE = 5;
+    static final int FLOAT_SIZE = 5;
+    static final int LONG_SIZE = 9;
+    static final int DOUBLE_SIZE = 9;
+    static final int HANDLE_SIZE = 5;
+    static final int STRING_HEADER_SIZE = 5;
+    static final int PAYLOAD_HEADER_SIZE = 6;
+
+    // objectGetSomething, e.g. bufferGetData or framebufferGetPixels
+    private static final Pattern GETTER = Pattern.compile("[a-z][a-zA-Z0-9]*?Get[A-Z0-9].*");
+
+    /**
+     * Per-method metadata computed once when a trace is opened.
+     */
+    static final class MethodInfo {
+
+        final int id;
+        final Method method;
+        final int parameterCount;
+        /**
+         * The index of the array or buffer parameter that the method writes
+         * into, or -1. Only its size is recorded.
+         */
+        final int outputParameter;
+        /**
+         * True if the method deletes the handle passed as its first
+         * parameter.
+         */
+        final boolean deletesHandle;
+
+        private MethodInfo(final int id, final Method method, final Class<?>[] handleTypes) {
+            final Class<?>[] params = method.getParameterTypes();
+
+            this.id = id;
+            this.method = method;
+            this.parameterCount = params.length;
+            this.outputParameter = outputParameter(method);
+            this.deletesHandle = isDelete(method.getName()) && params.length > 0 && isHandleType(params[0], handleTypes);
+        }
+    }
+
+    private TraceFormat() {
+    }
+
+    /**
+     * Retrieves the traceable methods of the interface sorted by signature,
+     * so that the method ids are stable between runs.
+     *
+     * @param api the traced interface.
+     * @return the methods.
+     */
+    static Method[] methods(final Class<?> api) {
+        final Method[] methods = api.getMethods();
+
+        Arrays.sort(methods, Comparator.comparing(TraceFormat::signature));
+
+        return methods;
+    }
+
+    /**
+     * Describes the traceable methods of the interface. The descriptions are
+     * indexed by method id.
+     *
+     * @param api the traced interface.
+     * @param handleTypes the types that are recorded as handles.
+     * @return the method descriptions.
+     */
+    static MethodInfo[] describe(final Class<?> api, final Class<?>[] handleTypes) {
+        final Method[] methods = methods(api);
+        final MethodInfo[] out = new MethodInfo[methods.length];
+
+        for (int i = 0; i < methods.length; i++) {
+            out[i] = new MethodInfo(i, methods[i], handleTypes);
+        }
+
+        return out;
+    }
+
+    /**
+     * Checks that the expected signatures are exactly the method signatures
+     * of the interface in method id order.
+     *
+     * @param api the traced interface.
+     * @param expected the expected signatures.
+     * @throws IllegalStateException if the interface has changed.
+     */
+    static void checkSignatures(final Class<?> api, final String... expected) {
+        final Method[] methods = methods(api);
+
+        if (methods.length != expected.length) {
+            throw new IllegalStateException("Expected " + expected.length + " methods in " + api.getName() + " but found " + methods.length + "!");
+        }
+
+        for (int i = 0; i < methods.length; i++) {
+            final String signature = signature(methods[i]);
+
+            if (!signature.equals(expected[i])) {
+                throw new IllegalStateException("Expected method " + expected[i] + " in " + api.getName() + " but found " + signature + "!");
+            }
+        }
+    }
+
+    /**
+     * Checks if a method with the name deletes the handle passed as its first
+     * parameter.
+     *
+     * @param name the method name.
+     * @return true if the method is a delete method.
+     */
+    static boolean isDelete(final String name) {
+        return name.endsWith("Delete");
+    }
+
+    private static int outputParameter(final Method method) {
+        if (!GETTER.matcher(method.getName()).matches()) {
+            return -1;
+        }
+
+        final Class<?>[] params = method.getParameterTypes();
+
+        for (int i = params.length - 1; i >= 0; i--) {
+            final Class<?> type = params[i];
+
+            if (java.nio.Buffer.class.isAssignableFrom(type) || (type.isArray() && type.getComponentType().isPrimitive())) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean isHandleType(final Class<?> type, final Class<?>[] handleTypes) {
+        for (Class<?> handleType : handleTypes) {
+            if (handleType.isAssignableFrom(type) || type.isAssignableFrom(handleType)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    static String signature(final Method method) {
+        final StringBuilder out = new StringBuilder(method.getName()).append('(');
+        final Class<?>[] params = method.getParameterTypes();
+
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+
+            out.append(params[i].getName());
+        }
+
+        return out.append(')').toString();
+    }
+
+    static int align(final int size) {
+        return (size + 7) & ~7;
+    }
+
+    static long align(final long size) {
+        return (size + 7L) & ~7L;
+    }
+}
@@ -0,0 +1,471 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.trace;
+
+import com.longlinkislong.gloop.glspi.DirectBufferPool;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a trace file written by TraceWriter. The file is memory-mapped
+ * read-only. A trace that was not closed is read until the first empty
+ * record.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class TraceReader implements Iterable<TraceRecord>, AutoCloseable {
+
+    private final FileChannel channel;
+    private final ByteBuffer[] segments;
+    private final int segmentSize;
+    private final long dataStart;
+    private final long end;
+    private final long recordCount;
+    private final String apiName;
+    private final List<String> signatures;
+
+    /**
+     * Opens a trace file.
+     *
+     * @param path the trace file.
+     * @throws IOException if the file could not be read or is not a trace.
+     * @since 16.09.01
+     */
+    public TraceReader(final Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            final long size = this.channel.size();
+            final ByteBuffer head = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, TraceFormat.API_NAME_OFFSET)).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (head.capacity() < TraceFormat.API_NAME_OFFSET) {
+                throw new IOException("File is too small to be a trace!");
+            }
+
+            for (int i = 0; i < TraceFormat.MAGIC.length; i++) {
+                if (head.get(i) != TraceFormat.MAGIC[i]) {
+                    throw new IOException("File is not a trace!");
+                }
+            }
+
+            if (head.getInt(8) != TraceFormat.VERSION) {
+                throw new IOException("Unsupported trace version: " + head.getInt(8));
+            }
+
+            this.segmentSize = head.getInt(12);
+
+            final long recordedEnd = head.getLong(TraceFormat.END_POSITION_OFFSET);
+
+            this.end = recordedEnd == 0L ? size : Math.min(recordedEnd, size);
+            this.recordCount = recordedEnd == 0L ? -1L : head.getLong(TraceFormat.RECORD_COUNT_OFFSET);
+            this.segments = new ByteBuffer[(int) ((size + this.segmentSize - 1) / this.segmentSize)];
+
+            for (int i = 0; i < this.segments.length; i++) {
+                final long offset = (long) i * this.segmentSize;
+
+                this.segments[i] = this.channel
+                        .map(FileChannel.MapMode.READ_ONLY, offset, Math.min(this.segmentSize, size - offset))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            final ByteBuffer header = this.segments[0];
+            int idx = TraceFormat.API_NAME_OFFSET;
+
+            this.apiName = getString(header, idx);
+            idx += 4 + header.getInt(idx);
+
+            final int methodCount = header.getInt(idx);
+            final List<String> sigs = new ArrayList<>(methodCount);
+
+            idx += 4;
+
+            for (int i = 0; i < methodCount; i++) {
+                sigs.add(getString(header, idx));
+                idx += 4 + header.getInt(idx);
+            }
+
+            this.signatures = Collections.unmodifiableList(sigs);
+            this.dataStart = TraceFormat.align((long) idx);
+        } catch (IOException | RuntimeException ex) {
+            this.channel.close();
+            throw ex;
+        }
+    }
+
+    private static String getString(final ByteBuffer seg, final int idx) {
+        final byte[] data = new byte[seg.getInt(idx)];
+
+        for (int i = 0; i < data.length; i++) {
+            data[i] = seg.get(idx + 4 + i);
+        }
+
+        return new String(data, TraceFormat.CHARSET);
+    }
+
+    /**
+     * Retrieves the fully qualified name of the traced interface.
+     *
+     * @return the interface name.
+     * @since 16.09.01
+     */
+    public String getApiName() {
+        return this.apiName;
+    }
+
+    /**
+     * Retrieves the method signatures indexed by method id.
+     *
+     * @return the signatures.
+     * @since 16.09.01
+     */
+    public List<String> getSignatures() {
+        return this.signatures;
+    }
+
+    /**
+     * Retrieves the number of records in the trace.
+     *
+     * @return the record count or -1 if the trace was not closed.
+     * @since 16.09.01
+     */
+    public long getRecordCount() {
+        return this.recordCount;
+    }
+
+    @Override
+    public Iterator<TraceRecord> iterator() {
+        return iterator(null);
+    }
+
+    /**
+     * Iterates the records, decoding buffer arguments into ByteBuffers
+     * acquired from a DirectBufferPool. Each record must be released with
+     * TraceRecord.release once its arguments are no longer used.
+     *
+     * @param pool the pool to acquire the decoded buffers from. If null, the
+     * buffers are allocated and do not need to be released.
+     * @return the record iterator.
+     * @since 16.09.01
+     */
+    public Iterator<TraceRecord> iterator(final DirectBufferPool pool) {
+        return new Iterator<TraceRecord>() {
+            long pos = TraceReader.this.dataStart;
+            TraceRecord next = advance();
+
+            private TraceRecord advance() {
+                while (this.pos + TraceFormat.RECORD_HEADER_SIZE <= TraceReader.this.end) {
+                    final ByteBuffer seg = TraceReader.this.segments[(int) (this.pos / TraceReader.this.segmentSize)];
+                    final int idx = (int) (this.pos % TraceReader.this.segmentSize);
+                    final int length = seg.getInt(idx);
+
+                    if (length <= 0) {
+                        return null;
+                    }
+
+                    this.pos += length;
+
+                    final int methodId = seg.getInt(idx + 4);
+
+                    if (methodId != TraceFormat.PADDING_ID) {
+                        return decode(seg, idx, methodId, pool);
+                    }
+                }
+
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.next != null;
+            }
+
+            @Override
+            public TraceRecord next() {
+                if (this.next == null) {
+                    throw new NoSuchElementException();
+                }
+
+                final TraceRecord out = this.next;
+
+                this.next = advance();
+                return out;
+            }
+        };
+    }
+
+    private TraceRecord decode(final ByteBuffer seg, final int start, final int methodId, final DirectBufferPool pool) {
+        final String signature = this.signatures.get(methodId);
+        final int paramCount = parameterCount(signature);
+        final Object[] args = new Object[paramCount];
+        final int[] idx = {start + TraceFormat.RECORD_HEADER_SIZE};
+        final List<ByteBuffer> pooled = pool == null ? null : new ArrayList<>(0);
+
+        for (int i = 0; i < paramCount; i++) {
+            args[i] = getValue(seg, idx, pool, pooled);
+        }
+
+        final boolean thrown = seg.get(idx[0]) == TraceFormat.TAG_THROWN;
+        final Object result = thrown ? null : getValue(seg, idx, pool, pooled);
+
+        return new TraceRecord(methodId, signature, seg.getLong(start + 8), args, result, thrown, pool, pooled);
+    }
+
+    private static int parameterCount(final String signature) {
+        final int open = signature.indexOf('(');
+
+        if (signature.charAt(open + 1) == ')') {
+            return 0;
+        }
+
+        int count = 1;
+
+        for (int i = open + 1; i < signature.length(); i++) {
+            if (signature.charAt(i) == ',') {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static Object getValue(final ByteBuffer seg, final int[] pos, final DirectBufferPool pool, final List<ByteBuffer> pooled) {
+        final int idx = pos[0];
+        final byte tag = seg.get(idx);
+
+        switch (tag) {
+            case TraceFormat.TAG_NULL:
+                pos[0] = idx + 1;
+                return null;
+            case TraceFormat.TAG_BOOLEAN:
+                pos[0] = idx + 2;
+                return seg.get(idx + 1) != 0;
+            case TraceFormat.TAG_BYTE:
+                pos[0] = idx + 2;
+                return seg.get(idx + 1);
+            case TraceFormat.TAG_SHORT:
+                pos[0] = idx + 3;
+                return seg.getShort(idx + 1);
+            case TraceFormat.TAG_CHAR:
+                pos[0] = idx + 3;
+                return seg.getChar(idx + 1);
+            case TraceFormat.TAG_INT:
+                pos[0] = idx + 5;
+                return seg.getInt(idx + 1);
+            case TraceFormat.TAG_FLOAT:
+                pos[0] = idx + 5;
+                return seg.getFloat(idx + 1);
+            case TraceFormat.TAG_LONG:
+                pos[0] = idx + 9;
+                return seg.getLong(idx + 1);
+            case TraceFormat.TAG_DOUBLE:
+                pos[0] = idx + 9;
+                return seg.getDouble(idx + 1);
+            case TraceFormat.TAG_STRING:
+                pos[0] = idx + 5 + seg.getInt(idx + 1);
+                return getString(seg, idx + 1);
+            case TraceFormat.TAG_HANDLE:
+                pos[0] = idx + 5;
+                return new TraceHandle(seg.getInt(idx + 1));
+            case TraceFormat.TAG_ARRAY:
+            case TraceFormat.TAG_BUFFER:
+            case TraceFormat.TAG_ARRAY_SIZE:
+            case TraceFormat.TAG_BUFFER_SIZE: {
+                final byte kind = seg.get(idx + 1);
+                final int length = seg.getInt(idx + 2);
+                final boolean sizeOnly = tag == TraceFormat.TAG_ARRAY_SIZE || tag == TraceFormat.TAG_BUFFER_SIZE;
+                final boolean array = tag == TraceFormat.TAG_ARRAY || tag == TraceFormat.TAG_ARRAY_SIZE;
+
+                pos[0] = idx + 6 + (sizeOnly ? 0 : length * TraceFormat.KIND_SIZE[kind]);
+
+                return array
+                        ? getArray(seg, idx + 6, kind, length, sizeOnly)
+                        : getBuffer(seg, idx + 6, kind, length, sizeOnly, pool, pooled);
+            }
+            default:
+                pos[0] = idx + 1;
+                return TraceRecord.OPAQUE;
+        }
+    }
+
+    private static Object getArray(final ByteBuffer seg, final int idx, final byte kind, final int length, final boolean sizeOnly) {
+        final int size = TraceFormat.KIND_SIZE[kind];
+
+        switch (kind) {
+            case TraceFormat.KIND_BYTE: {
+                final byte[] out = new byte[length];
+
+                for (int i = 0; i < length && !sizeOnly; i++) {
+                    out[i] = seg.get(idx + i);
+                }
+
+                return out;
+            }
+            case TraceFormat.KIND_SHORT: {
+                final short[] out = new short[length];
+
+                for (int i = 0; i < length && !sizeOnly; i++) {
+                    out[i] = seg.getShort(idx + i * size);
+                }
+
+                return out;
+            }
+            case TraceFormat.KIND_CHAR: {
+                final char[] out = new char[length];
+
+                for (int i = 0; i < length && !sizeOnly; i++) {
+                    out[i] = seg.getChar(idx + i * size);
+                }
+
+                return out;
+            }
+            case TraceFormat.KIND_INT: {
+                final int[] out = new int[length];
+
+                for (int i = 0; i < length && !sizeOnly; i++) {
+                    out[i] = seg.getInt(idx + i * size);
+                }
+
+                return out;
+            }
+            case TraceFormat.KIND_LONG: {
+                final long[] out = new long[length];
+
+                for (int i = 0; i < length && !sizeOnly; i++) {
+                    out[i] = seg.getLong(idx + i * size);
+                }
+
+                return out;
+            }
+            case TraceFormat.KIND_FLOAT: {
+                final float[] out = new float[length];
+
+                for (int i = 0; i < length && !sizeOnly; i++) {
+                    out[i] = seg.getFloat(idx + i * size);
+                }
+
+                return out;
+            }
+            default: {
+                final double[] out = new double[length];
+
+                for (int i = 0; i < length && !sizeOnly; i++) {
+                    out[i] = seg.getDouble(idx + i * size);
+                }
+
+                return out;
+            }
+        }
+    }
+
+    private static Object getBuffer(
+            final ByteBuffer seg, final int idx, final byte kind, final int length, final boolean sizeOnly,
+            final DirectBufferPool pool, final List<ByteBuffer> pooled) {
+
+        final int size = TraceFormat.KIND_SIZE[kind];
+        final ByteBuffer out;
+
+        if (pool == null) {
+            out = ByteBuffer.allocateDirect(length * size).order(ByteOrder.nativeOrder());
+        } else {
+            out = pool.acquire(length * size);
+            pooled.add(out);
+
+            if (sizeOnly) {
+                // pooled memory is not cleared; size-only buffers are zero-filled
+                for (int i = 0; i < length * size; i++) {
+                    out.put(i, (byte) 0);
+                }
+            }
+        }
+
+        if (!sizeOnly) {
+            if (kind == TraceFormat.KIND_BYTE) {
+                final ByteBuffer src = seg.duplicate();
+
+                src.limit(idx + length).position(idx);
+                out.put(src).flip();
+            } else {
+                for (int i = 0; i < length; i++) {
+                    final int at = idx + i * size;
+
+                    switch (kind) {
+                        case TraceFormat.KIND_SHORT:
+                            out.putShort(i * size, seg.getShort(at));
+                            break;
+                        case TraceFormat.KIND_CHAR:
+                            out.putChar(i * size, seg.getChar(at));
+                            break;
+                        case TraceFormat.KIND_INT:
+                            out.putInt(i * size, seg.getInt(at));
+                            break;
+                        case TraceFormat.KIND_LONG:
+                            out.putLong(i * size, seg.getLong(at));
+                            break;
+                        case TraceFormat.KIND_FLOAT:
+                            out.putFloat(i * size, seg.getFloat(at));
+                            break;
+                        default:
+                            out.putDouble(i * size, seg.getDouble(at));
+                    }
+                }
+            }
+        }
+
+        switch (kind) {
+            case TraceFormat.KIND_SHORT:
+                return out.asShortBuffer();
+            case TraceFormat.KIND_CHAR:
+                return out.asCharBuffer();
+            case TraceFormat.KIND_INT:
+                return out.asIntBuffer();
+            case TraceFormat.KIND_LONG:
+                return out.asLongBuffer();
+            case TraceFormat.KIND_FLOAT:
+                return out.asFloatBuffer();
+            case TraceFormat.KIND_DOUBLE:
+                return out.asDoubleBuffer();
+            default:
+                return out;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        Arrays.fill(this.segments, null);
+        this.channel.close();
+    }
+}
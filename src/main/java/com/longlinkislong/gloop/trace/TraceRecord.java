@@ -0,0 +1,103 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.trace;
+
+import com.longlinkislong.gloop.glspi.DirectBufferPool;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single decoded call from a trace. SPI objects are decoded as
+ * TraceHandles. Arrays are decoded as primitive arrays and buffers as direct
+ * buffers in native byte order. Output parameters and truncated payloads are
+ * decoded as zero-filled arrays or buffers of the recorded size. Arguments
+ * that could not be recorded are decoded as TraceRecord.OPAQUE.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class TraceRecord {
+
+    /**
+     * Placeholder for an argument that was not recorded.
+     *
+     * @since 16.09.01
+     */
+    public static final Object OPAQUE = new Object() {
+        @Override
+        public String toString() {
+            return "?";
+        }
+    };
+
+    public final int methodId;
+    public final String signature;
+    public final String name;
+    public final long timestamp;
+    public final Object[] args;
+    public final Object result;
+    public final boolean thrown;
+    private final DirectBufferPool pool;
+    private List<ByteBuffer> pooled;
+
+    TraceRecord(
+            final int methodId, final String signature, final long timestamp, final Object[] args, final Object result, final boolean thrown,
+            final DirectBufferPool pool, final List<ByteBuffer> pooled) {
+
+        this.methodId = methodId;
+        this.signature = signature;
+        this.name = signature.substring(0, signature.indexOf('('));
+        this.timestamp = timestamp;
+        this.args = args;
+        this.result = result;
+        this.thrown = thrown;
+        this.pool = pool;
+        this.pooled = pooled;
+    }
+
+    /**
+     * Returns the decoded buffers to the DirectBufferPool the record was read
+     * with. The buffer arguments must not be used afterwards. This does
+     * nothing if the record was read without a pool or was already released.
+     *
+     * @since 16.09.01
+     */
+    public void release() {
+        if (this.pooled != null) {
+            this.pooled.forEach(this.pool::release);
+            this.pooled = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        final String args = Arrays.deepToString(this.args);
+
+        return this.name + "(" + args.substring(1, args.length() - 1) + ")"
+                + (this.thrown ? " threw" : this.result == null ? "" : " = " + this.result);
+    }
+}
@@ -0,0 +1,265 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.trace;
+
+import com.longlinkislong.gloop.glspi.DirectBufferPool;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Replays a trace against a driver as fast as possible. Records are decoded
+ * in batches and only the time spent invoking the driver is measured, so the
+ * reported call rate excludes the cost of reading the trace.
+ *
+ * Handles recorded in the trace are mapped to the objects returned by the
+ * replay driver. Methods that no longer exist in the driver interface are
+ * skipped and counted.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class TraceReplayer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TraceReplayer.class);
+    private static final Marker MARKER = MarkerFactory.getMarker("gloop-spi");
+
+    /**
+     * The default number of records decoded per batch.
+     *
+     * @since 16.09.01
+     */
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    /**
+     * The outcome of a replay.
+     *
+     * @since 16.09.01
+     */
+    public static final class Result {
+
+        public final long calls;
+        public final long failedCalls;
+        public final long skippedCalls;
+        public final long elapsedNanos;
+
+        private Result(final long calls, final long failedCalls, final long skippedCalls, final long elapsedNanos) {
+            this.calls = calls;
+            this.failedCalls = failedCalls;
+            this.skippedCalls = skippedCalls;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Calculates the number of calls replayed per second.
+         *
+         * @return the call rate.
+         * @since 16.09.01
+         */
+        public double getCallsPerSecond() {
+            return this.elapsedNanos == 0L ? 0.0 : this.calls * 1e9 / this.elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Replay: %d calls in %.3f ms (%.0f calls/s), %d failed, %d skipped",
+                    this.calls, this.elapsedNanos / 1e6, getCallsPerSecond(), this.failedCalls, this.skippedCalls);
+        }
+    }
+
+    private final TraceReader reader;
+    private final int batchSize;
+
+    /**
+     * Constructs a new TraceReplayer with the default batch size.
+     *
+     * @param reader the trace.
+     * @since 16.09.01
+     */
+    public TraceReplayer(final TraceReader reader) {
+        this(reader, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a new TraceReplayer.
+     *
+     * @param reader the trace.
+     * @param batchSize the number of records decoded before each timed batch.
+     * @since 16.09.01
+     */
+    public TraceReplayer(final TraceReader reader, final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1!");
+        }
+
+        this.reader = Objects.requireNonNull(reader);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Replays the trace against the driver provided by a glspi
+     * DriverProvider.
+     *
+     * @param provider the driver provider.
+     * @return the replay result.
+     * @since 16.09.01
+     */
+    public Result replay(final com.longlinkislong.gloop.glspi.DriverProvider provider) {
+        return replay(provider.getDriverInstance());
+    }
+
+    /**
+     * Replays the trace against the driver provided by an alspi
+     * DriverProvider.
+     *
+     * @param provider the driver provider.
+     * @return the replay result.
+     * @since 16.09.01
+     */
+    public Result replay(final com.longlinkislong.gloop.alspi.DriverProvider provider) {
+        return replay(provider.getDriverInstance());
+    }
+
+    /**
+     * Replays the trace against a driver.
+     *
+     * @param driver the driver. It must implement the traced interface.
+     * @return the replay result.
+     * @throws IllegalArgumentException if the driver does not implement the
+     * traced interface.
+     * @since 16.09.01
+     */
+    public Result replay(final Object driver) {
+        final Class<?> api;
+
+        try {
+            api = Class.forName(this.reader.getApiName(), false, driver.getClass().getClassLoader());
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalArgumentException("Traced interface " + this.reader.getApiName() + " is not available!", ex);
+        }
+
+        if (!api.isInstance(driver)) {
+            throw new IllegalArgumentException("Driver does not implement " + api.getName() + "!");
+        }
+
+        final Method[] methods = resolve(api);
+        final Map<Integer, Object> handles = new HashMap<>();
+        final List<TraceRecord> batch = new ArrayList<>(this.batchSize);
+        final Iterator<TraceRecord> records = this.reader.iterator(DirectBufferPool.getDefault());
+        long calls = 0L;
+        long failed = 0L;
+        long skipped = 0L;
+        long elapsed = 0L;
+
+        while (records.hasNext()) {
+            batch.clear();
+
+            while (batch.size() < this.batchSize && records.hasNext()) {
+                final TraceRecord record = records.next();
+
+                if (methods[record.methodId] == null) {
+                    record.release();
+                    skipped++;
+                } else {
+                    batch.add(record);
+                }
+            }
+
+            final long start = System.nanoTime();
+
+            for (TraceRecord record : batch) {
+                final Method method = methods[record.methodId];
+                final Object[] args = record.args.clone();
+
+                for (int i = 0; i < args.length; i++) {
+                    if (args[i] instanceof TraceHandle) {
+                        args[i] = handles.get(((TraceHandle) args[i]).id);
+                    } else if (args[i] == TraceRecord.OPAQUE) {
+                        args[i] = null;
+                    }
+                }
+
+                try {
+                    final Object result = method.invoke(driver, args);
+
+                    if (record.result instanceof TraceHandle && result != null) {
+                        handles.put(((TraceHandle) record.result).id, result);
+                    }
+                } catch (InvocationTargetException | IllegalAccessException | IllegalArgumentException ex) {
+                    if (!record.thrown) {
+                        failed++;
+                        LOGGER.trace(MARKER, "Replay of {} failed: {}", record, ex);
+                    }
+                }
+
+                if (TraceFormat.isDelete(record.name) && record.args.length > 0 && record.args[0] instanceof TraceHandle) {
+                    handles.remove(((TraceHandle) record.args[0]).id);
+                }
+
+                calls++;
+            }
+
+            elapsed += System.nanoTime() - start;
+            batch.forEach(TraceRecord::release);
+        }
+
+        final Result result = new Result(calls, failed, skipped, elapsed);
+
+        LOGGER.debug(MARKER, "{}", result);
+
+        return result;
+    }
+
+    private Method[] resolve(final Class<?> api) {
+        final Map<String, Method> bySignature = new HashMap<>();
+
+        for (Method method : TraceFormat.methods(api)) {
+            bySignature.put(TraceFormat.signature(method), method);
+        }
+
+        final List<String> signatures = this.reader.getSignatures();
+        final Method[] out = new Method[signatures.size()];
+
+        for (int i = 0; i < out.length; i++) {
+            out[i] = bySignature.get(signatures.get(i));
+
+            if (out[i] == null) {
+                LOGGER.debug(MARKER, "Traced method {} does not exist in {}; calls will be skipped.", signatures.get(i), api.getName());
+            }
+        }
+
+        return out;
+    }
+}
@@ -0,0 +1,974 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.trace;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * An append-only binary trace file. The file is memory-mapped in fixed-size
+ * segments. Writers reserve space for a record with a compare-and-swap on the
+ * file position and then write into the mapped segment directly, so any
+ * number of threads may record calls without locking. A lock is only taken
+ * when a new segment needs to be mapped.
+ *
+ * Objects that are instances of one of the handle types are written as
+ * integer handles. A handle is assigned the first time an object is seen and
+ * is released when the object is passed as the first argument of a method
+ * whose name ends with "Delete". For getter methods (objectGetSomething, such
+ * as bufferGetData), the last buffer or primitive array parameter is an
+ * output parameter and only its size is recorded. This metadata is computed
+ * once per method when the writer is opened. Payloads that do not fit in a
+ * single segment are also reduced to their size.
+ *
+ * Closing the writer waits for calls that are being recorded to finish
+ * before the file is truncated. Calls that start after close are ignored.
+ *
+ * Calls may be recorded through record, which takes the arguments as an
+ * Object array, or, within this package, through a Cursor, which writes each
+ * value straight into the reserved record without boxing. The driver tracers
+ * use the Cursor.
+ *
+ * @author zmichaels
+ * @since 16.09.01
+ */
+public final class TraceWriter implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TraceWriter.class);
+    private static final Marker MARKER = MarkerFactory.getMarker("gloop-spi");
+
+    /**
+     * The default segment size. 64MB.
+     *
+     * @since 16.09.01
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+
+    private final Class<?> api;
+    private final Class<?>[] handleTypes;
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final TraceFormat.MethodInfo[] infos;
+    private final Map<Method, TraceFormat.MethodInfo> methodInfos;
+    private final Set<Cursor> allCursors = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Cursor> cursors = ThreadLocal.withInitial(this::newCursor);
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final AtomicLong position;
+    private final AtomicLong recordCount = new AtomicLong();
+    private final AtomicLong truncatedCount = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Object, Integer> handles = new ConcurrentHashMap<>();
+    private final AtomicInteger nextHandle = new AtomicInteger(1);
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+    private volatile boolean closed;
+
+    /**
+     * Opens a new trace file with the default segment size. Any existing file
+     * is replaced.
+     *
+     * @param path the trace file.
+     * @param api the traced interface.
+     * @param handleTypes the types that are recorded as handles.
+     * @throws IOException if the file could not be created.
+     * @since 16.09.01
+     */
+    public TraceWriter(final Path path, final Class<?> api, final Class<?>... handleTypes) throws IOException {
+        this(path, api, DEFAULT_SEGMENT_SIZE, handleTypes);
+    }
+
+    /**
+     * Opens a new trace file. Any existing file is replaced.
+     *
+     * @param path the trace file.
+     * @param api the traced interface.
+     * @param segmentSize the size of each mapped segment in bytes.
+     * @param handleTypes the types that are recorded as handles.
+     * @throws IOException if the file could not be created.
+     * @since 16.09.01
+     */
+    public TraceWriter(final Path path, final Class<?> api, final int segmentSize, final Class<?>... handleTypes) throws IOException {
+        if (!api.isInterface()) {
+            throw new IllegalArgumentException("Only interfaces may be traced!");
+        } else if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be at least " + MIN_SEGMENT_SIZE + " bytes!");
+        }
+
+        this.api = api;
+        this.handleTypes = handleTypes.clone();
+        this.segmentSize = segmentSize & ~7;
+
+        final TraceFormat.MethodInfo[] infos = TraceFormat.describe(api, this.handleTypes);
+        final Method[] methods = new Method[infos.length];
+        final Map<Method, TraceFormat.MethodInfo> byMethod = new HashMap<>();
+
+        for (TraceFormat.MethodInfo info : infos) {
+            methods[info.id] = info.method;
+            byMethod.put(info.method, info);
+        }
+
+        this.infos = infos;
+        this.methodInfos = Collections.unmodifiableMap(byMethod);
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            this.position = new AtomicLong(writeHeader(methods));
+        } catch (IOException | RuntimeException ex) {
+            this.channel.close();
+            throw ex;
+        }
+    }
+
+    private long writeHeader(final Method[] methods) throws IOException {
+        final byte[] apiName = this.api.getName().getBytes(TraceFormat.CHARSET);
+        final byte[][] signatures = new byte[methods.length][];
+        int size = TraceFormat.API_NAME_OFFSET + 4 + apiName.length + 4;
+
+        for (int i = 0; i < methods.length; i++) {
+            signatures[i] = TraceFormat.signature(methods[i]).getBytes(TraceFormat.CHARSET);
+            size += 4 + signatures[i].length;
+        }
+
+        if (size > this.segmentSize) {
+            throw new IllegalArgumentException("Trace header does not fit in a segment!");
+        }
+
+        final ByteBuffer header = segment(0);
+
+        for (int i = 0; i < TraceFormat.MAGIC.length; i++) {
+            header.put(i, TraceFormat.MAGIC[i]);
+        }
+
+        header.putInt(8, TraceFormat.VERSION);
+        header.putInt(12, this.segmentSize);
+
+        int idx = putBytes(header, TraceFormat.API_NAME_OFFSET, apiName);
+
+        header.putInt(idx, methods.length);
+        idx += 4;
+
+        for (byte[] signature : signatures) {
+            idx = putBytes(header, idx, signature);
+        }
+
+        return TraceFormat.align((long) idx);
+    }
+
+    private static int putBytes(final ByteBuffer seg, final int idx, final byte[] data) {
+        seg.putInt(idx, data.length);
+
+        for (int i = 0; i < data.length; i++) {
+            seg.put(idx + 4 + i, data[i]);
+        }
+
+        return idx + 4 + data.length;
+    }
+
+    /**
+     * Retrieves the traced interface.
+     *
+     * @return the interface.
+     * @since 16.09.01
+     */
+    public Class<?> getApi() {
+        return this.api;
+    }
+
+    /**
+     * Retrieves the number of records written.
+     *
+     * @return the record count.
+     * @since 16.09.01
+     */
+    public long getRecordCount() {
+        long count = this.recordCount.get();
+
+        for (Cursor cursor : this.allCursors) {
+            count += cursor.count;
+        }
+
+        return count;
+    }
+
+    /**
+     * Retrieves the number of payloads that were reduced to their size
+     * because the record would not fit in a segment.
+     *
+     * @return the truncated payload count.
+     * @since 16.09.01
+     */
+    public long getTruncatedPayloadCount() {
+        return this.truncatedCount.get();
+    }
+
+    /**
+     * Retrieves the number of bytes written, including the header.
+     *
+     * @return the size of the trace.
+     * @since 16.09.01
+     */
+    public long getSize() {
+        return this.position.get();
+    }
+
+    private ByteBuffer segment(final int index) throws IOException {
+        final ByteBuffer[] current = this.segments;
+
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+
+        synchronized (this) {
+            ByteBuffer[] segs = this.segments;
+
+            if (index >= segs.length) {
+                segs = Arrays.copyOf(segs, Math.max(index + 1, segs.length * 2));
+            }
+
+            if (segs[index] == null) {
+                final MappedByteBuffer mapped = this.channel.map(FileChannel.MapMode.READ_WRITE, (long) index * this.segmentSize, this.segmentSize);
+
+                segs[index] = mapped.order(ByteOrder.LITTLE_ENDIAN);
+                LOGGER.trace(MARKER, "Mapped trace segment #{}", index);
+            }
+
+            this.segments = segs;
+            return segs[index];
+        }
+    }
+
+    private long reserve(final int size) throws IOException {
+        while (true) {
+            final long pos = this.position.get();
+            final long segmentEnd = (pos / this.segmentSize + 1) * this.segmentSize;
+
+            if (pos + size <= segmentEnd) {
+                if (this.position.compareAndSet(pos, pos + size)) {
+                    return pos;
+                }
+            } else if (this.position.compareAndSet(pos, segmentEnd)) {
+                final ByteBuffer seg = segment((int) (pos / this.segmentSize));
+                final int idx = (int) (pos % this.segmentSize);
+
+                // positions are 8 byte aligned, so at least the length and id
+                // of the padding record always fit
+                seg.putInt(idx, (int) (segmentEnd - pos));
+                seg.putInt(idx + 4, TraceFormat.PADDING_ID);
+            }
+        }
+    }
+
+    /**
+     * Checks if the method can be recorded by this writer.
+     *
+     * @param method the method.
+     * @return true if the method belongs to the traced interface.
+     * @since 16.09.01
+     */
+    public boolean isTraced(final Method method) {
+        return this.methodInfos.containsKey(method);
+    }
+
+    /**
+     * Records a call. Calls to methods that do not belong to the traced
+     * interface are ignored, as are calls after the writer was closed.
+     *
+     * @param method the invoked method.
+     * @param args the arguments. May be null if the method has no parameters.
+     * @param result the return value or the thrown exception.
+     * @param thrown true if the call threw result.
+     * @param timestamp the System.nanoTime of the call.
+     * @since 16.09.01
+     */
+    public void record(final Method method, final Object[] args, final Object result, final boolean thrown, final long timestamp) {
+        final TraceFormat.MethodInfo info = this.methodInfos.get(method);
+
+        if (info != null) {
+            record(info, args, result, thrown, timestamp);
+        }
+    }
+
+    /**
+     * Records a call that threw.
+     *
+     * @param id the method id.
+     * @param args the arguments. May be null if the method has no parameters.
+     * @param thrown the thrown exception.
+     * @param timestamp the System.nanoTime of the call.
+     */
+    void recordThrown(final int id, final Object[] args, final Throwable thrown, final long timestamp) {
+        record(this.infos[id], args, thrown, true, timestamp);
+    }
+
+    private void record(final TraceFormat.MethodInfo info, final Object[] args, final Object result, final boolean thrown, final long timestamp) {
+        // close waits for inFlight to drain, so the mapped segments stay
+        // valid for every writer that saw closed == false
+        this.inFlight.incrementAndGet();
+
+        try {
+            if (!this.closed) {
+                write(info, args == null ? NO_ARGS : args, result, thrown, timestamp);
+            }
+        } finally {
+            this.inFlight.decrementAndGet();
+        }
+    }
+
+    private void write(final TraceFormat.MethodInfo info, final Object[] params, final Object result, final boolean thrown, final long timestamp) {
+        final int output = info.outputParameter;
+        final Object ret = thrown ? null : result;
+        int size = recordSize(params, output, ret, thrown, false);
+        boolean truncate = false;
+
+        if (size > this.segmentSize) {
+            truncate = true;
+            size = recordSize(params, output, ret, thrown, true);
+            this.truncatedCount.incrementAndGet();
+        }
+
+        if (size > this.segmentSize) {
+            LOGGER.warn(MARKER, "Unable to trace call to {}: record does not fit in a segment!", info.method.getName());
+            return;
+        }
+
+        try {
+            final long pos = reserve(size);
+            final ByteBuffer seg = segment((int) (pos / this.segmentSize));
+            int idx = (int) (pos % this.segmentSize);
+
+            seg.putInt(idx, size);
+            seg.putInt(idx + 4, info.id);
+            seg.putLong(idx + 8, timestamp);
+            idx += TraceFormat.RECORD_HEADER_SIZE;
+
+            for (int i = 0; i < params.length; i++) {
+                idx = put(seg, idx, params[i], i == output, truncate);
+            }
+
+            if (thrown) {
+                seg.put(idx, TraceFormat.TAG_THROWN);
+            } else {
+                put(seg, idx, ret, false, truncate);
+            }
+
+            this.recordCount.incrementAndGet();
+        } catch (IOException ex) {
+            LOGGER.error(MARKER, "Unable to write trace record: {}", ex.getMessage());
+            LOGGER.debug(MARKER, ex.getMessage(), ex);
+        }
+
+        if (info.deletesHandle && params[0] != null) {
+            this.handles.remove(params[0]);
+        }
+    }
+
+    /**
+     * Starts a record and reserves space for it. The caller must write every
+     * value in order with the returned Cursor and then finish the record
+     * with one of its end methods. If the payloads do not fit in a segment,
+     * they are reduced to their size.
+     *
+     * @param id the method id.
+     * @param size the size of every value except the payload elements. Each
+     * payload counts as PAYLOAD_HEADER_SIZE.
+     * @param payloadSize the size of the payload elements.
+     * @param timestamp the System.nanoTime of the call.
+     * @return the Cursor or null if the call is not recorded.
+     */
+    Cursor begin(final int id, final int size, final long payloadSize, final long timestamp) {
+        final Cursor cursor = this.cursors.get();
+
+        // close waits for every active cursor, so the mapped segments stay
+        // valid for every writer that saw closed == false
+        cursor.active = 1;
+
+        if (this.closed) {
+            cursor.exit();
+            return null;
+        }
+
+        final long full = TraceFormat.align(TraceFormat.RECORD_HEADER_SIZE + size + payloadSize);
+        final int reserved;
+        final boolean truncate;
+
+        if (full <= this.segmentSize) {
+            reserved = (int) full;
+            truncate = false;
+        } else {
+            reserved = TraceFormat.align(TraceFormat.RECORD_HEADER_SIZE + size);
+            truncate = true;
+
+            if (reserved > this.segmentSize) {
+                LOGGER.warn(MARKER, "Unable to trace call to {}: record does not fit in a segment!", this.infos[id].method.getName());
+                cursor.exit();
+                return null;
+            }
+
+            this.truncatedCount.incrementAndGet();
+        }
+
+        try {
+            final long pos = reserve(reserved);
+            final ByteBuffer seg = segment((int) (pos / this.segmentSize));
+            final int idx = (int) (pos % this.segmentSize);
+
+            seg.putInt(idx, reserved);
+            seg.putInt(idx + 4, id);
+            seg.putLong(idx + 8, timestamp);
+
+            return cursor.reset(seg, idx + TraceFormat.RECORD_HEADER_SIZE, idx + reserved, truncate);
+        } catch (IOException ex) {
+            LOGGER.error(MARKER, "Unable to write trace record: {}", ex.getMessage());
+            LOGGER.debug(MARKER, ex.getMessage(), ex);
+            cursor.exit();
+            return null;
+        }
+    }
+
+    private Cursor newCursor() {
+        final Cursor cursor = new Cursor(this);
+
+        this.allCursors.add(cursor);
+        return cursor;
+    }
+
+    private boolean isRecording() {
+        if (this.inFlight.get() > 0) {
+            return true;
+        }
+
+        for (Cursor cursor : this.allCursors) {
+            if (cursor.active != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes the values of a record started with begin directly into the
+     * reserved space. Each thread reuses its own Cursor, so a Cursor must not
+     * be kept after the record is finished. A Cursor also counts the records
+     * of its thread, so recording a call only needs one atomic operation to
+     * reserve its space.
+     */
+    static final class Cursor {
+
+        private static final AtomicIntegerFieldUpdater<Cursor> ACTIVE = AtomicIntegerFieldUpdater.newUpdater(Cursor.class, "active");
+        private static final AtomicLongFieldUpdater<Cursor> COUNT = AtomicLongFieldUpdater.newUpdater(Cursor.class, "count");
+
+        private final TraceWriter writer;
+        private volatile int active;
+        private volatile long count;
+        private ByteBuffer seg;
+        private int idx;
+        private int limit;
+        private boolean truncate;
+
+        private Cursor(final TraceWriter writer) {
+            this.writer = writer;
+        }
+
+        private Cursor reset(final ByteBuffer seg, final int idx, final int limit, final boolean truncate) {
+            this.seg = seg;
+            this.idx = idx;
+            this.limit = limit;
+            this.truncate = truncate;
+            return this;
+        }
+
+        Cursor putBoolean(final boolean value) {
+            this.seg.put(this.idx, TraceFormat.TAG_BOOLEAN);
+            this.seg.put(this.idx + 1, (byte) (value ? 1 : 0));
+            this.idx += TraceFormat.BOOLEAN_SIZE;
+            return this;
+        }
+
+        Cursor putInt(final int value) {
+            this.seg.put(this.idx, TraceFormat.TAG_INT);
+            this.seg.putInt(this.idx + 1, value);
+            this.idx += TraceFormat.INT_SIZE;
+            return this;
+        }
+
+        Cursor putFloat(final float value) {
+            this.seg.put(this.idx, TraceFormat.TAG_FLOAT);
+            this.seg.putFloat(this.idx + 1, value);
+            this.idx += TraceFormat.FLOAT_SIZE;
+            return this;
+        }
+
+        Cursor putLong(final long value) {
+            this.seg.put(this.idx, TraceFormat.TAG_LONG);
+            this.seg.putLong(this.idx + 1, value);
+            this.idx += TraceFormat.LONG_SIZE;
+            return this;
+        }
+
+        Cursor putDouble(final double value) {
+            this.seg.put(this.idx, TraceFormat.TAG_DOUBLE);
+            this.seg.putDouble(this.idx + 1, value);
+            this.idx += TraceFormat.DOUBLE_SIZE;
+            return this;
+        }
+
+        Cursor putHandle(final Object value) {
+            if (value == null) {
+                this.seg.put(this.idx, TraceFormat.TAG_NULL);
+                this.idx += TraceFormat.NULL_SIZE;
+            } else if (this.writer.isHandle(value)) {
+                this.seg.put(this.idx, TraceFormat.TAG_HANDLE);
+                this.seg.putInt(this.idx + 1, this.writer.handle(value));
+                this.idx += TraceFormat.HANDLE_SIZE;
+            } else {
+                this.seg.put(this.idx, TraceFormat.TAG_OPAQUE);
+                this.idx += TraceFormat.OPAQUE_SIZE;
+            }
+
+            return this;
+        }
+
+        Cursor putString(final byte[] utf8) {
+            if (utf8 == null) {
+                this.seg.put(this.idx, TraceFormat.TAG_NULL);
+                this.idx += TraceFormat.NULL_SIZE;
+            } else {
+                this.seg.put(this.idx, TraceFormat.TAG_STRING);
+                this.idx = putBytes(this.seg, this.idx + 1, utf8);
+            }
+
+            return this;
+        }
+
+        Cursor putOpaque(final Object value) {
+            this.seg.put(this.idx, value == null ? TraceFormat.TAG_NULL : TraceFormat.TAG_OPAQUE);
+            this.idx += TraceFormat.OPAQUE_SIZE;
+            return this;
+        }
+
+        Cursor putPayload(final Object value) {
+            // the buffer may have changed since the record was sized; never
+            // write past the reservation
+            final boolean sizeOnly = this.truncate
+                    || this.idx + TraceFormat.PAYLOAD_HEADER_SIZE + payloadSize(value) > this.limit;
+
+            try {
+                this.idx = this.writer.put(this.seg, this.idx, value, sizeOnly, sizeOnly);
+            } catch (RuntimeException ex) {
+                this.idx = this.writer.put(this.seg, this.idx, value, true, true);
+            }
+
+            return this;
+        }
+
+        Cursor putOutput(final Object value) {
+            this.idx = this.writer.put(this.seg, this.idx, value, true, this.truncate);
+            return this;
+        }
+
+        void end() {
+            this.seg.put(this.idx, TraceFormat.TAG_NULL);
+            finish();
+        }
+
+        void endBoolean(final boolean value) {
+            putBoolean(value);
+            finish();
+        }
+
+        void endInt(final int value) {
+            putInt(value);
+            finish();
+        }
+
+        void endFloat(final float value) {
+            putFloat(value);
+            finish();
+        }
+
+        void endLong(final long value) {
+            putLong(value);
+            finish();
+        }
+
+        void endHandle(final Object value) {
+            putHandle(value);
+            finish();
+        }
+
+        void endString(final byte[] utf8) {
+            putString(utf8);
+            finish();
+        }
+
+        void endPayload(final Object value) {
+            putPayload(value);
+            finish();
+        }
+
+        private void finish() {
+            this.seg = null;
+            // only the owning thread writes the count; ordered stores suffice
+            COUNT.lazySet(this, this.count + 1);
+            exit();
+        }
+
+        private void exit() {
+            ACTIVE.lazySet(this, 0);
+        }
+    }
+
+    /**
+     * Releases the handle of a deleted object.
+     *
+     * @param value the deleted object. May be null.
+     */
+    void releaseHandle(final Object value) {
+        if (value != null) {
+            this.handles.remove(value);
+        }
+    }
+
+    /**
+     * Encodes a string for a Cursor.
+     *
+     * @param value the string. May be null.
+     * @return the UTF-8 bytes or null.
+     */
+    static byte[] utf8(final String value) {
+        return value == null ? null : value.getBytes(TraceFormat.CHARSET);
+    }
+
+    /**
+     * Retrieves the encoded size of a string encoded with utf8.
+     *
+     * @param utf8 the UTF-8 bytes. May be null.
+     * @return the size in bytes.
+     */
+    static int sizeOf(final byte[] utf8) {
+        return utf8 == null ? TraceFormat.NULL_SIZE : TraceFormat.STRING_HEADER_SIZE + utf8.length;
+    }
+
+    /**
+     * Retrieves the size of the elements of a buffer or primitive array.
+     *
+     * @param value the buffer or array. May be null.
+     * @return the payload size in bytes, excluding PAYLOAD_HEADER_SIZE.
+     */
+    static long payloadSize(final Object value) {
+        if (value == null) {
+            return 0L;
+        }
+
+        final byte kind = kindOf(value);
+
+        return kind < 0 ? 0L : (long) lengthOf(value) * TraceFormat.KIND_SIZE[kind];
+    }
+
+    private int recordSize(final Object[] params, final int output, final Object ret, final boolean thrown, final boolean truncate) {
+        int size = TraceFormat.RECORD_HEADER_SIZE;
+
+        for (int i = 0; i < params.length; i++) {
+            size += sizeOf(params[i], i == output, truncate);
+        }
+
+        size += thrown ? 1 : sizeOf(ret, false, truncate);
+
+        return TraceFormat.align(size);
+    }
+
+    private boolean isHandle(final Object value) {
+        for (Class<?> type : this.handleTypes) {
+            if (type.isInstance(value)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private int handle(final Object value) {
+        return this.handles.computeIfAbsent(value, key -> this.nextHandle.getAndIncrement());
+    }
+
+    private int sizeOf(final Object value, final boolean output, final boolean truncate) {
+        if (value == null) {
+            return TraceFormat.NULL_SIZE;
+        } else if (value instanceof Boolean || value instanceof Byte) {
+            return TraceFormat.BOOLEAN_SIZE;
+        } else if (value instanceof Short || value instanceof Character) {
+            return 3;
+        } else if (value instanceof Integer || value instanceof Float) {
+            return TraceFormat.INT_SIZE;
+        } else if (value instanceof Long || value instanceof Double) {
+            return TraceFormat.LONG_SIZE;
+        } else if (value instanceof String) {
+            return TraceFormat.STRING_HEADER_SIZE + ((String) value).getBytes(TraceFormat.CHARSET).length;
+        } else if (value instanceof java.nio.Buffer || value.getClass().isArray()) {
+            final byte kind = kindOf(value);
+
+            if (kind < 0) {
+                return TraceFormat.OPAQUE_SIZE;
+            } else if (output || truncate) {
+                return TraceFormat.PAYLOAD_HEADER_SIZE;
+            } else {
+                return TraceFormat.PAYLOAD_HEADER_SIZE + lengthOf(value) * TraceFormat.KIND_SIZE[kind];
+            }
+        } else if (isHandle(value)) {
+            return TraceFormat.HANDLE_SIZE;
+        } else {
+            return TraceFormat.OPAQUE_SIZE;
+        }
+    }
+
+    private static byte kindOf(final Object value) {
+        if (value instanceof ByteBuffer || value instanceof byte[]) {
+            return TraceFormat.KIND_BYTE;
+        } else if (value instanceof ShortBuffer || value instanceof short[]) {
+            return TraceFormat.KIND_SHORT;
+        } else if (value instanceof CharBuffer || value instanceof char[]) {
+            return TraceFormat.KIND_CHAR;
+        } else if (value instanceof IntBuffer || value instanceof int[]) {
+            return TraceFormat.KIND_INT;
+        } else if (value instanceof LongBuffer || value instanceof long[]) {
+            return TraceFormat.KIND_LONG;
+        } else if (value instanceof FloatBuffer || value instanceof float[]) {
+            return TraceFormat.KIND_FLOAT;
+        } else if (value instanceof DoubleBuffer || value instanceof double[]) {
+            return TraceFormat.KIND_DOUBLE;
+        } else {
+            return -1;
+        }
+    }
+
+    private static int lengthOf(final Object value) {
+        return value instanceof java.nio.Buffer
+                ? ((java.nio.Buffer) value).remaining()
+                : java.lang.reflect.Array.getLength(value);
+    }
+
+    private int put(final ByteBuffer seg, final int idx, final Object value, final boolean output, final boolean truncate) {
+        if (value == null) {
+            seg.put(idx, TraceFormat.TAG_NULL);
+            return idx + 1;
+        } else if (value instanceof Boolean) {
+            seg.put(idx, TraceFormat.TAG_BOOLEAN);
+            seg.put(idx + 1, (byte) ((Boolean) value ? 1 : 0));
+            return idx + 2;
+        } else if (value instanceof Byte) {
+            seg.put(idx, TraceFormat.TAG_BYTE);
+            seg.put(idx + 1, (Byte) value);
+            return idx + 2;
+        } else if (value instanceof Short) {
+            seg.put(idx, TraceFormat.TAG_SHORT);
+            seg.putShort(idx + 1, (Short) value);
+            return idx + 3;
+        } else if (value instanceof Character) {
+            seg.put(idx, TraceFormat.TAG_CHAR);
+            seg.putChar(idx + 1, (Character) value);
+            return idx + 3;
+        } else if (value instanceof Integer) {
+            seg.put(idx, TraceFormat.TAG_INT);
+            seg.putInt(idx + 1, (Integer) value);
+            return idx + 5;
+        } else if (value instanceof Float) {
+            seg.put(idx, TraceFormat.TAG_FLOAT);
+            seg.putFloat(idx + 1, (Float) value);
+            return idx + 5;
+        } else if (value instanceof Long) {
+            seg.put(idx, TraceFormat.TAG_LONG);
+            seg.putLong(idx + 1, (Long) value);
+            return idx + 9;
+        } else if (value instanceof Double) {
+            seg.put(idx, TraceFormat.TAG_DOUBLE);
+            seg.putDouble(idx + 1, (Double) value);
+            return idx + 9;
+        } else if (value instanceof String) {
+            seg.put(idx, TraceFormat.TAG_STRING);
+            return putBytes(seg, idx + 1, ((String) value).getBytes(TraceFormat.CHARSET));
+        } else if (value instanceof java.nio.Buffer || value.getClass().isArray()) {
+            final byte kind = kindOf(value);
+
+            if (kind < 0) {
+                seg.put(idx, TraceFormat.TAG_OPAQUE);
+                return idx + 1;
+            }
+
+            final int length = lengthOf(value);
+            final boolean buffer = value instanceof java.nio.Buffer;
+
+            seg.put(idx + 1, kind);
+            seg.putInt(idx + 2, length);
+
+            if (output || truncate) {
+                seg.put(idx, buffer ? TraceFormat.TAG_BUFFER_SIZE : TraceFormat.TAG_ARRAY_SIZE);
+                return idx + 6;
+            }
+
+            seg.put(idx, buffer ? TraceFormat.TAG_BUFFER : TraceFormat.TAG_ARRAY);
+
+            return putPayload(seg, idx + 6, value, kind, length);
+        } else if (isHandle(value)) {
+            seg.put(idx, TraceFormat.TAG_HANDLE);
+            seg.putInt(idx + 1, handle(value));
+            return idx + 5;
+        } else {
+            seg.put(idx, TraceFormat.TAG_OPAQUE);
+            return idx + 1;
+        }
+    }
+
+    private static int putPayload(final ByteBuffer seg, final int idx, final Object value, final byte kind, final int length) {
+        if (value instanceof ByteBuffer) {
+            final ByteBuffer dst = seg.duplicate();
+
+            dst.position(idx);
+            dst.put(((ByteBuffer) value).duplicate());
+        } else if (value instanceof byte[]) {
+            final ByteBuffer dst = seg.duplicate();
+
+            dst.position(idx);
+            dst.put((byte[]) value);
+        } else {
+            final int size = TraceFormat.KIND_SIZE[kind];
+            final int pos = value instanceof java.nio.Buffer ? ((java.nio.Buffer) value).position() : 0;
+
+            for (int i = 0; i < length; i++) {
+                final int at = idx + i * size;
+
+                switch (kind) {
+                    case TraceFormat.KIND_SHORT:
+                        seg.putShort(at, value instanceof short[] ? ((short[]) value)[i] : ((ShortBuffer) value).get(pos + i));
+                        break;
+                    case TraceFormat.KIND_CHAR:
+                        seg.putChar(at, value instanceof char[] ? ((char[]) value)[i] : ((CharBuffer) value).get(pos + i));
+                        break;
+                    case TraceFormat.KIND_INT:
+                        seg.putInt(at, value instanceof int[] ? ((int[]) value)[i] : ((IntBuffer) value).get(pos + i));
+                        break;
+                    case TraceFormat.KIND_LONG:
+                        seg.putLong(at, value instanceof long[] ? ((long[]) value)[i] : ((LongBuffer) value).get(pos + i));
+                        break;
+                    case TraceFormat.KIND_FLOAT:
+                        seg.putFloat(at, value instanceof float[] ? ((float[]) value)[i] : ((FloatBuffer) value).get(pos + i));
+                        break;
+                    default:
+                        seg.putDouble(at, value instanceof double[] ? ((double[]) value)[i] : ((DoubleBuffer) value).get(pos + i));
+                }
+            }
+        }
+
+        return idx + length * TraceFormat.KIND_SIZE[kind];
+    }
+
+    /**
+     * Closes the trace. Calls that are being recorded are allowed to finish;
+     * calls that start after close are not recorded. The record count and end
+     * position are then written to the header and the file is truncated to
+     * the end of the last record.
+     *
+     * @throws IOException if the trace could not be finalized.
+     * @since 16.09.01
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+
+        while (isRecording()) {
+            Thread.yield();
+        }
+
+        final long end = this.position.get();
+        final long count = getRecordCount();
+        final ByteBuffer header = segment(0);
+
+        header.putLong(TraceFormat.END_POSITION_OFFSET, end);
+        header.putLong(TraceFormat.RECORD_COUNT_OFFSET, count);
+
+        for (ByteBuffer seg : this.segments) {
+            if (seg != null) {
+                ((MappedByteBuffer) seg).force();
+            }
+        }
+
+        try {
+            this.channel.truncate(end);
+        } catch (IOException ex) {
+            LOGGER.debug(MARKER, "Unable to truncate trace: {}", ex.getMessage());
+        }
+
+        this.channel.close();
+        this.handles.clear();
+
+        LOGGER.debug(MARKER, "Closed trace: {} records, {} bytes", count, end);
+    }
+
+    @Override
+    public String toString() {
+        return "TraceWriter: [api=" + this.api.getName() + " records=" + getRecordCount() + "]";
+    }
+
+    void checkApi(final Class<?> expected) {
+        if (!this.api.equals(expected)) {
+            throw new IllegalArgumentException("TraceWriter traces " + this.api.getName() + " not " + expected.getName() + "!");
+        }
+    }
+}
@@ -0,0 +1,1111 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.trace;
+
+import com.longlinkislong.gloop.alspi.AuxiliaryEffectSlot;
+import com.longlinkislong.gloop.alspi.Buffer;
+import com.longlinkislong.gloop.alspi.Device;
+import com.longlinkislong.gloop.alspi.Driver;
+import com.longlinkislong.gloop.alspi.Effect;
+import com.longlinkislong.gloop.alspi.Filter;
+import com.longlinkislong.gloop.alspi.Listener;
+import com.longlinkislong.gloop.alspi.Source;
+import java.nio.ByteBuffer;
+
+/**
+ * A alspi Driver that forwards every call to another driver and records it
+ * with a TraceWriter. Arguments and return values are written straight into
+ * the reserved record through a TraceWriter.Cursor, so recording a call does
+ * not box primitives or allocate an argument array. Only calls that throw
+ * are recorded through the boxing path.
+ *
+ * Every method of the interface is overridden, including the default
+ * methods, and the method ids are checked against the interface when the
+ * class is initialized.
+ *
+ * @author zmichaels
+ * @param <DeviceT> the SPI device implementation.
+ * @param <BufferT> the SPI buffer implementation.
+ * @param <ListenerT> the SPI listener implementation.
+ * @param <SourceT> the SPI source implementation.
+ * @param <AuxEffectSlotT> the SPI auxiliary effect slot implementation.
+ * @param <EffectT> the SPI effect implementation.
+ * @param <FilterT> the SPI filter implementation.
+ * @since 16.09.01
+ */
+final class TracingALDriver<
+        DeviceT extends Device, BufferT extends Buffer, ListenerT extends Listener, SourceT extends Source, AuxEffectSlotT extends AuxiliaryEffectSlot, EffectT extends Effect, FilterT extends Filter>
+        implements Driver<DeviceT, BufferT, ListenerT, SourceT, AuxEffectSlotT, EffectT, FilterT> {
+
+    private static final String[] SIGNATURES = {
+        "auxiliaryEffectSlotAttachEffect(com.longlinkislong.gloop.alspi.AuxiliaryEffectSlot,com.longlinkislong.gloop.alspi.Effect)",
+        "auxiliaryEffectSlotCreate()",
+        "auxiliaryEffectSlotDelete(com.longlinkislong.gloop.alspi.AuxiliaryEffectSlot)",
+        "bufferCreate()",
+        "bufferDelete(com.longlinkislong.gloop.alspi.Buffer)",
+        "bufferSetData(com.longlinkislong.gloop.alspi.Buffer,int,[F,int)",
+        "bufferSetData(com.longlinkislong.gloop.alspi.Buffer,int,[I,int)",
+        "bufferSetData(com.longlinkislong.gloop.alspi.Buffer,int,[S,int)",
+        "bufferSetData(com.longlinkislong.gloop.alspi.Buffer,int,java.nio.ByteBuffer,int)",
+        "deviceCreate()",
+        "deviceDelete(com.longlinkislong.gloop.alspi.Device)",
+        "distanceModelApply(int)",
+        "effectCreate(int)",
+        "effectDelete(com.longlinkislong.gloop.alspi.Effect)",
+        "effectSetProperty(com.longlinkislong.gloop.alspi.Effect,int,float)",
+        "effectSetProperty(com.longlinkislong.gloop.alspi.Effect,int,int)",
+        "filterCreate(int)",
+        "filterDelete(com.longlinkislong.gloop.alspi.Filter)",
+        "filterSetProperty(com.longlinkislong.gloop.alspi.Filter,int,float)",
+        "filterSetProperty(com.longlinkislong.gloop.alspi.Filter,int,int)",
+        "listenerGetInstance()",
+        "listenerSetGain(com.longlinkislong.gloop.alspi.Listener,float)",
+        "listenerSetOrientation(com.longlinkislong.gloop.alspi.Listener,float,float,float,float,float,float)",
+        "listenerSetPosition(com.longlinkislong.gloop.alspi.Listener,float,float,float)",
+        "listenerSetVelocity(com.longlinkislong.gloop.alspi.Listener,float,float,float)",
+        "sourceAttachDirectFilter(com.longlinkislong.gloop.alspi.Source,com.longlinkislong.gloop.alspi.Filter)",
+        "sourceCreate()",
+        "sourceDelete(com.longlinkislong.gloop.alspi.Source)",
+        "sourceDequeueBuffer(com.longlinkislong.gloop.alspi.Source)",
+        "sourceEnqueueBuffer(com.longlinkislong.gloop.alspi.Source,com.longlinkislong.gloop.alspi.Buffer)",
+        "sourceGetBuffersProcessed(com.longlinkislong.gloop.alspi.Source)",
+        "sourceGetBuffersQueued(com.longlinkislong.gloop.alspi.Source)",
+        "sourceGetMaxAuxiliaryEffectSlotSends()",
+        "sourceGetState(com.longlinkislong.gloop.alspi.Source)",
+        "sourcePlay(com.longlinkislong.gloop.alspi.Source)",
+        "sourceRemoveDirectFilter(com.longlinkislong.gloop.alspi.Source)",
+        "sourceSendAuxiliaryEffectSlot(com.longlinkislong.gloop.alspi.Source,com.longlinkislong.gloop.alspi.AuxiliaryEffectSlot,int)",
+        "sourceSendAuxiliaryEffectSlot(com.longlinkislong.gloop.alspi.Source,com.longlinkislong.gloop.alspi.AuxiliaryEffectSlot,int,com.longlinkislong.gloop.alspi.Filter)",
+        "sourceSendDisable(com.longlinkislong.gloop.alspi.Source,int)",
+        "sourceSetBuffer(com.longlinkislong.gloop.alspi.Source,com.longlinkislong.gloop.alspi.Buffer)",
+        "sourceSetCone(com.longlinkislong.gloop.alspi.Source,float,float,float)",
+        "sourceSetDirection(com.longlinkislong.gloop.alspi.Source,float,float,float)",
+        "sourceSetDistance(com.longlinkislong.gloop.alspi.Source,float,float,float)",
+        "sourceSetGain(com.longlinkislong.gloop.alspi.Source,float)",
+        "sourceSetLooping(com.longlinkislong.gloop.alspi.Source,boolean)",
+        "sourceSetPitch(com.longlinkislong.gloop.alspi.Source,float)",
+        "sourceSetPosition(com.longlinkislong.gloop.alspi.Source,float,float,float)",
+        "sourceSetVelocity(com.longlinkislong.gloop.alspi.Source,float,float,float)"
+    };
+
+    private static final int AUXILIARY_EFFECT_SLOT_ATTACH_EFFECT = 0;
+    private static final int AUXILIARY_EFFECT_SLOT_CREATE = 1;
+    private static final int AUXILIARY_EFFECT_SLOT_DELETE = 2;
+    private static final int BUFFER_CREATE = 3;
+    private static final int BUFFER_DELETE = 4;
+    private static final int BUFFER_SET_DATA_FLOAT_ARRAY = 5;
+    private static final int BUFFER_SET_DATA_INT_ARRAY = 6;
+    private static final int BUFFER_SET_DATA_SHORT_ARRAY = 7;
+    private static final int BUFFER_SET_DATA_BYTE_BUFFER = 8;
+    private static final int DEVICE_CREATE = 9;
+    private static final int DEVICE_DELETE = 10;
+    private static final int DISTANCE_MODEL_APPLY = 11;
+    private static final int EFFECT_CREATE = 12;
+    private static final int EFFECT_DELETE = 13;
+    private static final int EFFECT_SET_PROPERTY_FLOAT = 14;
+    private static final int EFFECT_SET_PROPERTY_INT = 15;
+    private static final int FILTER_CREATE = 16;
+    private static final int FILTER_DELETE = 17;
+    private static final int FILTER_SET_PROPERTY_FLOAT = 18;
+    private static final int FILTER_SET_PROPERTY_INT = 19;
+    private static final int LISTENER_GET_INSTANCE = 20;
+    private static final int LISTENER_SET_GAIN = 21;
+    private static final int LISTENER_SET_ORIENTATION = 22;
+    private static final int LISTENER_SET_POSITION = 23;
+    private static final int LISTENER_SET_VELOCITY = 24;
+    private static final int SOURCE_ATTACH_DIRECT_FILTER = 25;
+    private static final int SOURCE_CREATE = 26;
+    private static final int SOURCE_DELETE = 27;
+    private static final int SOURCE_DEQUEUE_BUFFER = 28;
+    private static final int SOURCE_ENQUEUE_BUFFER = 29;
+    private static final int SOURCE_GET_BUFFERS_PROCESSED = 30;
+    private static final int SOURCE_GET_BUFFERS_QUEUED = 31;
+    private static final int SOURCE_GET_MAX_AUXILIARY_EFFECT_SLOT_SENDS = 32;
+    private static final int SOURCE_GET_STATE = 33;
+    private static final int SOURCE_PLAY = 34;
+    private static final int SOURCE_REMOVE_DIRECT_FILTER = 35;
+    private static final int SOURCE_SEND_AUXILIARY_EFFECT_SLOT_3 = 36;
+    private static final int SOURCE_SEND_AUXILIARY_EFFECT_SLOT_4 = 37;
+    private static final int SOURCE_SEND_DISABLE = 38;
+    private static final int SOURCE_SET_BUFFER = 39;
+    private static final int SOURCE_SET_CONE = 40;
+    private static final int SOURCE_SET_DIRECTION = 41;
+    private static final int SOURCE_SET_DISTANCE = 42;
+    private static final int SOURCE_SET_GAIN = 43;
+    private static final int SOURCE_SET_LOOPING = 44;
+    private static final int SOURCE_SET_PITCH = 45;
+    private static final int SOURCE_SET_POSITION = 46;
+    private static final int SOURCE_SET_VELOCITY = 47;
+
+    private static final int VOID = TraceFormat.NULL_SIZE;
+    private static final int BOOLEAN = TraceFormat.BOOLEAN_SIZE;
+    private static final int INT = TraceFormat.INT_SIZE;
+    private static final int FLOAT = TraceFormat.FLOAT_SIZE;
+    private static final int HANDLE = TraceFormat.HANDLE_SIZE;
+    private static final int PAYLOAD = TraceFormat.PAYLOAD_HEADER_SIZE;
+
+    static {
+        TraceFormat.checkSignatures(Driver.class, SIGNATURES);
+    }
+
+    private final Driver<DeviceT, BufferT, ListenerT, SourceT, AuxEffectSlotT, EffectT, FilterT> delegate;
+    private final TraceWriter writer;
+
+    TracingALDriver(final Driver<DeviceT, BufferT, ListenerT, SourceT, AuxEffectSlotT, EffectT, FilterT> delegate, final TraceWriter writer) {
+        this.delegate = delegate;
+        this.writer = writer;
+    }
+
+    @Override
+    public void auxiliaryEffectSlotAttachEffect(final AuxEffectSlotT slot, final EffectT effect) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.auxiliaryEffectSlotAttachEffect(slot, effect);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(AUXILIARY_EFFECT_SLOT_ATTACH_EFFECT, new Object[]{slot, effect}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(AUXILIARY_EFFECT_SLOT_ATTACH_EFFECT, 2 * HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(slot).putHandle(effect).end();
+        }
+    }
+
+    @Override
+    public AuxEffectSlotT auxiliaryEffectSlotCreate() {
+        final long timestamp = System.nanoTime();
+        final AuxEffectSlotT result;
+
+        try {
+            result = this.delegate.auxiliaryEffectSlotCreate();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(AUXILIARY_EFFECT_SLOT_CREATE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(AUXILIARY_EFFECT_SLOT_CREATE, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void auxiliaryEffectSlotDelete(final AuxEffectSlotT slot) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.auxiliaryEffectSlotDelete(slot);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(AUXILIARY_EFFECT_SLOT_DELETE, new Object[]{slot}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(AUXILIARY_EFFECT_SLOT_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(slot).end();
+            this.writer.releaseHandle(slot);
+        }
+    }
+
+    @Override
+    public BufferT bufferCreate() {
+        final long timestamp = System.nanoTime();
+        final BufferT result;
+
+        try {
+            result = this.delegate.bufferCreate();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_CREATE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_CREATE, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void bufferDelete(final BufferT buffer) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferDelete(buffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_DELETE, new Object[]{buffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).end();
+            this.writer.releaseHandle(buffer);
+        }
+    }
+
+    @Override
+    public void bufferSetData(final BufferT buffer, final int format, final float[] data, final int frequency) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferSetData(buffer, format, data, frequency);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_SET_DATA_FLOAT_ARRAY, new Object[]{buffer, format, data, frequency}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                BUFFER_SET_DATA_FLOAT_ARRAY, HANDLE + 2 * INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(data), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(format).putPayload(data).putInt(frequency).end();
+        }
+    }
+
+    @Override
+    public void bufferSetData(final BufferT buffer, final int format, final int[] data, final int frequency) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferSetData(buffer, format, data, frequency);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_SET_DATA_INT_ARRAY, new Object[]{buffer, format, data, frequency}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                BUFFER_SET_DATA_INT_ARRAY, HANDLE + 2 * INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(data), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(format).putPayload(data).putInt(frequency).end();
+        }
+    }
+
+    @Override
+    public void bufferSetData(final BufferT buffer, final int format, final short[] data, final int frequency) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferSetData(buffer, format, data, frequency);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_SET_DATA_SHORT_ARRAY, new Object[]{buffer, format, data, frequency}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                BUFFER_SET_DATA_SHORT_ARRAY, HANDLE + 2 * INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(data), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(format).putPayload(data).putInt(frequency).end();
+        }
+    }
+
+    @Override
+    public void bufferSetData(final BufferT buffer, final int format, final ByteBuffer data, final int frequency) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferSetData(buffer, format, data, frequency);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_SET_DATA_BYTE_BUFFER, new Object[]{buffer, format, data, frequency}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                BUFFER_SET_DATA_BYTE_BUFFER, HANDLE + 2 * INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(data), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(format).putPayload(data).putInt(frequency).end();
+        }
+    }
+
+    @Override
+    public DeviceT deviceCreate() {
+        final long timestamp = System.nanoTime();
+        final DeviceT result;
+
+        try {
+            result = this.delegate.deviceCreate();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(DEVICE_CREATE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(DEVICE_CREATE, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void deviceDelete(final DeviceT device) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.deviceDelete(device);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(DEVICE_DELETE, new Object[]{device}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(DEVICE_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(device).end();
+            this.writer.releaseHandle(device);
+        }
+    }
+
+    @Override
+    public void distanceModelApply(final int model) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.distanceModelApply(model);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(DISTANCE_MODEL_APPLY, new Object[]{model}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(DISTANCE_MODEL_APPLY, INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(model).end();
+        }
+    }
+
+    @Override
+    public EffectT effectCreate(final int effectType) {
+        final long timestamp = System.nanoTime();
+        final EffectT result;
+
+        try {
+            result = this.delegate.effectCreate(effectType);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(EFFECT_CREATE, new Object[]{effectType}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(EFFECT_CREATE, INT + HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(effectType).endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void effectDelete(final EffectT effect) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.effectDelete(effect);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(EFFECT_DELETE, new Object[]{effect}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(EFFECT_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(effect).end();
+            this.writer.releaseHandle(effect);
+        }
+    }
+
+    @Override
+    public void effectSetProperty(final EffectT effect, final int name, final float value) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.effectSetProperty(effect, name, value);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(EFFECT_SET_PROPERTY_FLOAT, new Object[]{effect, name, value}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(EFFECT_SET_PROPERTY_FLOAT, HANDLE + INT + FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(effect).putInt(name).putFloat(value).end();
+        }
+    }
+
+    @Override
+    public void effectSetProperty(final EffectT effect, final int name, final int value) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.effectSetProperty(effect, name, value);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(EFFECT_SET_PROPERTY_INT, new Object[]{effect, name, value}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(EFFECT_SET_PROPERTY_INT, HANDLE + 2 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(effect).putInt(name).putInt(value).end();
+        }
+    }
+
+    @Override
+    public FilterT filterCreate(final int filterType) {
+        final long timestamp = System.nanoTime();
+        final FilterT result;
+
+        try {
+            result = this.delegate.filterCreate(filterType);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FILTER_CREATE, new Object[]{filterType}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FILTER_CREATE, INT + HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(filterType).endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void filterDelete(final FilterT filter) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.filterDelete(filter);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FILTER_DELETE, new Object[]{filter}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FILTER_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(filter).end();
+            this.writer.releaseHandle(filter);
+        }
+    }
+
+    @Override
+    public void filterSetProperty(final FilterT filter, final int name, final float value) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.filterSetProperty(filter, name, value);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FILTER_SET_PROPERTY_FLOAT, new Object[]{filter, name, value}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FILTER_SET_PROPERTY_FLOAT, HANDLE + INT + FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(filter).putInt(name).putFloat(value).end();
+        }
+    }
+
+    @Override
+    public void filterSetProperty(final FilterT filter, final int name, final int value) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.filterSetProperty(filter, name, value);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FILTER_SET_PROPERTY_INT, new Object[]{filter, name, value}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FILTER_SET_PROPERTY_INT, HANDLE + 2 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(filter).putInt(name).putInt(value).end();
+        }
+    }
+
+    @Override
+    public ListenerT listenerGetInstance() {
+        final long timestamp = System.nanoTime();
+        final ListenerT result;
+
+        try {
+            result = this.delegate.listenerGetInstance();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(LISTENER_GET_INSTANCE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(LISTENER_GET_INSTANCE, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void listenerSetGain(final ListenerT listener, final float gain) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.listenerSetGain(listener, gain);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(LISTENER_SET_GAIN, new Object[]{listener, gain}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(LISTENER_SET_GAIN, HANDLE + FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(listener).putFloat(gain).end();
+        }
+    }
+
+    @Override
+    public void listenerSetOrientation(final ListenerT listener, final float atX, final float atY, final float atZ, final float upX, final float upY, final float upZ) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.listenerSetOrientation(listener, atX, atY, atZ, upX, upY, upZ);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(LISTENER_SET_ORIENTATION, new Object[]{listener, atX, atY, atZ, upX, upY, upZ}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(LISTENER_SET_ORIENTATION, HANDLE + 6 * FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(listener)
+                    .putFloat(atX)
+                    .putFloat(atY)
+                    .putFloat(atZ)
+                    .putFloat(upX)
+                    .putFloat(upY)
+                    .putFloat(upZ)
+                    .end();
+        }
+    }
+
+    @Override
+    public void listenerSetPosition(final ListenerT listener, final float x, final float y, final float z) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.listenerSetPosition(listener, x, y, z);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(LISTENER_SET_POSITION, new Object[]{listener, x, y, z}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(LISTENER_SET_POSITION, HANDLE + 3 * FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(listener).putFloat(x).putFloat(y).putFloat(z).end();
+        }
+    }
+
+    @Override
+    public void listenerSetVelocity(final ListenerT listener, final float x, final float y, final float z) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.listenerSetVelocity(listener, x, y, z);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(LISTENER_SET_VELOCITY, new Object[]{listener, x, y, z}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(LISTENER_SET_VELOCITY, HANDLE + 3 * FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(listener).putFloat(x).putFloat(y).putFloat(z).end();
+        }
+    }
+
+    @Override
+    public void sourceAttachDirectFilter(final SourceT source, final FilterT filter) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceAttachDirectFilter(source, filter);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_ATTACH_DIRECT_FILTER, new Object[]{source, filter}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_ATTACH_DIRECT_FILTER, 2 * HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putHandle(filter).end();
+        }
+    }
+
+    @Override
+    public SourceT sourceCreate() {
+        final long timestamp = System.nanoTime();
+        final SourceT result;
+
+        try {
+            result = this.delegate.sourceCreate();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_CREATE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_CREATE, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void sourceDelete(final SourceT source) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceDelete(source);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_DELETE, new Object[]{source}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).end();
+            this.writer.releaseHandle(source);
+        }
+    }
+
+    @Override
+    public BufferT sourceDequeueBuffer(final SourceT source) {
+        final long timestamp = System.nanoTime();
+        final BufferT result;
+
+        try {
+            result = this.delegate.sourceDequeueBuffer(source);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_DEQUEUE_BUFFER, new Object[]{source}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_DEQUEUE_BUFFER, 2 * HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void sourceEnqueueBuffer(final SourceT source, final BufferT buffer) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceEnqueueBuffer(source, buffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_ENQUEUE_BUFFER, new Object[]{source, buffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_ENQUEUE_BUFFER, 2 * HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putHandle(buffer).end();
+        }
+    }
+
+    @Override
+    public int sourceGetBuffersProcessed(final SourceT source) {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.sourceGetBuffersProcessed(source);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_GET_BUFFERS_PROCESSED, new Object[]{source}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_GET_BUFFERS_PROCESSED, HANDLE + INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int sourceGetBuffersQueued(final SourceT source) {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.sourceGetBuffersQueued(source);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_GET_BUFFERS_QUEUED, new Object[]{source}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_GET_BUFFERS_QUEUED, HANDLE + INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int sourceGetMaxAuxiliaryEffectSlotSends() {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.sourceGetMaxAuxiliaryEffectSlotSends();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_GET_MAX_AUXILIARY_EFFECT_SLOT_SENDS, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_GET_MAX_AUXILIARY_EFFECT_SLOT_SENDS, INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int sourceGetState(final SourceT source) {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.sourceGetState(source);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_GET_STATE, new Object[]{source}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_GET_STATE, HANDLE + INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void sourcePlay(final SourceT source) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourcePlay(source);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_PLAY, new Object[]{source}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_PLAY, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).end();
+        }
+    }
+
+    @Override
+    public void sourceRemoveDirectFilter(final SourceT source) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceRemoveDirectFilter(source);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_REMOVE_DIRECT_FILTER, new Object[]{source}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_REMOVE_DIRECT_FILTER, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).end();
+        }
+    }
+
+    @Override
+    public void sourceSendAuxiliaryEffectSlot(final SourceT source, final AuxEffectSlotT slot, final int send) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceSendAuxiliaryEffectSlot(source, slot, send);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_SEND_AUXILIARY_EFFECT_SLOT_3, new Object[]{source, slot, send}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_SEND_AUXILIARY_EFFECT_SLOT_3, 2 * HANDLE + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putHandle(slot).putInt(send).end();
+        }
+    }
+
+    @Override
+    public void sourceSendAuxiliaryEffectSlot(final SourceT source, final AuxEffectSlotT slot, final int send, final FilterT filter) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceSendAuxiliaryEffectSlot(source, slot, send, filter);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_SEND_AUXILIARY_EFFECT_SLOT_4, new Object[]{source, slot, send, filter}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_SEND_AUXILIARY_EFFECT_SLOT_4, 3 * HANDLE + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putHandle(slot).putInt(send).putHandle(filter).end();
+        }
+    }
+
+    @Override
+    public void sourceSendDisable(final SourceT source, final int send) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceSendDisable(source, send);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_SEND_DISABLE, new Object[]{source, send}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_SEND_DISABLE, HANDLE + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putInt(send).end();
+        }
+    }
+
+    @Override
+    public void sourceSetBuffer(final SourceT source, final BufferT buffer) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceSetBuffer(source, buffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_SET_BUFFER, new Object[]{source, buffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_SET_BUFFER, 2 * HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putHandle(buffer).end();
+        }
+    }
+
+    @Override
+    public void sourceSetCone(final SourceT source, final float innerAngle, final float outerAngle, final float outerGain) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceSetCone(source, innerAngle, outerAngle, outerGain);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_SET_CONE, new Object[]{source, innerAngle, outerAngle, outerGain}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_SET_CONE, HANDLE + 3 * FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source)
+                    .putFloat(innerAngle)
+                    .putFloat(outerAngle)
+                    .putFloat(outerGain)
+                    .end();
+        }
+    }
+
+    @Override
+    public void sourceSetDirection(final SourceT source, final float x, final float y, final float z) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceSetDirection(source, x, y, z);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_SET_DIRECTION, new Object[]{source, x, y, z}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_SET_DIRECTION, HANDLE + 3 * FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putFloat(x).putFloat(y).putFloat(z).end();
+        }
+    }
+
+    @Override
+    public void sourceSetDistance(final SourceT source, final float relative, final float rolloff, final float max) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceSetDistance(source, relative, rolloff, max);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_SET_DISTANCE, new Object[]{source, relative, rolloff, max}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_SET_DISTANCE, HANDLE + 3 * FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putFloat(relative).putFloat(rolloff).putFloat(max).end();
+        }
+    }
+
+    @Override
+    public void sourceSetGain(final SourceT source, final float gain) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceSetGain(source, gain);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_SET_GAIN, new Object[]{source, gain}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_SET_GAIN, HANDLE + FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putFloat(gain).end();
+        }
+    }
+
+    @Override
+    public void sourceSetLooping(final SourceT source, final boolean shouldLoop) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceSetLooping(source, shouldLoop);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_SET_LOOPING, new Object[]{source, shouldLoop}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_SET_LOOPING, HANDLE + BOOLEAN + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putBoolean(shouldLoop).end();
+        }
+    }
+
+    @Override
+    public void sourceSetPitch(final SourceT source, final float pitch) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceSetPitch(source, pitch);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_SET_PITCH, new Object[]{source, pitch}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_SET_PITCH, HANDLE + FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putFloat(pitch).end();
+        }
+    }
+
+    @Override
+    public void sourceSetPosition(final SourceT source, final float x, final float y, final float z) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceSetPosition(source, x, y, z);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_SET_POSITION, new Object[]{source, x, y, z}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_SET_POSITION, HANDLE + 3 * FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putFloat(x).putFloat(y).putFloat(z).end();
+        }
+    }
+
+    @Override
+    public void sourceSetVelocity(final SourceT source, final float x, final float y, final float z) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.sourceSetVelocity(source, x, y, z);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SOURCE_SET_VELOCITY, new Object[]{source, x, y, z}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SOURCE_SET_VELOCITY, HANDLE + 3 * FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(source).putFloat(x).putFloat(y).putFloat(z).end();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TracingALDriver: [" + this.delegate + "]";
+    }
+}
@@ -0,0 +1,3116 @@
+/* 
+ * Copyright (c) 2016, longlinkislong.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.longlinkislong.gloop.trace;
+
+import com.longlinkislong.gloop.glspi.Buffer;
+import com.longlinkislong.gloop.glspi.Driver;
+import com.longlinkislong.gloop.glspi.Fence;
+import com.longlinkislong.gloop.glspi.Framebuffer;
+import com.longlinkislong.gloop.glspi.Program;
+import com.longlinkislong.gloop.glspi.Query;
+import com.longlinkislong.gloop.glspi.Renderbuffer;
+import com.longlinkislong.gloop.glspi.Sampler;
+import com.longlinkislong.gloop.glspi.Shader;
+import com.longlinkislong.gloop.glspi.Texture;
+import com.longlinkislong.gloop.glspi.Tweaks;
+import com.longlinkislong.gloop.glspi.VertexArray;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A glspi Driver that forwards every call to another driver and records it
+ * with a TraceWriter. Arguments and return values are written straight into
+ * the reserved record through a TraceWriter.Cursor, so recording a call does
+ * not box primitives or allocate an argument array. Only calls that throw
+ * are recorded through the boxing path.
+ *
+ * Every method of the interface is overridden, including the default
+ * methods, and the method ids are checked against the interface when the
+ * class is initialized.
+ *
+ * @author zmichaels
+ * @param <BufferT> the SPI buffer implementation.
+ * @param <FramebufferT> the SPI framebuffer implementation.
+ * @param <RenderbufferT> the SPI renderbuffer implementation.
+ * @param <TextureT> the SPI texture implementation.
+ * @param <ShaderT> the SPI shader implementation.
+ * @param <ProgramT> the SPI program implementation.
+ * @param <SamplerT> the SPI sampler implementation.
+ * @param <VertexArrayT> the SPI vertex array implementation.
+ * @since 16.09.01
+ */
+final class TracingGLDriver<
+        BufferT extends Buffer, FramebufferT extends Framebuffer, RenderbufferT extends Renderbuffer, TextureT extends Texture, ShaderT extends Shader, ProgramT extends Program, SamplerT extends Sampler, VertexArrayT extends VertexArray>
+        implements Driver<BufferT, FramebufferT, RenderbufferT, TextureT, ShaderT, ProgramT, SamplerT, VertexArrayT> {
+
+    private static final String[] SIGNATURES = {
+        "applyTweaks(com.longlinkislong.gloop.glspi.Tweaks)",
+        "blendingDisable()",
+        "blendingEnable(int,int,int,int,int,int)",
+        "bufferAllocate(com.longlinkislong.gloop.glspi.Buffer,long,int)",
+        "bufferAllocateImmutable(com.longlinkislong.gloop.glspi.Buffer,long,int)",
+        "bufferBindAtomic(com.longlinkislong.gloop.glspi.Buffer,int)",
+        "bufferBindAtomic(com.longlinkislong.gloop.glspi.Buffer,int,long,long)",
+        "bufferBindFeedback(com.longlinkislong.gloop.glspi.Buffer,int)",
+        "bufferBindFeedback(com.longlinkislong.gloop.glspi.Buffer,int,long,long)",
+        "bufferBindStorage(com.longlinkislong.gloop.glspi.Buffer,int)",
+        "bufferBindStorage(com.longlinkislong.gloop.glspi.Buffer,int,long,long)",
+        "bufferBindUniform(com.longlinkislong.gloop.glspi.Buffer,int)",
+        "bufferBindUniform(com.longlinkislong.gloop.glspi.Buffer,int,long,long)",
+        "bufferCopyData(com.longlinkislong.gloop.glspi.Buffer,long,com.longlinkislong.gloop.glspi.Buffer,long,long)",
+        "bufferCreate()",
+        "bufferDelete(com.longlinkislong.gloop.glspi.Buffer)",
+        "bufferGetData(com.longlinkislong.gloop.glspi.Buffer,long,[F)",
+        "bufferGetData(com.longlinkislong.gloop.glspi.Buffer,long,[I)",
+        "bufferGetData(com.longlinkislong.gloop.glspi.Buffer,long,java.nio.ByteBuffer)",
+        "bufferGetMaxUniformBindings()",
+        "bufferGetMaxUniformBlockSize()",
+        "bufferGetParameterI(com.longlinkislong.gloop.glspi.Buffer,int)",
+        "bufferInvalidateData(com.longlinkislong.gloop.glspi.Buffer)",
+        "bufferInvalidateRange(com.longlinkislong.gloop.glspi.Buffer,long,long)",
+        "bufferMapData(com.longlinkislong.gloop.glspi.Buffer,long,long,int)",
+        "bufferSetData(com.longlinkislong.gloop.glspi.Buffer,long,[F)",
+        "bufferSetData(com.longlinkislong.gloop.glspi.Buffer,long,[I)",
+        "bufferSetData(com.longlinkislong.gloop.glspi.Buffer,long,java.nio.ByteBuffer)",
+        "bufferUnmapData(com.longlinkislong.gloop.glspi.Buffer)",
+        "clear(int,float,float,float,float,double)",
+        "depthTestDisable()",
+        "depthTestEnable(int)",
+        "fenceClientWait(com.longlinkislong.gloop.glspi.Fence,long)",
+        "fenceCreate()",
+        "fenceDelete(com.longlinkislong.gloop.glspi.Fence)",
+        "fenceFlush(com.longlinkislong.gloop.glspi.Fence)",
+        "fenceIsSignaled(com.longlinkislong.gloop.glspi.Fence)",
+        "fenceServerWait(com.longlinkislong.gloop.glspi.Fence)",
+        "framebufferAddAttachment(com.longlinkislong.gloop.glspi.Framebuffer,int,com.longlinkislong.gloop.glspi.Texture,int)",
+        "framebufferAddRenderbuffer(com.longlinkislong.gloop.glspi.Framebuffer,int,com.longlinkislong.gloop.glspi.Renderbuffer)",
+        "framebufferBind(com.longlinkislong.gloop.glspi.Framebuffer,java.nio.IntBuffer)",
+        "framebufferBlit(com.longlinkislong.gloop.glspi.Framebuffer,int,int,int,int,com.longlinkislong.gloop.glspi.Framebuffer,int,int,int,int,int,int)",
+        "framebufferCreate()",
+        "framebufferDelete(com.longlinkislong.gloop.glspi.Framebuffer)",
+        "framebufferGetDefault()",
+        "framebufferGetPixels(com.longlinkislong.gloop.glspi.Framebuffer,int,int,int,int,int,int,[F)",
+        "framebufferGetPixels(com.longlinkislong.gloop.glspi.Framebuffer,int,int,int,int,int,int,[I)",
+        "framebufferGetPixels(com.longlinkislong.gloop.glspi.Framebuffer,int,int,int,int,int,int,com.longlinkislong.gloop.glspi.Buffer)",
+        "framebufferGetPixels(com.longlinkislong.gloop.glspi.Framebuffer,int,int,int,int,int,int,java.nio.ByteBuffer)",
+        "framebufferIsComplete(com.longlinkislong.gloop.glspi.Framebuffer)",
+        "guessFormat(int)",
+        "maskApply(boolean,boolean,boolean,boolean,boolean,int)",
+        "memoryBarrier(int)",
+        "polygonSetParameters(float,float,int,int,int,float,float)",
+        "programCreate()",
+        "programDelete(com.longlinkislong.gloop.glspi.Program)",
+        "programDispatchCompute(com.longlinkislong.gloop.glspi.Program,int,int,int)",
+        "programDispatchComputeIndirect(com.longlinkislong.gloop.glspi.Program,com.longlinkislong.gloop.glspi.Buffer,long)",
+        "programGetStorageBlockBinding(com.longlinkislong.gloop.glspi.Program,java.lang.String)",
+        "programGetUniformBlockBinding(com.longlinkislong.gloop.glspi.Program,java.lang.String)",
+        "programGetUniformLocation(com.longlinkislong.gloop.glspi.Program,java.lang.String)",
+        "programLinkShaders(com.longlinkislong.gloop.glspi.Program,[Lcom.longlinkislong.gloop.glspi.Shader;)",
+        "programSetAttribLocation(com.longlinkislong.gloop.glspi.Program,int,java.lang.String)",
+        "programSetFeedbackVaryings(com.longlinkislong.gloop.glspi.Program,[Ljava.lang.String;)",
+        "programSetStorageBlockBinding(com.longlinkislong.gloop.glspi.Program,java.lang.String,int)",
+        "programSetUniformBlockBinding(com.longlinkislong.gloop.glspi.Program,java.lang.String,int)",
+        "programSetUniformD(com.longlinkislong.gloop.glspi.Program,int,[D)",
+        "programSetUniformF(com.longlinkislong.gloop.glspi.Program,int,[F)",
+        "programSetUniformI(com.longlinkislong.gloop.glspi.Program,int,[I)",
+        "programSetUniformMatD(com.longlinkislong.gloop.glspi.Program,int,[D)",
+        "programSetUniformMatD(com.longlinkislong.gloop.glspi.Program,int,java.nio.DoubleBuffer)",
+        "programSetUniformMatF(com.longlinkislong.gloop.glspi.Program,int,[F)",
+        "programSetUniformMatF(com.longlinkislong.gloop.glspi.Program,int,java.nio.FloatBuffer)",
+        "programUse(com.longlinkislong.gloop.glspi.Program)",
+        "queryBegin(com.longlinkislong.gloop.glspi.Query,int)",
+        "queryCreate()",
+        "queryDelete(com.longlinkislong.gloop.glspi.Query)",
+        "queryEnd(int)",
+        "queryGetResult(com.longlinkislong.gloop.glspi.Query)",
+        "queryIsResultAvailable(com.longlinkislong.gloop.glspi.Query)",
+        "queryTimestamp(com.longlinkislong.gloop.glspi.Query)",
+        "renderbufferCreate(int,int,int)",
+        "renderbufferCreate(int,int,int,int)",
+        "renderbufferDelete(com.longlinkislong.gloop.glspi.Renderbuffer)",
+        "samplerBind(int,com.longlinkislong.gloop.glspi.Sampler)",
+        "samplerCreate()",
+        "samplerDelete(com.longlinkislong.gloop.glspi.Sampler)",
+        "samplerSetParameter(com.longlinkislong.gloop.glspi.Sampler,int,float)",
+        "samplerSetParameter(com.longlinkislong.gloop.glspi.Sampler,int,int)",
+        "scissorTestDisable()",
+        "scissorTestEnable(int,int,int,int)",
+        "shaderCompile(int,java.lang.String)",
+        "shaderDelete(com.longlinkislong.gloop.glspi.Shader)",
+        "shaderGetInfoLog(com.longlinkislong.gloop.glspi.Shader)",
+        "shaderGetParameterI(com.longlinkislong.gloop.glspi.Shader,int)",
+        "shaderGetVersion()",
+        "textureAllocate(int,int,int,int,int,int)",
+        "textureBind(com.longlinkislong.gloop.glspi.Texture,int)",
+        "textureDelete(com.longlinkislong.gloop.glspi.Texture)",
+        "textureGenerateMipmap(com.longlinkislong.gloop.glspi.Texture)",
+        "textureGetData(com.longlinkislong.gloop.glspi.Texture,int,int,int,[F)",
+        "textureGetData(com.longlinkislong.gloop.glspi.Texture,int,int,int,[I)",
+        "textureGetData(com.longlinkislong.gloop.glspi.Texture,int,int,int,com.longlinkislong.gloop.glspi.Buffer,long,int)",
+        "textureGetData(com.longlinkislong.gloop.glspi.Texture,int,int,int,java.nio.ByteBuffer)",
+        "textureGetMaxAnisotropy()",
+        "textureGetMaxBoundTextures()",
+        "textureGetMaxSize()",
+        "textureGetPreferredFormat(int)",
+        "textureInvalidateData(com.longlinkislong.gloop.glspi.Texture,int)",
+        "textureInvalidateRange(com.longlinkislong.gloop.glspi.Texture,int,int,int,int,int,int,int)",
+        "textureMap(com.longlinkislong.gloop.glspi.Texture)",
+        "textureSetData(com.longlinkislong.gloop.glspi.Texture,int,int,int,int,int,int,int,int,int,[F)",
+        "textureSetData(com.longlinkislong.gloop.glspi.Texture,int,int,int,int,int,int,int,int,int,[I)",
+        "textureSetData(com.longlinkislong.gloop.glspi.Texture,int,int,int,int,int,int,int,int,int,com.longlinkislong.gloop.glspi.Buffer,long)",
+        "textureSetData(com.longlinkislong.gloop.glspi.Texture,int,int,int,int,int,int,int,int,int,java.nio.ByteBuffer)",
+        "textureSetParameter(com.longlinkislong.gloop.glspi.Texture,int,float)",
+        "textureSetParameter(com.longlinkislong.gloop.glspi.Texture,int,int)",
+        "textureUnmap(com.longlinkislong.gloop.glspi.Texture)",
+        "transformFeedbackBegin(int)",
+        "transformFeedbackEnd()",
+        "vertexArrayAttachBuffer(com.longlinkislong.gloop.glspi.VertexArray,int,com.longlinkislong.gloop.glspi.Buffer,int,int,boolean,int,long,int)",
+        "vertexArrayAttachBuffer(com.longlinkislong.gloop.glspi.VertexArray,int,com.longlinkislong.gloop.glspi.Buffer,int,int,int,long,int)",
+        "vertexArrayAttachIndexBuffer(com.longlinkislong.gloop.glspi.VertexArray,com.longlinkislong.gloop.glspi.Buffer)",
+        "vertexArrayCreate()",
+        "vertexArrayDelete(com.longlinkislong.gloop.glspi.VertexArray)",
+        "vertexArrayDrawArrays(com.longlinkislong.gloop.glspi.VertexArray,int,int,int)",
+        "vertexArrayDrawArraysIndirect(com.longlinkislong.gloop.glspi.VertexArray,com.longlinkislong.gloop.glspi.Buffer,int,long)",
+        "vertexArrayDrawArraysInstanced(com.longlinkislong.gloop.glspi.VertexArray,int,int,int,int)",
+        "vertexArrayDrawElements(com.longlinkislong.gloop.glspi.VertexArray,int,int,int,long)",
+        "vertexArrayDrawElementsIndirect(com.longlinkislong.gloop.glspi.VertexArray,com.longlinkislong.gloop.glspi.Buffer,int,int,long)",
+        "vertexArrayDrawElementsInstanced(com.longlinkislong.gloop.glspi.VertexArray,int,int,int,long,int)",
+        "viewportApply(int,int,int,int)"
+    };
+
+    private static final int APPLY_TWEAKS = 0;
+    private static final int BLENDING_DISABLE = 1;
+    private static final int BLENDING_ENABLE = 2;
+    private static final int BUFFER_ALLOCATE = 3;
+    private static final int BUFFER_ALLOCATE_IMMUTABLE = 4;
+    private static final int BUFFER_BIND_ATOMIC_2 = 5;
+    private static final int BUFFER_BIND_ATOMIC_4 = 6;
+    private static final int BUFFER_BIND_FEEDBACK_2 = 7;
+    private static final int BUFFER_BIND_FEEDBACK_4 = 8;
+    private static final int BUFFER_BIND_STORAGE_2 = 9;
+    private static final int BUFFER_BIND_STORAGE_4 = 10;
+    private static final int BUFFER_BIND_UNIFORM_2 = 11;
+    private static final int BUFFER_BIND_UNIFORM_4 = 12;
+    private static final int BUFFER_COPY_DATA = 13;
+    private static final int BUFFER_CREATE = 14;
+    private static final int BUFFER_DELETE = 15;
+    private static final int BUFFER_GET_DATA_FLOAT_ARRAY = 16;
+    private static final int BUFFER_GET_DATA_INT_ARRAY = 17;
+    private static final int BUFFER_GET_DATA_BYTE_BUFFER = 18;
+    private static final int BUFFER_GET_MAX_UNIFORM_BINDINGS = 19;
+    private static final int BUFFER_GET_MAX_UNIFORM_BLOCK_SIZE = 20;
+    private static final int BUFFER_GET_PARAMETER_I = 21;
+    private static final int BUFFER_INVALIDATE_DATA = 22;
+    private static final int BUFFER_INVALIDATE_RANGE = 23;
+    private static final int BUFFER_MAP_DATA = 24;
+    private static final int BUFFER_SET_DATA_FLOAT_ARRAY = 25;
+    private static final int BUFFER_SET_DATA_INT_ARRAY = 26;
+    private static final int BUFFER_SET_DATA_BYTE_BUFFER = 27;
+    private static final int BUFFER_UNMAP_DATA = 28;
+    private static final int CLEAR = 29;
+    private static final int DEPTH_TEST_DISABLE = 30;
+    private static final int DEPTH_TEST_ENABLE = 31;
+    private static final int FENCE_CLIENT_WAIT = 32;
+    private static final int FENCE_CREATE = 33;
+    private static final int FENCE_DELETE = 34;
+    private static final int FENCE_FLUSH = 35;
+    private static final int FENCE_IS_SIGNALED = 36;
+    private static final int FENCE_SERVER_WAIT = 37;
+    private static final int FRAMEBUFFER_ADD_ATTACHMENT = 38;
+    private static final int FRAMEBUFFER_ADD_RENDERBUFFER = 39;
+    private static final int FRAMEBUFFER_BIND = 40;
+    private static final int FRAMEBUFFER_BLIT = 41;
+    private static final int FRAMEBUFFER_CREATE = 42;
+    private static final int FRAMEBUFFER_DELETE = 43;
+    private static final int FRAMEBUFFER_GET_DEFAULT = 44;
+    private static final int FRAMEBUFFER_GET_PIXELS_FLOAT_ARRAY = 45;
+    private static final int FRAMEBUFFER_GET_PIXELS_INT_ARRAY = 46;
+    private static final int FRAMEBUFFER_GET_PIXELS_BUFFER = 47;
+    private static final int FRAMEBUFFER_GET_PIXELS_BYTE_BUFFER = 48;
+    private static final int FRAMEBUFFER_IS_COMPLETE = 49;
+    private static final int GUESS_FORMAT = 50;
+    private static final int MASK_APPLY = 51;
+    private static final int MEMORY_BARRIER = 52;
+    private static final int POLYGON_SET_PARAMETERS = 53;
+    private static final int PROGRAM_CREATE = 54;
+    private static final int PROGRAM_DELETE = 55;
+    private static final int PROGRAM_DISPATCH_COMPUTE = 56;
+    private static final int PROGRAM_DISPATCH_COMPUTE_INDIRECT = 57;
+    private static final int PROGRAM_GET_STORAGE_BLOCK_BINDING = 58;
+    private static final int PROGRAM_GET_UNIFORM_BLOCK_BINDING = 59;
+    private static final int PROGRAM_GET_UNIFORM_LOCATION = 60;
+    private static final int PROGRAM_LINK_SHADERS = 61;
+    private static final int PROGRAM_SET_ATTRIB_LOCATION = 62;
+    private static final int PROGRAM_SET_FEEDBACK_VARYINGS = 63;
+    private static final int PROGRAM_SET_STORAGE_BLOCK_BINDING = 64;
+    private static final int PROGRAM_SET_UNIFORM_BLOCK_BINDING = 65;
+    private static final int PROGRAM_SET_UNIFORM_D = 66;
+    private static final int PROGRAM_SET_UNIFORM_F = 67;
+    private static final int PROGRAM_SET_UNIFORM_I = 68;
+    private static final int PROGRAM_SET_UNIFORM_MAT_D_DOUBLE_ARRAY = 69;
+    private static final int PROGRAM_SET_UNIFORM_MAT_D_DOUBLE_BUFFER = 70;
+    private static final int PROGRAM_SET_UNIFORM_MAT_F_FLOAT_ARRAY = 71;
+    private static final int PROGRAM_SET_UNIFORM_MAT_F_FLOAT_BUFFER = 72;
+    private static final int PROGRAM_USE = 73;
+    private static final int QUERY_BEGIN = 74;
+    private static final int QUERY_CREATE = 75;
+    private static final int QUERY_DELETE = 76;
+    private static final int QUERY_END = 77;
+    private static final int QUERY_GET_RESULT = 78;
+    private static final int QUERY_IS_RESULT_AVAILABLE = 79;
+    private static final int QUERY_TIMESTAMP = 80;
+    private static final int RENDERBUFFER_CREATE_3 = 81;
+    private static final int RENDERBUFFER_CREATE_4 = 82;
+    private static final int RENDERBUFFER_DELETE = 83;
+    private static final int SAMPLER_BIND = 84;
+    private static final int SAMPLER_CREATE = 85;
+    private static final int SAMPLER_DELETE = 86;
+    private static final int SAMPLER_SET_PARAMETER_FLOAT = 87;
+    private static final int SAMPLER_SET_PARAMETER_INT = 88;
+    private static final int SCISSOR_TEST_DISABLE = 89;
+    private static final int SCISSOR_TEST_ENABLE = 90;
+    private static final int SHADER_COMPILE = 91;
+    private static final int SHADER_DELETE = 92;
+    private static final int SHADER_GET_INFO_LOG = 93;
+    private static final int SHADER_GET_PARAMETER_I = 94;
+    private static final int SHADER_GET_VERSION = 95;
+    private static final int TEXTURE_ALLOCATE = 96;
+    private static final int TEXTURE_BIND = 97;
+    private static final int TEXTURE_DELETE = 98;
+    private static final int TEXTURE_GENERATE_MIPMAP = 99;
+    private static final int TEXTURE_GET_DATA_FLOAT_ARRAY = 100;
+    private static final int TEXTURE_GET_DATA_INT_ARRAY = 101;
+    private static final int TEXTURE_GET_DATA_BUFFER = 102;
+    private static final int TEXTURE_GET_DATA_BYTE_BUFFER = 103;
+    private static final int TEXTURE_GET_MAX_ANISOTROPY = 104;
+    private static final int TEXTURE_GET_MAX_BOUND_TEXTURES = 105;
+    private static final int TEXTURE_GET_MAX_SIZE = 106;
+    private static final int TEXTURE_GET_PREFERRED_FORMAT = 107;
+    private static final int TEXTURE_INVALIDATE_DATA = 108;
+    private static final int TEXTURE_INVALIDATE_RANGE = 109;
+    private static final int TEXTURE_MAP = 110;
+    private static final int TEXTURE_SET_DATA_FLOAT_ARRAY = 111;
+    private static final int TEXTURE_SET_DATA_INT_ARRAY = 112;
+    private static final int TEXTURE_SET_DATA_BUFFER = 113;
+    private static final int TEXTURE_SET_DATA_BYTE_BUFFER = 114;
+    private static final int TEXTURE_SET_PARAMETER_FLOAT = 115;
+    private static final int TEXTURE_SET_PARAMETER_INT = 116;
+    private static final int TEXTURE_UNMAP = 117;
+    private static final int TRANSFORM_FEEDBACK_BEGIN = 118;
+    private static final int TRANSFORM_FEEDBACK_END = 119;
+    private static final int VERTEX_ARRAY_ATTACH_BUFFER_9 = 120;
+    private static final int VERTEX_ARRAY_ATTACH_BUFFER_8 = 121;
+    private static final int VERTEX_ARRAY_ATTACH_INDEX_BUFFER = 122;
+    private static final int VERTEX_ARRAY_CREATE = 123;
+    private static final int VERTEX_ARRAY_DELETE = 124;
+    private static final int VERTEX_ARRAY_DRAW_ARRAYS = 125;
+    private static final int VERTEX_ARRAY_DRAW_ARRAYS_INDIRECT = 126;
+    private static final int VERTEX_ARRAY_DRAW_ARRAYS_INSTANCED = 127;
+    private static final int VERTEX_ARRAY_DRAW_ELEMENTS = 128;
+    private static final int VERTEX_ARRAY_DRAW_ELEMENTS_INDIRECT = 129;
+    private static final int VERTEX_ARRAY_DRAW_ELEMENTS_INSTANCED = 130;
+    private static final int VIEWPORT_APPLY = 131;
+
+    private static final int VOID = TraceFormat.NULL_SIZE;
+    private static final int OPAQUE = TraceFormat.OPAQUE_SIZE;
+    private static final int BOOLEAN = TraceFormat.BOOLEAN_SIZE;
+    private static final int INT = TraceFormat.INT_SIZE;
+    private static final int FLOAT = TraceFormat.FLOAT_SIZE;
+    private static final int LONG = TraceFormat.LONG_SIZE;
+    private static final int DOUBLE = TraceFormat.DOUBLE_SIZE;
+    private static final int HANDLE = TraceFormat.HANDLE_SIZE;
+    private static final int PAYLOAD = TraceFormat.PAYLOAD_HEADER_SIZE;
+
+    static {
+        TraceFormat.checkSignatures(Driver.class, SIGNATURES);
+    }
+
+    private final Driver<BufferT, FramebufferT, RenderbufferT, TextureT, ShaderT, ProgramT, SamplerT, VertexArrayT> delegate;
+    private final TraceWriter writer;
+
+    TracingGLDriver(final Driver<BufferT, FramebufferT, RenderbufferT, TextureT, ShaderT, ProgramT, SamplerT, VertexArrayT> delegate, final TraceWriter writer) {
+        this.delegate = delegate;
+        this.writer = writer;
+    }
+
+    @Override
+    public void applyTweaks(final Tweaks tweaks) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.applyTweaks(tweaks);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(APPLY_TWEAKS, new Object[]{tweaks}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(APPLY_TWEAKS, OPAQUE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putOpaque(tweaks).end();
+        }
+    }
+
+    @Override
+    public void blendingDisable() {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.blendingDisable();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BLENDING_DISABLE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BLENDING_DISABLE, VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.end();
+        }
+    }
+
+    @Override
+    public void blendingEnable(final int rgbEq, final int aEq, final int rgbFuncSrc, final int rgbFuncDst, final int aFuncSrc, final int aFuncDst) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.blendingEnable(rgbEq, aEq, rgbFuncSrc, rgbFuncDst, aFuncSrc, aFuncDst);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BLENDING_ENABLE, new Object[]{rgbEq, aEq, rgbFuncSrc, rgbFuncDst, aFuncSrc, aFuncDst}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BLENDING_ENABLE, 6 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(rgbEq)
+                    .putInt(aEq)
+                    .putInt(rgbFuncSrc)
+                    .putInt(rgbFuncDst)
+                    .putInt(aFuncSrc)
+                    .putInt(aFuncDst)
+                    .end();
+        }
+    }
+
+    @Override
+    public void bufferAllocate(final BufferT buffer, final long size, final int usage) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferAllocate(buffer, size, usage);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_ALLOCATE, new Object[]{buffer, size, usage}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_ALLOCATE, HANDLE + LONG + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putLong(size).putInt(usage).end();
+        }
+    }
+
+    @Override
+    public void bufferAllocateImmutable(final BufferT buffer, final long size, final int bitflags) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferAllocateImmutable(buffer, size, bitflags);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_ALLOCATE_IMMUTABLE, new Object[]{buffer, size, bitflags}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_ALLOCATE_IMMUTABLE, HANDLE + LONG + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putLong(size).putInt(bitflags).end();
+        }
+    }
+
+    @Override
+    public void bufferBindAtomic(final BufferT buffer, final int bindingPoint) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferBindAtomic(buffer, bindingPoint);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_BIND_ATOMIC_2, new Object[]{buffer, bindingPoint}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_BIND_ATOMIC_2, HANDLE + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(bindingPoint).end();
+        }
+    }
+
+    @Override
+    public void bufferBindAtomic(final BufferT buffer, final int bindingPoint, final long offset, final long size) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferBindAtomic(buffer, bindingPoint, offset, size);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_BIND_ATOMIC_4, new Object[]{buffer, bindingPoint, offset, size}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_BIND_ATOMIC_4, HANDLE + INT + 2 * LONG + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(bindingPoint).putLong(offset).putLong(size).end();
+        }
+    }
+
+    @Override
+    public void bufferBindFeedback(final BufferT buffer, final int bindingPoint) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferBindFeedback(buffer, bindingPoint);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_BIND_FEEDBACK_2, new Object[]{buffer, bindingPoint}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_BIND_FEEDBACK_2, HANDLE + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(bindingPoint).end();
+        }
+    }
+
+    @Override
+    public void bufferBindFeedback(final BufferT buffer, final int bindingPoint, final long offset, final long size) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferBindFeedback(buffer, bindingPoint, offset, size);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_BIND_FEEDBACK_4, new Object[]{buffer, bindingPoint, offset, size}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_BIND_FEEDBACK_4, HANDLE + INT + 2 * LONG + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(bindingPoint).putLong(offset).putLong(size).end();
+        }
+    }
+
+    @Override
+    public void bufferBindStorage(final BufferT buffer, final int bindingPoint) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferBindStorage(buffer, bindingPoint);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_BIND_STORAGE_2, new Object[]{buffer, bindingPoint}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_BIND_STORAGE_2, HANDLE + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(bindingPoint).end();
+        }
+    }
+
+    @Override
+    public void bufferBindStorage(final BufferT buffer, final int bindingPoint, final long offset, final long size) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferBindStorage(buffer, bindingPoint, offset, size);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_BIND_STORAGE_4, new Object[]{buffer, bindingPoint, offset, size}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_BIND_STORAGE_4, HANDLE + INT + 2 * LONG + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(bindingPoint).putLong(offset).putLong(size).end();
+        }
+    }
+
+    @Override
+    public void bufferBindUniform(final BufferT buffer, final int bindingPoint) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferBindUniform(buffer, bindingPoint);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_BIND_UNIFORM_2, new Object[]{buffer, bindingPoint}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_BIND_UNIFORM_2, HANDLE + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(bindingPoint).end();
+        }
+    }
+
+    @Override
+    public void bufferBindUniform(final BufferT buffer, final int bindingPoint, final long offset, final long size) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferBindUniform(buffer, bindingPoint, offset, size);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_BIND_UNIFORM_4, new Object[]{buffer, bindingPoint, offset, size}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_BIND_UNIFORM_4, HANDLE + INT + 2 * LONG + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(bindingPoint).putLong(offset).putLong(size).end();
+        }
+    }
+
+    @Override
+    public void bufferCopyData(final BufferT srcBuffer, final long srcOffset, final BufferT dstBuffer, final long dstOffset, final long size) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferCopyData(srcBuffer, srcOffset, dstBuffer, dstOffset, size);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_COPY_DATA, new Object[]{srcBuffer, srcOffset, dstBuffer, dstOffset, size}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_COPY_DATA, 2 * HANDLE + 3 * LONG + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(srcBuffer)
+                    .putLong(srcOffset)
+                    .putHandle(dstBuffer)
+                    .putLong(dstOffset)
+                    .putLong(size)
+                    .end();
+        }
+    }
+
+    @Override
+    public BufferT bufferCreate() {
+        final long timestamp = System.nanoTime();
+        final BufferT result;
+
+        try {
+            result = this.delegate.bufferCreate();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_CREATE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_CREATE, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void bufferDelete(final BufferT buffer) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferDelete(buffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_DELETE, new Object[]{buffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).end();
+            this.writer.releaseHandle(buffer);
+        }
+    }
+
+    @Override
+    public void bufferGetData(final BufferT buffer, final long offset, final float[] out) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferGetData(buffer, offset, out);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_GET_DATA_FLOAT_ARRAY, new Object[]{buffer, offset, out}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_GET_DATA_FLOAT_ARRAY, HANDLE + LONG + PAYLOAD + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putLong(offset).putOutput(out).end();
+        }
+    }
+
+    @Override
+    public void bufferGetData(final BufferT buffer, final long offset, final int[] out) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferGetData(buffer, offset, out);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_GET_DATA_INT_ARRAY, new Object[]{buffer, offset, out}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_GET_DATA_INT_ARRAY, HANDLE + LONG + PAYLOAD + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putLong(offset).putOutput(out).end();
+        }
+    }
+
+    @Override
+    public void bufferGetData(final BufferT buffer, final long offset, final ByteBuffer out) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferGetData(buffer, offset, out);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_GET_DATA_BYTE_BUFFER, new Object[]{buffer, offset, out}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_GET_DATA_BYTE_BUFFER, HANDLE + LONG + PAYLOAD + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putLong(offset).putOutput(out).end();
+        }
+    }
+
+    @Override
+    public int bufferGetMaxUniformBindings() {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.bufferGetMaxUniformBindings();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_GET_MAX_UNIFORM_BINDINGS, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_GET_MAX_UNIFORM_BINDINGS, INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int bufferGetMaxUniformBlockSize() {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.bufferGetMaxUniformBlockSize();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_GET_MAX_UNIFORM_BLOCK_SIZE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_GET_MAX_UNIFORM_BLOCK_SIZE, INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int bufferGetParameterI(final BufferT buffer, final int paramId) {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.bufferGetParameterI(buffer, paramId);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_GET_PARAMETER_I, new Object[]{buffer, paramId}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_GET_PARAMETER_I, HANDLE + 2 * INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putInt(paramId).endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void bufferInvalidateData(final BufferT buffer) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferInvalidateData(buffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_INVALIDATE_DATA, new Object[]{buffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_INVALIDATE_DATA, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).end();
+        }
+    }
+
+    @Override
+    public void bufferInvalidateRange(final BufferT buffer, final long offset, final long length) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferInvalidateRange(buffer, offset, length);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_INVALIDATE_RANGE, new Object[]{buffer, offset, length}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_INVALIDATE_RANGE, HANDLE + 2 * LONG + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putLong(offset).putLong(length).end();
+        }
+    }
+
+    @Override
+    public ByteBuffer bufferMapData(final BufferT buffer, final long offset, final long length, final int accessFlags) {
+        final long timestamp = System.nanoTime();
+        final ByteBuffer result;
+
+        try {
+            result = this.delegate.bufferMapData(buffer, offset, length, accessFlags);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_MAP_DATA, new Object[]{buffer, offset, length, accessFlags}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                BUFFER_MAP_DATA, HANDLE + 2 * LONG + INT + PAYLOAD,
+                TraceWriter.payloadSize(result), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer)
+                    .putLong(offset)
+                    .putLong(length)
+                    .putInt(accessFlags)
+                    .endPayload(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void bufferSetData(final BufferT buffer, final long offset, final float[] data) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferSetData(buffer, offset, data);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_SET_DATA_FLOAT_ARRAY, new Object[]{buffer, offset, data}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                BUFFER_SET_DATA_FLOAT_ARRAY, HANDLE + LONG + PAYLOAD + VOID,
+                TraceWriter.payloadSize(data), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putLong(offset).putPayload(data).end();
+        }
+    }
+
+    @Override
+    public void bufferSetData(final BufferT buffer, final long offset, final int[] data) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferSetData(buffer, offset, data);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_SET_DATA_INT_ARRAY, new Object[]{buffer, offset, data}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                BUFFER_SET_DATA_INT_ARRAY, HANDLE + LONG + PAYLOAD + VOID,
+                TraceWriter.payloadSize(data), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putLong(offset).putPayload(data).end();
+        }
+    }
+
+    @Override
+    public void bufferSetData(final BufferT buffer, final long offset, final ByteBuffer data) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferSetData(buffer, offset, data);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_SET_DATA_BYTE_BUFFER, new Object[]{buffer, offset, data}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                BUFFER_SET_DATA_BYTE_BUFFER, HANDLE + LONG + PAYLOAD + VOID,
+                TraceWriter.payloadSize(data), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).putLong(offset).putPayload(data).end();
+        }
+    }
+
+    @Override
+    public void bufferUnmapData(final BufferT buffer) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.bufferUnmapData(buffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(BUFFER_UNMAP_DATA, new Object[]{buffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(BUFFER_UNMAP_DATA, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(buffer).end();
+        }
+    }
+
+    @Override
+    public void clear(final int bitfield, final float red, final float green, final float blue, final float alpha, final double depth) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.clear(bitfield, red, green, blue, alpha, depth);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(CLEAR, new Object[]{bitfield, red, green, blue, alpha, depth}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(CLEAR, INT + 4 * FLOAT + DOUBLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(bitfield)
+                    .putFloat(red)
+                    .putFloat(green)
+                    .putFloat(blue)
+                    .putFloat(alpha)
+                    .putDouble(depth)
+                    .end();
+        }
+    }
+
+    @Override
+    public void depthTestDisable() {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.depthTestDisable();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(DEPTH_TEST_DISABLE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(DEPTH_TEST_DISABLE, VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.end();
+        }
+    }
+
+    @Override
+    public void depthTestEnable(final int depthTest) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.depthTestEnable(depthTest);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(DEPTH_TEST_ENABLE, new Object[]{depthTest}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(DEPTH_TEST_ENABLE, INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(depthTest).end();
+        }
+    }
+
+    @Override
+    public boolean fenceClientWait(final Fence fence, final long timeout) {
+        final long timestamp = System.nanoTime();
+        final boolean result;
+
+        try {
+            result = this.delegate.fenceClientWait(fence, timeout);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FENCE_CLIENT_WAIT, new Object[]{fence, timeout}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FENCE_CLIENT_WAIT, HANDLE + LONG + BOOLEAN, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(fence).putLong(timeout).endBoolean(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public Fence fenceCreate() {
+        final long timestamp = System.nanoTime();
+        final Fence result;
+
+        try {
+            result = this.delegate.fenceCreate();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FENCE_CREATE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FENCE_CREATE, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void fenceDelete(final Fence fence) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.fenceDelete(fence);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FENCE_DELETE, new Object[]{fence}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FENCE_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(fence).end();
+            this.writer.releaseHandle(fence);
+        }
+    }
+
+    @Override
+    public void fenceFlush(final Fence fence) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.fenceFlush(fence);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FENCE_FLUSH, new Object[]{fence}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FENCE_FLUSH, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(fence).end();
+        }
+    }
+
+    @Override
+    public boolean fenceIsSignaled(final Fence fence) {
+        final long timestamp = System.nanoTime();
+        final boolean result;
+
+        try {
+            result = this.delegate.fenceIsSignaled(fence);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FENCE_IS_SIGNALED, new Object[]{fence}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FENCE_IS_SIGNALED, HANDLE + BOOLEAN, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(fence).endBoolean(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void fenceServerWait(final Fence fence) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.fenceServerWait(fence);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FENCE_SERVER_WAIT, new Object[]{fence}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FENCE_SERVER_WAIT, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(fence).end();
+        }
+    }
+
+    @Override
+    public void framebufferAddAttachment(final FramebufferT framebuffer, final int attachmentId, final TextureT texture, final int mipmapLevel) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.framebufferAddAttachment(framebuffer, attachmentId, texture, mipmapLevel);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FRAMEBUFFER_ADD_ATTACHMENT, new Object[]{framebuffer, attachmentId, texture, mipmapLevel}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FRAMEBUFFER_ADD_ATTACHMENT, 2 * HANDLE + 2 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(framebuffer)
+                    .putInt(attachmentId)
+                    .putHandle(texture)
+                    .putInt(mipmapLevel)
+                    .end();
+        }
+    }
+
+    @Override
+    public void framebufferAddRenderbuffer(final FramebufferT framebuffer, final int attachmentId, final RenderbufferT renderbuffer) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.framebufferAddRenderbuffer(framebuffer, attachmentId, renderbuffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FRAMEBUFFER_ADD_RENDERBUFFER, new Object[]{framebuffer, attachmentId, renderbuffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FRAMEBUFFER_ADD_RENDERBUFFER, 2 * HANDLE + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(framebuffer).putInt(attachmentId).putHandle(renderbuffer).end();
+        }
+    }
+
+    @Override
+    public void framebufferBind(final FramebufferT framebuffer, final IntBuffer attachments) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.framebufferBind(framebuffer, attachments);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FRAMEBUFFER_BIND, new Object[]{framebuffer, attachments}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                FRAMEBUFFER_BIND, HANDLE + PAYLOAD + VOID,
+                TraceWriter.payloadSize(attachments), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(framebuffer).putPayload(attachments).end();
+        }
+    }
+
+    @Override
+    public void framebufferBlit(final FramebufferT srcFb, final int srcX0, final int srcY0, final int srcX1, final int srcY1, final FramebufferT dstFb, final int dstX0, final int dstY0, final int dstX1, final int dstY1, final int bitfield, final int filter) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.framebufferBlit(srcFb, srcX0, srcY0, srcX1, srcY1, dstFb, dstX0, dstY0, dstX1, dstY1, bitfield, filter);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FRAMEBUFFER_BLIT, new Object[]{srcFb, srcX0, srcY0, srcX1, srcY1, dstFb, dstX0, dstY0, dstX1, dstY1, bitfield, filter}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FRAMEBUFFER_BLIT, 2 * HANDLE + 10 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(srcFb)
+                    .putInt(srcX0)
+                    .putInt(srcY0)
+                    .putInt(srcX1)
+                    .putInt(srcY1)
+                    .putHandle(dstFb)
+                    .putInt(dstX0)
+                    .putInt(dstY0)
+                    .putInt(dstX1)
+                    .putInt(dstY1)
+                    .putInt(bitfield)
+                    .putInt(filter)
+                    .end();
+        }
+    }
+
+    @Override
+    public FramebufferT framebufferCreate() {
+        final long timestamp = System.nanoTime();
+        final FramebufferT result;
+
+        try {
+            result = this.delegate.framebufferCreate();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FRAMEBUFFER_CREATE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FRAMEBUFFER_CREATE, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void framebufferDelete(final FramebufferT framebuffer) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.framebufferDelete(framebuffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FRAMEBUFFER_DELETE, new Object[]{framebuffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FRAMEBUFFER_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(framebuffer).end();
+            this.writer.releaseHandle(framebuffer);
+        }
+    }
+
+    @Override
+    public FramebufferT framebufferGetDefault() {
+        final long timestamp = System.nanoTime();
+        final FramebufferT result;
+
+        try {
+            result = this.delegate.framebufferGetDefault();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FRAMEBUFFER_GET_DEFAULT, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FRAMEBUFFER_GET_DEFAULT, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void framebufferGetPixels(final FramebufferT framebuffer, final int x, final int y, final int width, final int height, final int format, final int type, final float[] dst) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.framebufferGetPixels(framebuffer, x, y, width, height, format, type, dst);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FRAMEBUFFER_GET_PIXELS_FLOAT_ARRAY, new Object[]{framebuffer, x, y, width, height, format, type, dst}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                FRAMEBUFFER_GET_PIXELS_FLOAT_ARRAY, HANDLE + 6 * INT + PAYLOAD + VOID,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(framebuffer)
+                    .putInt(x)
+                    .putInt(y)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(format)
+                    .putInt(type)
+                    .putOutput(dst)
+                    .end();
+        }
+    }
+
+    @Override
+    public void framebufferGetPixels(final FramebufferT framebuffer, final int x, final int y, final int width, final int height, final int format, final int type, final int[] dst) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.framebufferGetPixels(framebuffer, x, y, width, height, format, type, dst);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FRAMEBUFFER_GET_PIXELS_INT_ARRAY, new Object[]{framebuffer, x, y, width, height, format, type, dst}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                FRAMEBUFFER_GET_PIXELS_INT_ARRAY, HANDLE + 6 * INT + PAYLOAD + VOID,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(framebuffer)
+                    .putInt(x)
+                    .putInt(y)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(format)
+                    .putInt(type)
+                    .putOutput(dst)
+                    .end();
+        }
+    }
+
+    @Override
+    public void framebufferGetPixels(final FramebufferT framebuffer, final int x, final int y, final int width, final int height, final int format, final int type, final BufferT dstBuffer) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.framebufferGetPixels(framebuffer, x, y, width, height, format, type, dstBuffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FRAMEBUFFER_GET_PIXELS_BUFFER, new Object[]{framebuffer, x, y, width, height, format, type, dstBuffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FRAMEBUFFER_GET_PIXELS_BUFFER, 2 * HANDLE + 6 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(framebuffer)
+                    .putInt(x)
+                    .putInt(y)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(format)
+                    .putInt(type)
+                    .putHandle(dstBuffer)
+                    .end();
+        }
+    }
+
+    @Override
+    public void framebufferGetPixels(final FramebufferT framebuffer, final int x, final int y, final int width, final int height, final int format, final int type, final ByteBuffer dstBuffer) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.framebufferGetPixels(framebuffer, x, y, width, height, format, type, dstBuffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FRAMEBUFFER_GET_PIXELS_BYTE_BUFFER, new Object[]{framebuffer, x, y, width, height, format, type, dstBuffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                FRAMEBUFFER_GET_PIXELS_BYTE_BUFFER, HANDLE + 6 * INT + PAYLOAD + VOID,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(framebuffer)
+                    .putInt(x)
+                    .putInt(y)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(format)
+                    .putInt(type)
+                    .putOutput(dstBuffer)
+                    .end();
+        }
+    }
+
+    @Override
+    public boolean framebufferIsComplete(final FramebufferT framebuffer) {
+        final long timestamp = System.nanoTime();
+        final boolean result;
+
+        try {
+            result = this.delegate.framebufferIsComplete(framebuffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(FRAMEBUFFER_IS_COMPLETE, new Object[]{framebuffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(FRAMEBUFFER_IS_COMPLETE, HANDLE + BOOLEAN, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(framebuffer).endBoolean(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int guessFormat(final int internalFormat) {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.guessFormat(internalFormat);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(GUESS_FORMAT, new Object[]{internalFormat}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(GUESS_FORMAT, 2 * INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(internalFormat).endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void maskApply(final boolean red, final boolean green, final boolean blue, final boolean alpha, final boolean depth, final int stencil) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.maskApply(red, green, blue, alpha, depth, stencil);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(MASK_APPLY, new Object[]{red, green, blue, alpha, depth, stencil}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(MASK_APPLY, 5 * BOOLEAN + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putBoolean(red)
+                    .putBoolean(green)
+                    .putBoolean(blue)
+                    .putBoolean(alpha)
+                    .putBoolean(depth)
+                    .putInt(stencil)
+                    .end();
+        }
+    }
+
+    @Override
+    public void memoryBarrier(final int barriers) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.memoryBarrier(barriers);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(MEMORY_BARRIER, new Object[]{barriers}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(MEMORY_BARRIER, INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(barriers).end();
+        }
+    }
+
+    @Override
+    public void polygonSetParameters(final float pointSize, final float lineWidth, final int frontFace, final int cullFace, final int polygonMode, final float offsetFactor, final float offsetUnits) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.polygonSetParameters(pointSize, lineWidth, frontFace, cullFace, polygonMode, offsetFactor, offsetUnits);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(POLYGON_SET_PARAMETERS, new Object[]{pointSize, lineWidth, frontFace, cullFace, polygonMode, offsetFactor, offsetUnits}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(POLYGON_SET_PARAMETERS, 4 * FLOAT + 3 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putFloat(pointSize)
+                    .putFloat(lineWidth)
+                    .putInt(frontFace)
+                    .putInt(cullFace)
+                    .putInt(polygonMode)
+                    .putFloat(offsetFactor)
+                    .putFloat(offsetUnits)
+                    .end();
+        }
+    }
+
+    @Override
+    public ProgramT programCreate() {
+        final long timestamp = System.nanoTime();
+        final ProgramT result;
+
+        try {
+            result = this.delegate.programCreate();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_CREATE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(PROGRAM_CREATE, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void programDelete(final ProgramT program) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programDelete(program);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_DELETE, new Object[]{program}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(PROGRAM_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).end();
+            this.writer.releaseHandle(program);
+        }
+    }
+
+    @Override
+    public void programDispatchCompute(final ProgramT program, final int numX, final int numY, final int numZ) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programDispatchCompute(program, numX, numY, numZ);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_DISPATCH_COMPUTE, new Object[]{program, numX, numY, numZ}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(PROGRAM_DISPATCH_COMPUTE, HANDLE + 3 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putInt(numX).putInt(numY).putInt(numZ).end();
+        }
+    }
+
+    @Override
+    public void programDispatchComputeIndirect(final ProgramT program, final BufferT cmdBuffer, final long offset) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programDispatchComputeIndirect(program, cmdBuffer, offset);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_DISPATCH_COMPUTE_INDIRECT, new Object[]{program, cmdBuffer, offset}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(PROGRAM_DISPATCH_COMPUTE_INDIRECT, 2 * HANDLE + LONG + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putHandle(cmdBuffer).putLong(offset).end();
+        }
+    }
+
+    @Override
+    public int programGetStorageBlockBinding(final ProgramT program, final String storageBlockName) {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.programGetStorageBlockBinding(program, storageBlockName);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_GET_STORAGE_BLOCK_BINDING, new Object[]{program, storageBlockName}, ex, timestamp);
+            throw ex;
+        }
+
+        final byte[] storageBlockNameUtf8 = TraceWriter.utf8(storageBlockName);
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_GET_STORAGE_BLOCK_BINDING, HANDLE + TraceWriter.sizeOf(storageBlockNameUtf8) + INT,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putString(storageBlockNameUtf8).endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int programGetUniformBlockBinding(final ProgramT program, final String uniformBlockName) {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.programGetUniformBlockBinding(program, uniformBlockName);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_GET_UNIFORM_BLOCK_BINDING, new Object[]{program, uniformBlockName}, ex, timestamp);
+            throw ex;
+        }
+
+        final byte[] uniformBlockNameUtf8 = TraceWriter.utf8(uniformBlockName);
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_GET_UNIFORM_BLOCK_BINDING, HANDLE + TraceWriter.sizeOf(uniformBlockNameUtf8) + INT,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putString(uniformBlockNameUtf8).endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int programGetUniformLocation(final ProgramT program, final String name) {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.programGetUniformLocation(program, name);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_GET_UNIFORM_LOCATION, new Object[]{program, name}, ex, timestamp);
+            throw ex;
+        }
+
+        final byte[] nameUtf8 = TraceWriter.utf8(name);
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_GET_UNIFORM_LOCATION, HANDLE + TraceWriter.sizeOf(nameUtf8) + INT,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putString(nameUtf8).endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void programLinkShaders(final ProgramT program, final Shader[] shaders) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programLinkShaders(program, shaders);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_LINK_SHADERS, new Object[]{program, shaders}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(PROGRAM_LINK_SHADERS, HANDLE + OPAQUE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putOpaque(shaders).end();
+        }
+    }
+
+    @Override
+    public void programSetAttribLocation(final ProgramT program, final int index, final String name) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programSetAttribLocation(program, index, name);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_SET_ATTRIB_LOCATION, new Object[]{program, index, name}, ex, timestamp);
+            throw ex;
+        }
+
+        final byte[] nameUtf8 = TraceWriter.utf8(name);
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_SET_ATTRIB_LOCATION, HANDLE + INT + TraceWriter.sizeOf(nameUtf8) + VOID,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putInt(index).putString(nameUtf8).end();
+        }
+    }
+
+    @Override
+    public void programSetFeedbackVaryings(final ProgramT program, final String[] varyings) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programSetFeedbackVaryings(program, varyings);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_SET_FEEDBACK_VARYINGS, new Object[]{program, varyings}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(PROGRAM_SET_FEEDBACK_VARYINGS, HANDLE + OPAQUE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putOpaque(varyings).end();
+        }
+    }
+
+    @Override
+    public void programSetStorageBlockBinding(final ProgramT program, final String uniformBlockName, final int binding) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programSetStorageBlockBinding(program, uniformBlockName, binding);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_SET_STORAGE_BLOCK_BINDING, new Object[]{program, uniformBlockName, binding}, ex, timestamp);
+            throw ex;
+        }
+
+        final byte[] uniformBlockNameUtf8 = TraceWriter.utf8(uniformBlockName);
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_SET_STORAGE_BLOCK_BINDING, HANDLE + TraceWriter.sizeOf(uniformBlockNameUtf8) + INT + VOID,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putString(uniformBlockNameUtf8).putInt(binding).end();
+        }
+    }
+
+    @Override
+    public void programSetUniformBlockBinding(final ProgramT program, final String uniformBlockName, final int binding) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programSetUniformBlockBinding(program, uniformBlockName, binding);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_SET_UNIFORM_BLOCK_BINDING, new Object[]{program, uniformBlockName, binding}, ex, timestamp);
+            throw ex;
+        }
+
+        final byte[] uniformBlockNameUtf8 = TraceWriter.utf8(uniformBlockName);
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_SET_UNIFORM_BLOCK_BINDING, HANDLE + TraceWriter.sizeOf(uniformBlockNameUtf8) + INT + VOID,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putString(uniformBlockNameUtf8).putInt(binding).end();
+        }
+    }
+
+    @Override
+    public void programSetUniformD(final ProgramT program, final int uLoc, final double[] value) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programSetUniformD(program, uLoc, value);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_SET_UNIFORM_D, new Object[]{program, uLoc, value}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_SET_UNIFORM_D, HANDLE + INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(value), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putInt(uLoc).putPayload(value).end();
+        }
+    }
+
+    @Override
+    public void programSetUniformF(final ProgramT program, final int uLoc, final float[] value) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programSetUniformF(program, uLoc, value);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_SET_UNIFORM_F, new Object[]{program, uLoc, value}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_SET_UNIFORM_F, HANDLE + INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(value), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putInt(uLoc).putPayload(value).end();
+        }
+    }
+
+    @Override
+    public void programSetUniformI(final ProgramT program, final int uLoc, final int[] value) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programSetUniformI(program, uLoc, value);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_SET_UNIFORM_I, new Object[]{program, uLoc, value}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_SET_UNIFORM_I, HANDLE + INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(value), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putInt(uLoc).putPayload(value).end();
+        }
+    }
+
+    @Override
+    public void programSetUniformMatD(final ProgramT program, final int uLoc, final double[] mat) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programSetUniformMatD(program, uLoc, mat);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_SET_UNIFORM_MAT_D_DOUBLE_ARRAY, new Object[]{program, uLoc, mat}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_SET_UNIFORM_MAT_D_DOUBLE_ARRAY, HANDLE + INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(mat), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putInt(uLoc).putPayload(mat).end();
+        }
+    }
+
+    @Override
+    public void programSetUniformMatD(final ProgramT program, final int uLoc, final DoubleBuffer mat) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programSetUniformMatD(program, uLoc, mat);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_SET_UNIFORM_MAT_D_DOUBLE_BUFFER, new Object[]{program, uLoc, mat}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_SET_UNIFORM_MAT_D_DOUBLE_BUFFER, HANDLE + INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(mat), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putInt(uLoc).putPayload(mat).end();
+        }
+    }
+
+    @Override
+    public void programSetUniformMatF(final ProgramT program, final int uLoc, final float[] mat) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programSetUniformMatF(program, uLoc, mat);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_SET_UNIFORM_MAT_F_FLOAT_ARRAY, new Object[]{program, uLoc, mat}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_SET_UNIFORM_MAT_F_FLOAT_ARRAY, HANDLE + INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(mat), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putInt(uLoc).putPayload(mat).end();
+        }
+    }
+
+    @Override
+    public void programSetUniformMatF(final ProgramT program, final int uLoc, final FloatBuffer mat) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programSetUniformMatF(program, uLoc, mat);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_SET_UNIFORM_MAT_F_FLOAT_BUFFER, new Object[]{program, uLoc, mat}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                PROGRAM_SET_UNIFORM_MAT_F_FLOAT_BUFFER, HANDLE + INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(mat), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).putInt(uLoc).putPayload(mat).end();
+        }
+    }
+
+    @Override
+    public void programUse(final ProgramT program) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.programUse(program);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(PROGRAM_USE, new Object[]{program}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(PROGRAM_USE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(program).end();
+        }
+    }
+
+    @Override
+    public void queryBegin(final Query query, final int target) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.queryBegin(query, target);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(QUERY_BEGIN, new Object[]{query, target}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(QUERY_BEGIN, HANDLE + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(query).putInt(target).end();
+        }
+    }
+
+    @Override
+    public Query queryCreate() {
+        final long timestamp = System.nanoTime();
+        final Query result;
+
+        try {
+            result = this.delegate.queryCreate();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(QUERY_CREATE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(QUERY_CREATE, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void queryDelete(final Query query) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.queryDelete(query);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(QUERY_DELETE, new Object[]{query}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(QUERY_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(query).end();
+            this.writer.releaseHandle(query);
+        }
+    }
+
+    @Override
+    public void queryEnd(final int target) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.queryEnd(target);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(QUERY_END, new Object[]{target}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(QUERY_END, INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(target).end();
+        }
+    }
+
+    @Override
+    public long queryGetResult(final Query query) {
+        final long timestamp = System.nanoTime();
+        final long result;
+
+        try {
+            result = this.delegate.queryGetResult(query);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(QUERY_GET_RESULT, new Object[]{query}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(QUERY_GET_RESULT, HANDLE + LONG, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(query).endLong(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean queryIsResultAvailable(final Query query) {
+        final long timestamp = System.nanoTime();
+        final boolean result;
+
+        try {
+            result = this.delegate.queryIsResultAvailable(query);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(QUERY_IS_RESULT_AVAILABLE, new Object[]{query}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(QUERY_IS_RESULT_AVAILABLE, HANDLE + BOOLEAN, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(query).endBoolean(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void queryTimestamp(final Query query) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.queryTimestamp(query);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(QUERY_TIMESTAMP, new Object[]{query}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(QUERY_TIMESTAMP, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(query).end();
+        }
+    }
+
+    @Override
+    public RenderbufferT renderbufferCreate(final int internalFormat, final int width, final int height) {
+        final long timestamp = System.nanoTime();
+        final RenderbufferT result;
+
+        try {
+            result = this.delegate.renderbufferCreate(internalFormat, width, height);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(RENDERBUFFER_CREATE_3, new Object[]{internalFormat, width, height}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(RENDERBUFFER_CREATE_3, 3 * INT + HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(internalFormat).putInt(width).putInt(height).endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public RenderbufferT renderbufferCreate(final int internalFormat, final int width, final int height, final int samples) {
+        final long timestamp = System.nanoTime();
+        final RenderbufferT result;
+
+        try {
+            result = this.delegate.renderbufferCreate(internalFormat, width, height, samples);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(RENDERBUFFER_CREATE_4, new Object[]{internalFormat, width, height, samples}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(RENDERBUFFER_CREATE_4, 4 * INT + HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(internalFormat)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(samples)
+                    .endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void renderbufferDelete(final RenderbufferT renderbuffer) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.renderbufferDelete(renderbuffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(RENDERBUFFER_DELETE, new Object[]{renderbuffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(RENDERBUFFER_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(renderbuffer).end();
+            this.writer.releaseHandle(renderbuffer);
+        }
+    }
+
+    @Override
+    public void samplerBind(final int unit, final SamplerT sampler) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.samplerBind(unit, sampler);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SAMPLER_BIND, new Object[]{unit, sampler}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SAMPLER_BIND, INT + HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(unit).putHandle(sampler).end();
+        }
+    }
+
+    @Override
+    public SamplerT samplerCreate() {
+        final long timestamp = System.nanoTime();
+        final SamplerT result;
+
+        try {
+            result = this.delegate.samplerCreate();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SAMPLER_CREATE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SAMPLER_CREATE, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void samplerDelete(final SamplerT sampler) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.samplerDelete(sampler);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SAMPLER_DELETE, new Object[]{sampler}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SAMPLER_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(sampler).end();
+            this.writer.releaseHandle(sampler);
+        }
+    }
+
+    @Override
+    public void samplerSetParameter(final SamplerT sampler, final int param, final float value) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.samplerSetParameter(sampler, param, value);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SAMPLER_SET_PARAMETER_FLOAT, new Object[]{sampler, param, value}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SAMPLER_SET_PARAMETER_FLOAT, HANDLE + INT + FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(sampler).putInt(param).putFloat(value).end();
+        }
+    }
+
+    @Override
+    public void samplerSetParameter(final SamplerT sampler, final int param, final int value) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.samplerSetParameter(sampler, param, value);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SAMPLER_SET_PARAMETER_INT, new Object[]{sampler, param, value}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SAMPLER_SET_PARAMETER_INT, HANDLE + 2 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(sampler).putInt(param).putInt(value).end();
+        }
+    }
+
+    @Override
+    public void scissorTestDisable() {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.scissorTestDisable();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SCISSOR_TEST_DISABLE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SCISSOR_TEST_DISABLE, VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.end();
+        }
+    }
+
+    @Override
+    public void scissorTestEnable(final int left, final int bottom, final int width, final int height) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.scissorTestEnable(left, bottom, width, height);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SCISSOR_TEST_ENABLE, new Object[]{left, bottom, width, height}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SCISSOR_TEST_ENABLE, 4 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(left).putInt(bottom).putInt(width).putInt(height).end();
+        }
+    }
+
+    @Override
+    public ShaderT shaderCompile(final int type, final String source) {
+        final long timestamp = System.nanoTime();
+        final ShaderT result;
+
+        try {
+            result = this.delegate.shaderCompile(type, source);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SHADER_COMPILE, new Object[]{type, source}, ex, timestamp);
+            throw ex;
+        }
+
+        final byte[] sourceUtf8 = TraceWriter.utf8(source);
+        final TraceWriter.Cursor cursor = this.writer.begin(SHADER_COMPILE, INT + TraceWriter.sizeOf(sourceUtf8) + HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(type).putString(sourceUtf8).endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void shaderDelete(final ShaderT shader) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.shaderDelete(shader);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SHADER_DELETE, new Object[]{shader}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SHADER_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(shader).end();
+            this.writer.releaseHandle(shader);
+        }
+    }
+
+    @Override
+    public String shaderGetInfoLog(final ShaderT shader) {
+        final long timestamp = System.nanoTime();
+        final String result;
+
+        try {
+            result = this.delegate.shaderGetInfoLog(shader);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SHADER_GET_INFO_LOG, new Object[]{shader}, ex, timestamp);
+            throw ex;
+        }
+
+        final byte[] resultUtf8 = TraceWriter.utf8(result);
+        final TraceWriter.Cursor cursor = this.writer.begin(SHADER_GET_INFO_LOG, HANDLE + TraceWriter.sizeOf(resultUtf8), 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(shader).endString(resultUtf8);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int shaderGetParameterI(final ShaderT shader, final int pName) {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.shaderGetParameterI(shader, pName);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SHADER_GET_PARAMETER_I, new Object[]{shader, pName}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SHADER_GET_PARAMETER_I, HANDLE + 2 * INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(shader).putInt(pName).endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int shaderGetVersion() {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.shaderGetVersion();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(SHADER_GET_VERSION, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(SHADER_GET_VERSION, INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public TextureT textureAllocate(final int mipmaps, final int internalFormat, final int width, final int height, final int depth, final int dataType) {
+        final long timestamp = System.nanoTime();
+        final TextureT result;
+
+        try {
+            result = this.delegate.textureAllocate(mipmaps, internalFormat, width, height, depth, dataType);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_ALLOCATE, new Object[]{mipmaps, internalFormat, width, height, depth, dataType}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_ALLOCATE, 6 * INT + HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(mipmaps)
+                    .putInt(internalFormat)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(depth)
+                    .putInt(dataType)
+                    .endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void textureBind(final TextureT texture, final int unit) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureBind(texture, unit);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_BIND, new Object[]{texture, unit}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_BIND, HANDLE + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture).putInt(unit).end();
+        }
+    }
+
+    @Override
+    public void textureDelete(final TextureT texture) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureDelete(texture);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_DELETE, new Object[]{texture}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture).end();
+            this.writer.releaseHandle(texture);
+        }
+    }
+
+    @Override
+    public void textureGenerateMipmap(final TextureT texture) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureGenerateMipmap(texture);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_GENERATE_MIPMAP, new Object[]{texture}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_GENERATE_MIPMAP, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture).end();
+        }
+    }
+
+    @Override
+    public void textureGetData(final TextureT texture, final int level, final int format, final int type, final float[] out) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureGetData(texture, level, format, type, out);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_GET_DATA_FLOAT_ARRAY, new Object[]{texture, level, format, type, out}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_GET_DATA_FLOAT_ARRAY, HANDLE + 3 * INT + PAYLOAD + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture)
+                    .putInt(level)
+                    .putInt(format)
+                    .putInt(type)
+                    .putOutput(out)
+                    .end();
+        }
+    }
+
+    @Override
+    public void textureGetData(final TextureT texture, final int level, final int format, final int type, final int[] out) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureGetData(texture, level, format, type, out);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_GET_DATA_INT_ARRAY, new Object[]{texture, level, format, type, out}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_GET_DATA_INT_ARRAY, HANDLE + 3 * INT + PAYLOAD + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture)
+                    .putInt(level)
+                    .putInt(format)
+                    .putInt(type)
+                    .putOutput(out)
+                    .end();
+        }
+    }
+
+    @Override
+    public void textureGetData(final TextureT texture, final int level, final int format, final int type, final BufferT out, final long offset, final int size) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureGetData(texture, level, format, type, out, offset, size);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_GET_DATA_BUFFER, new Object[]{texture, level, format, type, out, offset, size}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_GET_DATA_BUFFER, 2 * HANDLE + 4 * INT + LONG + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture)
+                    .putInt(level)
+                    .putInt(format)
+                    .putInt(type)
+                    .putHandle(out)
+                    .putLong(offset)
+                    .putInt(size)
+                    .end();
+        }
+    }
+
+    @Override
+    public void textureGetData(final TextureT texture, final int level, final int format, final int type, final ByteBuffer out) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureGetData(texture, level, format, type, out);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_GET_DATA_BYTE_BUFFER, new Object[]{texture, level, format, type, out}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_GET_DATA_BYTE_BUFFER, HANDLE + 3 * INT + PAYLOAD + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture)
+                    .putInt(level)
+                    .putInt(format)
+                    .putInt(type)
+                    .putOutput(out)
+                    .end();
+        }
+    }
+
+    @Override
+    public float textureGetMaxAnisotropy() {
+        final long timestamp = System.nanoTime();
+        final float result;
+
+        try {
+            result = this.delegate.textureGetMaxAnisotropy();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_GET_MAX_ANISOTROPY, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_GET_MAX_ANISOTROPY, FLOAT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endFloat(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int textureGetMaxBoundTextures() {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.textureGetMaxBoundTextures();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_GET_MAX_BOUND_TEXTURES, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_GET_MAX_BOUND_TEXTURES, INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int textureGetMaxSize() {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.textureGetMaxSize();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_GET_MAX_SIZE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_GET_MAX_SIZE, INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int textureGetPreferredFormat(final int internalFormat) {
+        final long timestamp = System.nanoTime();
+        final int result;
+
+        try {
+            result = this.delegate.textureGetPreferredFormat(internalFormat);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_GET_PREFERRED_FORMAT, new Object[]{internalFormat}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_GET_PREFERRED_FORMAT, 2 * INT, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(internalFormat).endInt(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void textureInvalidateData(final TextureT texture, final int level) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureInvalidateData(texture, level);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_INVALIDATE_DATA, new Object[]{texture, level}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_INVALIDATE_DATA, HANDLE + INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture).putInt(level).end();
+        }
+    }
+
+    @Override
+    public void textureInvalidateRange(final TextureT texture, final int level, final int xOffset, final int yOffset, final int zOffset, final int width, final int height, final int depth) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureInvalidateRange(texture, level, xOffset, yOffset, zOffset, width, height, depth);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_INVALIDATE_RANGE, new Object[]{texture, level, xOffset, yOffset, zOffset, width, height, depth}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_INVALIDATE_RANGE, HANDLE + 7 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture)
+                    .putInt(level)
+                    .putInt(xOffset)
+                    .putInt(yOffset)
+                    .putInt(zOffset)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(depth)
+                    .end();
+        }
+    }
+
+    @Override
+    public long textureMap(final TextureT t) {
+        final long timestamp = System.nanoTime();
+        final long result;
+
+        try {
+            result = this.delegate.textureMap(t);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_MAP, new Object[]{t}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_MAP, HANDLE + LONG, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(t).endLong(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void textureSetData(final TextureT texture, final int level, final int xOffset, final int yOffset, final int zOffset, final int width, final int height, final int depth, final int format, final int type, final float[] data) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureSetData(texture, level, xOffset, yOffset, zOffset, width, height, depth, format, type, data);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_SET_DATA_FLOAT_ARRAY, new Object[]{texture, level, xOffset, yOffset, zOffset, width, height, depth, format, type, data}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                TEXTURE_SET_DATA_FLOAT_ARRAY, HANDLE + 9 * INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(data), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture)
+                    .putInt(level)
+                    .putInt(xOffset)
+                    .putInt(yOffset)
+                    .putInt(zOffset)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(depth)
+                    .putInt(format)
+                    .putInt(type)
+                    .putPayload(data)
+                    .end();
+        }
+    }
+
+    @Override
+    public void textureSetData(final TextureT texture, final int level, final int xOffset, final int yOffset, final int zOffset, final int width, final int height, final int depth, final int format, final int type, final int[] data) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureSetData(texture, level, xOffset, yOffset, zOffset, width, height, depth, format, type, data);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_SET_DATA_INT_ARRAY, new Object[]{texture, level, xOffset, yOffset, zOffset, width, height, depth, format, type, data}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                TEXTURE_SET_DATA_INT_ARRAY, HANDLE + 9 * INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(data), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture)
+                    .putInt(level)
+                    .putInt(xOffset)
+                    .putInt(yOffset)
+                    .putInt(zOffset)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(depth)
+                    .putInt(format)
+                    .putInt(type)
+                    .putPayload(data)
+                    .end();
+        }
+    }
+
+    @Override
+    public void textureSetData(final TextureT texture, final int level, final int xOffset, final int yOffset, final int zOffset, final int width, final int height, final int depth, final int format, final int type, final BufferT buffer, final long offset) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureSetData(texture, level, xOffset, yOffset, zOffset, width, height, depth, format, type, buffer, offset);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_SET_DATA_BUFFER, new Object[]{texture, level, xOffset, yOffset, zOffset, width, height, depth, format, type, buffer, offset}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_SET_DATA_BUFFER, 2 * HANDLE + 9 * INT + LONG + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture)
+                    .putInt(level)
+                    .putInt(xOffset)
+                    .putInt(yOffset)
+                    .putInt(zOffset)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(depth)
+                    .putInt(format)
+                    .putInt(type)
+                    .putHandle(buffer)
+                    .putLong(offset)
+                    .end();
+        }
+    }
+
+    @Override
+    public void textureSetData(final TextureT texture, final int level, final int xOffset, final int yOffset, final int zOffset, final int width, final int height, final int depth, final int format, final int type, final ByteBuffer data) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureSetData(texture, level, xOffset, yOffset, zOffset, width, height, depth, format, type, data);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_SET_DATA_BYTE_BUFFER, new Object[]{texture, level, xOffset, yOffset, zOffset, width, height, depth, format, type, data}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                TEXTURE_SET_DATA_BYTE_BUFFER, HANDLE + 9 * INT + PAYLOAD + VOID,
+                TraceWriter.payloadSize(data), timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture)
+                    .putInt(level)
+                    .putInt(xOffset)
+                    .putInt(yOffset)
+                    .putInt(zOffset)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(depth)
+                    .putInt(format)
+                    .putInt(type)
+                    .putPayload(data)
+                    .end();
+        }
+    }
+
+    @Override
+    public void textureSetParameter(final TextureT texture, final int param, final float value) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureSetParameter(texture, param, value);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_SET_PARAMETER_FLOAT, new Object[]{texture, param, value}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_SET_PARAMETER_FLOAT, HANDLE + INT + FLOAT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture).putInt(param).putFloat(value).end();
+        }
+    }
+
+    @Override
+    public void textureSetParameter(final TextureT texture, final int param, final int value) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureSetParameter(texture, param, value);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_SET_PARAMETER_INT, new Object[]{texture, param, value}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_SET_PARAMETER_INT, HANDLE + 2 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(texture).putInt(param).putInt(value).end();
+        }
+    }
+
+    @Override
+    public void textureUnmap(final TextureT t) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.textureUnmap(t);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TEXTURE_UNMAP, new Object[]{t}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TEXTURE_UNMAP, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(t).end();
+        }
+    }
+
+    @Override
+    public void transformFeedbackBegin(final int drawMode) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.transformFeedbackBegin(drawMode);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TRANSFORM_FEEDBACK_BEGIN, new Object[]{drawMode}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TRANSFORM_FEEDBACK_BEGIN, INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(drawMode).end();
+        }
+    }
+
+    @Override
+    public void transformFeedbackEnd() {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.transformFeedbackEnd();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(TRANSFORM_FEEDBACK_END, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(TRANSFORM_FEEDBACK_END, VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.end();
+        }
+    }
+
+    @Override
+    public void vertexArrayAttachBuffer(final VertexArrayT vao, final int index, final BufferT buffer, final int size, final int type, final boolean normalized, final int stride, final long offset, final int divisor) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.vertexArrayAttachBuffer(vao, index, buffer, size, type, normalized, stride, offset, divisor);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(VERTEX_ARRAY_ATTACH_BUFFER_9, new Object[]{vao, index, buffer, size, type, normalized, stride, offset, divisor}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                VERTEX_ARRAY_ATTACH_BUFFER_9, 2 * HANDLE + 5 * INT + BOOLEAN + LONG + VOID,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(vao)
+                    .putInt(index)
+                    .putHandle(buffer)
+                    .putInt(size)
+                    .putInt(type)
+                    .putBoolean(normalized)
+                    .putInt(stride)
+                    .putLong(offset)
+                    .putInt(divisor)
+                    .end();
+        }
+    }
+
+    @Override
+    public void vertexArrayAttachBuffer(final VertexArrayT vao, final int index, final BufferT buffer, final int size, final int type, final int stride, final long offset, final int divisor) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.vertexArrayAttachBuffer(vao, index, buffer, size, type, stride, offset, divisor);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(VERTEX_ARRAY_ATTACH_BUFFER_8, new Object[]{vao, index, buffer, size, type, stride, offset, divisor}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                VERTEX_ARRAY_ATTACH_BUFFER_8, 2 * HANDLE + 5 * INT + LONG + VOID,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(vao)
+                    .putInt(index)
+                    .putHandle(buffer)
+                    .putInt(size)
+                    .putInt(type)
+                    .putInt(stride)
+                    .putLong(offset)
+                    .putInt(divisor)
+                    .end();
+        }
+    }
+
+    @Override
+    public void vertexArrayAttachIndexBuffer(final VertexArrayT vao, final BufferT buffer) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.vertexArrayAttachIndexBuffer(vao, buffer);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(VERTEX_ARRAY_ATTACH_INDEX_BUFFER, new Object[]{vao, buffer}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(VERTEX_ARRAY_ATTACH_INDEX_BUFFER, 2 * HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(vao).putHandle(buffer).end();
+        }
+    }
+
+    @Override
+    public VertexArrayT vertexArrayCreate() {
+        final long timestamp = System.nanoTime();
+        final VertexArrayT result;
+
+        try {
+            result = this.delegate.vertexArrayCreate();
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(VERTEX_ARRAY_CREATE, null, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(VERTEX_ARRAY_CREATE, HANDLE, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.endHandle(result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void vertexArrayDelete(final VertexArrayT vao) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.vertexArrayDelete(vao);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(VERTEX_ARRAY_DELETE, new Object[]{vao}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(VERTEX_ARRAY_DELETE, HANDLE + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(vao).end();
+            this.writer.releaseHandle(vao);
+        }
+    }
+
+    @Override
+    public void vertexArrayDrawArrays(final VertexArrayT vao, final int drawMode, final int start, final int count) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.vertexArrayDrawArrays(vao, drawMode, start, count);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(VERTEX_ARRAY_DRAW_ARRAYS, new Object[]{vao, drawMode, start, count}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(VERTEX_ARRAY_DRAW_ARRAYS, HANDLE + 3 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(vao).putInt(drawMode).putInt(start).putInt(count).end();
+        }
+    }
+
+    @Override
+    public void vertexArrayDrawArraysIndirect(final VertexArrayT vao, final BufferT cmdBuffer, final int drawMode, final long offset) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.vertexArrayDrawArraysIndirect(vao, cmdBuffer, drawMode, offset);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(VERTEX_ARRAY_DRAW_ARRAYS_INDIRECT, new Object[]{vao, cmdBuffer, drawMode, offset}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                VERTEX_ARRAY_DRAW_ARRAYS_INDIRECT, 2 * HANDLE + INT + LONG + VOID,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(vao).putHandle(cmdBuffer).putInt(drawMode).putLong(offset).end();
+        }
+    }
+
+    @Override
+    public void vertexArrayDrawArraysInstanced(final VertexArrayT vao, final int drawMode, final int first, final int count, final int instanceCount) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.vertexArrayDrawArraysInstanced(vao, drawMode, first, count, instanceCount);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(VERTEX_ARRAY_DRAW_ARRAYS_INSTANCED, new Object[]{vao, drawMode, first, count, instanceCount}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(VERTEX_ARRAY_DRAW_ARRAYS_INSTANCED, HANDLE + 4 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(vao)
+                    .putInt(drawMode)
+                    .putInt(first)
+                    .putInt(count)
+                    .putInt(instanceCount)
+                    .end();
+        }
+    }
+
+    @Override
+    public void vertexArrayDrawElements(final VertexArrayT vao, final int drawMode, final int count, final int type, final long offset) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.vertexArrayDrawElements(vao, drawMode, count, type, offset);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(VERTEX_ARRAY_DRAW_ELEMENTS, new Object[]{vao, drawMode, count, type, offset}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(VERTEX_ARRAY_DRAW_ELEMENTS, HANDLE + 3 * INT + LONG + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(vao).putInt(drawMode).putInt(count).putInt(type).putLong(offset).end();
+        }
+    }
+
+    @Override
+    public void vertexArrayDrawElementsIndirect(final VertexArrayT vao, final BufferT cmdBuffer, final int drawMode, final int indexType, final long offset) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.vertexArrayDrawElementsIndirect(vao, cmdBuffer, drawMode, indexType, offset);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(VERTEX_ARRAY_DRAW_ELEMENTS_INDIRECT, new Object[]{vao, cmdBuffer, drawMode, indexType, offset}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                VERTEX_ARRAY_DRAW_ELEMENTS_INDIRECT, 2 * HANDLE + 2 * INT + LONG + VOID,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(vao)
+                    .putHandle(cmdBuffer)
+                    .putInt(drawMode)
+                    .putInt(indexType)
+                    .putLong(offset)
+                    .end();
+        }
+    }
+
+    @Override
+    public void vertexArrayDrawElementsInstanced(final VertexArrayT vao, final int drawMode, final int count, final int type, final long offset, final int instanceCount) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.vertexArrayDrawElementsInstanced(vao, drawMode, count, type, offset, instanceCount);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(VERTEX_ARRAY_DRAW_ELEMENTS_INSTANCED, new Object[]{vao, drawMode, count, type, offset, instanceCount}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(
+                VERTEX_ARRAY_DRAW_ELEMENTS_INSTANCED, HANDLE + 4 * INT + LONG + VOID,
+                0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putHandle(vao)
+                    .putInt(drawMode)
+                    .putInt(count)
+                    .putInt(type)
+                    .putLong(offset)
+                    .putInt(instanceCount)
+                    .end();
+        }
+    }
+
+    @Override
+    public void viewportApply(final int x, final int y, final int width, final int height) {
+        final long timestamp = System.nanoTime();
+
+        try {
+            this.delegate.viewportApply(x, y, width, height);
+        } catch (RuntimeException | Error ex) {
+            this.writer.recordThrown(VIEWPORT_APPLY, new Object[]{x, y, width, height}, ex, timestamp);
+            throw ex;
+        }
+
+        final TraceWriter.Cursor cursor = this.writer.begin(VIEWPORT_APPLY, 4 * INT + VOID, 0L, timestamp);
+
+        if (cursor != null) {
+            cursor.putInt(x).putInt(y).putInt(width).putInt(height).end();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TracingGLDriver: [" + this.delegate + "]";
+    }
+}